@@ -0,0 +1,36 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Content and headers of a blob to be created by {@link BlobStore#createAll(java.util.List)}. The content is only
+ * opened when the blob is written, so a large batch does not hold many streams open at once.
+ *
+ * @since 3.0
+ */
+public interface BlobSource
+{
+  /**
+   * Headers of the blob, see {@link BlobStore#create(InputStream, Map)}.
+   */
+  Map<String, String> getHeaders();
+
+  /**
+   * Opens the content of the blob. The stream is closed by the blob store once written.
+   */
+  InputStream openInputStream() throws IOException;
+}
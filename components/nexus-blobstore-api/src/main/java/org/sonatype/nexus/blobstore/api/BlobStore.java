@@ -13,6 +13,7 @@
 package org.sonatype.nexus.blobstore.api;
 
 import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nullable;
@@ -53,6 +54,17 @@ public interface BlobStore
    */
   Blob create(InputStream blobData, Map<String, String> headers);
 
+  /**
+   * Creates several blobs at once. Implementations may write the content concurrently and record the metadata of
+   * the whole batch together, which is much cheaper than creating the blobs one by one when importing many small
+   * blobs. Either all the blobs are created or none are: if any of them fails, those already written are removed.
+   *
+   * @return the created blobs, in the order of the sources
+   * @throws BlobStoreException       (or a subclass) if any of the sources can't be read correctly
+   * @throws IllegalArgumentException if mandatory headers are missing from any source
+   */
+  List<Blob> createAll(List<? extends BlobSource> sources);
+
   /**
    * Returns the corresponding {@link Blob}, or {@code null} if the  blob does not exist or has been {@link #delete
    * deleted}.
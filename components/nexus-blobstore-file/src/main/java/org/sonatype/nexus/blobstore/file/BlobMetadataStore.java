@@ -12,6 +12,9 @@
  */
 package org.sonatype.nexus.blobstore.file;
 
+import java.util.List;
+import java.util.Map;
+
 import javax.annotation.Nullable;
 
 import org.sonatype.nexus.blobstore.api.BlobId;
@@ -29,11 +32,21 @@ public interface BlobMetadataStore
    */
   BlobId add(BlobMetadata metadata);
 
+  /**
+   * Adds all the metadata in a single transaction, and returns the keys they're now associated with, in order.
+   */
+  List<BlobId> addAll(List<BlobMetadata> metadata);
+
   @Nullable
   BlobMetadata get(BlobId key);
 
   void update(BlobId blobId, BlobMetadata metadata);
 
+  /**
+   * Updates all the metadata in a single transaction.
+   */
+  void updateAll(Map<BlobId, BlobMetadata> metadata);
+
   void delete(BlobId blobId);
 
   /**
@@ -17,13 +17,22 @@ import java.io.InputStream;
 import java.nio.file.FileStore;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.Nullable;
 
 import org.sonatype.nexus.blobstore.api.Blob;
 import org.sonatype.nexus.blobstore.api.BlobId;
 import org.sonatype.nexus.blobstore.api.BlobMetrics;
+import org.sonatype.nexus.blobstore.api.BlobSource;
 import org.sonatype.nexus.blobstore.api.BlobStore;
 import org.sonatype.nexus.blobstore.api.BlobStoreException;
 import org.sonatype.nexus.blobstore.api.BlobStoreListener;
@@ -33,6 +42,10 @@ import org.sonatype.nexus.common.collect.AutoClosableIterable;
 import org.sonatype.sisu.goodies.lifecycle.LifecycleSupport;
 
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.joda.time.DateTime;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -49,6 +62,11 @@ public class FileBlobStore
 {
   public static final String BLOB_CONTENT_SUFFIX = ".blob";
 
+  /**
+   * Number of threads writing blob content concurrently for {@link #createAll(List)}.
+   */
+  private static final int WRITER_THREADS = Integer.getInteger(FileBlobStore.class.getName() + ".writerThreads", 4);
+
   private final Path root;
 
   private final LocationStrategy locationStrategy;
@@ -59,6 +77,8 @@ public class FileBlobStore
 
   private volatile BlobStoreListener listener;
 
+  private ExecutorService writers;
+
   public FileBlobStore(final Path root,
                        final LocationStrategy locationStrategy,
                        final FileOperations fileOperations,
@@ -73,10 +93,14 @@ public class FileBlobStore
   @Override
   protected void doStart() throws Exception {
     metadataStore.start();
+    writers = Executors.newFixedThreadPool(WRITER_THREADS,
+        new ThreadFactoryBuilder().setNameFormat("blobstore-writer-%d").setDaemon(true).build());
   }
 
   @Override
   protected void doStop() throws Exception {
+    writers.shutdown();
+    writers = null;
     metadataStore.stop();
   }
 
@@ -102,10 +126,7 @@ public class FileBlobStore
   @Override
   public Blob create(final InputStream blobData, final Map<String, String> headers) {
     checkNotNull(blobData);
-    checkNotNull(headers);
-
-    checkArgument(headers.containsKey(BLOB_NAME_HEADER), "Missing header: %s", BLOB_NAME_HEADER);
-    checkArgument(headers.containsKey(CREATED_BY_HEADER), "Missing header: %s", CREATED_BY_HEADER);
+    checkHeaders(headers);
 
     BlobId blobId = null;
 
@@ -114,18 +135,9 @@ public class FileBlobStore
       final BlobMetadata metadata = new BlobMetadata(BlobState.CREATING, headers);
       blobId = metadataStore.add(metadata);
 
-      final Path path = pathFor(blobId);
-      log.debug("Writing blob {} to {}", blobId, path);
-
-      final StreamMetrics streamMetrics = fileOperations.create(path, blobData);
-      final BlobMetrics metrics = new BlobMetrics(new DateTime(), streamMetrics.getSHA1(), streamMetrics.getSize());
-      final FileBlob blob = new FileBlob(blobId, headers, path, metrics);
+      final FileBlob blob = write(blobId, blobData, headers);
 
-      if (listener != null) {
-        listener.blobCreated(blob, "Blob: " + blobId + " written to: " + path);
-      }
-
-      metadata.setMetrics(metrics);
+      metadata.setMetrics(blob.getMetrics());
       // Storing the content went fine, so we can now unmark this for deletion
       metadata.setBlobState(BlobState.ALIVE);
       metadataStore.update(blobId, metadata);
@@ -137,6 +149,122 @@ public class FileBlobStore
     }
   }
 
+  @Override
+  public List<Blob> createAll(final List<? extends BlobSource> sources) {
+    checkNotNull(sources);
+    for (BlobSource source : sources) {
+      checkHeaders(source.getHeaders());
+    }
+
+    // Record all blobs as being created in one go, as a reminder to clean up should any of them fail
+    final List<BlobMetadata> metadata = Lists.newArrayListWithCapacity(sources.size());
+    for (BlobSource source : sources) {
+      metadata.add(new BlobMetadata(BlobState.CREATING, source.getHeaders()));
+    }
+    final List<BlobId> blobIds = metadataStore.addAll(metadata);
+
+    final AtomicBoolean cancelled = new AtomicBoolean();
+    final List<Future<FileBlob>> writes = Lists.newArrayListWithCapacity(sources.size());
+    for (int i = 0; i < sources.size(); i++) {
+      final BlobId blobId = blobIds.get(i);
+      final BlobSource source = sources.get(i);
+      writes.add(writers.submit(new Callable<FileBlob>()
+      {
+        @Override
+        public FileBlob call() throws Exception {
+          if (cancelled.get()) {
+            throw new CancellationException("Batch discarded");
+          }
+          return write(blobId, source.openInputStream(), source.getHeaders());
+        }
+      }));
+    }
+
+    final List<Blob> blobs = Lists.newArrayListWithCapacity(sources.size());
+    BlobStoreException failure = null;
+    for (int i = 0; i < writes.size(); i++) {
+      try {
+        blobs.add(writes.get(i).get());
+      }
+      catch (ExecutionException e) {
+        if (failure == null) {
+          failure = new BlobStoreException(e.getCause(), blobIds.get(i));
+        }
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (failure == null) {
+          failure = new BlobStoreException(e, blobIds.get(i));
+        }
+        // the whole batch is discarded: skip the writes not started yet, but let the running ones finish, so no
+        // content gets written after the batch is marked for deletion
+        cancelled.set(true);
+        awaitWrites(writes.subList(i, writes.size()));
+        break;
+      }
+    }
+
+    final Map<BlobId, BlobMetadata> updates = Maps.newLinkedHashMap();
+    for (int i = 0; i < blobIds.size(); i++) {
+      BlobMetadata each = metadata.get(i);
+      if (failure != null) {
+        // Let compaction remove whatever content was written
+        each.setBlobState(BlobState.MARKED_FOR_DELETION);
+      }
+      else {
+        each.setMetrics(blobs.get(i).getMetrics());
+        each.setBlobState(BlobState.ALIVE);
+      }
+      updates.put(blobIds.get(i), each);
+    }
+    metadataStore.updateAll(updates);
+
+    if (failure != null) {
+      throw failure;
+    }
+    return blobs;
+  }
+
+  /**
+   * Waits for the given writes to complete, regardless of their outcome and of the current thread being interrupted.
+   */
+  private void awaitWrites(final List<Future<FileBlob>> writes) {
+    for (Future<FileBlob> write : writes) {
+      try {
+        Uninterruptibles.getUninterruptibly(write);
+      }
+      catch (ExecutionException | CancellationException e) {
+        // ignore, the batch is failing already
+      }
+    }
+  }
+
+  private void checkHeaders(final Map<String, String> headers) {
+    checkNotNull(headers);
+
+    checkArgument(headers.containsKey(BLOB_NAME_HEADER), "Missing header: %s", BLOB_NAME_HEADER);
+    checkArgument(headers.containsKey(CREATED_BY_HEADER), "Missing header: %s", CREATED_BY_HEADER);
+  }
+
+  /**
+   * Writes the content of a blob, whose metadata has already been added.
+   */
+  private FileBlob write(final BlobId blobId, final InputStream blobData, final Map<String, String> headers)
+      throws IOException
+  {
+    final Path path = pathFor(blobId);
+    log.debug("Writing blob {} to {}", blobId, path);
+
+    final StreamMetrics streamMetrics = fileOperations.create(path, blobData);
+    final BlobMetrics metrics = new BlobMetrics(new DateTime(), streamMetrics.getSHA1(), streamMetrics.getSize());
+    final FileBlob blob = new FileBlob(blobId, headers, path, metrics);
+
+    if (listener != null) {
+      listener.blobCreated(blob, "Blob: " + blobId + " written to: " + path);
+    }
+    return blob;
+  }
+
   @Nullable
   @Override
   public Blob get(final BlobId blobId) {
@@ -21,6 +21,7 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Objects;
@@ -33,6 +34,7 @@ import org.sonatype.nexus.common.collect.AutoClosableIterable;
 import org.sonatype.nexus.common.io.DirSupport;
 import org.sonatype.sisu.goodies.lifecycle.LifecycleSupport;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.joda.time.DateTime;
 import org.mapdb.Atomic;
@@ -299,6 +301,37 @@ public class MapdbBlobMetadataStore
     });
   }
 
+  @Override
+  public List<BlobId> addAll(final List<BlobMetadata> metadata) {
+    checkNotNull(metadata);
+    ensureStarted();
+
+    final List<MetadataRecord> records = Lists.newArrayListWithCapacity(metadata.size());
+    for (BlobMetadata each : metadata) {
+      records.add(convert(each));
+    }
+
+    return database.execute(new Fun.Function1<List<BlobId>, DB>()
+    {
+      @Override
+      public List<BlobId> run(final DB db) {
+        List<BlobId> ids = Lists.newArrayListWithCapacity(records.size());
+        for (MetadataRecord record : records) {
+          BlobId id = newId(db);
+          log.trace("Add: {}={}", id, record);
+
+          MetadataRecord prev = entries(db).put(id, record);
+          checkState(prev == null, "Duplicate blob-id: %s", id);
+
+          // track state
+          states(db, record.state).add(id);
+          ids.add(id);
+        }
+        return ids;
+      }
+    });
+  }
+
   @Nullable
   @Override
   public BlobMetadata get(final BlobId id) {
@@ -343,6 +376,36 @@ public class MapdbBlobMetadataStore
     });
   }
 
+  @Override
+  public void updateAll(final Map<BlobId, BlobMetadata> metadata) {
+    checkNotNull(metadata);
+    ensureStarted();
+
+    final Map<BlobId, MetadataRecord> records = Maps.newLinkedHashMap();
+    for (Map.Entry<BlobId, BlobMetadata> entry : metadata.entrySet()) {
+      records.put(entry.getKey(), convert(entry.getValue()));
+    }
+
+    database.execute(new TxBlock()
+    {
+      @Override
+      public void tx(final DB db) throws TxRollbackException {
+        for (Map.Entry<BlobId, MetadataRecord> entry : records.entrySet()) {
+          BlobId id = entry.getKey();
+          MetadataRecord record = entry.getValue();
+          log.trace("Update: {}={}", id, record);
+
+          MetadataRecord prev = entries(db).put(id, record);
+          checkState(prev != null, "Can not update non-existent blob-id: %s", id);
+
+          // replace state
+          states(db, prev.state).remove(id);
+          states(db, record.state).add(id);
+        }
+      }
+    });
+  }
+
   @Override
   public void delete(final BlobId id) {
     checkNotNull(id);
@@ -20,6 +20,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 
 import org.sonatype.nexus.blobstore.file.internal.MetricsInputStream;
+import org.sonatype.nexus.common.io.ChannelSupport;
 import org.sonatype.nexus.common.io.DirSupport;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
@@ -71,7 +72,7 @@ public class SimpleFileOperations
   @Override
   public InputStream openInputStream(final Path path) throws IOException {
     checkNotNull(path);
-    return Files.newInputStream(path, StandardOpenOption.READ);
+    return ChannelSupport.newInputStream(path);
   }
 
   @Override
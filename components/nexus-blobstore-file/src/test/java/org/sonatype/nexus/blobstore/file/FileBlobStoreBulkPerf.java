@@ -0,0 +1,123 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.sonatype.nexus.blobstore.api.BlobSource;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+import org.sonatype.sisu.litmus.testsupport.group.Perf;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.sonatype.nexus.blobstore.api.BlobStore.BLOB_NAME_HEADER;
+import static org.sonatype.nexus.blobstore.api.BlobStore.CREATED_BY_HEADER;
+
+/**
+ * Compares importing small files into {@link FileBlobStore} one by one with importing them in batches through
+ * {@link FileBlobStore#createAll(List)}. 100k files of 1KB are imported by default; the sizes may be changed with the
+ * "files", "fileSize" and "batchSize" system properties.
+ */
+@Category(Perf.class)
+public class FileBlobStoreBulkPerf
+    extends TestSupport
+{
+  private static final int FILES = Integer.getInteger("files", 100000);
+
+  private static final int FILE_SIZE = Integer.getInteger("fileSize", 1024);
+
+  private static final int BATCH_SIZE = Integer.getInteger("batchSize", 1000);
+
+  private FileBlobStore underTest;
+
+  private final byte[] content = new byte[FILE_SIZE];
+
+  @Before
+  public void setUp() throws Exception {
+    Path root = util.createTempDir().toPath();
+    BlobMetadataStore metadataStore = MapdbBlobMetadataStore.create(root.resolve("metadata").toFile());
+    underTest = new FileBlobStore(root.resolve("content"), new VolumeChapterLocationStrategy(),
+        new SimpleFileOperations(), metadataStore);
+    underTest.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    underTest.stop();
+  }
+
+  @Test
+  public void createOneByOne() {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    for (int i = 0; i < FILES; i++) {
+      underTest.create(new ByteArrayInputStream(content), headers(i));
+    }
+    report("one by one", stopwatch);
+  }
+
+  @Test
+  public void createInBatches() {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    List<BlobSource> batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+    for (int i = 0; i < FILES; i++) {
+      batch.add(source(i));
+      if (batch.size() == BATCH_SIZE) {
+        underTest.createAll(batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      underTest.createAll(batch);
+    }
+    report("in batches of " + BATCH_SIZE, stopwatch);
+  }
+
+  private void report(final String mode, final Stopwatch stopwatch) {
+    long elapsed = stopwatch.elapsed(MILLISECONDS);
+    log.info("Created {} blobs {} in {} ms ({} blobs/s)", FILES, mode, elapsed, FILES * 1000L / Math.max(elapsed, 1));
+    assertThat(underTest.getMetrics().getBlobCount(), is(equalTo((long) FILES)));
+  }
+
+  private BlobSource source(final int n) {
+    return new BlobSource()
+    {
+      @Override
+      public Map<String, String> getHeaders() {
+        return headers(n);
+      }
+
+      @Override
+      public InputStream openInputStream() {
+        return new ByteArrayInputStream(content);
+      }
+    };
+  }
+
+  private static Map<String, String> headers(final int n) {
+    return ImmutableMap.of(CREATED_BY_HEADER, "perf", BLOB_NAME_HEADER, "perf/file-" + n + ".bin");
+  }
+}
@@ -16,14 +16,19 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import org.sonatype.nexus.blobstore.api.Blob;
 import org.sonatype.nexus.blobstore.api.BlobMetrics;
+import org.sonatype.nexus.blobstore.api.BlobSource;
+import org.sonatype.nexus.blobstore.api.BlobStoreException;
 import org.sonatype.nexus.blobstore.api.BlobStoreMetrics;
 import org.sonatype.sisu.litmus.testsupport.TestSupport;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Before;
@@ -33,7 +38,9 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
 import static org.sonatype.nexus.blobstore.api.BlobStore.BLOB_NAME_HEADER;
 import static org.sonatype.nexus.blobstore.api.BlobStore.CREATED_BY_HEADER;
 
@@ -113,6 +120,75 @@ public class FileBlobStoreIT
     //assertThat("compacting should reclaim deleted blobs' space", storeMetrics3.getTotalSize(), is(equalTo(0L)));
   }
 
+  @Test
+  public void createAll() throws Exception {
+    final List<byte[]> contents = Lists.newArrayList();
+    final List<BlobSource> sources = Lists.newArrayList();
+    for (int i = 0; i < 20; i++) {
+      byte[] content = new byte[TEST_DATA_LENGTH];
+      new Random().nextBytes(content);
+      contents.add(content);
+      sources.add(source(content));
+    }
+
+    final List<Blob> blobs = underTest.createAll(sources);
+
+    assertThat(blobs.size(), is(equalTo(20)));
+    for (int i = 0; i < 20; i++) {
+      final Blob blob = underTest.get(blobs.get(i).getId());
+      assertThat(blob, is(notNullValue()));
+      assertThat("data must survive", extractContent(blob), is(equalTo(contents.get(i))));
+    }
+    assertThat(underTest.getMetrics().getBlobCount(), is(equalTo(20L)));
+  }
+
+  @Test
+  public void createAllDiscardsBatchOnFailure() throws Exception {
+    final List<BlobSource> sources = Lists.newArrayList();
+    for (int i = 0; i < 5; i++) {
+      sources.add(source(new byte[TEST_DATA_LENGTH]));
+    }
+    sources.add(new BlobSource()
+    {
+      @Override
+      public Map<String, String> getHeaders() {
+        return TEST_HEADERS;
+      }
+
+      @Override
+      public InputStream openInputStream() throws IOException {
+        throw new IOException("unreadable");
+      }
+    });
+
+    try {
+      underTest.createAll(sources);
+      fail();
+    }
+    catch (BlobStoreException e) {
+      // expected
+    }
+
+    // the written blobs were marked for deletion, so compaction removes them all
+    underTest.compact();
+    assertThat(underTest.getMetrics().getBlobCount(), is(equalTo(0L)));
+  }
+
+  private BlobSource source(final byte[] content) {
+    return new BlobSource()
+    {
+      @Override
+      public Map<String, String> getHeaders() {
+        return TEST_HEADERS;
+      }
+
+      @Override
+      public InputStream openInputStream() {
+        return new ByteArrayInputStream(content);
+      }
+    };
+  }
+
   private byte[] extractContent(final Blob blob) throws IOException {
     try (InputStream inputStream = blob.getInputStream()) {
       return IOUtils.toByteArray(inputStream);
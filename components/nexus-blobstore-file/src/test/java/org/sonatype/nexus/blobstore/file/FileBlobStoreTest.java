@@ -16,27 +16,43 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.sonatype.nexus.blobstore.api.Blob;
 import org.sonatype.nexus.blobstore.api.BlobId;
 import org.sonatype.nexus.blobstore.api.BlobMetrics;
+import org.sonatype.nexus.blobstore.api.BlobSource;
 import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.blobstore.api.BlobStoreException;
 import org.sonatype.nexus.blobstore.file.FileOperations.StreamMetrics;
 import org.sonatype.sisu.litmus.testsupport.TestSupport;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.joda.time.DateTime;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -106,6 +122,115 @@ public class FileBlobStoreTest
         metrics.getCreationTime().isAfter(new DateTime().minusSeconds(2)));
   }
 
+  @Test
+  public void createAllRecordsMetadataInBulk() throws Exception {
+    final BlobId id1 = new BlobId("id1");
+    final BlobId id2 = new BlobId("id2");
+    final ImmutableMap<String, String> headers = ImmutableMap.of(
+        BlobStore.BLOB_NAME_HEADER, "my blob",
+        BlobStore.CREATED_BY_HEADER, "John did this"
+    );
+    final BlobSource source1 = mock(BlobSource.class);
+    final BlobSource source2 = mock(BlobSource.class);
+    final InputStream inputStream1 = mock(InputStream.class);
+    final InputStream inputStream2 = mock(InputStream.class);
+    when(source1.getHeaders()).thenReturn(headers);
+    when(source2.getHeaders()).thenReturn(headers);
+    when(source1.openInputStream()).thenReturn(inputStream1);
+    when(source2.openInputStream()).thenReturn(inputStream2);
+
+    when(metadataStore.addAll(anyListOf(BlobMetadata.class))).thenReturn(ImmutableList.of(id1, id2));
+    when(locationStrategy.location(id1)).thenReturn("path1");
+    when(locationStrategy.location(id2)).thenReturn("path2");
+    when(fileOps.create(root.resolve("path1" + FileBlobStore.BLOB_CONTENT_SUFFIX), inputStream1))
+        .thenReturn(new StreamMetrics(100L, "sha1"));
+    when(fileOps.create(root.resolve("path2" + FileBlobStore.BLOB_CONTENT_SUFFIX), inputStream2))
+        .thenReturn(new StreamMetrics(200L, "sha2"));
+
+    final List<Blob> blobs = underTest.createAll(ImmutableList.of(source1, source2));
+
+    assertThat(blobs.get(0).getId(), is(equalTo(id1)));
+    assertThat(blobs.get(0).getMetrics().getContentSize(), is(equalTo(100L)));
+    assertThat(blobs.get(1).getId(), is(equalTo(id2)));
+    assertThat(blobs.get(1).getMetrics().getContentSize(), is(equalTo(200L)));
+
+    verify(metadataStore).updateAll(anyMapOf(BlobId.class, BlobMetadata.class));
+    verify(metadataStore, never()).add(any(BlobMetadata.class));
+    verify(metadataStore, never()).update(any(BlobId.class), any(BlobMetadata.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void createAllWaitsForRunningWritesWhenInterrupted() throws Exception {
+    final BlobId id1 = new BlobId("id1");
+    final ImmutableMap<String, String> headers = ImmutableMap.of(
+        BlobStore.BLOB_NAME_HEADER, "my blob",
+        BlobStore.CREATED_BY_HEADER, "John did this"
+    );
+    final BlobSource source1 = mock(BlobSource.class);
+    final InputStream inputStream1 = mock(InputStream.class);
+    when(source1.getHeaders()).thenReturn(headers);
+    when(source1.openInputStream()).thenReturn(inputStream1);
+    when(metadataStore.addAll(anyListOf(BlobMetadata.class))).thenReturn(ImmutableList.of(id1));
+    when(locationStrategy.location(id1)).thenReturn("path1");
+
+    final CountDownLatch writing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicBoolean written = new AtomicBoolean();
+    when(fileOps.create(root.resolve("path1" + FileBlobStore.BLOB_CONTENT_SUFFIX), inputStream1)).thenAnswer(
+        new Answer<StreamMetrics>()
+        {
+          @Override
+          public StreamMetrics answer(final InvocationOnMock invocation) throws Throwable {
+            writing.countDown();
+            Uninterruptibles.awaitUninterruptibly(release);
+            written.set(true);
+            return new StreamMetrics(100L, "sha1");
+          }
+        });
+
+    final AtomicReference<Exception> failure = new AtomicReference<>();
+    final AtomicBoolean writtenBeforeUpdate = new AtomicBoolean();
+    final AtomicReference<BlobState> updatedState = new AtomicReference<>();
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(final InvocationOnMock invocation) throws Throwable {
+        writtenBeforeUpdate.set(written.get());
+        updatedState.set(((Map<BlobId, BlobMetadata>) invocation.getArguments()[0]).get(id1).getBlobState());
+        return null;
+      }
+    }).when(metadataStore).updateAll(anyMapOf(BlobId.class, BlobMetadata.class));
+
+    final Thread creator = new Thread(new Runnable()
+    {
+      @Override
+      public void run() {
+        try {
+          underTest.createAll(ImmutableList.of(source1));
+        }
+        catch (Exception e) {
+          failure.set(e);
+        }
+      }
+    });
+    creator.start();
+    writing.await();
+    creator.interrupt();
+
+    // the batch is not discarded while its write is still running
+    creator.join(100L);
+    assertThat(creator.isAlive(), is(true));
+    verify(metadataStore, never()).updateAll(anyMapOf(BlobId.class, BlobMetadata.class));
+
+    release.countDown();
+    creator.join();
+
+    assertThat(failure.get(), instanceOf(BlobStoreException.class));
+    assertThat(writtenBeforeUpdate.get(), is(true));
+    assertThat(updatedState.get(), is(BlobState.MARKED_FOR_DELETION));
+  }
+
   @Test
   public void getExistingBlob() throws Exception {
     final BlobId fakeId = new BlobId("fakeId");
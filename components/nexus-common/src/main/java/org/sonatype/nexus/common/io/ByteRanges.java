@@ -0,0 +1,359 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.common.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Range;
+import com.google.common.io.ByteStreams;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * HTTP byte ranges (RFC 7233) support class. Offers static helper methods to parse {@code Range} headers, and to send
+ * or stream ranges of content, as single range or {@code multipart/byteranges} content.
+ *
+ * @since 3.0
+ */
+public final class ByteRanges
+{
+  private ByteRanges() {
+    // no instance
+  }
+
+  /**
+   * Maximum count of ranges accepted in one request, requests with more ranges get complete content.
+   */
+  public static final int MAX_RANGES = 100;
+
+  private static final String CRLF = "\r\n";
+
+  private static final Comparator<Range<Long>> BY_LOWER_ENDPOINT = new Comparator<Range<Long>>()
+  {
+    @Override
+    public int compare(final Range<Long> o1, final Range<Long> o2) {
+      return o1.lowerEndpoint().compareTo(o2.lowerEndpoint());
+    }
+  };
+
+  /**
+   * Parses the value of a {@code Range} header against content of given length. Returns {@code null} if the header
+   * should be ignored (it is absent, malformed, not for bytes, or content length is unknown), an empty list if none of
+   * the ranges is satisfiable, or the satisfiable ranges, clamped to content length, sorted and with overlapping or
+   * adjacent ranges coalesced.
+   */
+  @Nullable
+  public static List<Range<Long>> parse(@Nullable final String rangeHeader, final long length) {
+    if (Strings.isNullOrEmpty(rangeHeader) || length < 0 || !rangeHeader.startsWith("bytes=")) {
+      return null;
+    }
+    final String[] specs = rangeHeader.substring(6).split(",");
+    if (specs.length > MAX_RANGES) {
+      return null;
+    }
+    final List<Range<Long>> ranges = new ArrayList<>(specs.length);
+    try {
+      for (String spec : specs) {
+        final String trimmed = spec.trim();
+        final int dash = trimmed.indexOf('-');
+        if (dash < 0) {
+          return null;
+        }
+        final String first = trimmed.substring(0, dash).trim();
+        final String last = trimmed.substring(dash + 1).trim();
+        if (first.isEmpty()) {
+          // suffix range: last N bytes
+          final long suffix = Long.parseLong(last);
+          if (suffix < 0) {
+            return null;
+          }
+          if (suffix > 0 && length > 0) {
+            ranges.add(Range.closed(Math.max(0, length - suffix), length - 1));
+          }
+        }
+        else {
+          final long from = Long.parseLong(first);
+          final long to = last.isEmpty() ? length - 1 : Long.parseLong(last);
+          if (from < 0 || to < from) {
+            return null;
+          }
+          if (from < length) {
+            ranges.add(Range.closed(from, Math.min(to, length - 1)));
+          }
+        }
+      }
+    }
+    catch (NumberFormatException e) {
+      return null;
+    }
+    return coalesce(ranges);
+  }
+
+  /**
+   * Returns {@code Content-Range} header value for given range of content of given length.
+   */
+  public static String contentRange(final Range<Long> range, final long length) {
+    return "bytes " + range.lowerEndpoint() + "-" + range.upperEndpoint() + "/" + length;
+  }
+
+  /**
+   * Returns {@code Content-Range} header value for unsatisfiable range response for content of given length.
+   */
+  public static String unsatisfiedContentRange(final long length) {
+    return "bytes */" + length;
+  }
+
+  /**
+   * Returns the count of bytes in the range.
+   */
+  public static long size(final Range<Long> range) {
+    return 1 + range.upperEndpoint() - range.lowerEndpoint();
+  }
+
+  /**
+   * Returns a new random multipart boundary.
+   */
+  public static String newBoundary() {
+    return UUID.randomUUID().toString().replace("-", "");
+  }
+
+  /**
+   * Returns {@code Content-Type} header value of {@code multipart/byteranges} content with given boundary.
+   */
+  public static String multipartContentType(final String boundary) {
+    return "multipart/byteranges; boundary=" + boundary;
+  }
+
+  /**
+   * Returns the exact length of {@code multipart/byteranges} content as written by {@link #copyMultipart}.
+   */
+  public static long multipartLength(final List<Range<Long>> ranges,
+                                     final long length,
+                                     @Nullable final String contentType,
+                                     final String boundary)
+  {
+    long result = 0;
+    for (Range<Long> range : ranges) {
+      result += partHeader(range, length, contentType, boundary).length + size(range) + CRLF.length();
+    }
+    return result + closingDelimiter(boundary).length;
+  }
+
+  /**
+   * Sends the ranges (as returned by {@link #parse}) of the input stream as {@code multipart/byteranges} content.
+   * File backed content is sent using {@link ChannelSupport}. Neither of the streams is closed.
+   */
+  public static long copyMultipart(final InputStream from,
+                                   final List<Range<Long>> ranges,
+                                   final long length,
+                                   @Nullable final String contentType,
+                                   final String boundary,
+                                   final OutputStream to,
+                                   final int bufferSize)
+      throws IOException
+  {
+    checkNotNull(from);
+    checkNotNull(to);
+    long position = 0;
+    long count = 0;
+    for (Range<Long> range : ranges) {
+      checkArgument(range.lowerEndpoint() >= position, "Ranges must be sorted and not overlapping");
+      final byte[] header = partHeader(range, length, contentType, boundary);
+      to.write(header);
+      ChannelSupport.copyRange(from, range.lowerEndpoint() - position, size(range), to, bufferSize);
+      to.write(CRLF.getBytes(StandardCharsets.US_ASCII));
+      position = range.upperEndpoint() + 1;
+      count += header.length + size(range) + CRLF.length();
+    }
+    final byte[] closing = closingDelimiter(boundary);
+    to.write(closing);
+    return count + closing.length;
+  }
+
+  /**
+   * Returns a stream of the given range of the input stream. Closing the returned stream closes the input stream.
+   */
+  public static InputStream openRange(final InputStream from, final Range<Long> range) {
+    checkNotNull(from);
+    return new RangeInputStream(from, range.lowerEndpoint(), size(range), true);
+  }
+
+  /**
+   * Returns a stream of the ranges (as returned by {@link #parse}) of the input stream as {@code multipart/byteranges}
+   * content, same as written by {@link #copyMultipart}. Closing the returned stream closes the input stream.
+   */
+  public static InputStream openMultipart(final InputStream from,
+                                          final List<Range<Long>> ranges,
+                                          final long length,
+                                          @Nullable final String contentType,
+                                          final String boundary)
+  {
+    checkNotNull(from);
+    final List<InputStream> parts = new ArrayList<>(ranges.size() * 3 + 1);
+    long position = 0;
+    for (Range<Long> range : ranges) {
+      checkArgument(range.lowerEndpoint() >= position, "Ranges must be sorted and not overlapping");
+      parts.add(new ByteArrayInputStream(partHeader(range, length, contentType, boundary)));
+      parts.add(new RangeInputStream(from, range.lowerEndpoint() - position, size(range), false));
+      parts.add(new ByteArrayInputStream(CRLF.getBytes(StandardCharsets.US_ASCII)));
+      position = range.upperEndpoint() + 1;
+    }
+    parts.add(new ByteArrayInputStream(closingDelimiter(boundary)));
+    return new FilterInputStream(new SequenceInputStream(Collections.enumeration(parts)))
+    {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        }
+        finally {
+          from.close();
+        }
+      }
+    };
+  }
+
+  // ==
+
+  private static List<Range<Long>> coalesce(final List<Range<Long>> ranges) {
+    if (ranges.size() < 2) {
+      return ranges;
+    }
+    Collections.sort(ranges, BY_LOWER_ENDPOINT);
+    final List<Range<Long>> result = new ArrayList<>(ranges.size());
+    Range<Long> current = ranges.get(0);
+    for (Range<Long> range : ranges.subList(1, ranges.size())) {
+      if (range.lowerEndpoint() <= current.upperEndpoint() + 1) {
+        current = Range.closed(current.lowerEndpoint(), Math.max(current.upperEndpoint(), range.upperEndpoint()));
+      }
+      else {
+        result.add(current);
+        current = range;
+      }
+    }
+    result.add(current);
+    return result;
+  }
+
+  private static byte[] partHeader(final Range<Long> range,
+                                   final long length,
+                                   @Nullable final String contentType,
+                                   final String boundary)
+  {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("--").append(boundary).append(CRLF);
+    if (contentType != null) {
+      sb.append("Content-Type: ").append(contentType).append(CRLF);
+    }
+    sb.append("Content-Range: ").append(contentRange(range, length)).append(CRLF);
+    sb.append(CRLF);
+    return sb.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static byte[] closingDelimiter(final String boundary) {
+    return ("--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Stream of a range of the wrapped stream, that skips (seeks, if possible) to the range start lazily, on first read.
+   */
+  private static class RangeInputStream
+      extends FilterInputStream
+  {
+    private final boolean closeWrapped;
+
+    private long skip;
+
+    private long remaining;
+
+    private RangeInputStream(final InputStream in, final long skip, final long size, final boolean closeWrapped) {
+      super(in);
+      this.skip = skip;
+      this.remaining = size;
+      this.closeWrapped = closeWrapped;
+    }
+
+    private void skipToRange() throws IOException {
+      if (skip > 0) {
+        ByteStreams.skipFully(in, skip);
+        skip = 0;
+      }
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      skipToRange();
+      final int result = in.read();
+      if (result != -1) {
+        remaining--;
+      }
+      return result;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      skipToRange();
+      final int result = in.read(b, off, (int) Math.min(len, remaining));
+      if (result != -1) {
+        remaining -= result;
+      }
+      return result;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+      skipToRange();
+      final long result = in.skip(Math.min(n, remaining));
+      remaining -= result;
+      return result;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return skip > 0 ? 0 : (int) Math.min(in.available(), remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closeWrapped) {
+        super.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,274 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.common.io;
+
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.io.ByteStreams;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Channel related support class. Offers static helper methods to send file backed content to output streams without
+ * copying it through heap buffers, when both ends allow it: content is transferred directly if the output stream is
+ * a {@link WritableByteChannel}, or is read into pooled direct {@link ByteBuffer}s and written as such if the output
+ * stream has a {@code write(ByteBuffer)} method (as Jetty's {@code HttpOutput} does). Otherwise content is copied as
+ * usual.
+ *
+ * @since 3.0
+ */
+public final class ChannelSupport
+{
+  private ChannelSupport() {
+    // no instance
+  }
+
+  /**
+   * Implemented by {@link InputStream}s that read a file and can expose its {@link FileChannel}.
+   */
+  public interface FileChannelSource
+  {
+    /**
+     * Returns the channel of the file being read, or {@code null} if not available.
+     */
+    @Nullable
+    FileChannel getFileChannel();
+  }
+
+  private static final boolean ENABLED = SystemPropertiesHelper.getBoolean(
+      ChannelSupport.class.getName() + ".enabled", true
+  );
+
+  /**
+   * Content shorter than this is copied, as it fits few heap buffers anyway.
+   */
+  private static final long MIN_SIZE = SystemPropertiesHelper.getLong(
+      ChannelSupport.class.getName() + ".minSize", 64L * 1024L
+  );
+
+  private static final int DIRECT_BUFFER_SIZE = SystemPropertiesHelper.getInteger(
+      ChannelSupport.class.getName() + ".directBufferSize", 256 * 1024
+  );
+
+  /**
+   * Direct buffers are pooled, as they are costly to allocate and their memory is released only once they are garbage
+   * collected. Buffers returned to a full pool are left to the garbage collector.
+   */
+  private static final BlockingQueue<ByteBuffer> DIRECT_BUFFERS = new ArrayBlockingQueue<>(
+      SystemPropertiesHelper.getInteger(ChannelSupport.class.getName() + ".directBufferPoolSize", 16)
+  );
+
+  private static final LoadingCache<Class<?>, Optional<Method>> BYTE_BUFFER_WRITERS = CacheBuilder.newBuilder()
+      .weakKeys()
+      .build(new CacheLoader<Class<?>, Optional<Method>>()
+      {
+        @Override
+        public Optional<Method> load(final Class<?> key) {
+          if (!Modifier.isPublic(key.getModifiers())) {
+            return Optional.absent();
+          }
+          try {
+            return Optional.of(key.getMethod("write", ByteBuffer.class));
+          }
+          catch (NoSuchMethodException e) {
+            return Optional.absent();
+          }
+        }
+      });
+
+  /**
+   * Opens an input stream reading the file at given path, that exposes its {@link FileChannel}.
+   */
+  public static InputStream newInputStream(final Path path) throws IOException {
+    checkNotNull(path);
+    final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    return new FileChannelInputStream(channel);
+  }
+
+  /**
+   * Returns the file channel the input stream reads from, or {@code null} if the stream is not known to read a file.
+   * Note: the returned channel shares position with the stream and is closed when the stream is closed.
+   */
+  @Nullable
+  public static FileChannel getFileChannel(final InputStream input) {
+    if (input instanceof FileInputStream) {
+      return ((FileInputStream) input).getChannel();
+    }
+    else if (input instanceof FileChannelSource) {
+      return ((FileChannelSource) input).getFileChannel();
+    }
+    return null;
+  }
+
+  /**
+   * Skips {@code offset} bytes of the input stream and sends following {@code length} bytes to the output stream. If
+   * length is negative, content up to the end of the input stream is sent. For file backed streams skipping is a seek.
+   * The input stream is left positioned after the sent content, and neither of the streams is closed.
+   */
+  public static long copyRange(final InputStream from,
+                               final long offset,
+                               final long length,
+                               final OutputStream to,
+                               final int bufferSize)
+      throws IOException
+  {
+    checkNotNull(from);
+    checkNotNull(to);
+    checkArgument(offset >= 0);
+    checkArgument(bufferSize > 0);
+    final FileChannel channel = ENABLED ? getFileChannel(from) : null;
+    if (channel != null) {
+      final long start = channel.position() + offset;
+      final long count = Math.max(0, length < 0 ? channel.size() - start : Math.min(length, channel.size() - start));
+      if (count >= MIN_SIZE) {
+        if (to instanceof WritableByteChannel) {
+          transfer(channel, start, count, (WritableByteChannel) to);
+          channel.position(start + count);
+          return count;
+        }
+        final Method writer = BYTE_BUFFER_WRITERS.getUnchecked(to.getClass()).orNull();
+        if (writer != null) {
+          write(channel, start, count, to, writer);
+          channel.position(start + count);
+          return count;
+        }
+      }
+    }
+    ByteStreams.skipFully(from, offset);
+    return StreamSupport.copy(length < 0 ? from : ByteStreams.limit(from, length), to, bufferSize);
+  }
+
+  // ==
+
+  private static void transfer(final FileChannel channel,
+                               final long offset,
+                               final long count,
+                               final WritableByteChannel to)
+      throws IOException
+  {
+    long position = offset;
+    final long end = offset + count;
+    while (position < end) {
+      final long transferred = channel.transferTo(position, end - position, to);
+      if (transferred <= 0 && position >= channel.size()) {
+        throw new EOFException("File truncated while being sent");
+      }
+      position += transferred;
+    }
+  }
+
+  /**
+   * Reads the content into a direct buffer, which is handed over to the output stream's {@code write(ByteBuffer)}
+   * method. Unlike memory mapping, this does not leave mappings of the file around until they get garbage collected.
+   */
+  private static void write(final FileChannel channel,
+                            final long offset,
+                            final long count,
+                            final OutputStream to,
+                            final Method writer)
+      throws IOException
+  {
+    final ByteBuffer buffer = acquireDirectBuffer();
+    try {
+      long position = offset;
+      final long end = offset + count;
+      while (position < end) {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), end - position));
+        final int read = channel.read(buffer, position);
+        if (read < 0) {
+          throw new EOFException("File truncated while being sent");
+        }
+        buffer.flip();
+        try {
+          writer.invoke(to, buffer);
+        }
+        catch (InvocationTargetException e) {
+          Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+          throw Throwables.propagate(e.getCause());
+        }
+        catch (IllegalAccessException e) {
+          throw Throwables.propagate(e);
+        }
+        position += read;
+      }
+    }
+    finally {
+      releaseDirectBuffer(buffer);
+    }
+  }
+
+  private static ByteBuffer acquireDirectBuffer() {
+    final ByteBuffer buffer = DIRECT_BUFFERS.poll();
+    return buffer != null ? buffer : ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+  }
+
+  private static void releaseDirectBuffer(final ByteBuffer buffer) {
+    buffer.clear();
+    DIRECT_BUFFERS.offer(buffer);
+  }
+
+  private static class FileChannelInputStream
+      extends FilterInputStream
+      implements FileChannelSource
+  {
+    private final FileChannel channel;
+
+    private FileChannelInputStream(final FileChannel channel) {
+      super(Channels.newInputStream(channel));
+      this.channel = channel;
+    }
+
+    @Override
+    public FileChannel getFileChannel() {
+      return channel;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+      if (n <= 0) {
+        return 0;
+      }
+      final long position = channel.position();
+      final long skipped = Math.max(0, Math.min(n, channel.size() - position));
+      channel.position(position + skipped);
+      return skipped;
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.common.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.Range;
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for {@link ByteRanges}.
+ */
+public class ByteRangesTest
+    extends TestSupport
+{
+  private static final byte[] PAYLOAD = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes(StandardCharsets.US_ASCII);
+
+  @Test
+  public void parseIgnored() {
+    assertThat(ByteRanges.parse(null, 100), nullValue());
+    assertThat(ByteRanges.parse("items=0-10", 100), nullValue());
+    assertThat(ByteRanges.parse("bytes=10-5", 100), nullValue());
+    assertThat(ByteRanges.parse("bytes=a-b", 100), nullValue());
+    assertThat(ByteRanges.parse("bytes=10", 100), nullValue());
+    assertThat(ByteRanges.parse("bytes=0-10", -1), nullValue());
+  }
+
+  @Test
+  public void parseSingle() {
+    assertThat(ByteRanges.parse("bytes=0-9", 100), contains(Range.closed(0L, 9L)));
+    assertThat(ByteRanges.parse("bytes=90-", 100), contains(Range.closed(90L, 99L)));
+    assertThat(ByteRanges.parse("bytes=-10", 100), contains(Range.closed(90L, 99L)));
+    assertThat(ByteRanges.parse("bytes=-1000", 100), contains(Range.closed(0L, 99L)));
+    assertThat(ByteRanges.parse("bytes=50-1000", 100), contains(Range.closed(50L, 99L)));
+  }
+
+  @Test
+  public void parseUnsatisfiable() {
+    assertThat(ByteRanges.parse("bytes=100-200", 100), empty());
+    assertThat(ByteRanges.parse("bytes=-0", 100), empty());
+  }
+
+  @Test
+  public void parseMultipleCoalesces() {
+    assertThat(ByteRanges.parse("bytes=50-59, 0-9,5-14, 15-19,200-300", 100),
+        contains(Range.closed(0L, 19L), Range.closed(50L, 59L)));
+  }
+
+  @Test
+  public void multipart() throws IOException {
+    final List<Range<Long>> ranges = ByteRanges.parse("bytes=0-3,10-12,-2", PAYLOAD.length);
+    final String boundary = ByteRanges.newBoundary();
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final long count =
+        ByteRanges.copyMultipart(new ByteArrayInputStream(PAYLOAD), ranges, PAYLOAD.length, "text/plain", boundary,
+            out, 4);
+    final byte[] written = out.toByteArray();
+    assertThat(count, equalTo((long) written.length));
+    assertThat(ByteRanges.multipartLength(ranges, PAYLOAD.length, "text/plain", boundary),
+        equalTo((long) written.length));
+    assertThat(new String(written, StandardCharsets.US_ASCII), equalTo(
+        "--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-3/36\r\n\r\n0123\r\n" +
+            "--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 10-12/36\r\n\r\nabc\r\n" +
+            "--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 34-35/36\r\n\r\nyz\r\n" +
+            "--" + boundary + "--\r\n"));
+
+    try (InputStream in = ByteRanges.openMultipart(new ByteArrayInputStream(PAYLOAD), ranges, PAYLOAD.length,
+        "text/plain", boundary)) {
+      assertThat(ByteStreams.toByteArray(in), equalTo(written));
+    }
+  }
+
+  @Test
+  public void openRange() throws IOException {
+    try (InputStream in = ByteRanges.openRange(new ByteArrayInputStream(PAYLOAD), Range.closed(10L, 15L))) {
+      assertThat(ByteStreams.toByteArray(in), equalTo(Arrays.copyOfRange(PAYLOAD, 10, 16)));
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.common.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Tests for {@link ChannelSupport}.
+ */
+public class ChannelSupportTest
+    extends TestSupport
+{
+  private byte[] payload;
+
+  private Path file;
+
+  @Before
+  public void prepare() throws IOException {
+    payload = new byte[200 * 1024];
+    new Random(1L).nextBytes(payload);
+    file = util.createTempFile().toPath();
+    Files.write(file, payload);
+  }
+
+  @Test
+  public void copyRangeOfStream() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final long count = ChannelSupport.copyRange(new ByteArrayInputStream(payload), 10, 100, out, 8);
+    assertThat(count, equalTo(100L));
+    assertThat(out.toByteArray(), equalTo(Arrays.copyOfRange(payload, 10, 110)));
+  }
+
+  @Test
+  public void transferToChannel() throws IOException {
+    final ChannelOutputStream out = new ChannelOutputStream();
+    try (InputStream in = ChannelSupport.newInputStream(file)) {
+      assertThat(ChannelSupport.getFileChannel(in), notNullValue());
+      final long count = ChannelSupport.copyRange(in, 1024, -1, out, 8192);
+      assertThat(count, equalTo(payload.length - 1024L));
+    }
+    assertThat(out.channelUsed, is(true));
+    assertThat(out.toByteArray(), equalTo(Arrays.copyOfRange(payload, 1024, payload.length)));
+  }
+
+  @Test
+  public void writeMappedBuffers() throws IOException {
+    final ByteBufferOutputStream out = new ByteBufferOutputStream();
+    try (InputStream in = ChannelSupport.newInputStream(file)) {
+      ChannelSupport.copyRange(in, 0, 100 * 1024, out, 8192);
+    }
+    assertThat(out.bufferUsed, is(true));
+    assertThat(out.toByteArray(), equalTo(Arrays.copyOfRange(payload, 0, 100 * 1024)));
+  }
+
+  @Test
+  public void smallRangeIsCopied() throws IOException {
+    final ChannelOutputStream out = new ChannelOutputStream();
+    try (InputStream in = ChannelSupport.newInputStream(file)) {
+      ChannelSupport.copyRange(in, 100, 100, out, 8192);
+    }
+    assertThat(out.channelUsed, is(false));
+    assertThat(out.toByteArray(), equalTo(Arrays.copyOfRange(payload, 100, 200)));
+  }
+
+  private static class ChannelOutputStream
+      extends ByteArrayOutputStream
+      implements WritableByteChannel
+  {
+    private final WritableByteChannel channel = Channels.newChannel(this);
+
+    private boolean channelUsed;
+
+    @Override
+    public int write(final ByteBuffer src) throws IOException {
+      channelUsed = true;
+      return channel.write(src);
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+  }
+
+  public static class ByteBufferOutputStream
+      extends ByteArrayOutputStream
+  {
+    private boolean bufferUsed;
+
+    public void write(final ByteBuffer buffer) {
+      bufferUsed = true;
+      final byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      write(bytes, 0, bytes.length);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.sonatype.nexus.proxy.repository.Repository;
+
+/**
+ * AttributeStorage that is able to read the attributes of all the members of a collection at once, used by local
+ * storages when listing collections.
+ *
+ * @since 3.0
+ */
+public interface BatchAttributeStorage
+    extends AttributeStorage
+{
+  /**
+   * Returns the attributes of the direct members of given collection, keyed by their paths. Members having no
+   * attributes stored (yet) are simply not present in the map, and callers should fall back to
+   * {@link #getAttributes(org.sonatype.nexus.proxy.item.RepositoryItemUid)} for them. This method does not take any
+   * UID locks, so returned attributes may be stale compared to concurrent writes.
+   *
+   * @param repository     the repository
+   * @param collectionPath the path of the collection
+   * @return the map of attributes keyed by member paths, never {@code null}.
+   * @throws IOException in case of IO problem.
+   */
+  Map<String, Attributes> getMemberAttributes(Repository repository, String collectionPath)
+      throws IOException;
+}
@@ -0,0 +1,122 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Compact binary Attribute marshaller: a format version byte, followed by the count of entries and the length
+ * prefixed UTF-8 encoded keys and values. Is meant for {@link AttributeStorage} implementations storing attributes
+ * as opaque values, where human readable format buys nothing.
+ *
+ * @since 3.0
+ */
+public class BinaryMarshaller
+    implements Marshaller
+{
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * Attributes have some dozen entries usually, anything above this is certainly garbage.
+   */
+  private static final int MAX_ENTRIES = 65535;
+
+  /**
+   * Same as above, to not allocate huge arrays when reading garbage.
+   */
+  private static final int MAX_LENGTH = 1024 * 1024;
+
+  @Override
+  public void marshal(final Attributes attributes, final OutputStream outputStream)
+      throws IOException
+  {
+    final Map<String, String> attrs = attributes.asMap();
+    final DataOutputStream dos = new DataOutputStream(outputStream);
+    dos.writeByte(FORMAT_VERSION);
+    dos.writeInt(attrs.size());
+    for (Map.Entry<String, String> entry : attrs.entrySet()) {
+      writeString(dos, entry.getKey());
+      writeString(dos, entry.getValue());
+    }
+    dos.flush();
+  }
+
+  @Override
+  public Attributes unmarshal(final InputStream inputStream)
+      throws IOException, InvalidInputException
+  {
+    final DataInputStream dis = new DataInputStream(inputStream);
+    try {
+      final int version = dis.readUnsignedByte();
+      if (version != FORMAT_VERSION) {
+        throw new InvalidInputException("Persisted attribute has unknown format version " + version + "!");
+      }
+      final int size = dis.readInt();
+      if (size < 0 || size > MAX_ENTRIES) {
+        throw new InvalidInputException("Persisted attribute malformed!");
+      }
+      final Map<String, String> attributesMap = new HashMap<String, String>(size * 2);
+      for (int i = 0; i < size; i++) {
+        final String key = readString(dis);
+        attributesMap.put(key, readString(dis));
+      }
+      return new DefaultAttributes(attributesMap);
+    }
+    catch (EOFException e) {
+      throw new InvalidInputException("Persisted attribute truncated!", e);
+    }
+  }
+
+  private void writeString(final DataOutputStream dos, final String value)
+      throws IOException
+  {
+    if (value == null) {
+      dos.writeInt(-1);
+    }
+    else {
+      final byte[] bytes = value.getBytes(Charsets.UTF_8);
+      dos.writeInt(bytes.length);
+      dos.write(bytes);
+    }
+  }
+
+  private String readString(final DataInputStream dis)
+      throws IOException
+  {
+    final int length = dis.readInt();
+    if (length == -1) {
+      return null;
+    }
+    if (length < 0 || length > MAX_LENGTH) {
+      throw new InvalidInputException("Persisted attribute malformed!");
+    }
+    final byte[] bytes = new byte[length];
+    dis.readFully(bytes);
+    return new String(bytes, Charsets.UTF_8);
+  }
+
+  // ==
+
+  public String toString() {
+    return "Binary";
+  }
+}
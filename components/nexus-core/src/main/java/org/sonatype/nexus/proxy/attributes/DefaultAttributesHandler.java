@@ -21,6 +21,7 @@ import javax.inject.Singleton;
 
 import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.events.NexusStoppingEvent;
 import org.sonatype.nexus.proxy.access.AccessManager;
 import org.sonatype.nexus.proxy.item.ContentLocator;
 import org.sonatype.nexus.proxy.item.RepositoryItemUid;
@@ -33,6 +34,9 @@ import org.sonatype.nexus.proxy.repository.ProxyRepository;
 import org.sonatype.nexus.proxy.repository.Repository;
 import org.sonatype.nexus.proxy.repository.RepositoryKind;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+
+import com.google.common.eventbus.Subscribe;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -41,6 +45,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * uses. It uses {@link StorageItemInspector} and {@link StorageFileItemInspector} components for "expansion" of core
  * (and custom) attributes (those components might come from plugins too). This class also implements some
  * "optimizations" for attribute "lastRequested", by using coarser resolution for it (saving it very n-th hour or so).
+ * Optionally, "lastRequested" updates are written behind by {@link LastRequestedTracker}, in which case items handed
+ * out carry the pending value, as read paths overlay it on the stored one.
  *
  * @author cstamas
  */
@@ -84,6 +90,24 @@ public class DefaultAttributesHandler
       "org.sonatype.nexus.proxy.attributes.DefaultAttributesHandler.lastRequested.enabled.proxy",
       LAST_REQUEST_ATTRIBUTE_ENABLED);
 
+  /**
+   * Flag to enable write-behind of the lastRequested attribute updates.
+   */
+  private static final boolean LAST_REQUEST_ATTRIBUTE_WRITE_BEHIND = SystemPropertiesHelper.getBoolean(
+      "org.sonatype.nexus.proxy.attributes.DefaultAttributesHandler.lastRequested.writeBehind", false);
+
+  /**
+   * Interval of lastRequested attribute write-behind flushes, in milliseconds: 1 minute.
+   */
+  private static final long LAST_REQUEST_ATTRIBUTE_WRITE_BEHIND_FLUSH_MILLIS = SystemPropertiesHelper.getLong(
+      "org.sonatype.nexus.proxy.attributes.DefaultAttributesHandler.lastRequested.writeBehind.flushMillis", 60000L);
+
+  /**
+   * Max count of items having pending lastRequested updates. Updates of further items are written directly.
+   */
+  private static final int LAST_REQUEST_ATTRIBUTE_WRITE_BEHIND_CAPACITY = SystemPropertiesHelper.getInteger(
+      "org.sonatype.nexus.proxy.attributes.DefaultAttributesHandler.lastRequested.writeBehind.capacity", 100000);
+
   /**
    * The actual value of lastRequest attribute's resolution. Note: is not final due to UT access, see
    * setter method that is visible for testing.
@@ -100,12 +124,36 @@ public class DefaultAttributesHandler
    */
   private final List<StorageItemInspector> itemInspectorList;
 
+  /**
+   * The lastRequested write-behind tracker, {@code null} if write-behind is disabled.
+   */
+  private final LastRequestedTracker lastRequestedTracker;
+
   @Inject
-  public DefaultAttributesHandler(@Named("ls") AttributeStorage attributeStorage,
-                                  List<StorageItemInspector> itemInspectorList)
+  public DefaultAttributesHandler(@Named("${nexus.attributeStorage:-ls}") AttributeStorage attributeStorage,
+                                  List<StorageItemInspector> itemInspectorList,
+                                  EventBus eventBus)
   {
     this.attributeStorage = checkNotNull(attributeStorage);
     this.itemInspectorList = checkNotNull(itemInspectorList);
+    if (LAST_REQUEST_ATTRIBUTE_WRITE_BEHIND) {
+      this.lastRequestedTracker = new LastRequestedTracker(attributeStorage,
+          LAST_REQUEST_ATTRIBUTE_WRITE_BEHIND_FLUSH_MILLIS, LAST_REQUEST_ATTRIBUTE_WRITE_BEHIND_CAPACITY);
+      lastRequestedTracker.start();
+      eventBus.register(this);
+    }
+    else {
+      this.lastRequestedTracker = null;
+    }
+  }
+
+  /**
+   * Writes out pending lastRequested updates before attribute storages are closed on {@link
+   * org.sonatype.nexus.proxy.events.NexusStoppedEvent}.
+   */
+  @Subscribe
+  public void on(final NexusStoppingEvent e) {
+    lastRequestedTracker.close();
   }
 
   // ==
@@ -155,6 +203,7 @@ public class DefaultAttributesHandler
 
     if (attributes != null) {
       item.getRepositoryItemAttributes().overlayAttributes(attributes);
+      overlayLastRequested(item.getRepositoryItemUid(), item.getRepositoryItemAttributes());
     }
     else {
       // we are fixing md if we can
@@ -235,6 +284,9 @@ public class DefaultAttributesHandler
       return;
     }
 
+    // local storages may hand over attributes read in batch, not via fetchAttributes
+    overlayLastRequested(storageItem.getRepositoryItemUid(), storageItem.getRepositoryItemAttributes());
+
     touchItemLastRequested(timestamp, storageItem.getResourceStoreRequest(), storageItem.getRepositoryItemUid(),
         storageItem.getRepositoryItemAttributes());
   }
@@ -292,12 +344,26 @@ public class DefaultAttributesHandler
         if (diff < 0 || ((diff > 0) && (diff > lastRequestedResolution))) {
           attributes.setLastRequested(timestamp);
 
-          getAttributeStorage().putAttributes(uid, attributes);
+          if (lastRequestedTracker == null || !lastRequestedTracker.touch(uid, timestamp)) {
+            getAttributeStorage().putAttributes(uid, attributes);
+          }
         }
       }
     }
   }
 
+  /**
+   * Applies the pending (not yet written) lastRequested value of the item, if newer than the one passed in.
+   */
+  protected void overlayLastRequested(final RepositoryItemUid uid, final Attributes attributes) {
+    if (lastRequestedTracker != null) {
+      final long pending = lastRequestedTracker.getLastRequested(uid);
+      if (pending > attributes.getLastRequested()) {
+        attributes.setLastRequested(pending);
+      }
+    }
+  }
+
   protected boolean isTouchLastRequestedEnabled(final Repository repository)
       throws IOException
   {
@@ -0,0 +1,209 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.threads.NexusThreadFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Write-behind tracker of the "lastRequested" attribute. Touches are kept in memory, coalesced per item (the last
+ * touch wins), and are written to {@link AttributeStorage} periodically and when the tracker is closed, so that
+ * frequently requested items cause one attribute write per flush interval at most. The count of tracked items is
+ * bounded: touches of new items are not accepted once capacity is reached, and callers should write them directly.
+ * <p>
+ * Attributes read from storage do not reflect pending touches, callers must overlay them using
+ * {@link #getLastRequested(RepositoryItemUid)}.
+ *
+ * @since 3.0
+ */
+class LastRequestedTracker
+{
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final AttributeStorage attributeStorage;
+
+  private final long flushMillis;
+
+  private final int capacity;
+
+  private final ConcurrentMap<RepositoryItemUid, Long> pending = new ConcurrentHashMap<>();
+
+  private volatile boolean closed;
+
+  private ScheduledExecutorService executor;
+
+  private Timer flushTimer;
+
+  private final Runnable flushTask = new Runnable()
+  {
+    @Override
+    public void run() {
+      try {
+        flush();
+      }
+      catch (RuntimeException e) {
+        // do not let the periodic flush die
+        log.warn("Could not flush lastRequested attributes", e);
+      }
+    }
+  };
+
+  LastRequestedTracker(final AttributeStorage attributeStorage, final long flushMillis, final int capacity) {
+    checkArgument(flushMillis > 0, "flushMillis must be positive");
+    checkArgument(capacity > 0, "capacity must be positive");
+    this.attributeStorage = checkNotNull(attributeStorage);
+    this.flushMillis = flushMillis;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Starts the periodic flush.
+   */
+  synchronized void start() {
+    if (executor != null) {
+      return;
+    }
+    final MetricRegistry registry = SharedMetricRegistries.getOrCreate("nexus");
+    final String pendingName = MetricRegistry.name(LastRequestedTracker.class, "pending");
+    registry.remove(pendingName);
+    registry.register(pendingName, new Gauge<Integer>()
+    {
+      @Override
+      public Integer getValue() {
+        return getPendingCount();
+      }
+    });
+    flushTimer = registry.timer(MetricRegistry.name(LastRequestedTracker.class, "flush"));
+
+    executor = Executors.newSingleThreadScheduledExecutor(new NexusThreadFactory("lrt", "LastRequested Tracker"));
+    executor.scheduleWithFixedDelay(flushTask, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Records a touch of the item. Returns {@code false} if the touch was not accepted, because the tracker is closed
+   * or full, in which case the caller should write the attribute itself.
+   */
+  boolean touch(final RepositoryItemUid uid, final long timestamp) {
+    if (closed) {
+      return false;
+    }
+    while (true) {
+      final Long current = pending.get(uid);
+      if (current == null) {
+        // size is an estimate only, capacity may be exceeded slightly by concurrent touches
+        if (pending.size() >= capacity) {
+          return false;
+        }
+        if (pending.putIfAbsent(uid, timestamp) == null) {
+          return true;
+        }
+      }
+      else if (current == timestamp || pending.replace(uid, current, timestamp)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Returns the pending lastRequested timestamp of the item, or 0 if there is none.
+   */
+  long getLastRequested(final RepositoryItemUid uid) {
+    final Long timestamp = pending.get(uid);
+    return timestamp != null ? timestamp : 0;
+  }
+
+  /**
+   * Writes all pending touches to attribute storage. Items having no attributes stored (anymore) are skipped, and
+   * stored value is never moved backwards, as the item might have been stored meanwhile.
+   */
+  void flush() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    final Timer.Context timerContext = flushTimer != null ? flushTimer.time() : null;
+    int written = 0;
+    try {
+      for (Map.Entry<RepositoryItemUid, Long> entry : pending.entrySet()) {
+        final RepositoryItemUid uid = entry.getKey();
+        final long timestamp = entry.getValue();
+        // removed before written: a concurrent read might see the stored value, and touch again, which is harmless
+        if (!pending.remove(uid, timestamp)) {
+          continue; // touched again meanwhile, will be written with next flush
+        }
+        try {
+          final Attributes attributes = attributeStorage.getAttributes(uid);
+          if (attributes != null && attributes.getLastRequested() < timestamp) {
+            attributes.setLastRequested(timestamp);
+            attributeStorage.putAttributes(uid, attributes);
+            written++;
+          }
+        }
+        catch (IOException e) {
+          log.warn("Could not write lastRequested attribute of {}", uid, e);
+        }
+      }
+    }
+    finally {
+      if (timerContext != null) {
+        timerContext.stop();
+      }
+    }
+    log.debug("Flushed {} lastRequested attributes", written);
+  }
+
+  /**
+   * Stops accepting touches, stops the periodic flush and writes out the pending touches on the calling thread.
+   */
+  synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (executor != null) {
+      executor.shutdown();
+      try {
+        executor.awaitTermination(flushMillis, TimeUnit.MILLISECONDS);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      SharedMetricRegistries.getOrCreate("nexus").remove(MetricRegistry.name(LastRequestedTracker.class, "pending"));
+    }
+    flush();
+  }
+
+  /**
+   * Returns the count of items having pending touches.
+   */
+  int getPendingCount() {
+    return pending.size();
+  }
+}
@@ -0,0 +1,407 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import javax.enterprise.inject.Typed;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.nexus.configuration.application.ApplicationDirectories;
+import org.sonatype.nexus.proxy.access.Action;
+import org.sonatype.nexus.proxy.events.NexusStoppedEvent;
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
+import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
+import com.google.common.eventbus.Subscribe;
+import org.mapdb.BTreeKeySerializer;
+import org.mapdb.BTreeMap;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Fun;
+import org.mapdb.Serializer;
+import org.mapdb.TxBlock;
+import org.mapdb.TxMaker;
+import org.mapdb.TxRollbackException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * AttributeStorage implementation that keeps attributes of all repositories in a single embedded, transactional
+ * MapDB store, instead of one file per item as {@link DefaultLSAttributeStorage} does. Attributes are keyed by
+ * repository ID, parent path and name, hence members of a collection are stored next to each other and are read
+ * with a single range scan (see {@link #getMemberAttributes(Repository, String)}). Values are encoded with
+ * {@link BinaryMarshaller}.
+ * <p/>
+ * Attributes still present in the legacy layout are migrated on first access (and by the "Migrate Repository
+ * Attributes" task), unless disabled by {@code org.sonatype.nexus.proxy.attributes.MapdbAttributeStorage.legacyFallback}
+ * system property, which is safe to do once all repositories were migrated.
+ *
+ * @since 3.0
+ */
+@Typed(AttributeStorage.class)
+@Named("mapdb")
+@Singleton
+public class MapdbAttributeStorage
+    extends AbstractAttributeStorage
+    implements BatchAttributeStorage
+{
+  private static final boolean LEGACY_FALLBACK = SystemPropertiesHelper.getBoolean(
+      MapdbAttributeStorage.class.getName() + ".legacyFallback", true);
+
+  private static final String MAP_NAME = "attributes";
+
+  private final File file;
+
+  private final AttributeStorage legacyStorage;
+
+  private final EventBus eventBus;
+
+  private final Marshaller marshaller;
+
+  private TxMaker database;
+
+  @Inject
+  public MapdbAttributeStorage(final ApplicationDirectories applicationDirectories,
+                               final @Named("ls") AttributeStorage legacyStorage,
+                               final EventBus eventBus)
+  {
+    this(new File(applicationDirectories.getWorkDirectory("attributes"), "attributes.db"), legacyStorage, eventBus);
+  }
+
+  @VisibleForTesting
+  MapdbAttributeStorage(final File file, final AttributeStorage legacyStorage, final EventBus eventBus) {
+    this.file = checkNotNull(file);
+    this.legacyStorage = checkNotNull(legacyStorage);
+    this.eventBus = checkNotNull(eventBus);
+    this.marshaller = new BinaryMarshaller();
+    eventBus.register(this);
+    log.info("MapDB AttributeStorage in place, using {} marshaller and file {}.", marshaller, file);
+  }
+
+  @Subscribe
+  public void on(final NexusStoppedEvent e) {
+    eventBus.unregister(this);
+    close();
+  }
+
+  /**
+   * Database is opened lazily, as this component is instantiated even if not used.
+   */
+  private synchronized TxMaker getDatabase() {
+    if (database == null) {
+      database = DBMaker.newFileDB(file).checksumEnable().makeTxMaker();
+    }
+    return database;
+  }
+
+  @VisibleForTesting
+  synchronized void close() {
+    if (database != null) {
+      database.close();
+      database = null;
+    }
+  }
+
+  private static BTreeMap<Fun.Tuple3<String, String, String>, byte[]> entries(final DB db) {
+    return db.createTreeMap(MAP_NAME)
+        .keySerializer(BTreeKeySerializer.TUPLE3)
+        .valueSerializer(Serializer.BYTE_ARRAY)
+        .makeOrGet();
+  }
+
+  // ==
+
+  @Override
+  public Attributes getAttributes(final RepositoryItemUid uid)
+      throws IOException
+  {
+    final RepositoryItemUidLock uidLock = uid.getLock();
+
+    uidLock.lock(Action.read);
+
+    try {
+      if (log.isDebugEnabled()) {
+        log.debug("Loading attributes on UID=" + uid.toString());
+      }
+
+      return doGetAttributes(uid, LEGACY_FALLBACK);
+    }
+    finally {
+      uidLock.unlock();
+    }
+  }
+
+  @Override
+  public void putAttributes(final RepositoryItemUid uid, Attributes attributes)
+      throws IOException
+  {
+    final RepositoryItemUidLock uidLock = uid.getLock();
+
+    uidLock.lock(Action.create);
+
+    try {
+      if (log.isDebugEnabled()) {
+        log.debug("Storing attributes on UID=" + uid.toString());
+      }
+
+      final Attributes stored = doGetAttributes(uid, LEGACY_FALLBACK);
+
+      if (stored != null && (stored.getGeneration() > attributes.getGeneration())) {
+        // change detected, overlay the to be saved onto the newer one and swap
+        stored.overlayAttributes(attributes);
+
+        // and overlay other things too
+        stored.setRepositoryId(uid.getRepository().getId());
+        stored.setPath(uid.getPath());
+        stored.setReadable(attributes.isReadable());
+        stored.setWritable(attributes.isWritable());
+
+        attributes = stored;
+      }
+
+      attributes.incrementGeneration();
+
+      doPutAttributes(uid, attributes);
+    }
+    finally {
+      uidLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean deleteAttributes(final RepositoryItemUid uid)
+      throws IOException
+  {
+    final RepositoryItemUidLock uidLock = uid.getLock();
+
+    uidLock.lock(Action.delete);
+
+    try {
+      if (log.isDebugEnabled()) {
+        log.debug("Deleting attributes on UID=" + uid.toString());
+      }
+
+      final Fun.Tuple3<String, String, String> key = key(uid.getRepository().getId(), uid.getPath());
+      boolean deleted = getDatabase().execute(new Fun.Function1<Boolean, DB>()
+      {
+        @Override
+        public Boolean run(final DB db) {
+          return entries(db).remove(key) != null;
+        }
+      });
+
+      if (LEGACY_FALLBACK) {
+        // do not let a leftover legacy file resurrect deleted attributes
+        deleted = legacyStorage.deleteAttributes(uid) || deleted;
+      }
+
+      return deleted;
+    }
+    finally {
+      uidLock.unlock();
+    }
+  }
+
+  @Override
+  public Map<String, Attributes> getMemberAttributes(final Repository repository, final String collectionPath)
+      throws IOException
+  {
+    final String parentPath = parentKey(collectionPath);
+    final Map<String, Attributes> result = Maps.newHashMap();
+
+    final DB db = getDatabase().makeTx();
+    try {
+      final Map<Fun.Tuple3<String, String, String>, byte[]> members =
+          entries(db).subMap(lo(repository.getId(), parentPath), true, hi(repository.getId(), parentPath), true);
+      for (Map.Entry<Fun.Tuple3<String, String, String>, byte[]> member : members.entrySet()) {
+        final String path = parentPath + RepositoryItemUid.PATH_SEPARATOR + member.getKey().c;
+        try {
+          result.put(path, unmarshal(repository.getId(), path, member.getValue()));
+        }
+        catch (InvalidInputException e) {
+          // leave it out, and let the single item read deal with it
+          log.debug("Attributes of {}:{} are corrupt", repository.getId(), path, e);
+        }
+      }
+    }
+    finally {
+      db.close();
+    }
+
+    return result;
+  }
+
+  /**
+   * Migrates attributes of given UID from the legacy layout, if present there. Attributes already in this storage
+   * are kept if they are of newer generation. Returns {@code true} if legacy attributes were found.
+   */
+  public boolean migrateAttributes(final RepositoryItemUid uid)
+      throws IOException
+  {
+    final RepositoryItemUidLock uidLock = uid.getLock();
+
+    uidLock.lock(Action.create);
+
+    try {
+      return doMigrateAttributes(uid) != null;
+    }
+    finally {
+      uidLock.unlock();
+    }
+  }
+
+  // ==
+
+  /**
+   * Gets the attributes, expects caller to hold the UID lock.
+   */
+  protected Attributes doGetAttributes(final RepositoryItemUid uid, final boolean legacyFallback)
+      throws IOException
+  {
+    final Fun.Tuple3<String, String, String> key = key(uid.getRepository().getId(), uid.getPath());
+
+    final byte[] value;
+    final DB db = getDatabase().makeTx();
+    try {
+      value = entries(db).get(key);
+    }
+    finally {
+      db.close();
+    }
+
+    if (value == null) {
+      return legacyFallback ? doMigrateAttributes(uid) : null;
+    }
+
+    try {
+      return unmarshal(uid.getRepository().getId(), uid.getPath(), value);
+    }
+    catch (InvalidInputException e) {
+      if (log.isDebugEnabled()) {
+        // we log the stacktrace
+        log.info("Attributes of " + uid + " are corrupt, deleting it.", e);
+      }
+      else {
+        // just remark about this
+        log.info("Attributes of " + uid + " are corrupt, deleting it.");
+      }
+      deleteAttributes(uid);
+      return null;
+    }
+  }
+
+  /**
+   * Moves attributes of given UID from legacy storage, expects caller to hold the UID lock. Returns the migrated
+   * attributes, or {@code null} if there were no legacy attributes.
+   */
+  protected Attributes doMigrateAttributes(final RepositoryItemUid uid)
+      throws IOException
+  {
+    final Attributes legacy = legacyStorage.getAttributes(uid);
+    if (legacy == null) {
+      return null;
+    }
+
+    final Attributes stored = doGetAttributes(uid, false);
+    final Attributes result;
+    if (stored == null || legacy.getGeneration() > stored.getGeneration()) {
+      doPutAttributes(uid, legacy);
+      result = legacy;
+    }
+    else {
+      result = stored;
+    }
+    legacyStorage.deleteAttributes(uid);
+
+    log.debug("Migrated attributes on UID={}", uid);
+    return result;
+  }
+
+  protected void doPutAttributes(final RepositoryItemUid uid, final Attributes attributes)
+      throws IOException
+  {
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    marshaller.marshal(attributes, bos);
+
+    final Fun.Tuple3<String, String, String> key = key(uid.getRepository().getId(), uid.getPath());
+    final byte[] value = bos.toByteArray();
+    getDatabase().execute(new TxBlock()
+    {
+      @Override
+      public void tx(final DB db) throws TxRollbackException {
+        entries(db).put(key, value);
+      }
+    });
+  }
+
+  private Attributes unmarshal(final String repositoryId, final String path, final byte[] value)
+      throws IOException
+  {
+    final Attributes result = marshaller.unmarshal(new ByteArrayInputStream(value));
+
+    result.setRepositoryId(repositoryId);
+    result.setPath(path);
+
+    // fixing remoteChecked
+    if (result.getCheckedRemotely() == 0 || result.getCheckedRemotely() == 1) {
+      result.setCheckedRemotely(System.currentTimeMillis());
+      result.setExpired(true);
+    }
+
+    // fixing lastRequested
+    if (result.getLastRequested() == 0) {
+      result.setLastRequested(System.currentTimeMillis());
+    }
+
+    return result;
+  }
+
+  // == Keys: (repositoryId, parentPath, name), where parent path of root members is empty string
+
+  private static Fun.Tuple3<String, String, String> key(final String repositoryId, final String path) {
+    final String normalized = path.startsWith(RepositoryItemUid.PATH_SEPARATOR)
+        ? path : RepositoryItemUid.PATH_SEPARATOR + path;
+    final int lastSeparator = normalized.lastIndexOf(RepositoryItemUid.PATH_SEPARATOR);
+    return Fun.t3(repositoryId, normalized.substring(0, lastSeparator), normalized.substring(lastSeparator + 1));
+  }
+
+  private static String parentKey(final String collectionPath) {
+    String result = collectionPath.startsWith(RepositoryItemUid.PATH_SEPARATOR)
+        ? collectionPath : RepositoryItemUid.PATH_SEPARATOR + collectionPath;
+    while (result.endsWith(RepositoryItemUid.PATH_SEPARATOR)) {
+      result = result.substring(0, result.length() - 1);
+    }
+    return result;
+  }
+
+  private static Fun.Tuple3<String, String, String> lo(final String repositoryId, final String parentPath) {
+    return Fun.t3(repositoryId, parentPath, (String) null);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Fun.Tuple3<String, String, String> hi(final String repositoryId, final String parentPath) {
+    return (Fun.Tuple3) Fun.t3(repositoryId, parentPath, Fun.HI);
+  }
+}
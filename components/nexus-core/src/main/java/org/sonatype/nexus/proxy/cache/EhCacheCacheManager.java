@@ -17,6 +17,7 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.sonatype.nexus.proxy.events.NexusStoppedEvent;
+import org.sonatype.nexus.proxy.events.RepositoryRegistryEventRemove;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 
@@ -25,7 +26,9 @@ import com.google.common.eventbus.Subscribe;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * The Class EhCacheCacheManager is a thin wrapper around EhCache, just to make things going.
+ * The Class EhCacheCacheManager is a thin wrapper around EhCache, just to make things going. When
+ * {@code nexus.pathCache.prefixIndexed} is set, it hands out {@link PrefixIndexedPathCache}s instead, each backed by
+ * the {@link PathTrie} of it's repository, all of them bounded to {@code nexus.pathCache.maxEntries} paths.
  *
  * @author cstamas
  */
@@ -37,15 +40,33 @@ public class EhCacheCacheManager
 {
   private final net.sf.ehcache.CacheManager cacheManager;
 
+  private final PathTries pathTries;
+
   public static final String SINGLE_PATH_CACHE_NAME = "nx-repository-path-cache";
 
-  @Inject
   public EhCacheCacheManager(final EventBus eventBus, final net.sf.ehcache.CacheManager cacheManager) {
+    this(eventBus, cacheManager, false, 1);
+  }
+
+  /**
+   * @since 3.0
+   */
+  @Inject
+  public EhCacheCacheManager(final EventBus eventBus,
+                             final net.sf.ehcache.CacheManager cacheManager,
+                             final @Named("${nexus.pathCache.prefixIndexed:-false}") boolean prefixIndexed,
+                             final @Named("${nexus.pathCache.maxEntries:-1000000}") int maxEntries)
+  {
     eventBus.register(this);
     this.cacheManager = checkNotNull(cacheManager);
+    this.pathTries = prefixIndexed ? new PathTries(maxEntries) : null;
   }
 
   public synchronized PathCache getPathCache(String cache) {
+    if (pathTries != null) {
+      return new PrefixIndexedPathCache(cache, pathTries);
+    }
+
     if (!cacheManager.cacheExists(SINGLE_PATH_CACHE_NAME)) {
       cacheManager.addCache(SINGLE_PATH_CACHE_NAME);
     }
@@ -53,6 +74,18 @@ public class EhCacheCacheManager
     return new EhCachePathCache(cache, cacheManager.getEhcache(SINGLE_PATH_CACHE_NAME));
   }
 
+  /**
+   * Drops the paths cached for removed repository.
+   *
+   * @since 3.0
+   */
+  @Subscribe
+  public void on(final RepositoryRegistryEventRemove event) {
+    if (pathTries != null) {
+      pathTries.remove(event.getRepository().getId());
+    }
+  }
+
   @Subscribe
   public void on(final NexusStoppedEvent event) {
     cacheManager.shutdown();
@@ -0,0 +1,267 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Store of paths of a single repository backing {@link PrefixIndexedPathCache}. Paths are kept in a trie of path
+ * segments, so lookups and subtree removals cost depends on path depth (and size of removed subtree), not on the count
+ * of cached paths. Cached paths are linked in access order, so that {@link PathTries} can evict the least recently
+ * used ones once the count of paths cached by all repositories exceeds the maximum. Every trie has it's own lock and
+ * statistics.
+ *
+ * @since 3.0
+ */
+class PathTrie
+{
+  private final PathTries tries;
+
+  private final Node root;
+
+  /**
+   * Sentinel of the LRU list of nodes having value, least recently used is {@code lru.next}.
+   */
+  private final Node lru;
+
+  private int size;
+
+  private long hits;
+
+  private long misses;
+
+  PathTrie(final PathTries tries) {
+    this.tries = checkNotNull(tries);
+    this.root = new Node(null, null);
+    this.lru = new Node(null, null);
+    this.lru.lruPrev = lru;
+    this.lru.lruNext = lru;
+  }
+
+  synchronized boolean contains(final String key) {
+    final Node node = find(key);
+    if (node != null && node.hasValue && !node.isExpired(System.currentTimeMillis())) {
+      touch(node);
+      hits++;
+      return true;
+    }
+    if (node != null && node.hasValue) {
+      // expired, same as EHCache does, drop it on access
+      unlink(node);
+    }
+    misses++;
+    return false;
+  }
+
+  synchronized boolean isExpired(final String key) {
+    final Node node = find(key);
+    return node != null && node.hasValue && node.isExpired(System.currentTimeMillis());
+  }
+
+  synchronized long getExpirationTime(final String key) {
+    final Node node = find(key);
+    if (node != null && node.hasValue) {
+      return node.expirationTime;
+    }
+    return -1;
+  }
+
+  void put(final String key, final Object value, final int expiration) {
+    synchronized (this) {
+      Node node = root;
+      for (String segment : segments(key)) {
+        node = node.getOrCreateChild(segment);
+      }
+      if (!node.hasValue) {
+        node.hasValue = true;
+        size++;
+        tries.added();
+      }
+      node.value = value;
+      node.expirationTime =
+          expiration > 0 ? System.currentTimeMillis() + expiration * 1000L : Long.MAX_VALUE;
+      touch(node);
+    }
+    // outside of own lock, as eviction might pick any trie
+    tries.evictOverflow();
+  }
+
+  synchronized boolean remove(final String key) {
+    final Node node = find(key);
+    if (node != null && node.hasValue) {
+      unlink(node);
+      return true;
+    }
+    return false;
+  }
+
+  synchronized boolean removeWithChildren(final String key) {
+    final Node node = find(key);
+    if (node == null) {
+      return false;
+    }
+    final List<Node> valued = new ArrayList<Node>();
+    collect(node, valued);
+    for (Node v : valued) {
+      unlink(v);
+    }
+    return !valued.isEmpty();
+  }
+
+  synchronized List<String> listKeys() {
+    final List<String> keys = new ArrayList<String>();
+    listKeys(root, null, System.currentTimeMillis(), keys);
+    return keys;
+  }
+
+  synchronized CacheStatistics getStatistics() {
+    return new CacheStatistics(size, misses, hits);
+  }
+
+  /**
+   * Returns the last access time of least recently used path, or {@link Long#MAX_VALUE} if trie is empty.
+   */
+  synchronized long getEldestAccessTime() {
+    return lru.lruNext == lru ? Long.MAX_VALUE : lru.lruNext.accessTime;
+  }
+
+  /**
+   * Evicts the least recently used path, if any.
+   */
+  synchronized void evictEldest() {
+    if (lru.lruNext != lru) {
+      unlink(lru.lruNext);
+    }
+  }
+
+  // ==
+
+  private Node find(final String key) {
+    Node node = root;
+    for (String segment : segments(key)) {
+      node = node.children == null ? null : node.children.get(segment);
+      if (node == null) {
+        return null;
+      }
+    }
+    return node;
+  }
+
+  private void touch(final Node node) {
+    if (node.lruNext != null) {
+      node.lruPrev.lruNext = node.lruNext;
+      node.lruNext.lruPrev = node.lruPrev;
+    }
+    node.lruPrev = lru.lruPrev;
+    node.lruNext = lru;
+    lru.lruPrev.lruNext = node;
+    lru.lruPrev = node;
+    node.accessTime = System.nanoTime();
+  }
+
+  /**
+   * Drops value of node, and prunes the nodes left without values and children up to the root.
+   */
+  private void unlink(final Node node) {
+    node.lruPrev.lruNext = node.lruNext;
+    node.lruNext.lruPrev = node.lruPrev;
+    node.lruPrev = null;
+    node.lruNext = null;
+    node.hasValue = false;
+    node.value = null;
+    size--;
+    tries.removed();
+
+    Node current = node;
+    while (current.parent != null && !current.hasValue && (current.children == null || current.children.isEmpty())) {
+      current.parent.children.remove(current.segment);
+      current = current.parent;
+    }
+  }
+
+  private void collect(final Node node, final List<Node> valued) {
+    if (node.hasValue) {
+      valued.add(node);
+    }
+    if (node.children != null) {
+      for (Node child : node.children.values()) {
+        collect(child, valued);
+      }
+    }
+  }
+
+  private void listKeys(final Node node, final String key, final long now, final List<String> keys) {
+    if (node.hasValue && !node.isExpired(now)) {
+      keys.add(key == null ? "" : key);
+    }
+    if (node.children != null) {
+      for (Node child : node.children.values()) {
+        listKeys(child, key == null ? child.segment : key + "/" + child.segment, now, keys);
+      }
+    }
+  }
+
+  private static String[] segments(final String key) {
+    if (key.isEmpty()) {
+      return new String[0];
+    }
+    return key.split("/", -1);
+  }
+
+  private static class Node
+  {
+    private final Node parent;
+
+    private final String segment;
+
+    private Map<String, Node> children;
+
+    private boolean hasValue;
+
+    private Object value;
+
+    private long expirationTime;
+
+    private long accessTime;
+
+    private Node lruPrev;
+
+    private Node lruNext;
+
+    private Node(final Node parent, final String segment) {
+      this.parent = parent;
+      this.segment = segment;
+    }
+
+    private Node getOrCreateChild(final String childSegment) {
+      if (children == null) {
+        children = new HashMap<String, Node>(4);
+      }
+      Node child = children.get(childSegment);
+      if (child == null) {
+        child = new Node(this, childSegment);
+        children.put(childSegment, child);
+      }
+      return child;
+    }
+
+    private boolean isExpired(final long now) {
+      return expirationTime <= now;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.cache;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Maps;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The {@link PathTrie}s of all repositories, bounded to a maximum count of paths cached by all of them together. Once
+ * the maximum is exceeded, the least recently used path of any repository is evicted.
+ *
+ * @since 3.0
+ */
+class PathTries
+{
+  private final int maxEntries;
+
+  private final ConcurrentMap<String, PathTrie> tries = Maps.newConcurrentMap();
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  PathTries(final int maxEntries) {
+    checkArgument(maxEntries > 0, "maxEntries must be greater than zero");
+    this.maxEntries = maxEntries;
+  }
+
+  /**
+   * Returns the trie of repository, creating it if needed.
+   */
+  PathTrie get(final String repositoryId) {
+    PathTrie trie = tries.get(repositoryId);
+    if (trie == null) {
+      final PathTrie created = new PathTrie(this);
+      trie = tries.putIfAbsent(repositoryId, created);
+      if (trie == null) {
+        trie = created;
+      }
+    }
+    return trie;
+  }
+
+  /**
+   * Drops the trie of a repository, with all the paths it caches.
+   */
+  void remove(final String repositoryId) {
+    final PathTrie trie = tries.remove(repositoryId);
+    if (trie != null) {
+      trie.removeWithChildren("");
+    }
+  }
+
+  int size() {
+    return size.get();
+  }
+
+  void added() {
+    size.incrementAndGet();
+  }
+
+  void removed() {
+    size.decrementAndGet();
+  }
+
+  /**
+   * Evicts least recently used paths while there are more than the maximum. Caller must not hold the lock of any
+   * trie.
+   */
+  void evictOverflow() {
+    while (size.get() > maxEntries) {
+      PathTrie eldest = null;
+      long eldestAccessTime = Long.MAX_VALUE;
+      for (PathTrie trie : tries.values()) {
+        final long accessTime = trie.getEldestAccessTime();
+        if (accessTime < eldestAccessTime) {
+          eldest = trie;
+          eldestAccessTime = accessTime;
+        }
+      }
+      if (eldest == null) {
+        return;
+      }
+      eldest.evictEldest();
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.cache;
+
+import java.util.Collection;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link PathCache} backed by the {@link PathTrie} of it's repository. Unlike {@link EhCachePathCache}, the cost of
+ * {@link #removeWithChildren(String)} does not depend on the count of paths cached for all repositories.
+ *
+ * @since 3.0
+ */
+public class PrefixIndexedPathCache
+    extends AbstractPathCache
+{
+  private final String repositoryId;
+
+  private final PathTries tries;
+
+  PrefixIndexedPathCache(final String repositoryId, final PathTries tries) {
+    this.repositoryId = checkNotNull(repositoryId);
+    this.tries = checkNotNull(tries);
+  }
+
+  /**
+   * Looked up on every use, as the trie is dropped once the repository is removed.
+   */
+  private PathTrie trie() {
+    return tries.get(repositoryId);
+  }
+
+  @Override
+  protected boolean doContains(final String key) {
+    return trie().contains(key);
+  }
+
+  @Override
+  protected boolean doIsExpired(final String key) {
+    return trie().isExpired(key);
+  }
+
+  @Override
+  protected long doGetExpirationTime(final String key) {
+    return trie().getExpirationTime(key);
+  }
+
+  @Override
+  protected void doPut(final String key, final Object element, final int expiration) {
+    trie().put(key, element, expiration);
+  }
+
+  @Override
+  protected boolean doRemove(final String key) {
+    return trie().remove(key);
+  }
+
+  @Override
+  public boolean removeWithChildren(final String path) {
+    return trie().removeWithChildren(makeKeyFromPath(path));
+  }
+
+  @Override
+  protected boolean doPurge() {
+    return trie().removeWithChildren("");
+  }
+
+  @Override
+  public CacheStatistics getStatistics() {
+    return trie().getStatistics();
+  }
+
+  @Override
+  public Collection<String> listKeysInCache() {
+    return trie().listKeys();
+  }
+}
@@ -14,6 +14,7 @@ package org.sonatype.nexus.proxy.item;
 
 import java.lang.ref.WeakReference;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -29,6 +30,7 @@ import org.sonatype.sisu.locks.ResourceLockFactory;
 
 import com.google.common.eventbus.Subscribe;
 import org.codehaus.plexus.util.StringUtils;
+import org.eclipse.sisu.inject.Weak;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,7 +39,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * A default factory for UIDs.
- * 
+ * <p>
+ * By default UID locks are kept in a {@link WeakHashMap} guarded by the factory monitor. When
+ * {@code nexus.uidLocks.concurrent} is set to {@code true}, a concurrent weak-valued registry is used instead, and
+ * lock lookups no longer serialize on the factory.
+ *
  * @author cstamas
  */
 @Singleton
@@ -56,14 +62,27 @@ public class DefaultRepositoryItemUidFactory
   private final WeakHashMap<DefaultRepositoryItemUidLock, WeakReference<DefaultRepositoryItemUidLock>> locks =
       new WeakHashMap<DefaultRepositoryItemUidLock, WeakReference<DefaultRepositoryItemUidLock>>();
 
+  /**
+   * Concurrent lock registry, {@code null} unless enabled. Values are weakly referenced, same as with {@link #locks}.
+   */
+  private final ConcurrentMap<String, DefaultRepositoryItemUidLock> concurrentLocks;
+
+  public DefaultRepositoryItemUidFactory(final EventBus eventBus, final RepositoryRegistry repositoryRegistry,
+      final @Nullable ResourceLockFactory sisuLockFactory)
+  {
+    this(eventBus, repositoryRegistry, sisuLockFactory, false);
+  }
+
   @Inject
   public DefaultRepositoryItemUidFactory(final EventBus eventBus, final RepositoryRegistry repositoryRegistry,
-      final @Nullable @Named("${sisu-resource-locks:-local}") ResourceLockFactory sisuLockFactory)
+      final @Nullable @Named("${sisu-resource-locks:-local}") ResourceLockFactory sisuLockFactory,
+      final @Named("${nexus.uidLocks.concurrent:-false}") boolean concurrentLocks)
   {
     this.eventBus = checkNotNull(eventBus);
     this.repositoryRegistry = checkNotNull(repositoryRegistry);
     this.sisuLockFactory = sisuLockFactory;
-    log.debug("Lock factory: {}", sisuLockFactory);
+    this.concurrentLocks = concurrentLocks ? Weak.<String, DefaultRepositoryItemUidLock>concurrentValues() : null;
+    log.debug("Lock factory: {}, concurrent lock registry: {}", sisuLockFactory, concurrentLocks);
     eventBus.register(this);
   }
 
@@ -110,20 +129,31 @@ public class DefaultRepositoryItemUidFactory
   
   @Override
   public DefaultRepositoryItemUidLock createUidLock(final RepositoryItemUid uid) {
+    if (concurrentLocks != null) {
+      return doGetUidLockForKey(uid.getKey());
+    }
+
     final String key = new String(uid.getKey());
 
     return doCreateUidLockForKey(key);
   }
 
-  protected synchronized DefaultRepositoryItemUidLock doCreateUidLockForKey(final String key) {
-    final LockResource lockResource;
-    if (sisuLockFactory != null) {
-      lockResource = new SisuLockResource(sisuLockFactory.getResourceLock(key));
-    }
-    else {
-      lockResource = new SimpleLockResource();
+  /**
+   * Lock-free lookup of UID lock from the concurrent registry. A lock instance is only created on a registry miss,
+   * and if two threads race for the same key, the loser's instance is discarded.
+   */
+  protected DefaultRepositoryItemUidLock doGetUidLockForKey(final String key) {
+    final DefaultRepositoryItemUidLock lock = concurrentLocks.get(key);
+    if (lock != null) {
+      return lock;
     }
-    final DefaultRepositoryItemUidLock newLock = new DefaultRepositoryItemUidLock(key, lockResource);
+    final DefaultRepositoryItemUidLock newLock = newUidLock(key);
+    final DefaultRepositoryItemUidLock oldLock = concurrentLocks.putIfAbsent(key, newLock);
+    return oldLock != null ? oldLock : newLock;
+  }
+
+  protected synchronized DefaultRepositoryItemUidLock doCreateUidLockForKey(final String key) {
+    final DefaultRepositoryItemUidLock newLock = newUidLock(key);
     final WeakReference<DefaultRepositoryItemUidLock> oldLockRef = locks.get(newLock);
     if (oldLockRef != null) {
       final RepositoryItemUidLock oldLock = oldLockRef.get();
@@ -136,10 +166,24 @@ public class DefaultRepositoryItemUidFactory
     return newLock;
   }
 
+  private DefaultRepositoryItemUidLock newUidLock(final String key) {
+    final LockResource lockResource;
+    if (sisuLockFactory != null) {
+      lockResource = new SisuLockResource(sisuLockFactory.getResourceLock(key));
+    }
+    else {
+      lockResource = new SimpleLockResource();
+    }
+    return new DefaultRepositoryItemUidLock(key, lockResource);
+  }
+
   /**
    * For UTs, not to be used in production code!
    */
   protected int locksInMap() {
+    if (concurrentLocks != null) {
+      return concurrentLocks.size();
+    }
     return locks.size();
   }
 
@@ -15,7 +15,10 @@ package org.sonatype.nexus.proxy.item;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 
+import org.sonatype.nexus.common.io.ChannelSupport;
+import org.sonatype.nexus.common.io.ChannelSupport.FileChannelSource;
 import org.sonatype.nexus.proxy.access.Action;
 
 import org.slf4j.LoggerFactory;
@@ -64,6 +67,7 @@ public class ReadLockingContentLocator
 
   private static class ReadLockingInputStream
       extends FilterInputStream
+      implements FileChannelSource
   {
     private final RepositoryItemUid uid;
 
@@ -77,6 +81,11 @@ public class ReadLockingContentLocator
       this.lock = lock;
     }
 
+    @Override
+    public FileChannel getFileChannel() {
+      return ChannelSupport.getFileChannel(in);
+    }
+
     @Override
     public void close() throws IOException {
       try {
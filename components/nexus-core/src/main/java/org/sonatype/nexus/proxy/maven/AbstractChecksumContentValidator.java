@@ -13,19 +13,45 @@
 package org.sonatype.nexus.proxy.maven;
 
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.proxy.LocalStorageException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.access.Action;
 import org.sonatype.nexus.proxy.events.RepositoryItemValidationEvent;
 import org.sonatype.nexus.proxy.item.AbstractStorageItem;
-import org.sonatype.nexus.proxy.repository.ItemContentValidator;
+import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
+import org.sonatype.nexus.proxy.repository.PrefetchingItemContentValidator;
 import org.sonatype.nexus.proxy.repository.ProxyRepository;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+
 public abstract class AbstractChecksumContentValidator
     extends ComponentSupport
-    implements ItemContentValidator
+    implements PrefetchingItemContentValidator
 {
+  /**
+   * Allows remote hashes to be retrieved concurrently with the item, by system property. Disabled by default.
+   *
+   * @since 3.0
+   */
+  private static final boolean PREFETCH_REMOTE_HASH = SystemPropertiesHelper.getBoolean(
+      AbstractChecksumContentValidator.class.getName() + ".prefetchRemoteHash", false);
+
+  private final String prefetchedRemoteHashKey = getClass().getName() + ".prefetchedRemoteHash";
+
+  private volatile boolean prefetchRemoteHash = PREFETCH_REMOTE_HASH;
 
   public AbstractChecksumContentValidator() {
     super();
@@ -51,7 +77,7 @@ public abstract class AbstractChecksumContentValidator
       return true;
     }
 
-    RemoteHashResponse remoteHash = retrieveRemoteHash(item, proxy, baseUrl);
+    RemoteHashResponse remoteHash = retrieveRemoteHash(item, proxy, req, baseUrl);
 
     // let compiler make sure I did not forget to populate validation results
     String msg;
@@ -103,6 +129,111 @@ public abstract class AbstractChecksumContentValidator
     return contentValid;
   }
 
+  @VisibleForTesting
+  void setPrefetchRemoteHash(final boolean prefetchRemoteHash) {
+    this.prefetchRemoteHash = prefetchRemoteHash;
+  }
+
+  @Override
+  public void prefetch(final ProxyRepository proxy, final ResourceStoreRequest request, final String baseUrl,
+                       final ExecutorService executor)
+  {
+    if (!prefetchRemoteHash) {
+      return;
+    }
+    final ChecksumPolicy requestChecksumPolicy =
+        (ChecksumPolicy) request.getRequestContext().get(ChecksumPolicy.REQUEST_CHECKSUM_POLICY_KEY);
+    if (requestChecksumPolicy != null && !requestChecksumPolicy.shouldCheckChecksum()) {
+      return;
+    }
+    final Callable<RemoteHashResponse> fetcher = newRemoteHashFetcher(proxy, request, baseUrl);
+    if (fetcher == null) {
+      return;
+    }
+    final Thread requester = Thread.currentThread();
+    try {
+      final Future<RemoteHashResponse> future = executor.submit(new Callable<RemoteHashResponse>()
+      {
+        @Override
+        public RemoteHashResponse call() throws Exception {
+          // a saturated pool runs tasks in the caller, which would delay the item download by the checksum
+          // download, so fail instead and let validation fetch the checksum as it always did
+          if (Thread.currentThread() == requester) {
+            throw new RejectedExecutionException("Pool saturated");
+          }
+          return fetcher.call();
+        }
+      });
+      request.getRequestContext().put(prefetchedRemoteHashKey,
+          new PrefetchedRemoteHash(proxy.getId(), request.getRequestPath(), baseUrl, future));
+    }
+    catch (RejectedExecutionException e) {
+      log.debug("Could not prefetch remote hash of {}", request.getRequestPath(), e);
+    }
+  }
+
+  @Override
+  public void cancelPrefetch(final ProxyRepository proxy, final ResourceStoreRequest request) {
+    final Object prefetched = request.getRequestContext().remove(prefetchedRemoteHashKey);
+    if (prefetched instanceof PrefetchedRemoteHash) {
+      ((PrefetchedRemoteHash) prefetched).future.cancel(true);
+    }
+  }
+
+  /**
+   * Uses the remote hash prefetched for this item if any, or retrieves it if not.
+   */
+  private RemoteHashResponse retrieveRemoteHash(final AbstractStorageItem item, final ProxyRepository proxy,
+                                                final ResourceStoreRequest req, final String baseUrl)
+      throws LocalStorageException
+  {
+    final Object prefetched = req.getRequestContext().remove(prefetchedRemoteHashKey);
+    if (prefetched instanceof PrefetchedRemoteHash) {
+      final PrefetchedRemoteHash prefetchedRemoteHash = (PrefetchedRemoteHash) prefetched;
+      if (prefetchedRemoteHash.isFor(proxy, item, baseUrl)) {
+        final Timer.Context waitContext = remoteHashTimer("wait").time();
+        try {
+          final RemoteHashResponse remoteHash = prefetchedRemoteHash.future.get();
+          // attributes of the item are updated, same as when hash is retrieved serially
+          final RepositoryItemUidLock lock = item.getRepositoryItemUid().getLock();
+          lock.lock(Action.read);
+          try {
+            return completeRemoteHash(item, proxy, remoteHash);
+          }
+          finally {
+            lock.unlock();
+          }
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          log.debug("Interrupted while waiting for remote hash of {}", item.getPath(), e);
+        }
+        catch (ExecutionException e) {
+          log.debug("Prefetching remote hash of {} failed", item.getPath(), e.getCause());
+        }
+        finally {
+          waitContext.stop();
+        }
+      }
+      else {
+        // prefetched for another URL than the item came from
+        prefetchedRemoteHash.future.cancel(true);
+      }
+    }
+    final Timer.Context fetchContext = remoteHashTimer("fetch").time();
+    try {
+      return retrieveRemoteHash(item, proxy, baseUrl);
+    }
+    finally {
+      fetchContext.stop();
+    }
+  }
+
+  private Timer remoteHashTimer(final String kind) {
+    return SharedMetricRegistries.getOrCreate("nexus").timer(
+        MetricRegistry.name(getClass(), "remoteHash", kind));
+  }
+
   protected String retrieveLocalHash(AbstractStorageItem item, String inspector) {
     return item.getRepositoryItemAttributes().get(inspector);
   }
@@ -117,10 +248,61 @@ public abstract class AbstractChecksumContentValidator
   protected abstract ChecksumPolicy getChecksumPolicy(ProxyRepository proxy, AbstractStorageItem item)
       throws LocalStorageException;
 
+  /**
+   * Returns task retrieving remote hash of item to be retrieved with passed in request, that is executed concurrently
+   * with item retrieval, or {@code null} if remote hash should not be prefetched. The response returned by task
+   * carries no hash item, as item does not exist yet, see {@link #completeRemoteHash}.
+   *
+   * @since 3.0
+   */
+  @Nullable
+  protected Callable<RemoteHashResponse> newRemoteHashFetcher(ProxyRepository proxy, ResourceStoreRequest request,
+                                                              String baseUrl)
+  {
+    return null;
+  }
+
+  /**
+   * Completes the prefetched remote hash, once item is retrieved. Invoked with item read lock held.
+   *
+   * @since 3.0
+   */
+  @Nullable
+  protected RemoteHashResponse completeRemoteHash(AbstractStorageItem item, ProxyRepository proxy,
+                                                  @Nullable RemoteHashResponse prefetched)
+      throws LocalStorageException
+  {
+    return prefetched;
+  }
+
   private RepositoryItemValidationEvent newChechsumFailureEvent(final ProxyRepository proxy,
                                                                 final AbstractStorageItem item, final String msg)
   {
     return new MavenChecksumContentValidationEventFailed(proxy, item, msg);
   }
 
-}
\ No newline at end of file
+  private static class PrefetchedRemoteHash
+  {
+    private final String repositoryId;
+
+    private final String path;
+
+    private final String baseUrl;
+
+    private final Future<RemoteHashResponse> future;
+
+    private PrefetchedRemoteHash(final String repositoryId, final String path, final String baseUrl,
+                                 final Future<RemoteHashResponse> future)
+    {
+      this.repositoryId = repositoryId;
+      this.path = path;
+      this.baseUrl = baseUrl;
+      this.future = future;
+    }
+
+    private boolean isFor(final ProxyRepository proxy, final AbstractStorageItem item, final String baseUrl) {
+      return repositoryId.equals(proxy.getId()) && path.equals(item.getRepositoryItemUid().getPath())
+          && this.baseUrl.equals(baseUrl);
+    }
+  }
+}
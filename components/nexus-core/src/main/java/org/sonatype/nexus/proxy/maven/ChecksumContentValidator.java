@@ -13,7 +13,9 @@
 package org.sonatype.nexus.proxy.maven;
 
 import java.io.IOException;
+import java.util.concurrent.Callable;
 
+import javax.annotation.Nullable;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
@@ -160,6 +162,80 @@ public class ChecksumContentValidator
     return response;
   }
 
+  @Override
+  protected Callable<RemoteHashResponse> newRemoteHashFetcher(final ProxyRepository proxy,
+                                                             final ResourceStoreRequest request,
+                                                             final String baseUrl)
+  {
+    final String path = request.getRequestPath();
+    if (isChecksum(path) || !proxy.getRepositoryKind().isFacetAvailable(MavenProxyRepository.class)) {
+      return null;
+    }
+
+    final ChecksumPolicy checksumPolicy = proxy.adaptToFacet(MavenProxyRepository.class).getChecksumPolicy();
+    if (checksumPolicy == null || !checksumPolicy.shouldCheckChecksum()) {
+      return null;
+    }
+
+    return new Callable<RemoteHashResponse>()
+    {
+      @Override
+      public RemoteHashResponse call() throws IOException {
+        // we prefer SHA1 ...
+        String hash = doRetrieveRemoteDigest(proxy, baseUrl, path + SUFFIX_SHA1);
+        if (hash != null) {
+          return new RemoteHashResponse(DigestCalculatingInspector.DIGEST_SHA1_KEY, hash, null);
+        }
+        // ... but MD5 will do too
+        hash = doRetrieveRemoteDigest(proxy, baseUrl, path + SUFFIX_MD5);
+        if (hash != null) {
+          return new RemoteHashResponse(DigestCalculatingInspector.DIGEST_MD5_KEY, hash, null);
+        }
+        return null;
+      }
+    };
+  }
+
+  @Override
+  protected RemoteHashResponse completeRemoteHash(final AbstractStorageItem item, final ProxyRepository proxy,
+                                                  final RemoteHashResponse prefetched)
+      throws LocalStorageException
+  {
+    final RepositoryItemUid uid = item.getRepositoryItemUid();
+    try {
+      if (prefetched == null) {
+        doStoreChechsumItem(proxy, item, ATTR_REMOTE_SHA1, ATTR_NO_REMOTE_SHA1, null);
+        doStoreChechsumItem(proxy, item, ATTR_REMOTE_MD5, ATTR_NO_REMOTE_MD5, null);
+        log.debug("Item checksums (SHA1, MD5) remotely unavailable " + uid.toString());
+        return null;
+      }
+
+      final String suffix;
+      if (DigestCalculatingInspector.DIGEST_SHA1_KEY.equals(prefetched.getInspector())) {
+        suffix = SUFFIX_SHA1;
+        doStoreChechsumItem(proxy, item, ATTR_REMOTE_SHA1, ATTR_NO_REMOTE_SHA1, prefetched.getRemoteHash());
+      }
+      else {
+        suffix = SUFFIX_MD5;
+        doStoreChechsumItem(proxy, item, ATTR_REMOTE_SHA1, ATTR_NO_REMOTE_SHA1, null);
+        doStoreChechsumItem(proxy, item, ATTR_REMOTE_MD5, ATTR_NO_REMOTE_MD5, prefetched.getRemoteHash());
+      }
+
+      final ResourceStoreRequest request = new ResourceStoreRequest(item);
+      request.pushRequestPath(uid.getPath() + suffix);
+      try {
+        return new RemoteHashResponse(prefetched.getInspector(), prefetched.getRemoteHash(),
+            newHashItem(proxy, request, item, prefetched.getRemoteHash()));
+      }
+      finally {
+        request.popRequestPath();
+      }
+    }
+    catch (IOException e) {
+      throw new LocalStorageException(e);
+    }
+  }
+
   private boolean isChecksum(String path) {
     return path.endsWith(SUFFIX_SHA1) || path.endsWith(SUFFIX_MD5);
   }
@@ -235,6 +311,27 @@ public class ChecksumContentValidator
     }
   }
 
+  /**
+   * Retrieves the remote checksum file on given path from given base URL, the one the item itself is retrieved from,
+   * and reads the digest out of it.
+   *
+   * @return the digest, or {@code null} if checksum file is not available.
+   */
+  @Nullable
+  private static String doRetrieveRemoteDigest(final ProxyRepository proxy, final String baseUrl, final String path)
+      throws IOException
+  {
+    try {
+      final StorageFileItem remoteItem = (StorageFileItem) proxy.getRemoteStorage()
+          .retrieveItem(proxy, new ResourceStoreRequest(path), baseUrl);
+      return MUtils.readDigestFromFileItem(remoteItem); // closes http input stream
+    }
+    catch (ItemNotFoundException | RemoteStorageException e) {
+      // same as in doRetrieveChecksumItem, any failure means hash is not available
+      return null;
+    }
+  }
+
   public static void doStoreSHA1(ProxyRepository proxy, StorageItem artifact, StorageFileItem hash)
       throws LocalStorageException
   {
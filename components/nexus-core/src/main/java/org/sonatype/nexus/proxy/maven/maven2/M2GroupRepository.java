@@ -24,6 +24,7 @@ import javax.enterprise.inject.Typed;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.configuration.Configurator;
 import org.sonatype.nexus.configuration.model.CRepository;
 import org.sonatype.nexus.configuration.model.CRepositoryExternalConfigurationHolderFactory;
@@ -32,12 +33,20 @@ import org.sonatype.nexus.proxy.ItemNotFoundException;
 import org.sonatype.nexus.proxy.LocalStorageException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.StorageException;
+import org.sonatype.nexus.proxy.events.RepositoryConfigurationUpdatedEvent;
+import org.sonatype.nexus.proxy.events.RepositoryGroupMembersChangedEvent;
+import org.sonatype.nexus.proxy.events.RepositoryItemEvent;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventCache;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventDelete;
+import org.sonatype.nexus.proxy.events.RepositoryItemEventStore;
 import org.sonatype.nexus.proxy.events.RepositoryItemValidationEvent;
 import org.sonatype.nexus.proxy.item.ByteArrayContentLocator;
 import org.sonatype.nexus.proxy.item.ContentLocator;
 import org.sonatype.nexus.proxy.item.DefaultStorageCompositeFileItem;
 import org.sonatype.nexus.proxy.item.DefaultStorageFileItem;
+import org.sonatype.nexus.proxy.item.StorageCollectionItem;
 import org.sonatype.nexus.proxy.item.StorageCompositeFileItem;
+import org.sonatype.nexus.proxy.item.StorageCompositeItem;
 import org.sonatype.nexus.proxy.item.StorageFileItem;
 import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.maven.AbstractMavenGroupRepository;
@@ -58,6 +67,9 @@ import org.sonatype.nexus.proxy.storage.UnsupportedStorageOperationException;
 import org.sonatype.nexus.proxy.utils.RepositoryStringUtils;
 import org.sonatype.nexus.util.DigesterUtils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.eventbus.Subscribe;
 import org.apache.maven.artifact.repository.metadata.Metadata;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.eclipse.sisu.Description;
@@ -76,6 +88,14 @@ public class M2GroupRepository
    */
   public static final String ID = Maven2ContentClass.ID;
 
+  /**
+   * Maximum count of merged metadata kept in memory per group, {@code 0} disables merged metadata caching.
+   *
+   * @since 3.0
+   */
+  private static final int MERGED_METADATA_CACHE_SIZE = SystemPropertiesHelper.getInteger(
+      M2GroupRepository.class.getName() + ".mergedMetadataCacheSize", 1000);
+
   private final ContentClass contentClass;
 
   /**
@@ -88,6 +108,13 @@ public class M2GroupRepository
    */
   private final M2GroupRepositoryConfigurator m2GroupRepositoryConfigurator;
 
+  /**
+   * Merged metadata keyed by path. Entries are evicted by item events, and are used only while the stamps of the
+   * member items they were merged from are unchanged.
+   */
+  private final Cache<String, MergedMetadata> mergedMetadataCache = CacheBuilder.newBuilder()
+      .maximumSize(MERGED_METADATA_CACHE_SIZE).build();
+
   @Inject
   public M2GroupRepository(final @Named(Maven2ContentClass.ID) ContentClass contentClass, 
                            final @Named("maven2") GavCalculator gavCalculator,
@@ -216,6 +243,19 @@ public class M2GroupRepository
       return items.get(0);
     }
 
+    final String cacheKey = createUid(request.getRequestPath()).getPath();
+    final List<String> sourceStamps = getSourceStamps(items);
+    if (sourceStamps != null) {
+      final MergedMetadata cached = mergedMetadataCache.getIfPresent(cacheKey);
+      if (cached != null && cached.sourceStamps.equals(sourceStamps)) {
+        // digest files were stored when this entry was cached, no need to redo it
+        if (log.isDebugEnabled()) {
+          log.debug("Item for path " + request.toString() + " served from merged metadata cache.");
+        }
+        return createMergedMetadataItem(request, cached.content, items);
+      }
+    }
+
     List<Metadata> existingMetadatas = new ArrayList<Metadata>();
 
     try {
@@ -294,6 +334,10 @@ public class M2GroupRepository
 
       resultOutputStream.close();
 
+      if (sourceStamps != null) {
+        mergedMetadataCache.put(cacheKey, new MergedMetadata(sourceStamps, resultOutputStream.toByteArray()));
+      }
+
       if (log.isDebugEnabled()) {
         log.debug(
             "Item for path " + request.toString() + " merged from " + Integer.toString(items.size())
@@ -366,4 +410,84 @@ public class M2GroupRepository
   private RepositoryItemValidationEvent newMetadataFailureEvent(StorageFileItem item, String msg) {
     return new MavenRepositoryMetadataValidationEventFailed(this, item, msg);
   }
+
+  // == Merged metadata cache
+
+  /**
+   * Returns the stamps identifying the state of merge sources, or {@code null} if merge result of these sources
+   * should not be cached. Composite sources (ie. nested groups) are not stamped, as their content may change while
+   * their attributes do not.
+   */
+  private List<String> getSourceStamps(final List<StorageItem> sources) {
+    if (MERGED_METADATA_CACHE_SIZE <= 0) {
+      return null;
+    }
+    final List<String> result = new ArrayList<String>(sources.size());
+    for (StorageItem source : sources) {
+      if (!(source instanceof StorageFileItem) || source instanceof StorageCompositeItem) {
+        return null;
+      }
+      final StorageFileItem file = (StorageFileItem) source;
+      result.add(file.getRepositoryItemUid().toString() + '@' + file.getModified() + '/' + file.getLength() + '/'
+          + file.getRepositoryItemAttributes().get(StorageFileItem.DIGEST_SHA1_KEY));
+    }
+    return result;
+  }
+
+  @Subscribe
+  public void onEvent(final RepositoryItemEventStore evt) {
+    invalidateMergedMetadata(evt);
+  }
+
+  @Subscribe
+  public void onEvent(final RepositoryItemEventCache evt) {
+    invalidateMergedMetadata(evt);
+  }
+
+  @Subscribe
+  public void onEvent(final RepositoryItemEventDelete evt) {
+    if (evt.getItem() instanceof StorageCollectionItem) {
+      mergedMetadataCache.invalidateAll();
+      return;
+    }
+    final String path = evt.getItemUid().getPath();
+    if (evt.getRepository() == this && M2ArtifactRecognizer.isChecksum(path)) {
+      // our own digest files are gone, make next request recreate them
+      mergedMetadataCache.invalidate(path.substring(0, path.lastIndexOf('.')));
+      return;
+    }
+    invalidateMergedMetadata(evt);
+  }
+
+  @Subscribe
+  public void onEvent(final RepositoryGroupMembersChangedEvent evt) {
+    if (evt.getGroupRepository() == this) {
+      mergedMetadataCache.invalidateAll();
+    }
+  }
+
+  @Subscribe
+  public void onEvent(final RepositoryConfigurationUpdatedEvent evt) {
+    // policy of any repository affects how it's metadata is merged
+    mergedMetadataCache.invalidateAll();
+  }
+
+  private void invalidateMergedMetadata(final RepositoryItemEvent evt) {
+    final String path = evt.getItemUid().getPath();
+    if (M2ArtifactRecognizer.isMetadata(path) && !M2ArtifactRecognizer.isChecksum(path)) {
+      mergedMetadataCache.invalidate(path);
+    }
+  }
+
+  private static class MergedMetadata
+  {
+    private final List<String> sourceStamps;
+
+    private final byte[] content;
+
+    private MergedMetadata(final List<String> sourceStamps, final byte[] content) {
+      this.sourceStamps = sourceStamps;
+      this.content = content;
+    }
+  }
 }
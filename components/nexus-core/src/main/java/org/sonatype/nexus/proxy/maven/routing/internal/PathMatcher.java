@@ -12,26 +12,57 @@
  */
 package org.sonatype.nexus.proxy.maven.routing.internal;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import org.sonatype.nexus.proxy.walker.ParentOMatic;
 import org.sonatype.nexus.proxy.walker.ParentOMatic.Payload;
 import org.sonatype.nexus.util.Node;
-import org.sonatype.nexus.util.PathUtils;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * A path matcher, that performs "path matching" using the prefix list entries. Implemented using {@link ParentOMatic},
- * and performs matching by building a maximized (capped) tree in memory out of path entries.
+ * A path matcher, that performs "path matching" using the prefix list entries. The maximized (capped) tree is built
+ * in memory using {@link ParentOMatic}, and is then flattened into a compact immutable trie of int arrays, where the
+ * children of each node occupy a contiguous range of node indexes and are sorted by label. Matching walks the passed
+ * in path string in place, and does not allocate, hence instances are safe to share across threads and repositories.
  *
  * @author cstamas
  * @since 2.4
  */
 public class PathMatcher
 {
-  private final Node<Payload> root;
+  /**
+   * Labels are interned across all instances, as prefix lists of different repositories tend to share most of their
+   * path elements (like "org", "com", "apache").
+   */
+  private static final Interner<String> LABELS = Interners.newWeakInterner();
+
+  private static final int ROOT = 0;
+
+  private static final int NOT_FOUND = -1;
+
+  /**
+   * The label of node, indexed by node.
+   */
+  private final String[] labels;
+
+  /**
+   * The index of first child of node, indexed by node.
+   */
+  private final int[] firstChild;
+
+  /**
+   * The count of children of node, indexed by node.
+   */
+  private final int[] childCount;
 
   /**
    * Constructor.
@@ -45,7 +76,18 @@ public class PathMatcher
    */
   public PathMatcher(final List<String> entries, final int maxDepth) {
     checkArgument(maxDepth >= 2);
-    this.root = buildRoot(checkNotNull(entries), maxDepth);
+    final List<Node<Payload>> nodes = flatten(buildRoot(checkNotNull(entries), maxDepth));
+    this.labels = new String[nodes.size()];
+    this.firstChild = new int[nodes.size()];
+    this.childCount = new int[nodes.size()];
+    int nextChild = 1;
+    for (int i = 0; i < nodes.size(); i++) {
+      final Node<Payload> node = nodes.get(i);
+      labels[i] = LABELS.intern(node.getLabel());
+      firstChild[i] = nextChild;
+      childCount[i] = node.getChildren().size();
+      nextChild += childCount[i];
+    }
   }
 
   /**
@@ -56,18 +98,11 @@ public class PathMatcher
    * @return {@code true} if path is matched, {@code false} otherwise.
    */
   public boolean matches(final String path) {
-    final List<String> pathElements = PathUtils.elementsOf(path);
-    Node<Payload> currentNode = root;
-    for (String pathElement : pathElements) {
-      currentNode = currentNode.getChildByLabel(pathElement);
-      if (currentNode == null || currentNode.isLeaf()) {
-        break;
-      }
-    }
     // since we add marked paths, and keepMarkedNodesOnly=true, all the marked paths will be leafs anyway.
     // also, after tree cutting, the longer nodes are also leafs (that had some marked sibling), so check for leafs
     // only, see buildRoot
-    return currentNode != null && (currentNode.isLeaf());
+    final int node = walk(path);
+    return node != NOT_FOUND && childCount[node] == 0;
   }
 
 
@@ -79,17 +114,9 @@ public class PathMatcher
    * @return {@code true} if path is contained, {@code false} otherwise.
    */
   public boolean contains(final String path) {
-    final List<String> pathElements = PathUtils.elementsOf(path);
-    Node<Payload> currentNode = root;
-    for (String pathElement : pathElements) {
-      currentNode = currentNode.getChildByLabel(pathElement);
-      if (currentNode == null || currentNode.isLeaf()) {
-        break;
-      }
-    }
     // This returns leafs but also parents. If not is not null, it means "we are on right path", like in case of
     // one entry "/com/sonatype", contains("/com") would return true.
-    return currentNode != null;
+    return walk(path) != NOT_FOUND;
   }
 
   // ==
@@ -106,4 +133,96 @@ public class PathMatcher
     }
     return parentOMatic.getRoot();
   }
+
+  /**
+   * Walks the path elements of passed in path (elements are separated by one or more "/" characters) down the trie,
+   * stopping at first leaf. Returns the node where walk stopped, or {@link #NOT_FOUND} if some path element had no
+   * corresponding node.
+   */
+  private int walk(final String path) {
+    final int length = path.length();
+    int node = ROOT;
+    int pos = 0;
+    while (true) {
+      while (pos < length && path.charAt(pos) == '/') {
+        pos++;
+      }
+      if (pos == length) {
+        return node;
+      }
+      int end = path.indexOf('/', pos);
+      if (end == -1) {
+        end = length;
+      }
+      node = findChild(node, path, pos, end);
+      if (node == NOT_FOUND || childCount[node] == 0) {
+        return node;
+      }
+      pos = end;
+    }
+  }
+
+  /**
+   * Binary searches the children of given node for one having label equal to the path region.
+   */
+  private int findChild(final int node, final String path, final int start, final int end) {
+    int low = firstChild[node];
+    int high = low + childCount[node] - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int cmp = compare(labels[mid], path, start, end);
+      if (cmp < 0) {
+        low = mid + 1;
+      }
+      else if (cmp > 0) {
+        high = mid - 1;
+      }
+      else {
+        return mid;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * Compares the label to path region same way as {@link String#compareTo(String)} would do.
+   */
+  private static int compare(final String label, final String path, final int start, final int end) {
+    final int labelLength = label.length();
+    final int regionLength = end - start;
+    final int min = Math.min(labelLength, regionLength);
+    for (int i = 0; i < min; i++) {
+      final char c1 = label.charAt(i);
+      final char c2 = path.charAt(start + i);
+      if (c1 != c2) {
+        return c1 - c2;
+      }
+    }
+    return labelLength - regionLength;
+  }
+
+  /**
+   * Lists the nodes of the tree in breadth-first order, having children of each node sorted by label, hence children
+   * of every node end up next to each other.
+   */
+  private static List<Node<Payload>> flatten(final Node<Payload> root) {
+    final Comparator<Node<Payload>> byLabel = new Comparator<Node<Payload>>()
+    {
+      @Override
+      public int compare(final Node<Payload> o1, final Node<Payload> o2) {
+        return o1.getLabel().compareTo(o2.getLabel());
+      }
+    };
+    final List<Node<Payload>> result = new ArrayList<>();
+    final ArrayDeque<Node<Payload>> queue = new ArrayDeque<>();
+    queue.add(root);
+    while (!queue.isEmpty()) {
+      final Node<Payload> node = queue.poll();
+      result.add(node);
+      final List<Node<Payload>> children = new ArrayList<>(node.getChildren());
+      Collections.sort(children, byLabel);
+      queue.addAll(children);
+    }
+    return result;
+  }
 }
@@ -13,7 +13,10 @@
 package org.sonatype.nexus.proxy.maven.routing.internal;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -32,7 +35,13 @@ import org.sonatype.nexus.proxy.repository.Repository;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.eventbus.Subscribe;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -87,6 +96,14 @@ public class ProxyRequestFilterImpl
 
   private final ConcurrentHashMap<String, PathMatcher> pathMatchers = new ConcurrentHashMap<String, PathMatcher>();
 
+  /**
+   * Matchers keyed by the SHA-1 digest of the prefix entries they were built from, so repositories publishing same
+   * prefix list (like several proxies of Maven Central) share one instance. The digest is kept instead of the entries
+   * themselves, as the (possibly huge) list is not needed once the matcher is built. Entries vanish once no
+   * repository uses the matcher.
+   */
+  private final Cache<HashCode, PathMatcher> sharedPathMatchers = CacheBuilder.newBuilder().weakValues().build();
+
   protected PathMatcher getPathMatcherFor(final MavenProxyRepository mavenProxyRepository) {
     return pathMatchers.get(mavenProxyRepository.getId());
   }
@@ -99,7 +116,7 @@ public class ProxyRequestFilterImpl
     try {
       final PrefixSource prefixSource = manager.getPrefixSourceFor(mavenProxyRepository);
       if (prefixSource.supported()) {
-        final PathMatcher pathMatcher = new PathMatcher(prefixSource.readEntries(), Integer.MAX_VALUE);
+        final PathMatcher pathMatcher = getSharedPathMatcher(prefixSource.readEntries());
         pathMatchers.put(mavenProxyRepository.getId(), pathMatcher);
       }
       else {
@@ -112,6 +129,33 @@ public class ProxyRequestFilterImpl
     }
   }
 
+  protected PathMatcher getSharedPathMatcher(final List<String> entries) {
+    try {
+      return sharedPathMatchers.get(digest(entries), new Callable<PathMatcher>()
+      {
+        @Override
+        public PathMatcher call() {
+          return new PathMatcher(entries, Integer.MAX_VALUE);
+        }
+      });
+    }
+    catch (ExecutionException e) {
+      // PathMatcher constructor throws no checked exceptions
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Digest of the entries, each entry prefixed by its length, so the digest is unambiguous.
+   */
+  private static HashCode digest(final List<String> entries) {
+    final Hasher hasher = Hashing.sha1().newHasher();
+    for (String entry : entries) {
+      hasher.putInt(entry.length()).putString(entry, Charsets.UTF_8);
+    }
+    return hasher.hash();
+  }
+
   // == Events
 
   protected boolean isRepositoryHandled(final Repository repository) {
@@ -18,10 +18,15 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 
 import org.sonatype.configuration.ConfigurationException;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.proxy.AccessDeniedException;
 import org.sonatype.nexus.proxy.IllegalOperationException;
 import org.sonatype.nexus.proxy.ItemNotFoundException;
@@ -42,9 +47,12 @@ import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.item.uid.IsGroupLocalOnlyAttribute;
 import org.sonatype.nexus.proxy.mapping.RequestRepositoryMapper;
 import org.sonatype.nexus.proxy.registry.RepositoryRegistry;
+import org.sonatype.nexus.proxy.repository.threads.ThreadPoolManager;
 import org.sonatype.nexus.proxy.utils.RepositoryStringUtils;
 import org.sonatype.nexus.proxy.walker.WalkerFilter;
 
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.eventbus.Subscribe;
 
@@ -60,20 +68,32 @@ public abstract class AbstractGroupRepository
     extends AbstractRepository
     implements GroupRepository
 {
+  /**
+   * Allows group members to be asked concurrently (using repository thread pool) by system property.
+   *
+   * @since 3.0
+   */
+  private static final boolean PARALLEL_MEMBER_LOOKUP = SystemPropertiesHelper.getBoolean(
+      AbstractGroupRepository.class.getName() + ".parallelMemberLookup", false);
+
   // == these below are injected
 
   private RepositoryRegistry repoRegistry;
 
   private RequestRepositoryMapper requestRepositoryMapper;
 
+  private ThreadPoolManager poolManager;
+
   // ==
 
   @Inject
   public void populateAbstractGroupRepository(
-      final RepositoryRegistry repoRegistry, final RequestRepositoryMapper requestRepositoryMapper)
+      final RepositoryRegistry repoRegistry, final RequestRepositoryMapper requestRepositoryMapper,
+      final ThreadPoolManager poolManager)
   {
     this.repoRegistry = checkNotNull(repoRegistry);
     this.requestRepositoryMapper = requestRepositoryMapper;
+    this.poolManager = poolManager;
   }
 
   @Override
@@ -255,7 +275,13 @@ public abstract class AbstractGroupRepository
       final boolean isRequestGroupLocalOnly =
           request.isRequestGroupLocalOnly() || uid.getBooleanAttributeValue(IsGroupLocalOnlyAttribute.class);
 
-      if (!isRequestGroupLocalOnly) {
+      if (!isRequestGroupLocalOnly && isParallelMemberLookup()) {
+        final StorageItem item = doRetrieveItemFromMembersInParallel(request, memberThrowables);
+        if (item != null) {
+          return item;
+        }
+      }
+      else if (!isRequestGroupLocalOnly) {
         for (Repository repo : getRequestRepositories(request)) {
           if (!request.getProcessedRepositories().contains(repo.getId())) {
             try {
@@ -312,6 +338,249 @@ public abstract class AbstractGroupRepository
     }
   }
 
+  /**
+   * Returns {@code true} if members should be asked concurrently.
+   *
+   * @since 3.0
+   */
+  protected boolean isParallelMemberLookup() {
+    return PARALLEL_MEMBER_LOOKUP && poolManager != null;
+  }
+
+  /**
+   * Asks the (not yet processed) request repositories concurrently, and returns the item of the first member in
+   * {@link #getRequestRepositories(ResourceStoreRequest)} order that has it, same as sequential lookup would. Returns
+   * {@code null} if no member has the item, having recorded the member failures into {@code memberThrowables}.
+   * <p>
+   * Members are first asked for their local content only. Members of lower priority than the first one having the
+   * item locally can not win, so they are not asked any further, and never go remote. The members up to that one are
+   * then asked as usual, and lookups still pending once the winner is known are cancelled. The processed repositories
+   * of all the members asked up to the winner are recorded into the request, same as sequential lookup would.
+   *
+   * @since 3.0
+   */
+  protected StorageItem doRetrieveItemFromMembersInParallel(final ResourceStoreRequest request,
+                                                            final HashMap<Repository, Throwable> memberThrowables)
+      throws StorageException
+  {
+    final List<Repository> members = getUnprocessedRequestRepositories(request);
+    final ExecutorService executor = poolManager.getRepositoryThreadPool(this);
+    int from = 0;
+    while (from < members.size()) {
+      final List<Repository> remaining = members.subList(from, members.size());
+      final int localHit = request.isRequestRemoteOnly() ? -1 : findFirstLocalHit(request, remaining, executor);
+      final List<Repository> candidates = localHit < 0 ? remaining : remaining.subList(0, localHit + 1);
+
+      final List<ResourceStoreRequest> memberRequests = Lists.newArrayListWithCapacity(candidates.size());
+      final List<Future<StorageItem>> lookups = Lists.newArrayListWithCapacity(candidates.size());
+      for (final Repository member : candidates) {
+        // every member gets a private copy of request, as requests are not thread safe
+        final ResourceStoreRequest memberRequest = request.cloneAndDetach();
+        memberRequests.add(memberRequest);
+        lookups.add(executor.submit(new Callable<StorageItem>()
+        {
+          @Override
+          public StorageItem call() throws Exception {
+            return member.retrieveItem(memberRequest);
+          }
+        }));
+      }
+
+      try {
+        for (int i = 0; i < candidates.size(); i++) {
+          final Repository member = candidates.get(i);
+          try {
+            StorageItem item = getMemberLookupResult(lookups.get(i));
+            addProcessedRepositories(request, memberRequests.subList(0, i + 1));
+
+            if (item instanceof StorageCollectionItem) {
+              item = new DefaultStorageCollectionItem(this, request, true, false);
+            }
+
+            return item;
+          }
+          catch (IllegalOperationException | ItemNotFoundException | StorageException | AccessDeniedException e) {
+            // ignored, but bookkeeping happens now
+            memberThrowables.put(member, e);
+          }
+        }
+        addProcessedRepositories(request, memberRequests);
+      }
+      finally {
+        // running lookups are not interrupted, as that could leave a member in the middle of caching an item
+        for (Future<StorageItem> lookup : lookups) {
+          lookup.cancel(false);
+        }
+      }
+
+      // the member having it locally did not have it after all (ie. removed meanwhile), carry on with the rest
+      from += candidates.size();
+    }
+    return null;
+  }
+
+  /**
+   * Asks passed in members concurrently for their local content only, and returns the index of the first one that
+   * has the item, or -1 if none of them has it locally.
+   */
+  private int findFirstLocalHit(final ResourceStoreRequest request, final List<Repository> members,
+                                final ExecutorService executor)
+  {
+    final List<Future<StorageItem>> probes = Lists.newArrayListWithCapacity(members.size());
+    for (final Repository member : members) {
+      final ResourceStoreRequest probeRequest = request.cloneAndDetach();
+      probeRequest.setRequestLocalOnly(true);
+      probes.add(executor.submit(new Callable<StorageItem>()
+      {
+        @Override
+        public StorageItem call() throws Exception {
+          return member.retrieveItem(probeRequest);
+        }
+      }));
+    }
+
+    try {
+      for (int i = 0; i < probes.size(); i++) {
+        try {
+          getMemberLookupResult(probes.get(i));
+          return i;
+        }
+        catch (Exception e) {
+          // not there, or not available, the full lookup will tell
+        }
+      }
+      return -1;
+    }
+    finally {
+      for (Future<StorageItem> probe : probes) {
+        probe.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Records the repositories processed by member requests into the request.
+   */
+  private static void addProcessedRepositories(final ResourceStoreRequest request,
+                                               final List<ResourceStoreRequest> memberRequests)
+  {
+    for (ResourceStoreRequest memberRequest : memberRequests) {
+      for (String repositoryId : memberRequest.getProcessedRepositories()) {
+        if (!request.getProcessedRepositories().contains(repositoryId)) {
+          request.addProcessedRepository(repositoryId);
+        }
+      }
+    }
+  }
+
+  /**
+   * Asks all (not yet processed) request repositories concurrently, and returns all the items found, in
+   * {@link #getRequestRepositories(ResourceStoreRequest)} order. Failures are handled same as in
+   * {@link #doRetrieveItems(ResourceStoreRequest)}, and the processed repositories of all members are recorded into
+   * the request.
+   *
+   * @since 3.0
+   */
+  protected List<StorageItem> doRetrieveItemsFromMembersInParallel(final ResourceStoreRequest request,
+                                                                   final HashMap<Repository, Throwable> memberThrowables)
+      throws StorageException
+  {
+    final List<Repository> members = getUnprocessedRequestRepositories(request);
+    final List<ResourceStoreRequest> memberRequests = Lists.newArrayListWithCapacity(members.size());
+    final List<Future<StorageItem>> lookups = Lists.newArrayListWithCapacity(members.size());
+    final ExecutorService executor = poolManager.getRepositoryThreadPool(this);
+    for (final Repository member : members) {
+      final ResourceStoreRequest memberRequest = request.cloneAndDetach();
+      memberRequests.add(memberRequest);
+      lookups.add(executor.submit(new Callable<StorageItem>()
+      {
+        @Override
+        public StorageItem call() throws Exception {
+          return member.retrieveItem(false, memberRequest);
+        }
+      }));
+    }
+
+    final ArrayList<StorageItem> items = new ArrayList<StorageItem>(members.size());
+    try {
+      for (int i = 0; i < members.size(); i++) {
+        final Repository member = members.get(i);
+        try {
+          items.add(getMemberLookupResult(lookups.get(i)));
+        }
+        catch (ItemNotFoundException e) {
+          // ignored, but bookkeeping happens now
+          memberThrowables.put(member, e);
+        }
+        catch (RepositoryNotAvailableException e) {
+          if (log.isDebugEnabled()) {
+            log.debug(
+                RepositoryStringUtils.getFormattedMessage(
+                    "Member repository %s is not available, request failed.", e.getRepository()));
+          }
+          // ignored, but bookkeeping happens now
+          memberThrowables.put(member, e);
+        }
+        catch (IllegalOperationException | AccessDeniedException e) {
+          log.warn("Member repository request failed", e);
+          // ignored, but bookkeeping happens now
+          memberThrowables.put(member, e);
+        }
+      }
+    }
+    finally {
+      for (Future<StorageItem> lookup : lookups) {
+        lookup.cancel(false);
+      }
+    }
+    addProcessedRepositories(request, memberRequests);
+    return items;
+  }
+
+  private List<Repository> getUnprocessedRequestRepositories(final ResourceStoreRequest request)
+      throws StorageException
+  {
+    final List<Repository> result = Lists.newArrayList();
+    for (Repository repository : getRequestRepositories(request)) {
+      if (!request.getProcessedRepositories().contains(repository.getId())) {
+        result.add(repository);
+      }
+      else {
+        if (log.isDebugEnabled()) {
+          log.debug(
+              String.format(
+                  "Repository %s member of group %s was already processed during this request! Skipping it from processing. Request: %s",
+                  RepositoryStringUtils.getHumanizedNameString(repository),
+                  RepositoryStringUtils.getHumanizedNameString(this), request.toString()));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Waits for member lookup and unwraps it's failure, if any.
+   */
+  private StorageItem getMemberLookupResult(final Future<StorageItem> lookup)
+      throws IllegalOperationException, ItemNotFoundException, StorageException, AccessDeniedException
+  {
+    try {
+      return lookup.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LocalStorageException("Interrupted while waiting for group member lookup", e);
+    }
+    catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      Throwables.propagateIfInstanceOf(cause, IllegalOperationException.class);
+      Throwables.propagateIfInstanceOf(cause, ItemNotFoundException.class);
+      Throwables.propagateIfInstanceOf(cause, StorageException.class);
+      Throwables.propagateIfInstanceOf(cause, AccessDeniedException.class);
+      throw Throwables.propagate(cause);
+    }
+  }
+
   @Override
   public List<String> getMemberRepositoryIds() {
     ArrayList<String> result =
@@ -444,7 +713,10 @@ public abstract class AbstractGroupRepository
 
     final HashMap<Repository, Throwable> memberThrowables = Maps.newLinkedHashMap();
 
-    if (!isRequestGroupLocalOnly) {
+    if (!isRequestGroupLocalOnly && isParallelMemberLookup()) {
+      items.addAll(doRetrieveItemsFromMembersInParallel(request, memberThrowables));
+    }
+    else if (!isRequestGroupLocalOnly) {
       for (Repository repository : getRequestRepositories(request)) {
         if (!request.getProcessedRepositories().contains(repository.getId())) {
           try {
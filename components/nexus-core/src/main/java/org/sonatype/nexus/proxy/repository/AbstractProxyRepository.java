@@ -19,7 +19,10 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLPeerUnverifiedException;
@@ -67,6 +70,10 @@ import org.sonatype.nexus.util.sequence.ConstantNumberSequence;
 import org.sonatype.nexus.util.sequence.FibonacciNumberSequence;
 import org.sonatype.nexus.util.sequence.NumberSequence;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -160,6 +167,35 @@ public abstract class AbstractProxyRepository
   private volatile NumberSequence remoteStatusRetainTimeSequence = new ConstantNumberSequence(
       REMOTE_STATUS_RETAIN_TIME);
 
+  /**
+   * Allows concurrent remote fetches of same path to be coalesced by system property.
+   *
+   * @since 3.0
+   */
+  private static final boolean COALESCE_REMOTE_FETCHES = SystemPropertiesHelper.getBoolean(
+      AbstractProxyRepository.class.getName() + ".coalesceRemoteFetches", false);
+
+  /**
+   * Allows old items to be revalidated with single conditional request instead of existence check followed by
+   * retrieval, by system property.
+   *
+   * @see #doRevalidateRemoteItem(StorageItem, ResourceStoreRequest)
+   * @since 3.0
+   */
+  private static final boolean CONDITIONAL_REVALIDATION = SystemPropertiesHelper.getBoolean(
+      AbstractProxyRepository.class.getName() + ".conditionalRevalidation", false);
+
+  /**
+   * Remote fetches in progress, keyed by UID path. The latch is released once the originating thread is done.
+   *
+   * @see #retrieveItem(boolean, ResourceStoreRequest)
+   * @see #doRetrieveItem(ResourceStoreRequest)
+   * @since 3.0
+   */
+  private final ConcurrentMap<String, CountDownLatch> remoteFetchesInProgress = Maps.newConcurrentMap();
+
+  private volatile boolean coalesceRemoteFetches = COALESCE_REMOTE_FETCHES;
+
   @Inject
   public void populateAbstractProxyRepository(ThreadPoolManager poolManager) {
     this.poolManager = checkNotNull(poolManager);
@@ -944,6 +980,45 @@ public abstract class AbstractProxyRepository
     return result;
   }
 
+  /**
+   * When remote fetch coalescing is enabled, and a remote fetch of the requested path is already in progress, waits
+   * for it to finish before the usual retrieval. This happens before any UID lock is acquired, so the waiting
+   * requests do not queue up on the exclusive lock, and are served from local storage (or from NFC if remote did not
+   * have the item) once the originating fetch is done.
+   *
+   * @since 3.0
+   */
+  @Override
+  public StorageItem retrieveItem(final boolean fromTask, final ResourceStoreRequest request)
+      throws IllegalOperationException, ItemNotFoundException, StorageException
+  {
+    if (coalesceRemoteFetches && !request.isRequestLocalOnly() && !request.isRequestRemoteOnly()
+        && !request.isRequestAsExpired()) {
+      final CountDownLatch remoteFetch = remoteFetchesInProgress.get(createUid(request.getRequestPath()).getPath());
+      if (remoteFetch != null) {
+        remoteFetchMeter("coalesced").mark();
+        try {
+          remoteFetch.await();
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new LocalStorageException("Interrupted while waiting for remote fetch of " + request, e);
+        }
+      }
+    }
+    return super.retrieveItem(fromTask, request);
+  }
+
+  @VisibleForTesting
+  void setCoalesceRemoteFetches(final boolean coalesceRemoteFetches) {
+    this.coalesceRemoteFetches = coalesceRemoteFetches;
+  }
+
+  private Meter remoteFetchMeter(final String kind) {
+    return SharedMetricRegistries.getOrCreate("nexus").meter(
+        MetricRegistry.name(AbstractProxyRepository.class, getId(), "remoteFetch", kind));
+  }
+
   @Override
   protected StorageItem doRetrieveItem(ResourceStoreRequest request)
       throws IllegalOperationException, ItemNotFoundException, StorageException
@@ -1005,32 +1080,49 @@ public abstract class AbstractProxyRepository
         // go remote and potentially check for new version of file, but we still don't know
         // will we actually fetch it (since aging != remote file changed!)
         // BUT, from this point on, we want to _serialize_ access, so upgrade to CREATE lock
+        // if coalescing, announce the fetch, so requests arriving from now on wait for it without locking
 
-        itemUidLock.lock(Action.create);
+        final CountDownLatch remoteFetch = coalesceRemoteFetches ? new CountDownLatch(1) : null;
+        final boolean originating = remoteFetch != null
+            && remoteFetchesInProgress.putIfAbsent(itemUid.getPath(), remoteFetch) == null;
 
         try {
-          // check local copy again, we were maybe blocked for a download, and we need to
-          // recheck local copy after we acquired exclusive lock
-          if (!request.isRequestRemoteOnly()) {
-            try {
-              localItem = (AbstractStorageItem) super.doRetrieveItem(request);
+          itemUidLock.lock(Action.create);
 
-              if (localItem != null && !request.isRequestAsExpired() && !isOld(localItem)) {
-                // local copy is just fine (downloaded by a thread holding us blocked on acquiring
-                // exclusive lock)
-                return localItem;
+          try {
+            // check local copy again, we were maybe blocked for a download, and we need to
+            // recheck local copy after we acquired exclusive lock
+            if (!request.isRequestRemoteOnly()) {
+              try {
+                localItem = (AbstractStorageItem) super.doRetrieveItem(request);
+
+                if (localItem != null && !request.isRequestAsExpired() && !isOld(localItem)) {
+                  // local copy is just fine (downloaded by a thread holding us blocked on acquiring
+                  // exclusive lock)
+                  return localItem;
+                }
+              }
+              catch (ItemNotFoundException e) {
+                localItem = null;
               }
             }
-            catch (ItemNotFoundException e) {
-              localItem = null;
+
+            if (originating) {
+              remoteFetchMeter("originating").mark();
             }
-          }
 
-          // this whole method happens with exclusive lock on UID
-          return doRetrieveItem0(request, localItem);
+            // this whole method happens with exclusive lock on UID
+            return doRetrieveItem0(request, localItem);
+          }
+          finally {
+            itemUidLock.unlock();
+          }
         }
         finally {
-          itemUidLock.unlock();
+          if (originating) {
+            remoteFetchesInProgress.remove(itemUid.getPath(), remoteFetch);
+            remoteFetch.countDown();
+          }
         }
       }
     }
@@ -1087,7 +1179,54 @@ public abstract class AbstractProxyRepository
         try {
           boolean shouldGetRemote = false;
 
-          if (localItem != null) {
+          if (localItem != null && CONDITIONAL_REVALIDATION) {
+            if (log.isDebugEnabled()) {
+              log.debug(
+                  "Item " + request.toString()
+                      + " is old, revalidating against remote: " + new Date(localItem.getModified()));
+            }
+
+            try {
+              remoteItem = doRevalidateRemoteItem(localItem, request);
+
+              if (remoteItem == null) {
+                markItemRemotelyChecked(localItem);
+
+                if (log.isDebugEnabled()) {
+                  log.debug(
+                      "No newer version of item " + request.toString() + " found on remote storage.");
+                }
+              }
+              else {
+                if (log.isDebugEnabled()) {
+                  log.debug(
+                      "Newer version of item " + request.toString() + " is retrieved from remote storage.");
+                }
+              }
+            }
+            catch (StorageException ex) {
+              if (ex instanceof RemoteStorageException
+                  // NEXUS-4593 HTTP status 403 should not lead to autoblock
+                  && !(ex instanceof RemoteAccessDeniedException)
+                  && !(ex instanceof RemoteStorageTransportException)) {
+                autoBlockProxying(ex);
+              }
+
+              if (ex instanceof RemoteStorageTransportException
+                  || ex instanceof LocalStorageEOFException) {
+                throw ex;
+              }
+
+              // do not go remote, but we did not mark it as "remote checked" also.
+              // let the user do proper setup and probably it will try again
+              remoteItem = null;
+            }
+            catch (IOException ex) {
+              // failed to mark item as checked, it will be revalidated again
+              remoteItem = null;
+            }
+          }
+          else if (localItem != null) {
             if (log.isDebugEnabled()) {
               log.debug(
                   "Item " + request.toString()
@@ -1184,9 +1323,6 @@ public abstract class AbstractProxyRepository
               }
             }
           }
-          else {
-            remoteItem = null;
-          }
         }
         catch (ItemNotFoundException ex) {
           if (log.isDebugEnabled()) {
@@ -1324,6 +1460,55 @@ public abstract class AbstractProxyRepository
     }
   }
 
+  /**
+   * Revalidates old local item against remote storage, retrieving and caching the remote item only if it was
+   * modified, in one round trip if remote storage supports conditional requests. If the conditionally retrieved item
+   * fails content validation, falls back to {@link #doRetrieveRemoteItem(ResourceStoreRequest)}, that obeys retries
+   * and mirrors.
+   *
+   * @return the newly cached item, or {@code null} if remote item is not modified or does not exist.
+   * @since 3.0
+   */
+  @Nullable
+  protected AbstractStorageItem doRevalidateRemoteItem(StorageItem localItem, ResourceStoreRequest request)
+      throws ItemNotFoundException, RemoteAccessException, StorageException
+  {
+    final RepositoryItemUidLock itemUidLock = createUid(request.getRequestPath()).getLock();
+
+    // same as remote download, this happens in exclusive lock
+    itemUidLock.lock(Action.create);
+
+    try {
+      final String remoteUrl = getRemoteUrl();
+      AbstractStorageItem remoteItem;
+      try {
+        remoteItem = getRemoteStorage().retrieveItemIfModified(this, request, remoteUrl, localItem);
+      }
+      catch (ItemNotFoundException e) {
+        // same as when existence check says remote has no newer item
+        return null;
+      }
+
+      if (remoteItem == null) {
+        return null;
+      }
+
+      remoteItem = doCacheItem(remoteItem);
+
+      final List<RepositoryItemValidationEvent> events = new ArrayList<>();
+      if (doValidateRemoteItemContent(request, remoteUrl, remoteItem, events)) {
+        sendContentValidationEvents(request, events, true);
+        return remoteItem;
+      }
+
+      // invalid content got cached, fetch again obeying retries and mirrors
+      return doRetrieveRemoteItem(request);
+    }
+    finally {
+      itemUidLock.unlock();
+    }
+  }
+
   /**
    * Retrieves item with specified uid from remote storage according to the following retry-fallback-blacklist rules.
    * <li>Only retrieve item operation will use mirrors, other operations, like check availability and retrieve
@@ -1358,18 +1543,28 @@ public abstract class AbstractProxyRepository
 
     final RepositoryItemUidLock itemUidLock = itemUid.getLock();
 
+    final List<String> remoteUrls = getRemoteUrls(request);
+
+    // started before taking the lock, as it must never wait for it
+    if (!remoteUrls.isEmpty()) {
+      doPrefetchRemoteItemValidationData(request, remoteUrls.get(0));
+    }
+
     // all this remote download happens in exclusive lock
     itemUidLock.lock(Action.create);
 
     try {
-      List<String> remoteUrls = getRemoteUrls(request);
-
       List<RepositoryItemValidationEvent> events = new ArrayList<>();
 
       Exception lastException = null;
 
       all_urls:
       for (String remoteUrl : remoteUrls) {
+        if (!remoteUrl.equals(remoteUrls.get(0))) {
+          // prefetched data is for the first url only
+          doCancelRemoteItemValidationDataPrefetch(request);
+        }
+
         int retryCount = 1;
 
         if (getRemoteStorageContext() != null) {
@@ -1533,6 +1728,39 @@ public abstract class AbstractProxyRepository
     }
     finally {
       itemUidLock.unlock();
+      // no-op if validation used it, otherwise the item was not retrieved and it is of no use anymore
+      doCancelRemoteItemValidationDataPrefetch(request);
+    }
+  }
+
+  /**
+   * Lets the content validators that are able to, start retrieval of remote data they need for validation
+   * concurrently with retrieval of remote item from given url.
+   *
+   * @since 3.0
+   */
+  protected void doPrefetchRemoteItemValidationData(final ResourceStoreRequest request, final String remoteUrl) {
+    if (poolManager == null) {
+      return;
+    }
+    for (ItemContentValidator validator : getItemContentValidators().values()) {
+      if (validator instanceof PrefetchingItemContentValidator) {
+        ((PrefetchingItemContentValidator) validator).prefetch(this, request, remoteUrl,
+            poolManager.getRepositoryThreadPool(this));
+      }
+    }
+  }
+
+  /**
+   * Cancels retrieval of remote data started by {@link #doPrefetchRemoteItemValidationData} that was not used.
+   *
+   * @since 3.0
+   */
+  protected void doCancelRemoteItemValidationDataPrefetch(final ResourceStoreRequest request) {
+    for (ItemContentValidator validator : getItemContentValidators().values()) {
+      if (validator instanceof PrefetchingItemContentValidator) {
+        ((PrefetchingItemContentValidator) validator).cancelPrefetch(this, request);
+      }
     }
   }
 
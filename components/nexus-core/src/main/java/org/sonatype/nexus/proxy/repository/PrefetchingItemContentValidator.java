@@ -0,0 +1,49 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.repository;
+
+import java.util.concurrent.ExecutorService;
+
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+
+/**
+ * Item content validator that needs remote data to perform validation (like remote checksums), and is able to
+ * retrieve those concurrently with the item being validated.
+ *
+ * @since 3.0
+ */
+public interface PrefetchingItemContentValidator
+    extends ItemContentValidator
+{
+  /**
+   * Invoked before an item is retrieved from remote storage of given proxy repository. Implementation must not block,
+   * but should submit remote retrieval to passed in executor and stash the result in request context, to be picked
+   * up once {@link #isRemoteItemContentValid} is invoked with same request and base URL. Retrieval must not be
+   * performed on the calling thread, even if the executor would run it there.
+   *
+   * @param proxy    repository that will be used to get item
+   * @param request  request that will be used to get item
+   * @param baseUrl  base URL the item will be retrieved from first
+   * @param executor executor to perform retrieval with
+   */
+  void prefetch(ProxyRepository proxy, ResourceStoreRequest request, String baseUrl, ExecutorService executor);
+
+  /**
+   * Invoked once the item retrieval is over, or moved on to another base URL, to cancel any prefetch still stashed
+   * in request context. Must be a no-op if there is none.
+   *
+   * @param proxy   repository that was used to get item
+   * @param request request that was used to get item
+   */
+  void cancelPrefetch(ProxyRepository proxy, ResourceStoreRequest request);
+}
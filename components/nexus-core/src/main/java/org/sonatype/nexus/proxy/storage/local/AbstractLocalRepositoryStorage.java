@@ -16,17 +16,13 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 import org.sonatype.nexus.mime.MimeSupport;
 import org.sonatype.nexus.proxy.ItemNotFoundException;
 import org.sonatype.nexus.proxy.LocalStorageException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
-import org.sonatype.nexus.proxy.item.ChecksummingContentLocator;
 import org.sonatype.nexus.proxy.item.LinkPersister;
 import org.sonatype.nexus.proxy.item.RepositoryItemUid;
-import org.sonatype.nexus.proxy.item.StorageFileItem;
 import org.sonatype.nexus.proxy.repository.Repository;
 import org.sonatype.nexus.proxy.storage.AbstractContextualizedRepositoryStorage;
 import org.sonatype.nexus.proxy.storage.UnsupportedStorageOperationException;
@@ -148,27 +144,4 @@ public abstract class AbstractLocalRepositoryStorage
   {
     getWastebasket().delete(this, repository, request);
   }
-
-  protected void prepareStorageFileItemForStore(final StorageFileItem item)
-      throws LocalStorageException
-  {
-    try {
-      // replace content locator
-      ChecksummingContentLocator sha1cl =
-          new ChecksummingContentLocator(item.getContentLocator(), MessageDigest.getInstance("SHA1"),
-              StorageFileItem.DIGEST_SHA1_KEY, item.getItemContext());
-
-      // md5 is deprecated but still calculated
-      ChecksummingContentLocator md5cl =
-          new ChecksummingContentLocator(sha1cl, MessageDigest.getInstance("MD5"),
-              StorageFileItem.DIGEST_MD5_KEY, item.getItemContext());
-
-      item.setContentLocator(md5cl);
-    }
-    catch (NoSuchAlgorithmException e) {
-      throw new LocalStorageException(
-          "The JVM does not support SHA1 MessageDigest or MD5 MessageDigest, that is essential for Nexus. We cannot write to local storage! Please run Nexus on JVM that does provide these MessageDigests.",
-          e);
-    }
-  }
 }
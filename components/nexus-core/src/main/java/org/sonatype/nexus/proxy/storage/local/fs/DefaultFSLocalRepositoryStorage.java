@@ -24,10 +24,13 @@ import java.net.URL;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -39,7 +42,9 @@ import org.sonatype.nexus.proxy.LocalStorageException;
 import org.sonatype.nexus.proxy.NoSuchRepositoryException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.access.AccessManager;
+import org.sonatype.nexus.proxy.attributes.AttributeStorage;
 import org.sonatype.nexus.proxy.attributes.Attributes;
+import org.sonatype.nexus.proxy.attributes.BatchAttributeStorage;
 import org.sonatype.nexus.proxy.item.AbstractStorageItem;
 import org.sonatype.nexus.proxy.item.ByteArrayContentLocator;
 import org.sonatype.nexus.proxy.item.ContentLocator;
@@ -203,6 +208,16 @@ public class DefaultFSLocalRepositoryStorage
    */
   protected AbstractStorageItem retrieveItemFromFile(Repository repository, ResourceStoreRequest request, File target)
       throws ItemNotFoundException, LocalStorageException
+  {
+    return retrieveItemFromFile(repository, request, target, null);
+  }
+
+  /**
+   * Retrieve item from file, using passed in attributes if not {@code null}, instead fetching them.
+   */
+  private AbstractStorageItem retrieveItemFromFile(Repository repository, ResourceStoreRequest request, File target,
+                                                   @Nullable Attributes attributes)
+      throws ItemNotFoundException, LocalStorageException
   {
     String path = request.getRequestPath();
 
@@ -243,14 +258,14 @@ public class DefaultFSLocalRepositoryStorage
             DefaultStorageLinkItem link =
                 new DefaultStorageLinkItem(repository, request, target.canRead(), target.canWrite(),
                     getLinkPersister().readLinkContent(fileContent));
-            repository.getAttributesHandler().fetchAttributes(link);
+            fetchAttributes(repository, link, attributes);
             link.setModified(target.lastModified());
             link.setCreated(target.lastModified());
 
             // NEXUS-7850: NEXUS-7851: filter out unwanted cases, by not treating them as links
-            final Attributes attributes = link.getRepositoryItemAttributes();
-            if (Strings.isNullOrEmpty(attributes.getRemoteUrl()) &&
-                !attributes.containsKey(AccessManager.REQUEST_REMOTE_ADDRESS)) {
+            final Attributes linkAttributes = link.getRepositoryItemAttributes();
+            if (Strings.isNullOrEmpty(linkAttributes.getRemoteUrl()) &&
+                !linkAttributes.containsKey(AccessManager.REQUEST_REMOTE_ADDRESS)) {
               repository.getAttributesHandler().touchItemLastRequested(System.currentTimeMillis(), link);
               return link;
             }
@@ -267,7 +282,7 @@ public class DefaultFSLocalRepositoryStorage
         DefaultStorageFileItem file =
             new DefaultStorageFileItem(repository, request, target.canRead(), target.canWrite(),
                 fileContent);
-        repository.getAttributesHandler().fetchAttributes(file);
+        fetchAttributes(repository, file, attributes);
         file.setModified(target.lastModified());
         file.setCreated(target.lastModified());
 
@@ -294,6 +309,18 @@ public class DefaultFSLocalRepositoryStorage
     }
   }
 
+  private void fetchAttributes(final Repository repository, final StorageItem item,
+                               @Nullable final Attributes attributes)
+      throws IOException
+  {
+    if (attributes != null) {
+      item.getRepositoryItemAttributes().overlayAttributes(attributes);
+    }
+    else {
+      repository.getAttributesHandler().fetchAttributes(item);
+    }
+  }
+
   public boolean isReachable(Repository repository, ResourceStoreRequest request)
       throws LocalStorageException
   {
@@ -336,8 +363,6 @@ public class DefaultFSLocalRepositoryStorage
       if (item instanceof StorageFileItem) {
         StorageFileItem fItem = (StorageFileItem) item;
 
-        prepareStorageFileItemForStore(fItem);
-
         cl = fItem.getContentLocator();
 
         try {
@@ -476,6 +501,7 @@ public class DefaultFSLocalRepositoryStorage
     Collection<File> files = getFSPeer().listItems(repository, getBaseDir(repository, request), request, target);
 
     if (files != null) {
+      final Map<String, Attributes> memberAttributes = getMemberAttributes(repository, request.getRequestPath());
       for (File file : files) {
         String newPath = PathUtils.concatPaths(request.getRequestPath(), file.getName());
 
@@ -483,7 +509,7 @@ public class DefaultFSLocalRepositoryStorage
         try {
           ResourceStoreRequest collMemberReq = new ResourceStoreRequest(request);
           try {
-            result.add(retrieveItemFromFile(repository, collMemberReq, file));
+            result.add(retrieveItemFromFile(repository, collMemberReq, file, memberAttributes.get(newPath)));
           }
           catch (ItemNotFoundException e) {
             log.debug("ItemNotFoundException while listing directory, for request: {}",
@@ -502,6 +528,23 @@ public class DefaultFSLocalRepositoryStorage
     return result;
   }
 
+  /**
+   * Reads attributes of all members of a collection at once, if attribute storage supports it. Otherwise, or on
+   * failure, returns empty map, so attributes are fetched for every member one by one.
+   */
+  private Map<String, Attributes> getMemberAttributes(final Repository repository, final String collectionPath) {
+    final AttributeStorage attributeStorage = repository.getAttributesHandler().getAttributeStorage();
+    if (attributeStorage instanceof BatchAttributeStorage) {
+      try {
+        return ((BatchAttributeStorage) attributeStorage).getMemberAttributes(repository, collectionPath);
+      }
+      catch (IOException e) {
+        log.warn("Could not read attributes of members of {}:{}", repository.getId(), collectionPath, e);
+      }
+    }
+    return Collections.emptyMap();
+  }
+
   private static File getFileFromUrl(String urlPath) {
     if (validFileUrl(urlPath)) {
       try {
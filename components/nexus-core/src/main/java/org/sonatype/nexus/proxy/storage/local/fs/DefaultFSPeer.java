@@ -23,6 +23,9 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.List;
 
@@ -40,11 +43,13 @@ import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.access.Action;
 import org.sonatype.nexus.proxy.item.ContentLocator;
 import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
+import org.sonatype.nexus.proxy.item.StorageFileItem;
 import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.item.uid.IsItemAttributeMetacontentAttribute;
 import org.sonatype.nexus.proxy.repository.Repository;
 import org.sonatype.nexus.proxy.storage.UnsupportedStorageOperationException;
 import org.sonatype.nexus.proxy.utils.RepositoryStringUtils;
+import org.sonatype.nexus.util.DigesterUtils;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 import org.sonatype.sisu.goodies.common.Throwables2;
 
@@ -125,11 +130,32 @@ public class DefaultFSPeer
       // we have _content_ (content or link), hence we store a file
       final File hiddenTarget = getHiddenTarget(repository, repositoryBaseDir, target, item);
 
+      // file digests are calculated while content is being written, and published in item context
+      // for DigestCalculatingInspector, so the stored file does not have to be read again
+      final MessageDigest sha1;
+      final MessageDigest md5;
+      if (item instanceof StorageFileItem) {
+        try {
+          sha1 = MessageDigest.getInstance("SHA1");
+          // md5 is deprecated but still calculated
+          md5 = MessageDigest.getInstance("MD5");
+        }
+        catch (NoSuchAlgorithmException e) {
+          throw new LocalStorageException(
+              "The JVM does not support SHA1 MessageDigest or MD5 MessageDigest, that is essential for Nexus. We cannot write to local storage! Please run Nexus on JVM that does provide these MessageDigests.",
+              e);
+        }
+      }
+      else {
+        sha1 = null;
+        md5 = null;
+      }
+
       // NEXUS-4550: Part One, saving to "hidden" (temp) file
       // In case of error cleaning up only what needed
       // No locking needed, AbstractRepository took care of that
-      try (final InputStream is = cl.getContent(); final OutputStream os = new BufferedOutputStream(
-          new FileOutputStream(hiddenTarget), getCopyStreamBufferSize())) {
+      try (final InputStream is = digesting(cl.getContent(), sha1, md5); final OutputStream os =
+          new BufferedOutputStream(new FileOutputStream(hiddenTarget), getCopyStreamBufferSize())) {
         StreamSupport.copy(is, os, getCopyStreamBufferSize());
         os.flush();
       }
@@ -171,6 +197,10 @@ public class DefaultFSPeer
       try {
         handleRenameOperation(hiddenTarget, target);
         target.setLastModified(item.getModified());
+        if (sha1 != null) {
+          item.getItemContext().put(StorageFileItem.DIGEST_SHA1_KEY, DigesterUtils.getDigestAsString(sha1.digest()));
+          item.getItemContext().put(StorageFileItem.DIGEST_MD5_KEY, DigesterUtils.getDigestAsString(md5.digest()));
+        }
       }
       catch (IOException e) {
         // if we ARE NOT handling attributes, do proper cleanup in case of IOEx
@@ -308,6 +338,16 @@ public class DefaultFSPeer
 
   // ==
 
+  private static InputStream digesting(final InputStream is, final MessageDigest... digests) {
+    InputStream result = is;
+    for (MessageDigest digest : digests) {
+      if (digest != null) {
+        result = new DigestInputStream(result, digest);
+      }
+    }
+    return result;
+  }
+
   protected File getHiddenTarget(final Repository repository, final File repositoryBaseDir, final File target,
                                  final StorageItem item)
       throws LocalStorageException
@@ -16,13 +16,18 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 
+import javax.annotation.Nullable;
 import javax.inject.Provider;
 
 import org.sonatype.nexus.SystemStatus;
 import org.sonatype.nexus.mime.MimeSupport;
+import org.sonatype.nexus.proxy.ItemNotFoundException;
+import org.sonatype.nexus.proxy.RemoteAccessException;
 import org.sonatype.nexus.proxy.RemoteStorageException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.item.AbstractStorageItem;
 import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.repository.ProxyRepository;
 import org.sonatype.nexus.proxy.repository.Repository;
 import org.sonatype.nexus.proxy.storage.AbstractContextualizedRepositoryStorage;
@@ -124,6 +129,23 @@ public abstract class AbstractRemoteRepositoryStorage
     return containsItem(0, repository, request);
   }
 
+  /**
+   * Checks for newer remote item first, and retrieves it only if found. Storages supporting conditional requests
+   * should override this method.
+   */
+  @Override
+  @Nullable
+  public AbstractStorageItem retrieveItemIfModified(final ProxyRepository repository,
+                                                    final ResourceStoreRequest request, final String baseUrl,
+                                                    final StorageItem localItem)
+      throws ItemNotFoundException, RemoteAccessException, RemoteStorageException
+  {
+    if (containsItem(localItem.getModified(), repository, request)) {
+      return retrieveItem(repository, request, baseUrl);
+    }
+    return null;
+  }
+
   public String getVersion() {
     final SystemStatus status = systemStatusProvider.get();
 
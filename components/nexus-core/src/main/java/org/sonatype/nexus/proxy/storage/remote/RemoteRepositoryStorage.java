@@ -14,6 +14,8 @@ package org.sonatype.nexus.proxy.storage.remote;
 
 import java.net.URL;
 
+import javax.annotation.Nullable;
+
 import org.sonatype.nexus.proxy.ItemNotFoundException;
 import org.sonatype.nexus.proxy.RemoteAccessException;
 import org.sonatype.nexus.proxy.RemoteStorageException;
@@ -92,6 +94,20 @@ public interface RemoteRepositoryStorage
   AbstractStorageItem retrieveItem(ProxyRepository repository, ResourceStoreRequest request, String baseUrl)
       throws ItemNotFoundException, RemoteAccessException, RemoteStorageException;
 
+  /**
+   * Retrieve item only if remote content changed since passed in locally cached item was retrieved. Storages able to
+   * perform conditional requests should check and retrieve in one round trip.
+   *
+   * @return the abstract storage item, or {@code null} if remote item is not modified.
+   * @throws ItemNotFoundException  the item not found exception
+   * @throws RemoteStorageException the storage exception
+   * @since 3.0
+   */
+  @Nullable
+  AbstractStorageItem retrieveItemIfModified(ProxyRepository repository, ResourceStoreRequest request,
+                                             String baseUrl, StorageItem localItem)
+      throws ItemNotFoundException, RemoteAccessException, RemoteStorageException;
+
   /**
    * Store item.
    *
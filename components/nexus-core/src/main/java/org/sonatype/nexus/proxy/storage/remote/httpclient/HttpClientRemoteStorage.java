@@ -18,7 +18,9 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.UnsupportedCharsetException;
+import java.util.Date;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
@@ -108,6 +110,13 @@ public class HttpClientRemoteStorage
    */
   public static final String NEXUS_MISSING_ARTIFACT_HEADER = "x-nexus-missing-artifact";
 
+  /**
+   * Item attribute key of ETag sent by remote along with item content, used in conditional requests.
+   *
+   * @since 3.0
+   */
+  public static final String REMOTE_ETAG_ATTR_KEY = "remote.etag";
+
   /**
    * Context key of HTTP client.
    */
@@ -185,6 +194,34 @@ public class HttpClientRemoteStorage
   public AbstractStorageItem retrieveItem(final ProxyRepository repository, final ResourceStoreRequest request,
                                           final String baseUrl)
       throws ItemNotFoundException, RemoteStorageException
+  {
+    return doRetrieveItem(repository, request, baseUrl, null);
+  }
+
+  /**
+   * Performs a single conditional GET using {@code If-Modified-Since} built from the local item modification
+   * timestamp and {@code If-None-Match} built from remote ETag recorded when local item was retrieved, if any.
+   *
+   * @since 3.0
+   */
+  @Override
+  @Nullable
+  public AbstractStorageItem retrieveItemIfModified(final ProxyRepository repository,
+                                                    final ResourceStoreRequest request, final String baseUrl,
+                                                    final StorageItem localItem)
+      throws ItemNotFoundException, RemoteStorageException
+  {
+    return doRetrieveItem(repository, request, baseUrl, localItem);
+  }
+
+  /**
+   * Retrieves the item, conditionally if local item is given, in which case {@code null} is returned when remote
+   * responds with 304 Not Modified.
+   */
+  @Nullable
+  private AbstractStorageItem doRetrieveItem(final ProxyRepository repository, final ResourceStoreRequest request,
+                                             final String baseUrl, @Nullable final StorageItem localItem)
+      throws ItemNotFoundException, RemoteStorageException
   {
     validatePath(repository, request);
     final URL remoteURL =
@@ -202,10 +239,23 @@ public class HttpClientRemoteStorage
     }
 
     final HttpGet method = new HttpGet(url);
+    if (localItem != null) {
+      if (localItem.getModified() > 0) {
+        method.setHeader("If-Modified-Since", DateUtils.formatDate(new Date(localItem.getModified())));
+      }
+      final String etag = localItem.getRepositoryItemAttributes().get(REMOTE_ETAG_ATTR_KEY);
+      if (etag != null) {
+        method.setHeader("If-None-Match", etag);
+      }
+    }
 
     final HttpResponse httpResponse = executeRequest(repository, request, method, baseUrl, true);
 
-    if (httpResponse.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+    if (localItem != null && httpResponse.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+      release(httpResponse);
+      return null;
+    }
+    else if (httpResponse.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
       InputStream is;
       try {
         is = new Hc4InputStream(repository,
@@ -232,6 +282,10 @@ public class HttpClientRemoteStorage
         httpItem.setRemoteUrl(remoteURL.toString());
         httpItem.setModified(makeDateFromHeader(httpResponse.getFirstHeader("last-modified")));
         httpItem.setCreated(httpItem.getModified());
+        final Header etag = httpResponse.getFirstHeader("etag");
+        if (etag != null) {
+          httpItem.getRepositoryItemAttributes().put(REMOTE_ETAG_ATTR_KEY, etag.getValue());
+        }
 
         return httpItem;
       }
@@ -77,20 +77,43 @@ public class Target
   }
 
   public boolean isPathContained(ContentClass contentClass, String path) {
+    return isApplicableTo(contentClass) && isPathMatched(path);
+  }
+
+  // ==
+
+  /**
+   * Returns {@code true} if this target applies to repositories of given content class, that is when content classes
+   * are same or compatible.
+   *
+   * @since 3.0
+   */
+  boolean isApplicableTo(ContentClass contentClass) {
     // if is the same or is compatible
     // make sure to check the inverse of the isCompatible too !!
-    if (StringUtils.equals(getContentClass().getId(), contentClass.getId())
+    return StringUtils.equals(getContentClass().getId(), contentClass.getId())
         || getContentClass().isCompatible(contentClass)
-        || contentClass.isCompatible(getContentClass())) {
-      // look for pattern matching
-      for (Pattern pattern : patterns) {
-        if (pattern.matcher(path).matches()) {
-          return true;
-        }
+        || contentClass.isCompatible(getContentClass());
+  }
+
+  /**
+   * @since 3.0
+   */
+  boolean isPathMatched(String path) {
+    // look for pattern matching
+    for (Pattern pattern : patterns) {
+      if (pattern.matcher(path).matches()) {
+        return true;
       }
     }
-
     return false;
   }
 
+  /**
+   * @since 3.0
+   */
+  Set<Pattern> getPatterns() {
+    return Collections.unmodifiableSet(patterns);
+  }
+
 }
@@ -0,0 +1,161 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.targets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.sonatype.nexus.proxy.registry.ContentClass;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+/**
+ * Immutable matcher over a snapshot of {@link Target}s. Per content class, patterns of applicable targets are indexed
+ * by their literal prefix in a character trie, so a single walk over the path selects the only patterns that may
+ * match it, and patterns of targets that already matched are not evaluated anymore. Patterns without literal prefix
+ * (like {@code .*}) are candidates for every path.
+ *
+ * @since 3.0
+ */
+class TargetMatcher
+{
+  private static final String METACHARACTERS = "\\[](){}.*+?^$|";
+
+  private final Collection<Target> targets;
+
+  private final ConcurrentMap<String, Node> indexes;
+
+  TargetMatcher(final Collection<Target> targets) {
+    this.targets = ImmutableList.copyOf(targets);
+    this.indexes = Maps.newConcurrentMap();
+  }
+
+  /**
+   * Returns targets applicable to content class that have a pattern matching the path.
+   */
+  Set<Target> getTargets(final ContentClass contentClass, final String path) {
+    final Set<Target> result = new HashSet<Target>();
+    Node node = getIndex(contentClass);
+    collect(node, path, result);
+    for (int i = 0; i < path.length() && node.children != null; i++) {
+      node = node.children.get(path.charAt(i));
+      if (node == null) {
+        break;
+      }
+      collect(node, path, result);
+    }
+    return result;
+  }
+
+  // ==
+
+  private Node getIndex(final ContentClass contentClass) {
+    Node index = indexes.get(contentClass.getId());
+    if (index == null) {
+      index = buildIndex(contentClass);
+      final Node existing = indexes.putIfAbsent(contentClass.getId(), index);
+      if (existing != null) {
+        index = existing;
+      }
+    }
+    return index;
+  }
+
+  private Node buildIndex(final ContentClass contentClass) {
+    final Node root = new Node();
+    for (Target target : targets) {
+      if (target.isApplicableTo(contentClass)) {
+        for (Pattern pattern : target.getPatterns()) {
+          Node node = root;
+          for (char c : literalPrefix(pattern.pattern()).toCharArray()) {
+            node = node.getOrCreateChild(c);
+          }
+          node.addCandidate(target, pattern);
+        }
+      }
+    }
+    return root;
+  }
+
+  private static void collect(final Node node, final String path, final Set<Target> result) {
+    if (node.targets != null) {
+      for (int i = 0; i < node.targets.size(); i++) {
+        final Target target = node.targets.get(i);
+        if (!result.contains(target) && node.patterns.get(i).matcher(path).matches()) {
+          result.add(target);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the literal text every string matched by the regular expression must start with, or empty string if
+   * it cannot be determined. Conservative: regular expressions having alternations anywhere have no prefix, and
+   * prefix ends at first metacharacter (dropping the last literal if that character made it optional).
+   */
+  static String literalPrefix(final String regex) {
+    if (regex.indexOf('|') > -1) {
+      return "";
+    }
+    final StringBuilder prefix = new StringBuilder();
+    for (int i = regex.startsWith("^") ? 1 : 0; i < regex.length(); i++) {
+      final char c = regex.charAt(i);
+      if (METACHARACTERS.indexOf(c) > -1) {
+        if ((c == '*' || c == '?' || c == '{') && prefix.length() > 0) {
+          prefix.setLength(prefix.length() - 1);
+        }
+        break;
+      }
+      prefix.append(c);
+    }
+    return prefix.toString();
+  }
+
+  private static class Node
+  {
+    private Map<Character, Node> children;
+
+    private List<Target> targets;
+
+    private List<Pattern> patterns;
+
+    private Node getOrCreateChild(final char c) {
+      if (children == null) {
+        children = new HashMap<Character, Node>(4);
+      }
+      Node child = children.get(c);
+      if (child == null) {
+        child = new Node();
+        children.put(c, child);
+      }
+      return child;
+    }
+
+    private void addCandidate(final Target target, final Pattern pattern) {
+      if (targets == null) {
+        targets = new ArrayList<Target>();
+        patterns = new ArrayList<Pattern>();
+      }
+      targets.add(target);
+      patterns.add(pattern);
+    }
+  }
+}
@@ -0,0 +1,27 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.walker;
+
+/**
+ * Marker interface for {@link WalkerProcessor}s that are safe to be invoked concurrently. If all active processors of
+ * a depth-first walk without item comparator are concurrent ones, the {@link DefaultWalker} may walk the subtrees in
+ * parallel. Implementations must not rely on the order in which siblings are processed, but may rely that
+ * {@link #onCollectionExit(WalkerContext, org.sonatype.nexus.proxy.item.StorageCollectionItem)} of a collection is
+ * invoked only once its whole subtree has been processed.
+ *
+ * @since 3.0
+ */
+public interface ConcurrentWalkerProcessor
+    extends WalkerProcessor
+{
+}
@@ -12,12 +12,18 @@
  */
 package org.sonatype.nexus.proxy.walker;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.proxy.AccessDeniedException;
 import org.sonatype.nexus.proxy.IllegalOperationException;
 import org.sonatype.nexus.proxy.ItemNotFoundException;
@@ -28,9 +34,13 @@ import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.repository.LocalStatus;
 import org.sonatype.nexus.proxy.utils.RepositoryStringUtils;
 import org.sonatype.nexus.proxy.walker.WalkerContext.TraversalType;
+import org.sonatype.nexus.scheduling.CancelableSupport;
+import org.sonatype.nexus.scheduling.CancelableSupport.CancelableFlagHolder;
 import org.sonatype.nexus.scheduling.TaskInterruptedException;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 
 /**
@@ -50,6 +60,26 @@ public class DefaultWalker
 
   public static final String WALKER_THROTTLE_INFO = Walker.class.getSimpleName() + ".throttleInfo";
 
+  /**
+   * The maximum count of threads walking subtrees in parallel, used only when all active processors are
+   * {@link ConcurrentWalkerProcessor}s. Value of 1 (the default) makes all walks sequential.
+   *
+   * @since 3.0
+   */
+  private static final int PARALLELISM = SystemPropertiesHelper.getInteger(
+      DefaultWalker.class.getName() + ".parallelism", 1);
+
+  private final int parallelism;
+
+  public DefaultWalker() {
+    this(PARALLELISM);
+  }
+
+  @VisibleForTesting
+  DefaultWalker(final int parallelism) {
+    this.parallelism = parallelism;
+  }
+
   @Override
   public void walk(WalkerContext context)
       throws WalkerException
@@ -84,7 +114,13 @@ public class DefaultWalker
               context.getFilter() != null ? context.getFilter() : new DefaultStoreWalkerFilter();
           try {
             if (StorageCollectionItem.class.isAssignableFrom(item.getClass())) {
-              int collCount = walkRecursive(0, context, filter, (StorageCollectionItem) item);
+              final int collCount;
+              if (isParallelWalk(context)) {
+                collCount = walkParallel(context, filter, (StorageCollectionItem) item);
+              }
+              else {
+                collCount = walkRecursive(0, context, filter, (StorageCollectionItem) item);
+              }
               context.getContext().put(WALKER_WALKED_COLLECTION_COUNT, collCount);
             }
             else {
@@ -237,6 +273,159 @@ public class DefaultWalker
     return collCount;
   }
 
+  /**
+   * Returns {@code true} if walk should be performed in parallel: it must be depth-first without item comparator (as
+   * order of siblings is not retained) and all active processors must be {@link ConcurrentWalkerProcessor}s.
+   *
+   * @since 3.0
+   */
+  protected boolean isParallelWalk(final WalkerContext context) {
+    if (parallelism < 2 || context.getTraversalType() != TraversalType.DEPTH_FIRST
+        || context.getItemComparator() != null) {
+      return false;
+    }
+    boolean hasActive = false;
+    for (WalkerProcessor processor : context.getProcessors()) {
+      if (processor.isActive()) {
+        if (!(processor instanceof ConcurrentWalkerProcessor)) {
+          return false;
+        }
+        hasActive = true;
+      }
+    }
+    return hasActive;
+  }
+
+  /**
+   * Walks the collection using a work-stealing pool, one task per collection. A collection is exited only when all
+   * the tasks of its subtree are done, same as with sequential depth-first walk.
+   *
+   * @since 3.0
+   */
+  protected final int walkParallel(final WalkerContext context, final WalkerFilter filter,
+                                   final StorageCollectionItem coll)
+  {
+    final ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      final Future<Integer> result = pool.submit(
+          new CollectionWalkTask(context, filter, coll, CancelableSupport.getCurrent()));
+      return result.get();
+    }
+    catch (InterruptedException e) {
+      context.stop(new TaskInterruptedException("Thread \"" + Thread.currentThread().getName()
+          + "\" is interrupted!", false));
+      return 0;
+    }
+    catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+    finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Task walking one collection: it processes the members in the current thread, while forking a task for each
+   * member collection, and exits the collection once all forked tasks are joined.
+   */
+  private class CollectionWalkTask
+      extends RecursiveTask<Integer>
+  {
+    private final WalkerContext context;
+
+    private final WalkerFilter filter;
+
+    private final StorageCollectionItem coll;
+
+    private final CancelableFlagHolder cancelable;
+
+    private CollectionWalkTask(final WalkerContext context, final WalkerFilter filter,
+                               final StorageCollectionItem coll, final CancelableFlagHolder cancelable)
+    {
+      this.context = context;
+      this.filter = filter;
+      this.coll = coll;
+      this.cancelable = cancelable;
+    }
+
+    @Override
+    protected Integer compute() {
+      // worker threads may run tasks of a walk nested in each other, so restore what was there
+      final CancelableFlagHolder current = CancelableSupport.getCurrent();
+      CancelableSupport.setCurrent(cancelable);
+      try {
+        return walkCollection();
+      }
+      finally {
+        CancelableSupport.setCurrent(current);
+      }
+    }
+
+    private int walkCollection() {
+      if (context.isStopped()) {
+        return 0;
+      }
+      final boolean shouldProcess = filter.shouldProcess(context, coll);
+      final boolean shouldProcessRecursively = filter.shouldProcessRecursively(context, coll);
+      if (!shouldProcess && !shouldProcessRecursively) {
+        return 0;
+      }
+
+      int collCount = 0;
+      // user may call stop()
+      if (shouldProcess) {
+        onCollectionEnter(context, coll);
+        collCount++;
+      }
+
+      if (context.isStopped()) {
+        return collCount;
+      }
+
+      if (shouldProcessRecursively) {
+        final List<CollectionWalkTask> subtasks = Lists.newArrayList();
+        try {
+          final Collection<StorageItem> ls = context.getRepository().list(false, coll);
+          for (StorageItem i : ls) {
+            if (context.isStopped()) {
+              break;
+            }
+            if (context.isProcessCollections() || !(i instanceof StorageCollectionItem)) {
+              walkItem(context, filter, i);
+            }
+            if (i instanceof StorageCollectionItem) {
+              final CollectionWalkTask subtask =
+                  new CollectionWalkTask(context, filter, (StorageCollectionItem) i, cancelable);
+              subtask.fork();
+              subtasks.add(subtask);
+            }
+          }
+        }
+        catch (ItemNotFoundException e) {
+          log.debug("ItemNotFound not found while walking it, skipping.", e);
+        }
+        catch (IllegalOperationException | StorageException e) {
+          context.stop(e);
+        }
+        // always join what was forked, even if stopped, to not leave the subtree running
+        for (CollectionWalkTask subtask : subtasks) {
+          collCount += subtask.join();
+        }
+      }
+
+      if (context.isStopped()) {
+        return collCount;
+      }
+
+      // user may call stop()
+      if (shouldProcess) {
+        onCollectionExit(context, coll);
+      }
+
+      return collCount;
+    }
+  }
+
   protected void walkItem(WalkerContext context, WalkerFilter filter, StorageItem i) {
     if (filter.shouldProcess(context, i)) {
       // user may call stop()
@@ -299,7 +488,11 @@ public class DefaultWalker
       info.exitProcessItem();
 
       if (!context.isStopped() && context.getThrottleController().isThrottled()) {
-        final long throttleTime = context.getThrottleController().throttleTime(info);
+        final long throttleTime;
+        // controllers keep their stats unguarded, while parallel walks process items concurrently
+        synchronized (context.getThrottleController()) {
+          throttleTime = context.getThrottleController().throttleTime(info);
+        }
 
         if (throttleTime > 0) {
           try {
@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.proxy.walker;
 
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -48,7 +49,7 @@ public class DefaultWalkerContext
 
   private final List<WalkerProcessor> processors;
 
-  private Throwable stopCause;
+  private volatile Throwable stopCause;
 
   private Comparator<StorageItem> itemComparator;
 
@@ -91,7 +92,7 @@ public class DefaultWalkerContext
     }
     this.traversalType = checkNotNull(traversalType);
     this.processCollections = processCollections;
-    this.context = Maps.newHashMap();
+    this.context = Collections.synchronizedMap(Maps.<String, Object>newHashMap());
     this.processors = Lists.newArrayList();
   }
 
@@ -0,0 +1,140 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.tasks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.sonatype.nexus.proxy.ItemNotFoundException;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.attributes.AttributeStorage;
+import org.sonatype.nexus.proxy.attributes.MapdbAttributeStorage;
+import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.nexus.proxy.repository.GroupRepository;
+import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.nexus.proxy.repository.RepositoryTaskSupport;
+import org.sonatype.nexus.proxy.walker.AbstractWalkerProcessor;
+import org.sonatype.nexus.proxy.walker.ConcurrentWalkerProcessor;
+import org.sonatype.nexus.proxy.walker.DefaultWalkerContext;
+import org.sonatype.nexus.proxy.walker.Walker;
+import org.sonatype.nexus.proxy.walker.WalkerContext;
+import org.sonatype.nexus.proxy.walker.WalkerException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Migrates item attributes from legacy per-file layout to {@link MapdbAttributeStorage}, if that is the attribute
+ * storage in use. Attributes are migrated on first access anyway, this task just does it for all items at once.
+ *
+ * @since 3.0
+ */
+@Named
+public class MigrateAttributesTask
+    extends RepositoryTaskSupport<Void>
+{
+  private final Walker walker;
+
+  @Inject
+  public MigrateAttributesTask(final Walker walker) {
+    this.walker = checkNotNull(walker);
+  }
+
+  @Override
+  protected Void execute()
+      throws Exception
+  {
+    final List<Repository> repositories;
+    if (getConfiguration().getRepositoryId() != null) {
+      repositories = Collections.singletonList(
+          getRepositoryRegistry().getRepository(getConfiguration().getRepositoryId()));
+    }
+    else {
+      repositories = getRepositoryRegistry().getRepositories();
+    }
+
+    for (Repository repository : repositories) {
+      // groups are processed by processing their members
+      if (!repository.getRepositoryKind().isFacetAvailable(GroupRepository.class)) {
+        migrateAttributes(repository);
+      }
+    }
+
+    return null;
+  }
+
+  private void migrateAttributes(final Repository repository) {
+    final AttributeStorage attributeStorage = repository.getAttributesHandler().getAttributeStorage();
+    if (!(attributeStorage instanceof MapdbAttributeStorage)) {
+      log.info("Repository {} does not use MapDB attribute storage, nothing to migrate.", repository.getId());
+      return;
+    }
+
+    final MigratingWalkerProcessor processor =
+        new MigratingWalkerProcessor((MapdbAttributeStorage) attributeStorage);
+    final WalkerContext context = new DefaultWalkerContext(repository,
+        new ResourceStoreRequest(getConfiguration().getPath(), true));
+    context.getProcessors().add(processor);
+    try {
+      walker.walk(context);
+    }
+    catch (WalkerException e) {
+      if (!(e.getWalkerContext().getStopCause() instanceof ItemNotFoundException)) {
+        throw e;
+      }
+    }
+    log.info("Migrated attributes of repository {}, {} items processed.", repository.getId(),
+        processor.processed.get());
+  }
+
+  @Override
+  public String getMessage() {
+    if (getConfiguration().getRepositoryId() != null) {
+      return "Migrating attributes of repository " + getConfiguration().getRepositoryId() + " from path "
+          + getConfiguration().getPath() + " and below.";
+    }
+    else {
+      return "Migrating attributes of all registered repositories from path " + getConfiguration().getPath()
+          + " and below.";
+    }
+  }
+
+  // ==
+
+  private static class MigratingWalkerProcessor
+      extends AbstractWalkerProcessor
+      implements ConcurrentWalkerProcessor
+  {
+    private final MapdbAttributeStorage attributeStorage;
+
+    private final AtomicInteger processed = new AtomicInteger();
+
+    private MigratingWalkerProcessor(final MapdbAttributeStorage attributeStorage) {
+      this.attributeStorage = attributeStorage;
+    }
+
+    @Override
+    public void processItem(final WalkerContext context, final StorageItem item)
+        throws Exception
+    {
+      // listing of the collection fetched (and so migrated) the attributes of members mostly, this is for the rest
+      if (!item.isVirtual()) {
+        attributeStorage.migrateAttributes(item.getRepositoryItemUid());
+      }
+      processed.incrementAndGet();
+    }
+  }
+}
@@ -15,15 +15,20 @@ package org.sonatype.nexus.web;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.List;
 
+import javax.annotation.Nullable;
 import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.servlet.http.HttpServletResponse;
 
 import org.sonatype.nexus.SystemStatus;
-import org.sonatype.nexus.common.io.StreamSupport;
+import org.sonatype.nexus.common.io.ByteRanges;
+import org.sonatype.nexus.common.io.ChannelSupport;
 import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 
+import com.google.common.collect.Range;
+
 /**
  * Web response related utilities, that helps in ordinary tasks with HTTP servlet responses.
  *
@@ -67,6 +72,52 @@ public class WebUtils
    * The passed in {@link HttpServletResponse} after this call returns is committed and flushed.
    */
   public void sendContent(final InputStream input, final HttpServletResponse response) throws IOException {
+    sendContent(input, 0, -1, response);
+  }
+
+  /**
+   * Sends {@code length} bytes of content starting at {@code offset} from the input stream to the response (or all
+   * content from offset if length is negative). File backed content is handed over to the container without copying
+   * it through heap buffers, see {@link ChannelSupport}. Otherwise, same as {@link #sendContent(InputStream,
+   * HttpServletResponse)}.
+   *
+   * @since 3.0
+   */
+  public void sendContent(final InputStream input,
+                          final long offset,
+                          final long length,
+                          final HttpServletResponse response)
+      throws IOException
+  {
+    final int bufferSize = prepareBufferSize(response);
+    try (final InputStream from = input; final OutputStream to = response.getOutputStream()) {
+      ChannelSupport.copyRange(from, offset, length, to, bufferSize);
+      response.flushBuffer();
+    }
+  }
+
+  /**
+   * Sends given byte ranges of content from the input stream to the response as {@code multipart/byteranges}, see
+   * {@link ByteRanges#copyMultipart}. Otherwise, same as {@link #sendContent(InputStream, HttpServletResponse)}.
+   *
+   * @since 3.0
+   */
+  public void sendMultipartContent(final InputStream input,
+                                   final List<Range<Long>> ranges,
+                                   final long length,
+                                   final @Nullable String contentType,
+                                   final String boundary,
+                                   final HttpServletResponse response)
+      throws IOException
+  {
+    final int bufferSize = prepareBufferSize(response);
+    try (final InputStream from = input; final OutputStream to = response.getOutputStream()) {
+      ByteRanges.copyMultipart(from, ranges, length, contentType, boundary, to, bufferSize);
+      response.flushBuffer();
+    }
+  }
+
+  private int prepareBufferSize(final HttpServletResponse response) {
     int bufferSize = BUFFER_SIZE;
     if (bufferSize < 1) {
       // if no user override, ask container for bufferSize
@@ -80,9 +131,6 @@ public class WebUtils
       // user override present, tell container what buffer size we'd like
       response.setBufferSize(bufferSize);
     }
-    try (final InputStream from = input; final OutputStream to = response.getOutputStream()) {
-      StreamSupport.copy(from, to, bufferSize);
-      response.flushBuffer();
-    }
+    return bufferSize;
   }
 }
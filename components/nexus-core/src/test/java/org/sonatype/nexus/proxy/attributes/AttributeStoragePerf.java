@@ -0,0 +1,239 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import java.io.File;
+import java.util.Random;
+
+import org.sonatype.nexus.mime.MimeSupport;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.access.Action;
+import org.sonatype.nexus.proxy.item.DefaultStorageFileItem;
+import org.sonatype.nexus.proxy.item.LinkPersister;
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
+import org.sonatype.nexus.proxy.item.StringContentLocator;
+import org.sonatype.nexus.proxy.item.uid.Attribute;
+import org.sonatype.nexus.proxy.item.uid.IsItemAttributeMetacontentAttribute;
+import org.sonatype.nexus.proxy.repository.DefaultRepositoryKind;
+import org.sonatype.nexus.proxy.repository.HostedRepository;
+import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.nexus.proxy.storage.local.DefaultLocalStorageContext;
+import org.sonatype.nexus.proxy.storage.local.fs.DefaultFSLocalRepositoryStorage;
+import org.sonatype.nexus.proxy.storage.local.fs.DefaultFSPeer;
+import org.sonatype.nexus.proxy.wastebasket.Wastebasket;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+import org.sonatype.sisu.litmus.testsupport.group.Perf;
+
+import org.databene.contiperf.PerfTest;
+import org.databene.contiperf.junit.ContiPerfRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Performance tests comparing {@link DefaultLSAttributeStorage} with {@link MapdbAttributeStorage}, having
+ * attributes of 10 collections with 100 items each. The "get" tests read attributes of a random item, while the
+ * "list" tests read attributes of all members of a random collection, as listing it (and so walking) does.
+ */
+@Category(Perf.class)
+public class AttributeStoragePerf
+    extends TestSupport
+{
+  private static final int COLLECTIONS = 10;
+
+  private static final int ITEMS = 100;
+
+  /**
+   * Populated only once, as ContiPerf invokes befores for every invocation.
+   */
+  private static Fixture fixture;
+
+  @Rule
+  public ContiPerfRule perfRule = new ContiPerfRule();
+
+  private final Random random = new Random();
+
+  @Before
+  public void setUp() throws Exception {
+    synchronized (AttributeStoragePerf.class) {
+      if (fixture == null) {
+        fixture = new Fixture(util.createTempDir("perf"));
+      }
+    }
+  }
+
+  @Test
+  @PerfTest(invocations = 10000)
+  public void lsGet() throws Exception {
+    assertThat(fixture.lsStorage.getAttributes(fixture.uid(randomPath())), notNullValue());
+  }
+
+  @Test
+  @PerfTest(invocations = 10000)
+  public void mapdbGet() throws Exception {
+    assertThat(fixture.mapdbStorage.getAttributes(fixture.uid(randomPath())), notNullValue());
+  }
+
+  @Test
+  @PerfTest(invocations = 500)
+  public void lsList() throws Exception {
+    final String collection = randomCollection();
+    for (int i = 0; i < ITEMS; i++) {
+      assertThat(fixture.lsStorage.getAttributes(fixture.uid(collection + "/item" + i + ".jar")), notNullValue());
+    }
+  }
+
+  @Test
+  @PerfTest(invocations = 500)
+  public void mapdbList() throws Exception {
+    assertThat(fixture.mapdbStorage.getMemberAttributes(fixture.repository, randomCollection()).size(),
+        equalTo(ITEMS));
+  }
+
+  private String randomCollection() {
+    return "/collection" + random.nextInt(COLLECTIONS);
+  }
+
+  private String randomPath() {
+    return randomCollection() + "/item" + random.nextInt(ITEMS) + ".jar";
+  }
+
+  private static class Fixture
+  {
+    private final Repository repository;
+
+    private final DefaultLSAttributeStorage lsStorage;
+
+    private final MapdbAttributeStorage mapdbStorage;
+
+    private Fixture(final File baseDir) throws Exception {
+      final LinkPersister linkPersister = mock(LinkPersister.class);
+      final MimeSupport mimeSupport = mock(MimeSupport.class);
+      final DefaultFSLocalRepositoryStorage localStorage = new DefaultFSLocalRepositoryStorage(
+          mock(Wastebasket.class), linkPersister, mimeSupport, new DefaultFSPeer());
+
+      repository = mock(Repository.class);
+      when(repository.getId()).thenReturn("perf");
+      when(repository.createUid(anyString())).thenAnswer(new Answer<RepositoryItemUid>()
+      {
+        @Override
+        public RepositoryItemUid answer(final InvocationOnMock invocation) {
+          return uid((String) invocation.getArguments()[0]);
+        }
+      });
+      when(repository.getAttributesHandler()).thenReturn(mock(AttributesHandler.class));
+      when(repository.getLocalStorage()).thenReturn(localStorage);
+      when(repository.getLocalStorageContext()).thenReturn(new DefaultLocalStorageContext(null));
+      when(repository.getRepositoryKind()).thenReturn(new DefaultRepositoryKind(HostedRepository.class, null));
+      when(repository.getLocalUrl()).thenReturn(baseDir.toURI().toString());
+
+      lsStorage = new DefaultLSAttributeStorage();
+      mapdbStorage = new MapdbAttributeStorage(new File(baseDir, "attributes.db"), mock(AttributeStorage.class),
+          mock(EventBus.class));
+
+      for (int c = 0; c < COLLECTIONS; c++) {
+        for (int i = 0; i < ITEMS; i++) {
+          final RepositoryItemUid uid = uid("/collection" + c + "/item" + i + ".jar");
+          final DefaultStorageFileItem item = new DefaultStorageFileItem(repository,
+              new ResourceStoreRequest(uid.getPath()), true, true, new StringContentLocator("content"));
+          item.getRepositoryItemAttributes().put("digest.sha1", "2ae3a1b0fd1d3bfb8e9dbc3dbe1b5d3f8ea6c48c");
+          item.getRepositoryItemAttributes().setRemoteUrl("http://repo1.maven.org/maven2" + uid.getPath());
+          lsStorage.putAttributes(uid, item.getRepositoryItemAttributes());
+          mapdbStorage.putAttributes(uid, item.getRepositoryItemAttributes());
+        }
+      }
+    }
+
+    private RepositoryItemUid uid(final String path) {
+      return new PerfRepositoryItemUid(repository, path);
+    }
+  }
+
+  /**
+   * UID with no-op lock, as both storages lock same way.
+   */
+  private static class PerfRepositoryItemUid
+      implements RepositoryItemUid, RepositoryItemUidLock
+  {
+    private final Repository repository;
+
+    private final String path;
+
+    private PerfRepositoryItemUid(final Repository repository, final String path) {
+      this.repository = repository;
+      this.path = path;
+    }
+
+    @Override
+    public String getKey() {
+      return repository.getId() + ":" + path;
+    }
+
+    @Override
+    public Repository getRepository() {
+      return repository;
+    }
+
+    @Override
+    public String getPath() {
+      return path;
+    }
+
+    @Override
+    public RepositoryItemUidLock getLock() {
+      return this;
+    }
+
+    @Override
+    public <T extends Attribute<?>> T getAttribute(final Class<T> attr) {
+      return null;
+    }
+
+    @Override
+    public <A extends Attribute<V>, V> V getAttributeValue(final Class<A> attr) {
+      return null;
+    }
+
+    @Override
+    public <A extends Attribute<Boolean>> boolean getBooleanAttributeValue(final Class<A> attr) {
+      return IsItemAttributeMetacontentAttribute.class.equals(attr) && path.startsWith("/.nexus/attributes");
+    }
+
+    @Override
+    public void lock(final Action action) {
+      // nop
+    }
+
+    @Override
+    public void unlock() {
+      // nop
+    }
+
+    @Override
+    public boolean hasLocksHeld() {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link LastRequestedTracker}.
+ */
+public class LastRequestedTrackerTest
+    extends TestSupport
+{
+  @Mock
+  private RepositoryItemUid uid1;
+
+  @Mock
+  private RepositoryItemUid uid2;
+
+  private HashMapAttributeStorage attributeStorage;
+
+  private LastRequestedTracker underTest;
+
+  @Before
+  public void prepare() {
+    when(uid1.getKey()).thenReturn("repo:/a.jar");
+    when(uid2.getKey()).thenReturn("repo:/b.jar");
+    attributeStorage = new HashMapAttributeStorage();
+    underTest = new LastRequestedTracker(attributeStorage, 60000L, 1);
+  }
+
+  @Test
+  public void touchesAreCoalescedAndWrittenOnFlush() {
+    final Attributes attributes = new DefaultAttributes();
+    attributes.setLastRequested(1000L);
+    attributeStorage.putAttributes(uid1, attributes);
+
+    assertThat(underTest.touch(uid1, 2000L), is(true));
+    assertThat(underTest.touch(uid1, 3000L), is(true));
+    assertThat(underTest.getLastRequested(uid1), equalTo(3000L));
+    // not written yet
+    assertThat(attributeStorage.getAttributes(uid1).getLastRequested(), equalTo(1000L));
+
+    underTest.flush();
+    assertThat(attributeStorage.getAttributes(uid1).getLastRequested(), equalTo(3000L));
+    assertThat(underTest.getLastRequested(uid1), equalTo(0L));
+    assertThat(underTest.getPendingCount(), equalTo(0));
+  }
+
+  @Test
+  public void boundedCapacity() {
+    assertThat(underTest.touch(uid1, 2000L), is(true));
+    // capacity of 1 reached, new items are rejected, but tracked ones are still accepted
+    assertThat(underTest.touch(uid2, 2000L), is(false));
+    assertThat(underTest.touch(uid1, 3000L), is(true));
+  }
+
+  @Test
+  public void flushDoesNotMoveBackwardsNorCreateAttributes() {
+    final Attributes attributes = new DefaultAttributes();
+    attributes.setLastRequested(5000L);
+    attributeStorage.putAttributes(uid1, attributes);
+
+    underTest.touch(uid1, 2000L);
+    underTest.flush();
+    assertThat(attributeStorage.getAttributes(uid1).getLastRequested(), equalTo(5000L));
+
+    // item deleted meanwhile
+    underTest = new LastRequestedTracker(attributeStorage, 60000L, 10);
+    underTest.touch(uid2, 2000L);
+    underTest.flush();
+    assertThat(attributeStorage.getAttributes(uid2), nullValue());
+  }
+
+  @Test
+  public void closeFlushesAndRejectsTouches() {
+    final Attributes attributes = new DefaultAttributes();
+    attributeStorage.putAttributes(uid1, attributes);
+
+    underTest.start();
+    underTest.touch(uid1, 2000L);
+    underTest.close();
+
+    assertThat(attributeStorage.getAttributes(uid1).getLastRequested(), equalTo(2000L));
+    assertThat(underTest.touch(uid1, 3000L), is(false));
+  }
+}
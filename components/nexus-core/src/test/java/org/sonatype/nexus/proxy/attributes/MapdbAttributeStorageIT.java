@@ -0,0 +1,183 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.attributes;
+
+import java.io.File;
+import java.util.Map;
+
+import org.sonatype.nexus.configuration.model.CLocalStorage;
+import org.sonatype.nexus.configuration.model.CRepository;
+import org.sonatype.nexus.configuration.model.DefaultCRepository;
+import org.sonatype.nexus.proxy.AbstractNexusTestEnvironment;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.item.DefaultStorageFileItem;
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.StringContentLocator;
+import org.sonatype.nexus.proxy.maven.ChecksumPolicy;
+import org.sonatype.nexus.proxy.maven.RepositoryPolicy;
+import org.sonatype.nexus.proxy.maven.maven2.M2Repository;
+import org.sonatype.nexus.proxy.maven.maven2.M2RepositoryConfiguration;
+import org.sonatype.nexus.proxy.repository.Repository;
+
+import org.apache.commons.io.FileUtils;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for {@link MapdbAttributeStorage}.
+ */
+public class MapdbAttributeStorageIT
+    extends AbstractNexusTestEnvironment
+{
+  private AttributeStorage legacyStorage;
+
+  private MapdbAttributeStorage attributeStorage;
+
+  private M2Repository repository;
+
+  @Override
+  protected void setUp()
+      throws Exception
+  {
+    super.setUp();
+
+    legacyStorage = lookup(AttributeStorage.class, "ls");
+
+    repository = (M2Repository) lookup(Repository.class, "maven2");
+
+    CRepository repoConf = new DefaultCRepository();
+
+    repoConf.setProviderRole(Repository.class.getName());
+    repoConf.setProviderHint("maven2");
+    repoConf.setId("dummy");
+
+    repoConf.setLocalStorage(new CLocalStorage());
+    repoConf.getLocalStorage().setProvider("file");
+    File localStorageDirectory = new File(getBasedir(), "target/test-reposes/repo1");
+    repoConf.getLocalStorage().setUrl(localStorageDirectory.toURI().toURL().toString());
+
+    Xpp3Dom exRepo = new Xpp3Dom("externalConfiguration");
+    repoConf.setExternalConfiguration(exRepo);
+    M2RepositoryConfiguration exRepoConf = new M2RepositoryConfiguration(exRepo);
+    exRepoConf.setRepositoryPolicy(RepositoryPolicy.RELEASE);
+    exRepoConf.setChecksumPolicy(ChecksumPolicy.STRICT_IF_EXISTS);
+
+    FileUtils.deleteDirectory(new File(localStorageDirectory, ".nexus/attributes"));
+
+    repository.configure(repoConf);
+
+    final File databaseFile = new File(getWorkHomeDir(), "attributes/attributes.db");
+    FileUtils.deleteDirectory(databaseFile.getParentFile());
+    databaseFile.getParentFile().mkdirs();
+    attributeStorage = new MapdbAttributeStorage(databaseFile, legacyStorage, eventBus());
+  }
+
+  @Override
+  protected void tearDown()
+      throws Exception
+  {
+    attributeStorage.close();
+    super.tearDown();
+  }
+
+  @Test
+  public void testSimplePutGet()
+      throws Exception
+  {
+    final RepositoryItemUid uid = putAttributes("/a.txt", "kuku");
+
+    final Attributes attributes = attributeStorage.getAttributes(uid);
+
+    assertThat(attributes, notNullValue());
+    assertThat(attributes.get("kuku"), equalTo("kuku"));
+    assertThat(attributes.getPath(), equalTo("/a.txt"));
+    assertThat(attributes.getRepositoryId(), equalTo("dummy"));
+  }
+
+  @Test
+  public void testSimplePutDelete()
+      throws Exception
+  {
+    final RepositoryItemUid uid = putAttributes("/b.txt", "kuku");
+
+    assertThat(attributeStorage.getAttributes(uid), notNullValue());
+
+    assertThat(attributeStorage.deleteAttributes(uid), is(true));
+
+    assertThat(attributeStorage.getAttributes(uid), nullValue());
+    assertThat(attributeStorage.deleteAttributes(uid), is(false));
+  }
+
+  @Test
+  public void testMemberAttributes()
+      throws Exception
+  {
+    putAttributes("/org/foo/a.txt", "a");
+    putAttributes("/org/foo/b.txt", "b");
+    putAttributes("/org/foo/bar/c.txt", "c");
+    putAttributes("/org/food.txt", "d");
+    putAttributes("/root.txt", "e");
+
+    final Map<String, Attributes> members = attributeStorage.getMemberAttributes(repository, "/org/foo");
+    assertThat(members.size(), equalTo(2));
+    assertThat(members, hasKey("/org/foo/a.txt"));
+    assertThat(members, hasKey("/org/foo/b.txt"));
+    assertThat(members.get("/org/foo/a.txt").get("kuku"), equalTo("a"));
+
+    // trailing slash does not matter
+    assertThat(attributeStorage.getMemberAttributes(repository, "/org/foo/").size(), equalTo(2));
+
+    final Map<String, Attributes> rootMembers = attributeStorage.getMemberAttributes(repository, "/");
+    assertThat(rootMembers.size(), equalTo(1));
+    assertThat(rootMembers.get("/root.txt").get("kuku"), equalTo("e"));
+  }
+
+  @Test
+  public void testLegacyMigration()
+      throws Exception
+  {
+    final DefaultStorageFileItem file =
+        new DefaultStorageFileItem(repository, new ResourceStoreRequest("/legacy.txt"), true, true,
+            new StringContentLocator("CONTENT"));
+    file.getRepositoryItemAttributes().put("kuku", "legacy");
+    legacyStorage.putAttributes(file.getRepositoryItemUid(), file.getRepositoryItemAttributes());
+
+    // first access moves them over
+    final Attributes attributes = attributeStorage.getAttributes(file.getRepositoryItemUid());
+    assertThat(attributes, notNullValue());
+    assertThat(attributes.get("kuku"), equalTo("legacy"));
+    assertThat(legacyStorage.getAttributes(file.getRepositoryItemUid()), nullValue());
+    assertThat(attributeStorage.getMemberAttributes(repository, "/"), hasKey("/legacy.txt"));
+
+    // nothing left to migrate
+    assertThat(attributeStorage.migrateAttributes(file.getRepositoryItemUid()), is(false));
+  }
+
+  private RepositoryItemUid putAttributes(final String path, final String value)
+      throws Exception
+  {
+    final DefaultStorageFileItem file =
+        new DefaultStorageFileItem(repository, new ResourceStoreRequest(path), true, true,
+            new StringContentLocator("CONTENT"));
+    file.getRepositoryItemAttributes().put("kuku", value);
+    attributeStorage.putAttributes(file.getRepositoryItemUid(), file.getRepositoryItemAttributes());
+    return file.getRepositoryItemUid();
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.cache;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests for {@link PrefixIndexedPathCache}.
+ */
+public class PrefixIndexedPathCacheTest
+    extends TestSupport
+{
+  private PathTries tries;
+
+  private PathCache cache;
+
+  @Before
+  public void setUp() {
+    tries = new PathTries(3);
+    cache = new PrefixIndexedPathCache("test", tries);
+  }
+
+  @Test
+  public void removeWithChildrenRemovesOnlySubtree() {
+    cache.put("/com", Boolean.TRUE);
+    cache.put("/com/sonatype/nexus", Boolean.TRUE);
+    cache.put("/comet", Boolean.TRUE);
+
+    assertThat(cache.removeWithChildren("/com/"), is(true));
+    assertThat(cache.contains("/com"), is(false));
+    assertThat(cache.contains("/com/sonatype/nexus"), is(false));
+    assertThat(cache.contains("/comet"), is(true));
+    assertThat(cache.removeWithChildren("/com"), is(false));
+
+    assertThat(cache.purge(), is(true));
+    assertThat(cache.contains("/comet"), is(false));
+    assertThat(cache.getStatistics().getSize(), equalTo(0L));
+  }
+
+  @Test
+  public void repositoriesAreSeparated() {
+    final PathCache other = new PrefixIndexedPathCache("other", tries);
+    cache.put("/com/sonatype", Boolean.TRUE);
+    other.put("/com/sonatype", Boolean.TRUE);
+
+    assertThat(cache.purge(), is(true));
+    assertThat(cache.contains("/com/sonatype"), is(false));
+    assertThat(other.contains("/com/sonatype"), is(true));
+    assertThat(other.listKeysInCache(), containsInAnyOrder("com/sonatype"));
+  }
+
+  @Test
+  public void leastRecentlyUsedPathIsEvicted() {
+    cache.put("/a", Boolean.TRUE);
+    cache.put("/b", Boolean.TRUE);
+    cache.put("/c", Boolean.TRUE);
+    assertThat(cache.contains("/a"), is(true));
+
+    cache.put("/d", Boolean.TRUE);
+
+    assertThat(cache.listKeysInCache(), containsInAnyOrder("a", "c", "d"));
+    assertThat(cache.getStatistics().getSize(), equalTo(3L));
+  }
+
+  @Test
+  public void leastRecentlyUsedPathOfAnyRepositoryIsEvicted() {
+    final PathCache other = new PrefixIndexedPathCache("other", tries);
+    other.put("/a", Boolean.TRUE);
+    cache.put("/b", Boolean.TRUE);
+    cache.put("/c", Boolean.TRUE);
+
+    cache.put("/d", Boolean.TRUE);
+
+    assertThat(other.listKeysInCache(), is(empty()));
+    assertThat(cache.listKeysInCache(), containsInAnyOrder("b", "c", "d"));
+    assertThat(tries.size(), is(3));
+  }
+
+  @Test
+  public void statisticsArePerRepository() {
+    final PathCache other = new PrefixIndexedPathCache("other", tries);
+    cache.put("/a", Boolean.TRUE);
+    other.put("/b", Boolean.TRUE);
+    other.put("/c", Boolean.TRUE);
+
+    assertThat(cache.contains("/a"), is(true));
+    assertThat(cache.contains("/b"), is(false));
+    assertThat(other.contains("/b"), is(true));
+
+    assertThat(cache.getStatistics().getSize(), equalTo(1L));
+    assertThat(cache.getStatistics().getHits(), equalTo(1L));
+    assertThat(cache.getStatistics().getMisses(), equalTo(1L));
+    assertThat(other.getStatistics().getSize(), equalTo(2L));
+    assertThat(other.getStatistics().getHits(), equalTo(1L));
+    assertThat(other.getStatistics().getMisses(), equalTo(0L));
+  }
+
+  @Test
+  public void removedRepositoryReleasesItsPaths() {
+    final PathCache other = new PrefixIndexedPathCache("other", tries);
+    cache.put("/a", Boolean.TRUE);
+    other.put("/b", Boolean.TRUE);
+
+    tries.remove("test");
+
+    assertThat(tries.size(), is(1));
+    assertThat(cache.contains("/a"), is(false));
+    assertThat(cache.getStatistics().getSize(), equalTo(0L));
+    assertThat(other.contains("/b"), is(true));
+  }
+
+  @Test
+  public void expiration() throws Exception {
+    cache.put("/eternal", Boolean.TRUE, -1);
+    cache.put("/expiring", Boolean.TRUE, 1);
+
+    assertThat(cache.getExpirationTime("/eternal"), equalTo(Long.MAX_VALUE));
+    assertThat(cache.getExpirationTime("/missing"), equalTo(-1L));
+    assertThat(cache.isExpired("/expiring"), is(false));
+
+    Thread.sleep(1100L);
+
+    assertThat(cache.isExpired("/expiring"), is(true));
+    assertThat(cache.contains("/expiring"), is(false));
+    assertThat(cache.isExpired("/expiring"), is(false));
+    assertThat(cache.contains("/eternal"), is(true));
+  }
+}
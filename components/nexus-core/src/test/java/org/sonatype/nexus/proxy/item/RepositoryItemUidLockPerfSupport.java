@@ -0,0 +1,138 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.item;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.nexus.proxy.access.Action;
+import org.sonatype.nexus.proxy.registry.RepositoryRegistry;
+import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Stopwatch;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Support for {@link DefaultRepositoryItemUidFactory} UID lock registry performance tests. Many threads obtain and
+ * use locks for a mix of hot and cold paths, as reads, cache writes and attribute access do. Each test runs once per
+ * thread count, sweeping from 1 to 64 threads, so contention scaling of the registries can be compared.
+ */
+@RunWith(Parameterized.class)
+public abstract class RepositoryItemUidLockPerfSupport
+  extends TestSupport
+{
+  private static final int HOT_PATHS = 64;
+
+  private static final int INVOCATIONS = 1000000;
+
+  @Parameters(name = "{0} threads")
+  public static List<Object[]> threads() {
+    final List<Object[]> result = new ArrayList<Object[]>();
+    for (int threads = 1; threads <= 64; threads *= 2) {
+      result.add(new Object[]{threads});
+    }
+    return result;
+  }
+
+  private final int threads;
+
+  private final AtomicInteger counter = new AtomicInteger();
+
+  private DefaultRepositoryItemUidFactory underTest;
+
+  private Repository repository;
+
+  private ExecutorService executor;
+
+  protected RepositoryItemUidLockPerfSupport(final int threads) {
+    this.threads = threads;
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    this.repository = mock(Repository.class);
+    when(repository.getId()).thenReturn("repo1");
+
+    this.underTest = createTestSubject(mock(EventBus.class), mock(RepositoryRegistry.class));
+    this.executor = Executors.newFixedThreadPool(threads);
+
+    // prime jvm byte code optimization (maybe, we hope)
+    for (int i = 0; i < 1000; i++) {
+      lockAndUnlockOnce();
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+  }
+
+  protected abstract DefaultRepositoryItemUidFactory createTestSubject(EventBus eventBus,
+                                                                       RepositoryRegistry repositoryRegistry)
+      throws Exception;
+
+  @Test
+  public void lockAndUnlock() throws Exception {
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>(threads);
+    for (int t = 0; t < threads; t++) {
+      final int invocations = INVOCATIONS / threads + (t < INVOCATIONS % threads ? 1 : 0);
+      futures.add(executor.submit(new Callable<Void>()
+      {
+        @Override
+        public Void call() throws Exception {
+          start.await();
+          for (int i = 0; i < invocations; i++) {
+            lockAndUnlockOnce();
+          }
+          return null;
+        }
+      }));
+    }
+
+    final Stopwatch stopwatch = Stopwatch.createStarted();
+    start.countDown();
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+    final long elapsed = stopwatch.elapsed(MILLISECONDS);
+    log.info("{} invocations on {} threads took {} ms ({} invocations/s)", INVOCATIONS, threads, elapsed,
+        INVOCATIONS * 1000L / Math.max(elapsed, 1));
+  }
+
+  private void lockAndUnlockOnce() {
+    final int i = counter.incrementAndGet();
+    // 3 of 4 requests hit a small set of popular paths, the rest are unique
+    final String path = (i & 3) != 0 ? "/org/hot/" + (i % HOT_PATHS) + ".jar" : "/org/cold/" + i + ".jar";
+    final RepositoryItemUidLock lock = underTest.createUid(repository, path).getLock();
+    lock.lock(Action.read);
+    lock.unlock();
+  }
+}
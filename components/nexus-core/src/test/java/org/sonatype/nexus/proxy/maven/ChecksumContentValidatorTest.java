@@ -0,0 +1,258 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.maven;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.nexus.proxy.ItemNotFoundException;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.attributes.AttributesHandler;
+import org.sonatype.nexus.proxy.attributes.inspectors.DigestCalculatingInspector;
+import org.sonatype.nexus.proxy.events.RepositoryItemValidationEvent;
+import org.sonatype.nexus.proxy.item.DefaultStorageFileItem;
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
+import org.sonatype.nexus.proxy.item.StringContentLocator;
+import org.sonatype.nexus.proxy.repository.ProxyRepository;
+import org.sonatype.nexus.proxy.repository.RepositoryKind;
+import org.sonatype.nexus.proxy.storage.remote.RemoteRepositoryStorage;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for remote hash prefetching of {@link ChecksumContentValidator}.
+ */
+public class ChecksumContentValidatorTest
+    extends TestSupport
+{
+  private static final String PATH = "/org/foo/foo/1.0/foo-1.0.jar";
+
+  private static final String SHA1 = "0123456789abcdef0123456789abcdef01234567";
+
+  private static final String CANONICAL = "http://canonical/";
+
+  private static final String MIRROR = "http://mirror/";
+
+  @Mock
+  private ProxyRepository proxy;
+
+  @Mock
+  private RemoteRepositoryStorage remoteStorage;
+
+  /**
+   * Remote checksums by base URL and path.
+   */
+  private final Map<String, String> remoteHashes = Maps.newHashMap();
+
+  /**
+   * Remote retrievals performed, as base URL and path.
+   */
+  private final List<String> retrievals = Lists.newCopyOnWriteArrayList();
+
+  private ExecutorService executor;
+
+  private ChecksumContentValidator underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    final RepositoryKind kind = mock(RepositoryKind.class);
+    when(kind.isFacetAvailable(MavenProxyRepository.class)).thenReturn(true);
+    final MavenProxyRepository mavenProxy = mock(MavenProxyRepository.class);
+    when(mavenProxy.getChecksumPolicy()).thenReturn(ChecksumPolicy.STRICT);
+
+    when(proxy.getId()).thenReturn("proxy");
+    when(proxy.getRemoteUrl()).thenReturn(CANONICAL);
+    when(proxy.getRepositoryKind()).thenReturn(kind);
+    when(proxy.adaptToFacet(MavenProxyRepository.class)).thenReturn(mavenProxy);
+    when(proxy.getRemoteStorage()).thenReturn(remoteStorage);
+    when(proxy.getAttributesHandler()).thenReturn(mock(AttributesHandler.class));
+    when(proxy.createUid(anyString())).thenAnswer(new Answer<RepositoryItemUid>()
+    {
+      @Override
+      public RepositoryItemUid answer(final InvocationOnMock invocation) {
+        final RepositoryItemUid uid = mock(RepositoryItemUid.class);
+        when(uid.getPath()).thenReturn((String) invocation.getArguments()[0]);
+        when(uid.getLock()).thenReturn(mock(RepositoryItemUidLock.class));
+        return uid;
+      }
+    });
+    when(remoteStorage.retrieveItem(any(ProxyRepository.class), any(ResourceStoreRequest.class), anyString()))
+        .thenAnswer(new Answer<DefaultStorageFileItem>()
+        {
+          @Override
+          public DefaultStorageFileItem answer(final InvocationOnMock invocation) throws Exception {
+            final ResourceStoreRequest request = (ResourceStoreRequest) invocation.getArguments()[1];
+            final String baseUrl = (String) invocation.getArguments()[2];
+            return remoteItem(baseUrl, request.getRequestPath());
+          }
+        });
+
+    remoteHashes.put(CANONICAL + PATH + ".sha1", SHA1);
+    remoteHashes.put(MIRROR + PATH + ".sha1", SHA1);
+
+    executor = Executors.newSingleThreadExecutor();
+    underTest = new ChecksumContentValidator();
+    underTest.setPrefetchRemoteHash(true);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private DefaultStorageFileItem remoteItem(final String baseUrl, final String path) throws Exception {
+    retrievals.add(baseUrl + path);
+    final String hash = remoteHashes.get(baseUrl + path);
+    if (hash == null) {
+      throw new ItemNotFoundException(new ResourceStoreRequest(path));
+    }
+    return new DefaultStorageFileItem(proxy, new ResourceStoreRequest(path), true, false,
+        new StringContentLocator(hash));
+  }
+
+  private DefaultStorageFileItem item(final String sha1) {
+    final DefaultStorageFileItem item = new DefaultStorageFileItem(proxy, new ResourceStoreRequest(PATH), true, true,
+        new StringContentLocator("content"));
+    item.getRepositoryItemAttributes().put(DigestCalculatingInspector.DIGEST_SHA1_KEY, sha1);
+    return item;
+  }
+
+  private boolean validate(final ResourceStoreRequest request, final String baseUrl, final String sha1)
+      throws Exception
+  {
+    final List<RepositoryItemValidationEvent> events = Lists.newArrayList();
+    return underTest.isRemoteItemContentValid(proxy, request, baseUrl, item(sha1), events);
+  }
+
+  @Test
+  public void prefetchedHashIsUsed() throws Exception {
+    final ResourceStoreRequest request = new ResourceStoreRequest(PATH);
+    underTest.prefetch(proxy, request, CANONICAL, executor);
+
+    assertThat(validate(request, CANONICAL, SHA1), is(true));
+    assertThat(retrievals, contains(CANONICAL + PATH + ".sha1"));
+  }
+
+  @Test
+  public void prefetchedHashIsValidatedAgainst() throws Exception {
+    final ResourceStoreRequest request = new ResourceStoreRequest(PATH);
+    underTest.prefetch(proxy, request, CANONICAL, executor);
+
+    assertThat(validate(request, CANONICAL, "ffffffffffffffffffffffffffffffffffffffff"), is(false));
+  }
+
+  @Test
+  public void prefetchUsesMirrorBaseUrl() throws Exception {
+    final ResourceStoreRequest request = new ResourceStoreRequest(PATH);
+    underTest.prefetch(proxy, request, MIRROR, executor);
+
+    assertThat(validate(request, MIRROR, SHA1), is(true));
+    assertThat(retrievals, contains(MIRROR + PATH + ".sha1"));
+  }
+
+  @Test
+  public void prefetchForOtherUrlIsNotUsed() throws Exception {
+    // remote hash of the mirror would not validate the item
+    remoteHashes.put(MIRROR + PATH + ".sha1", "ffffffffffffffffffffffffffffffffffffffff");
+    final ResourceStoreRequest request = new ResourceStoreRequest(PATH);
+    underTest.prefetch(proxy, request, MIRROR, executor);
+    executor.shutdown();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+
+    // item came from canonical url after all, so hash is retrieved from there
+    assertThat(validate(request, CANONICAL, SHA1), is(true));
+    assertThat(retrievals, contains(MIRROR + PATH + ".sha1", CANONICAL + PATH + ".sha1"));
+  }
+
+  @Test
+  public void prefetchMissFallsBackToSerialRetrieval() throws Exception {
+    final ResourceStoreRequest request = new ResourceStoreRequest(PATH);
+
+    assertThat(validate(request, CANONICAL, SHA1), is(true));
+    assertThat(retrievals, contains(CANONICAL + PATH + ".sha1"));
+  }
+
+  @Test
+  public void prefetchNotRunInCallerThread() throws Exception {
+    final ResourceStoreRequest request = new ResourceStoreRequest(PATH);
+    // like a saturated pool with caller runs policy
+    underTest.prefetch(proxy, request, CANONICAL, MoreExecutors.sameThreadExecutor());
+    assertThat(retrievals, is(empty()));
+
+    assertThat(validate(request, CANONICAL, SHA1), is(true));
+    assertThat(retrievals, contains(CANONICAL + PATH + ".sha1"));
+  }
+
+  @Test
+  public void prefetchIsCancelled() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    doAnswer(new Answer<DefaultStorageFileItem>()
+    {
+      @Override
+      public DefaultStorageFileItem answer(final InvocationOnMock invocation) throws Exception {
+        started.countDown();
+        try {
+          Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+        }
+        catch (InterruptedException e) {
+          interrupted.countDown();
+          throw e;
+        }
+        return null;
+      }
+    }).when(remoteStorage).retrieveItem(any(ProxyRepository.class), any(ResourceStoreRequest.class), anyString());
+    final ResourceStoreRequest request = new ResourceStoreRequest(PATH);
+    underTest.prefetch(proxy, request, CANONICAL, executor);
+    assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+
+    underTest.cancelPrefetch(proxy, request);
+
+    assertThat(interrupted.await(5, TimeUnit.SECONDS), is(true));
+  }
+
+  @Test
+  public void noPrefetchWhenDisabled() throws Exception {
+    underTest.setPrefetchRemoteHash(false);
+    final ResourceStoreRequest request = new ResourceStoreRequest(PATH);
+    underTest.prefetch(proxy, request, CANONICAL, executor);
+    executor.shutdown();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+
+    assertThat(retrievals, is(empty()));
+  }
+}
@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.proxy.maven.metadata;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.util.Arrays;
@@ -21,16 +22,20 @@ import org.sonatype.nexus.proxy.EnvironmentBuilder;
 import org.sonatype.nexus.proxy.M2TestsuiteEnvironmentBuilder;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.StorageException;
+import org.sonatype.nexus.proxy.item.ByteArrayContentLocator;
+import org.sonatype.nexus.proxy.item.DefaultStorageFileItem;
 import org.sonatype.nexus.proxy.item.StorageFileItem;
 import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.maven.metadata.operations.MetadataBuilder;
 import org.sonatype.nexus.proxy.maven.metadata.operations.ModelVersionUtility;
+import org.sonatype.nexus.proxy.repository.Repository;
 
 import org.apache.maven.artifact.repository.metadata.Metadata;
 import org.codehaus.plexus.digest.Md5Digester;
 import org.codehaus.plexus.digest.Sha1Digester;
 import org.junit.Test;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -234,6 +239,38 @@ public class GroupMetadataMergeTest
     }
   }
 
+  /**
+   * Merged metadata is cached, but change of any member metadata must be reflected.
+   */
+  @Test
+  public void testGAMergeCacheInvalidatedOnMemberChange()
+      throws Exception
+  {
+    String mdPath = "/md-merge/ga/maven-metadata.xml";
+
+    Metadata md = parseMetadata((StorageFileItem) getRootRouter().retrieveItem(
+        new ResourceStoreRequest("/groups/test" + mdPath, false)));
+    assertFalse(md.getVersioning().getVersions().contains("9.9.9"));
+
+    // served from cache
+    Metadata cachedMd = parseMetadata((StorageFileItem) getRootRouter().retrieveItem(
+        new ResourceStoreRequest("/groups/test" + mdPath, false)));
+    assertEquals(md.getVersioning().getVersions(), cachedMd.getVersioning().getVersions());
+
+    // change member metadata
+    Repository repo2 = getRepositoryRegistry().getRepository("repo2");
+    Metadata repo2Md = parseMetadata((StorageFileItem) repo2.retrieveItem(false, new ResourceStoreRequest(mdPath, true)));
+    repo2Md.getVersioning().addVersion("9.9.9");
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    MetadataBuilder.write(repo2Md, bos);
+    repo2.storeItem(false, new DefaultStorageFileItem(repo2, new ResourceStoreRequest(mdPath), true, true,
+        new ByteArrayContentLocator(bos.toByteArray(), "text/xml")));
+
+    Metadata changedMd = parseMetadata((StorageFileItem) getRootRouter().retrieveItem(
+        new ResourceStoreRequest("/groups/test" + mdPath, false)));
+    assertTrue(changedMd.getVersioning().getVersions().contains("9.9.9"));
+  }
+
   /**
    * NEXUS-4970: merging should not fail by incompatible artifact ids ( incompatible one should be skipped).
    *
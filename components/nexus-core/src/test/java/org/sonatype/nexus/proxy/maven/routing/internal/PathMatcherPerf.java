@@ -0,0 +1,108 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.maven.routing.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.sonatype.nexus.proxy.walker.ParentOMatic;
+import org.sonatype.nexus.proxy.walker.ParentOMatic.Payload;
+import org.sonatype.nexus.util.Node;
+import org.sonatype.nexus.util.PathUtils;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+import org.sonatype.sisu.litmus.testsupport.group.Perf;
+
+import org.databene.contiperf.PerfTest;
+import org.databene.contiperf.junit.ContiPerfRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Performance tests comparing {@link PathMatcher} with walking the {@link ParentOMatic} tree using
+ * {@link PathUtils#elementsOf(String)} (as done before), using a generated prefix list sized like the one published
+ * by Maven Central (some 20000 entries, 2 and 3 levels deep).
+ */
+@Category(Perf.class)
+public class PathMatcherPerf
+    extends TestSupport
+{
+  private static final int INVOCATIONS = 1000000;
+
+  @Rule
+  public ContiPerfRule perfRule = new ContiPerfRule();
+
+  private Node<Payload> root;
+
+  private PathMatcher pathMatcher;
+
+  private String[] paths;
+
+  private Random random;
+
+  @Before
+  public void setUp() {
+    final List<String> entries = new ArrayList<String>();
+    for (int i = 0; i < 2000; i++) {
+      entries.add("/com/company" + i);
+      for (int j = 0; j < 9; j++) {
+        entries.add("/org/project" + i + "/module" + j);
+      }
+    }
+    final ParentOMatic parentOMatic = new ParentOMatic(true, true, false);
+    for (String entry : entries) {
+      parentOMatic.addAndMarkPath(entry);
+    }
+    root = parentOMatic.getRoot();
+    pathMatcher = new PathMatcher(entries);
+
+    paths = new String[1000];
+    for (int i = 0; i < paths.length; i++) {
+      switch (i % 3) {
+        case 0:
+          paths[i] = "/com/company" + i + "/artifact/1.0/artifact-1.0.jar";
+          break;
+        case 1:
+          paths[i] = "/org/project" + i + "/module" + (i % 10) + "/artifact/1.0/artifact-1.0.pom";
+          break;
+        default:
+          paths[i] = "/net/unknown" + i + "/artifact/1.0/artifact-1.0.jar";
+      }
+    }
+    random = new Random();
+  }
+
+  @Test
+  @PerfTest(invocations = INVOCATIONS, threads = 4)
+  public void nodeWalk() {
+    Node<Payload> currentNode = root;
+    for (String pathElement : PathUtils.elementsOf(nextPath())) {
+      currentNode = currentNode.getChildByLabel(pathElement);
+      if (currentNode == null || currentNode.isLeaf()) {
+        break;
+      }
+    }
+  }
+
+  @Test
+  @PerfTest(invocations = INVOCATIONS, threads = 4)
+  public void pathMatcher() {
+    pathMatcher.matches(nextPath());
+  }
+
+  private String nextPath() {
+    return paths[random.nextInt(paths.length)];
+  }
+}
@@ -190,4 +190,31 @@ public class PathMatcherTest
     check(pm, "/X", false);
     assertThat(pm.contains("/X"), is(false));
   }
+
+  @Test
+  public void testEmptyEntries() {
+    final PathMatcher pm = new PathMatcher(Arrays.<String>asList());
+    check(pm, "/", true);
+    check(pm, "/a", false);
+    assertThat(pm.contains("/a"), is(false));
+  }
+
+  @Test
+  public void testPathElementBoundaries() {
+    final PathMatcher pm = new PathMatcher(Arrays.asList("/org/b", "/org/bb", "/org/ba/c", "/org/a", "/com"));
+    check(pm, "/org/b", true);
+    check(pm, "/org/b/x", true);
+    check(pm, "/org/bb/x", true);
+    check(pm, "//org///bb//x", true);
+    check(pm, "/org/ba", false);
+    assertThat(pm.contains("/org/ba"), is(true));
+    check(pm, "/org/ba/c/d", true);
+    check(pm, "/org/bbb", false);
+    assertThat(pm.contains("/org/bbb"), is(false));
+    check(pm, "/org/", false);
+    assertThat(pm.contains("/org/"), is(true));
+    check(pm, "/or", false);
+    check(pm, "/com.x", false);
+    check(pm, "/com/x", true);
+  }
 }
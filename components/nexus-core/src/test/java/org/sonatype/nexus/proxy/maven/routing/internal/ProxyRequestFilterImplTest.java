@@ -31,6 +31,8 @@ import org.mockito.Mockito;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class ProxyRequestFilterImplTest
     extends TestSupport
@@ -100,4 +102,17 @@ public class ProxyRequestFilterImplTest
     doTestAllowed(filter, "/.meta/prefix.txt", false); // this file is handled in AbstractMavenRepository, using
     // UID attributes to test for IsHidden attribute
   }
+
+  @Test
+  public void sameEntriesShareMatcher() {
+    final ProxyRequestFilterImpl filter =
+        new ProxyRequestFilterImpl(eventBus, systemStatusProvider, wlManager);
+
+    final PathMatcher matcher = filter.getSharedPathMatcher(Arrays.asList("/org/apache", "/org/sonatype"));
+    assertThat(filter.getSharedPathMatcher(Arrays.asList("/org/apache", "/org/sonatype")), sameInstance(matcher));
+    // entries joined same way are still different lists
+    assertThat(filter.getSharedPathMatcher(Arrays.asList("/org/apache/org", "/sonatype")),
+        not(sameInstance(matcher)));
+    assertThat(filter.getSharedPathMatcher(Arrays.asList("/org/apache")), not(sameInstance(matcher)));
+  }
 }
@@ -0,0 +1,330 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.repository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.sonatype.nexus.configuration.Configurator;
+import org.sonatype.nexus.configuration.model.CRepositoryExternalConfigurationHolderFactory;
+import org.sonatype.nexus.proxy.ItemNotFoundException;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.nexus.proxy.mapping.RequestRepositoryMapper;
+import org.sonatype.nexus.proxy.registry.ContentClass;
+import org.sonatype.nexus.proxy.registry.RepositoryRegistry;
+import org.sonatype.nexus.proxy.repository.threads.ThreadPoolManager;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for parallel member lookup of {@link AbstractGroupRepository}.
+ */
+public class ParallelMemberLookupTest
+    extends TestSupport
+{
+  private static final String PATH = "/org/foo/foo/1.0/foo-1.0.jar";
+
+  @Mock
+  private RepositoryRegistry repositoryRegistry;
+
+  @Mock
+  private RequestRepositoryMapper requestRepositoryMapper;
+
+  @Mock
+  private ThreadPoolManager poolManager;
+
+  @Spy
+  private AbstractGroupRepository groupRepo = new AbstractGroupRepository()
+  {
+    @Override
+    protected Configurator getConfigurator() {
+      return null;
+    }
+
+    @Override
+    protected CRepositoryExternalConfigurationHolderFactory<?> getExternalConfigurationHolderFactory() {
+      return null;
+    }
+
+    @Override
+    public RepositoryKind getRepositoryKind() {
+      return null;
+    }
+
+    @Override
+    public ContentClass getRepositoryContentClass() {
+      return null;
+    }
+  };
+
+  /**
+   * Member lookups performed, as member id and kind of lookup ("local" or "full").
+   */
+  private final List<String> lookups = Lists.newCopyOnWriteArrayList();
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newCachedThreadPool();
+    when(poolManager.getRepositoryThreadPool(any(Repository.class))).thenReturn(executor);
+    groupRepo.populateAbstractGroupRepository(repositoryRegistry, requestRepositoryMapper, poolManager);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private void members(final Repository... members) throws Exception {
+    doReturn(Arrays.asList(members)).when(groupRepo).getRequestRepositories(any(ResourceStoreRequest.class));
+  }
+
+  /**
+   * Member that has the item locally, or remotely, or not at all. A member might claim it has the item locally, but
+   * not find it when asked as usual, like when it was removed meanwhile.
+   */
+  private Repository member(final String id, final boolean local, final boolean found, final CountDownLatch latch)
+      throws Exception
+  {
+    final Repository member = mock(Repository.class);
+    when(member.getId()).thenReturn(id);
+    doAnswer(new Answer<StorageItem>()
+    {
+      @Override
+      public StorageItem answer(final InvocationOnMock invocation) throws Exception {
+        final ResourceStoreRequest request = (ResourceStoreRequest) invocation.getArguments()[0];
+        request.addProcessedRepository(id);
+        if (request.isRequestLocalOnly()) {
+          lookups.add(id + ":local");
+          if (local) {
+            return item(id);
+          }
+          throw new ItemNotFoundException(request);
+        }
+        lookups.add(id + ":full");
+        if (latch != null) {
+          latch.await();
+        }
+        if (found) {
+          return item(id);
+        }
+        throw new ItemNotFoundException(request);
+      }
+    }).when(member).retrieveItem(any(ResourceStoreRequest.class));
+    doAnswer(new Answer<StorageItem>()
+    {
+      @Override
+      public StorageItem answer(final InvocationOnMock invocation) throws Exception {
+        final ResourceStoreRequest request = (ResourceStoreRequest) invocation.getArguments()[1];
+        request.addProcessedRepository(id);
+        lookups.add(id + ":items");
+        if (latch != null) {
+          latch.await();
+        }
+        if (found) {
+          return item(id);
+        }
+        throw new ItemNotFoundException(request);
+      }
+    }).when(member).retrieveItem(anyBoolean(), any(ResourceStoreRequest.class));
+    return member;
+  }
+
+  private Repository member(final String id, final boolean local, final boolean found) throws Exception {
+    return member(id, local, found, null);
+  }
+
+  private StorageItem item(final String repositoryId) {
+    final StorageItem item = mock(StorageItem.class);
+    when(item.getRepositoryId()).thenReturn(repositoryId);
+    return item;
+  }
+
+  private StorageItem retrieve(final ResourceStoreRequest request, final HashMap<Repository, Throwable> throwables)
+      throws Exception
+  {
+    return groupRepo.doRetrieveItemFromMembersInParallel(request, throwables);
+  }
+
+  @Test
+  public void firstMemberInOrderWins() throws Exception {
+    // remote hit of first member wins over local hits of the others
+    members(member("a", false, true), member("b", true, true), member("c", true, true));
+
+    final StorageItem item = retrieve(new ResourceStoreRequest(PATH), Maps.<Repository, Throwable>newHashMap());
+
+    assertThat(item.getRepositoryId(), is("a"));
+  }
+
+  @Test
+  public void slowerMemberOfHigherPriorityWins() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    members(member("a", false, true, latch), member("b", true, true));
+    executor.submit(new Runnable()
+    {
+      @Override
+      public void run() {
+        try {
+          // let b complete first
+          Thread.sleep(100);
+        }
+        catch (InterruptedException e) {
+          // ignore
+        }
+        latch.countDown();
+      }
+    });
+
+    final StorageItem item = retrieve(new ResourceStoreRequest(PATH), Maps.<Repository, Throwable>newHashMap());
+
+    assertThat(item.getRepositoryId(), is("a"));
+  }
+
+  @Test
+  public void membersAfterFirstLocalHitAreNotAsked() throws Exception {
+    members(member("a", false, false), member("b", true, true), member("c", false, true));
+
+    final StorageItem item = retrieve(new ResourceStoreRequest(PATH), Maps.<Repository, Throwable>newHashMap());
+
+    assertThat(item.getRepositoryId(), is("b"));
+    assertThat(lookups, not(hasItem("c:full")));
+  }
+
+  @Test
+  public void allMembersAreAskedWithoutLocalHit() throws Exception {
+    members(member("a", false, false), member("b", false, false), member("c", false, true));
+
+    final StorageItem item = retrieve(new ResourceStoreRequest(PATH), Maps.<Repository, Throwable>newHashMap());
+
+    assertThat(item.getRepositoryId(), is("c"));
+  }
+
+  @Test
+  public void lookupCarriesOnWhenLocalHitIsGone() throws Exception {
+    members(member("a", false, false), member("b", true, false), member("c", false, true));
+
+    final StorageItem item = retrieve(new ResourceStoreRequest(PATH), Maps.<Repository, Throwable>newHashMap());
+
+    assertThat(item.getRepositoryId(), is("c"));
+  }
+
+  @Test
+  public void missRecordsAllMembers() throws Exception {
+    final Repository a = member("a", false, false);
+    final Repository b = member("b", false, false);
+    members(a, b);
+    final ResourceStoreRequest request = new ResourceStoreRequest(PATH);
+    final HashMap<Repository, Throwable> throwables = Maps.newLinkedHashMap();
+
+    assertThat(retrieve(request, throwables), nullValue());
+
+    assertThat(throwables.keySet(), contains(a, b));
+    assertThat(request.getProcessedRepositories(), containsInAnyOrder("a", "b"));
+  }
+
+  @Test
+  public void processedRepositoriesOfMembersAskedAreRecorded() throws Exception {
+    members(member("a", false, false), member("b", false, true), member("c", false, true));
+    final ResourceStoreRequest request = new ResourceStoreRequest(PATH);
+
+    final StorageItem item = retrieve(request, Maps.<Repository, Throwable>newHashMap());
+
+    assertThat(item.getRepositoryId(), is("b"));
+    // same as sequential lookup, c is of lower priority than the winner
+    assertThat(request.getProcessedRepositories(), containsInAnyOrder("a", "b"));
+  }
+
+  @Test
+  public void processedMembersAreSkipped() throws Exception {
+    members(member("a", true, true), member("b", true, true));
+    final ResourceStoreRequest request = new ResourceStoreRequest(PATH);
+    request.addProcessedRepository("a");
+
+    final StorageItem item = retrieve(request, Maps.<Repository, Throwable>newHashMap());
+
+    assertThat(item.getRepositoryId(), is("b"));
+    assertThat(lookups, not(hasItem("a:full")));
+  }
+
+  @Test
+  public void itemsOfAllMembersInOrder() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    members(member("a", false, true, latch), member("b", false, false), member("c", false, true));
+    latch.countDown();
+    final ResourceStoreRequest request = new ResourceStoreRequest(PATH);
+    final HashMap<Repository, Throwable> throwables = Maps.newLinkedHashMap();
+
+    final List<StorageItem> items = groupRepo.doRetrieveItemsFromMembersInParallel(request, throwables);
+
+    assertThat(items.size(), is(2));
+    assertThat(items.get(0).getRepositoryId(), is("a"));
+    assertThat(items.get(1).getRepositoryId(), is("c"));
+    assertThat(throwables.size(), is(1));
+    assertThat(request.getProcessedRepositories(), containsInAnyOrder("a", "b", "c"));
+  }
+
+  @Test
+  public void waitsForSlowMemberItems() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    members(member("a", false, true, latch), member("b", false, true));
+    executor.submit(new Runnable()
+    {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(100);
+        }
+        catch (InterruptedException e) {
+          // ignore
+        }
+        latch.countDown();
+      }
+    });
+
+    final List<StorageItem> items = groupRepo.doRetrieveItemsFromMembersInParallel(new ResourceStoreRequest(PATH),
+        Maps.<Repository, Throwable>newLinkedHashMap());
+
+    assertThat(items.size(), is(2));
+    assertThat(items.get(0).getRepositoryId(), is("a"));
+    assertThat(lookups, hasItem("a:items"));
+  }
+}
@@ -0,0 +1,326 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.repository;
+
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.nexus.ApplicationStatusSource;
+import org.sonatype.nexus.SystemState;
+import org.sonatype.nexus.configuration.model.CLocalStorage;
+import org.sonatype.nexus.configuration.model.CRemoteStorage;
+import org.sonatype.nexus.configuration.model.CRepository;
+import org.sonatype.nexus.configuration.model.DefaultCRepository;
+import org.sonatype.nexus.proxy.AbstractProxyTestEnvironment;
+import org.sonatype.nexus.proxy.EnvironmentBuilder;
+import org.sonatype.nexus.proxy.ItemNotFoundException;
+import org.sonatype.nexus.proxy.RemoteStorageTransportException;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.item.DefaultStorageFileItem;
+import org.sonatype.nexus.proxy.item.StorageFileItem;
+import org.sonatype.nexus.proxy.item.StringContentLocator;
+import org.sonatype.nexus.proxy.maven.ChecksumPolicy;
+import org.sonatype.nexus.proxy.maven.RepositoryPolicy;
+import org.sonatype.nexus.proxy.maven.maven2.M2Repository;
+import org.sonatype.nexus.proxy.maven.maven2.M2RepositoryConfiguration;
+import org.sonatype.nexus.proxy.storage.remote.RemoteRepositoryStorage;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.CharStreams;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for coalescing of concurrent remote fetches of same path in {@link AbstractProxyRepository}.
+ */
+public class RemoteFetchCoalescingTest
+    extends AbstractProxyTestEnvironment
+{
+  private static final String PROXY_REPO_ID = "proxy-repo";
+
+  private static final String PATH = "/org/foo/foo/1.0/foo-1.0.jar";
+
+  private static final int WAITERS = 4;
+
+  private final RemoteRepositoryStorage remoteStorage = mock(RemoteRepositoryStorage.class);
+
+  private final AtomicInteger fetches = new AtomicInteger();
+
+  private final CountDownLatch fetching = new CountDownLatch(1);
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  private AbstractProxyRepository proxy;
+
+  @Override
+  protected EnvironmentBuilder getEnvironmentBuilder()
+      throws Exception
+  {
+    lookup(ApplicationStatusSource.class).setState(SystemState.STARTED);
+    return new EnvironmentBuilder()
+    {
+      @Override
+      public void startService() {
+      }
+
+      @Override
+      public void stopService() {
+      }
+
+      @Override
+      public void buildEnvironment(AbstractProxyTestEnvironment env)
+          throws Exception
+      {
+        final M2Repository repo = (M2Repository) env.lookup(Repository.class, "maven2");
+        CRepository repoConf = new DefaultCRepository();
+        repoConf.setProviderRole(Repository.class.getName());
+        repoConf.setProviderHint("maven2");
+        repoConf.setId(PROXY_REPO_ID);
+        repoConf.setName(PROXY_REPO_ID);
+        repoConf.setNotFoundCacheActive(true);
+        repoConf.setLocalStorage(new CLocalStorage());
+        repoConf.getLocalStorage().setProvider("file");
+        repoConf.getLocalStorage().setUrl(
+            env.getApplicationConfiguration().getWorkingDirectory("proxy/store/" + PROXY_REPO_ID).toURI().toURL()
+                .toString()
+        );
+        Xpp3Dom ex = new Xpp3Dom("externalConfiguration");
+        repoConf.setExternalConfiguration(ex);
+        M2RepositoryConfiguration exConf = new M2RepositoryConfiguration(ex);
+        exConf.setRepositoryPolicy(RepositoryPolicy.RELEASE);
+        exConf.setChecksumPolicy(ChecksumPolicy.IGNORE);
+        repoConf.setRemoteStorage(new CRemoteStorage());
+        repoConf.getRemoteStorage().setProvider(env.getRemoteProviderHintFactory().getDefaultHttpRoleHint());
+        repoConf.getRemoteStorage().setUrl("http://localhost/");
+        repo.configure(repoConf);
+        env.getApplicationConfiguration().getConfigurationModel().addRepository(repoConf);
+        env.getRepositoryRegistry().addRepository(repo);
+      }
+    };
+  }
+
+  @Override
+  public void setUp()
+      throws Exception
+  {
+    super.setUp();
+    proxy = (AbstractProxyRepository) getRepositoryRegistry().getRepository(PROXY_REPO_ID);
+    proxy.setRemoteStorage(remoteStorage);
+    proxy.setCoalesceRemoteFetches(true);
+  }
+
+  @After
+  public void shutdownExecutor() {
+    release.countDown();
+    executor.shutdownNow();
+  }
+
+  /**
+   * Makes remote storage block until released, then answer with passed in answer.
+   */
+  private void remoteAnswers(final Answer<DefaultStorageFileItem> answer) throws Exception {
+    doAnswer(new Answer<DefaultStorageFileItem>()
+    {
+      @Override
+      public DefaultStorageFileItem answer(final InvocationOnMock invocation) throws Throwable {
+        fetches.incrementAndGet();
+        fetching.countDown();
+        release.await();
+        return answer.answer(invocation);
+      }
+    }).when(remoteStorage).retrieveItem(any(ProxyRepository.class), any(ResourceStoreRequest.class), anyString());
+  }
+
+  private Answer<DefaultStorageFileItem> content(final String content) {
+    return new Answer<DefaultStorageFileItem>()
+    {
+      @Override
+      public DefaultStorageFileItem answer(final InvocationOnMock invocation) {
+        return item(invocation, content);
+      }
+    };
+  }
+
+  /**
+   * Fails the first fetch as if remote could not be reached, and answers with content afterwards.
+   */
+  private Answer<DefaultStorageFileItem> failFirst(final String content) {
+    return new Answer<DefaultStorageFileItem>()
+    {
+      @Override
+      public DefaultStorageFileItem answer(final InvocationOnMock invocation) throws Exception {
+        if (fetches.get() == 1) {
+          throw new RemoteStorageTransportException(proxy, "Connection refused", null);
+        }
+        return item(invocation, content);
+      }
+    };
+  }
+
+  private DefaultStorageFileItem item(final InvocationOnMock invocation, final String content) {
+    final ResourceStoreRequest request = (ResourceStoreRequest) invocation.getArguments()[1];
+    return new DefaultStorageFileItem(proxy, request, true, true, new StringContentLocator(content));
+  }
+
+  private Future<String> retrieve() {
+    return executor.submit(new Callable<String>()
+    {
+      @Override
+      public String call() throws Exception {
+        final StorageFileItem item = (StorageFileItem) proxy.retrieveItem(new ResourceStoreRequest(PATH));
+        try (InputStreamReader reader = new InputStreamReader(item.getInputStream(), Charsets.UTF_8)) {
+          return CharStreams.toString(reader);
+        }
+      }
+    });
+  }
+
+  private long coalesced() {
+    return SharedMetricRegistries.getOrCreate("nexus").meter(
+        MetricRegistry.name(AbstractProxyRepository.class, PROXY_REPO_ID, "remoteFetch", "coalesced")).getCount();
+  }
+
+  /**
+   * Starts the originating fetch, then the waiters, and returns once all of them wait for the originating fetch.
+   */
+  private List<Future<String>> startWaiters(final Future<String> originating) throws Exception {
+    assertThat(fetching.await(5, TimeUnit.SECONDS), is(true));
+    final long coalesced = coalesced();
+    final List<Future<String>> waiters = Lists.newArrayList();
+    for (int i = 0; i < WAITERS; i++) {
+      waiters.add(retrieve());
+    }
+    final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+    while (coalesced() < coalesced + WAITERS && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(coalesced(), is(coalesced + WAITERS));
+    assertThat(originating.isDone(), is(false));
+    return waiters;
+  }
+
+  @Test
+  public void waitersGetResultOfOriginatingFetch() throws Exception {
+    remoteAnswers(content("content"));
+
+    final Future<String> originating = retrieve();
+    final List<Future<String>> waiters = startWaiters(originating);
+    release.countDown();
+
+    assertThat(originating.get(5, TimeUnit.SECONDS), is("content"));
+    for (Future<String> waiter : waiters) {
+      assertThat(waiter.get(5, TimeUnit.SECONDS), is("content"));
+    }
+    assertThat(fetches.get(), is(1));
+  }
+
+  @Test
+  public void waitersSeeRemoteMissOfOriginatingFetch() throws Exception {
+    remoteAnswers(new Answer<DefaultStorageFileItem>()
+    {
+      @Override
+      public DefaultStorageFileItem answer(final InvocationOnMock invocation) throws Exception {
+        throw new ItemNotFoundException((ResourceStoreRequest) invocation.getArguments()[1]);
+      }
+    });
+
+    final Future<String> originating = retrieve();
+    final List<Future<String>> waiters = startWaiters(originating);
+    release.countDown();
+
+    assertNotFound(originating);
+    for (Future<String> waiter : waiters) {
+      assertNotFound(waiter);
+    }
+    // served from NFC
+    assertThat(fetches.get(), is(1));
+  }
+
+  @Test
+  public void waitersAreReleasedWhenOriginatingFetchFails() throws Exception {
+    remoteAnswers(failFirst("content"));
+
+    final Future<String> originating = retrieve();
+    final List<Future<String>> waiters = startWaiters(originating);
+    release.countDown();
+
+    try {
+      originating.get(5, TimeUnit.SECONDS);
+      fail("Originating fetch should fail");
+    }
+    catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(RemoteStorageTransportException.class));
+    }
+    // waiters are not stuck, and retry the fetch themselves
+    for (Future<String> waiter : waiters) {
+      assertThat(waiter.get(5, TimeUnit.SECONDS), is("content"));
+    }
+    assertThat(fetches.get(), greaterThan(1));
+  }
+
+  @Test
+  public void inProgressFetchIsForgottenWhenItFails() throws Exception {
+    remoteAnswers(failFirst("content"));
+    release.countDown();
+
+    try {
+      retrieve().get(5, TimeUnit.SECONDS);
+      fail("Originating fetch should fail");
+    }
+    catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(RemoteStorageTransportException.class));
+    }
+
+    // next request does not find the failed fetch in progress
+    final long coalesced = coalesced();
+    assertThat(retrieve().get(5, TimeUnit.SECONDS), is("content"));
+    assertThat(coalesced(), is(coalesced));
+    assertThat(fetches.get(), is(2));
+  }
+
+  private void assertNotFound(final Future<String> future) throws Exception {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail("Item should not be found");
+    }
+    catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(ItemNotFoundException.class));
+    }
+  }
+}
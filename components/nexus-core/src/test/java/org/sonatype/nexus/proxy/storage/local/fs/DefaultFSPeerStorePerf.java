@@ -0,0 +1,185 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.storage.local.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.sonatype.nexus.proxy.RequestContext;
+import org.sonatype.nexus.proxy.attributes.Attributes;
+import org.sonatype.nexus.proxy.attributes.inspectors.DigestCalculatingInspector;
+import org.sonatype.nexus.proxy.item.ContentLocator;
+import org.sonatype.nexus.proxy.item.FileContentLocator;
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
+import org.sonatype.nexus.proxy.item.StorageFileItem;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+import org.sonatype.sisu.litmus.testsupport.group.Perf;
+
+import org.databene.contiperf.PerfTest;
+import org.databene.contiperf.junit.ContiPerfRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Performance tests for {@link DefaultFSPeer#storeItem} of 1 KB, 1 MB and 1 GB files. The "singlePass" tests store
+ * with digests calculated while content is written, as done now, while "twoPass" tests also read the stored file again
+ * to calculate digests, as {@link DigestCalculatingInspector} did before.
+ */
+@Category(Perf.class)
+public class DefaultFSPeerStorePerf
+    extends TestSupport
+{
+  private static final long KB = 1024L;
+
+  private static final long MB = 1024L * KB;
+
+  private static final long GB = 1024L * MB;
+
+  @Rule
+  public ContiPerfRule perfRule = new ContiPerfRule();
+
+  private DefaultFSPeer underTest;
+
+  private DigestCalculatingInspector inspector;
+
+  private File repoBase;
+
+  @Before
+  public void setUp() throws Exception {
+    this.underTest = new DefaultFSPeer();
+    this.inspector = new DigestCalculatingInspector();
+    this.repoBase = util.createTempDir("repo");
+  }
+
+  @Test
+  @PerfTest(invocations = 10000)
+  public void singlePass1KB() throws Exception {
+    store(KB, false);
+  }
+
+  @Test
+  @PerfTest(invocations = 10000)
+  public void twoPass1KB() throws Exception {
+    store(KB, true);
+  }
+
+  @Test
+  @PerfTest(invocations = 200)
+  public void singlePass1MB() throws Exception {
+    store(MB, false);
+  }
+
+  @Test
+  @PerfTest(invocations = 200)
+  public void twoPass1MB() throws Exception {
+    store(MB, true);
+  }
+
+  @Test
+  @PerfTest(invocations = 3)
+  public void singlePass1GB() throws Exception {
+    store(GB, false);
+  }
+
+  @Test
+  @PerfTest(invocations = 3)
+  public void twoPass1GB() throws Exception {
+    store(GB, true);
+  }
+
+  private void store(final long size, final boolean secondPass) throws Exception {
+    final File target = new File(repoBase, "foo/1.0/foo-1.0-" + size + ".jar");
+    final StorageFileItem item = mockItem(target);
+    underTest.storeItem(null, repoBase, item, target, new GeneratedContentLocator(size));
+    if (secondPass) {
+      inspector.processStorageItem(item);
+    }
+  }
+
+  private StorageFileItem mockItem(final File target) {
+    final RepositoryItemUid uid = mock(RepositoryItemUid.class);
+    when(uid.getLock()).thenReturn(mock(RepositoryItemUidLock.class));
+    final StorageFileItem item = mock(StorageFileItem.class);
+    when(item.getRepositoryItemUid()).thenReturn(uid);
+    when(item.getItemContext()).thenReturn(new RequestContext());
+    when(item.getRepositoryItemAttributes()).thenReturn(mock(Attributes.class));
+    when(item.getContentLocator()).thenReturn(new FileContentLocator(target, "application/java-archive"));
+    when(item.getModified()).thenReturn(System.currentTimeMillis());
+    return item;
+  }
+
+  /**
+   * Non-reusable content of given length, like uploads and remote responses are.
+   */
+  private static class GeneratedContentLocator
+      implements ContentLocator
+  {
+    private final long length;
+
+    private GeneratedContentLocator(final long length) {
+      this.length = length;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      return new InputStream()
+      {
+        private long remaining = length;
+
+        @Override
+        public int read() throws IOException {
+          if (remaining <= 0) {
+            return -1;
+          }
+          remaining--;
+          return (int) (remaining & 0x7f);
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+          if (remaining <= 0) {
+            return -1;
+          }
+          final int count = (int) Math.min(len, remaining);
+          for (int i = 0; i < count; i++) {
+            b[off + i] = (byte) (remaining - i);
+          }
+          remaining -= count;
+          return count;
+        }
+      };
+    }
+
+    @Override
+    public String getMimeType() {
+      return "application/java-archive";
+    }
+
+    @Override
+    public long getLength() {
+      return length;
+    }
+
+    @Override
+    public boolean isReusable() {
+      return false;
+    }
+  }
+}
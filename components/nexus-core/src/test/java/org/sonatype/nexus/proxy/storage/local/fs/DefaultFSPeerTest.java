@@ -14,7 +14,11 @@ package org.sonatype.nexus.proxy.storage.local.fs;
 
 import java.io.File;
 
+import org.sonatype.nexus.proxy.RequestContext;
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.RepositoryItemUidLock;
 import org.sonatype.nexus.proxy.item.StorageFileItem;
+import org.sonatype.nexus.proxy.item.StringContentLocator;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.Test;
@@ -128,4 +132,35 @@ public class DefaultFSPeerTest
     assertThat(FileUtils.readFileToString(target), equalTo(PAYLOAD));
   }
 
+  @Test
+  public void storeItemPublishesDigests()
+      throws Exception
+  {
+    // test subject
+    final DefaultFSPeer subject = new DefaultFSPeer();
+
+    // repo base
+    File repoBase = new File("target/repoId");
+
+    // the file we want to store
+    File target = new File(repoBase, "foo/1.0/foo-1.0.txt");
+
+    final RequestContext itemContext = new RequestContext();
+    final RepositoryItemUid uid = Mockito.mock(RepositoryItemUid.class);
+    Mockito.when(uid.getLock()).thenReturn(Mockito.mock(RepositoryItemUidLock.class));
+    final StorageFileItem file = Mockito.mock(StorageFileItem.class);
+    Mockito.when(file.getPath()).thenReturn("/foo/1.0/foo-1.0.txt");
+    Mockito.when(file.getParentPath()).thenReturn("/foo/1.0");
+    Mockito.when(file.getRepositoryItemUid()).thenReturn(uid);
+    Mockito.when(file.getItemContext()).thenReturn(itemContext);
+    Mockito.when(file.getModified()).thenReturn(System.currentTimeMillis());
+
+    subject.storeItem(null, repoBase, file, target, new StringContentLocator("dummy payload"));
+
+    assertThat(FileUtils.readFileToString(target), equalTo("dummy payload"));
+    // digests of content were calculated while it was stored
+    assertThat((String) itemContext.get(StorageFileItem.DIGEST_SHA1_KEY),
+        equalTo("0e7cd333b0e1859dcdc98fa37938908d444b3c50"));
+    assertThat((String) itemContext.get(StorageFileItem.DIGEST_MD5_KEY), equalTo("7d85ecfb8dd46c00931bd8456680e4c9"));
+  }
 }
@@ -12,6 +12,9 @@
  */
 package org.sonatype.nexus.proxy.storage.remote.httpclient;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.sonatype.nexus.SystemStatus;
 import org.sonatype.nexus.internal.httpclient.HttpClientFactoryImpl;
 import org.sonatype.nexus.internal.httpclient.PoolingClientConnectionManagerMBeanInstaller;
@@ -19,6 +22,8 @@ import org.sonatype.nexus.mime.MimeSupport;
 import org.sonatype.nexus.proxy.RemoteStorageException;
 import org.sonatype.nexus.proxy.RemoteStorageTransportOverloadedException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.attributes.Attributes;
+import org.sonatype.nexus.proxy.item.StorageItem;
 import org.sonatype.nexus.proxy.repository.DefaultRemoteConnectionSettings;
 import org.sonatype.nexus.proxy.repository.ProxyRepository;
 import org.sonatype.nexus.proxy.repository.RemoteProxySettings;
@@ -34,7 +39,9 @@ import org.sonatype.tests.http.server.fluent.Server;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import org.apache.http.message.BasicHeader;
 import com.google.inject.util.Providers;
 import org.apache.http.HttpEntity;
@@ -285,6 +292,56 @@ public class HttpClientRemoteStorageTest
     assertThat(underTest.checkRemoteAvailability(System.currentTimeMillis(), proxyMock, new ResourceStoreRequest("/"), false), is(false));
   }
 
+  /**
+   * Retrieving item if modified should issue single conditional GET, and 304 response should result in no item.
+   */
+  @Test
+  public void retrieveItemIfModifiedSendsConditionalGet()
+      throws Exception
+  {
+    final List<HttpUriRequest> httpRequests = new ArrayList<HttpUriRequest>();
+    final HttpClientRemoteStorage underTest =
+        new HttpClientRemoteStorage(Providers.of(mock(SystemStatus.class)),
+            mock(MimeSupport.class), mock(QueryStringBuilder.class), mock(HttpClientManager.class))
+        {
+          @Override
+          HttpResponse executeRequest(final ProxyRepository repository, final ResourceStoreRequest request,
+                                      final HttpUriRequest httpRequest, final String baseUrl, final boolean contentRelated)
+              throws RemoteStorageException
+          {
+            httpRequests.add(httpRequest);
+            final HttpResponse httpResponse = mock(HttpResponse.class);
+            final StatusLine statusLine = mock(StatusLine.class);
+            when(httpResponse.getStatusLine()).thenReturn(statusLine);
+            when(statusLine.getStatusCode()).thenReturn(304);
+            return httpResponse;
+          }
+        };
+
+    final ProxyRepository proxyMock = mock(ProxyRepository.class);
+    when(proxyMock.getId()).thenReturn("foo");
+    when(proxyMock.getRemoteStorageContext()).thenReturn(new DefaultRemoteStorageContext(null));
+
+    final Attributes attributes = mock(Attributes.class);
+    when(attributes.get(HttpClientRemoteStorage.REMOTE_ETAG_ATTR_KEY)).thenReturn("\"abc\"");
+    final StorageItem localItem = mock(StorageItem.class);
+    when(localItem.getModified()).thenReturn(0L);
+    when(localItem.getRepositoryItemAttributes()).thenReturn(attributes);
+
+    assertThat(underTest.retrieveItemIfModified(proxyMock, new ResourceStoreRequest("/foo/bar.jar"),
+        "http://foo.com/", localItem), nullValue());
+    assertThat(httpRequests, hasSize(1));
+    assertThat(httpRequests.get(0).getMethod(), is("GET"));
+    assertThat(httpRequests.get(0).getFirstHeader("If-None-Match").getValue(), is("\"abc\""));
+    assertThat(httpRequests.get(0).getFirstHeader("If-Modified-Since"), nullValue());
+
+    when(localItem.getModified()).thenReturn(1000L);
+    underTest.retrieveItemIfModified(proxyMock, new ResourceStoreRequest("/foo/bar.jar"), "http://foo.com/",
+        localItem);
+    assertThat(httpRequests.get(1).getFirstHeader("If-Modified-Since").getValue(),
+        is("Thu, 01 Jan 1970 00:00:01 GMT"));
+  }
+
   protected void setParameters() {
     System.setProperty("nexus.apacheHttpClient4x.connectionPoolMaxSize", "1");
     System.setProperty("nexus.apacheHttpClient4x.connectionPoolSize", "1");
@@ -0,0 +1,137 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.targets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.sonatype.nexus.proxy.maven.maven2.Maven2ContentClass;
+import org.sonatype.nexus.proxy.registry.ContentClass;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+import org.sonatype.sisu.litmus.testsupport.group.Perf;
+
+import org.databene.contiperf.PerfTest;
+import org.databene.contiperf.junit.ContiPerfRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Performance tests comparing {@link TargetMatcher} with looping over {@link Target#isPathContained} (as done before)
+ * with 10, 100 and 1000 targets having group prefixed patterns, and a catch-all target.
+ */
+@Category(Perf.class)
+public class TargetMatcherPerf
+    extends TestSupport
+{
+  private static final int INVOCATIONS = 100000;
+
+  private final ContentClass maven2 = new Maven2ContentClass();
+
+  @Rule
+  public ContiPerfRule perfRule = new ContiPerfRule();
+
+  private List<Target> targets10;
+
+  private List<Target> targets100;
+
+  private List<Target> targets1000;
+
+  private TargetMatcher matcher10;
+
+  private TargetMatcher matcher100;
+
+  private TargetMatcher matcher1000;
+
+  private String[] paths;
+
+  private Random random;
+
+  @Before
+  public void setUp() {
+    targets10 = createTargets(10);
+    targets100 = createTargets(100);
+    targets1000 = createTargets(1000);
+    matcher10 = new TargetMatcher(targets10);
+    matcher100 = new TargetMatcher(targets100);
+    matcher1000 = new TargetMatcher(targets1000);
+    paths = new String[1000];
+    for (int i = 0; i < paths.length; i++) {
+      paths[i] = "/org/group" + i + "/artifact/1.0/artifact-1.0" + (i % 2 == 0 ? "-sources" : "") + ".jar";
+    }
+    random = new Random();
+  }
+
+  @Test
+  @PerfTest(invocations = INVOCATIONS, threads = 4)
+  public void loop10() {
+    loop(targets10);
+  }
+
+  @Test
+  @PerfTest(invocations = INVOCATIONS, threads = 4)
+  public void matcher10() {
+    matcher10.getTargets(maven2, nextPath());
+  }
+
+  @Test
+  @PerfTest(invocations = INVOCATIONS, threads = 4)
+  public void loop100() {
+    loop(targets100);
+  }
+
+  @Test
+  @PerfTest(invocations = INVOCATIONS, threads = 4)
+  public void matcher100() {
+    matcher100.getTargets(maven2, nextPath());
+  }
+
+  @Test
+  @PerfTest(invocations = INVOCATIONS, threads = 4)
+  public void loop1000() {
+    loop(targets1000);
+  }
+
+  @Test
+  @PerfTest(invocations = INVOCATIONS, threads = 4)
+  public void matcher1000() {
+    matcher1000.getTargets(maven2, nextPath());
+  }
+
+  private void loop(final List<Target> targets) {
+    final String path = nextPath();
+    final List<Target> result = new ArrayList<Target>();
+    for (Target target : targets) {
+      if (target.isPathContained(maven2, path)) {
+        result.add(target);
+      }
+    }
+  }
+
+  private String nextPath() {
+    return paths[random.nextInt(paths.length)];
+  }
+
+  private List<Target> createTargets(final int count) {
+    final List<Target> result = new ArrayList<Target>(count);
+    result.add(new Target("all", "all", maven2, Arrays.asList(".*")));
+    for (int i = 1; i < count; i++) {
+      result.add(new Target("t" + i, "t" + i, maven2,
+          Arrays.asList("/org/group" + i + "/((?!sources\\.).)*", "^/com/group" + i + "/.*")));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.targets;
+
+import java.util.Arrays;
+
+import org.sonatype.nexus.proxy.maven.maven1.Maven1ContentClass;
+import org.sonatype.nexus.proxy.maven.maven2.Maven2ContentClass;
+import org.sonatype.nexus.proxy.registry.ContentClass;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests for {@link TargetMatcher}.
+ */
+public class TargetMatcherTest
+    extends TestSupport
+{
+  private final ContentClass maven1 = new Maven1ContentClass();
+
+  private final ContentClass maven2 = new Maven2ContentClass();
+
+  @Test
+  public void literalPrefix() {
+    assertThat(TargetMatcher.literalPrefix(".*"), equalTo(""));
+    assertThat(TargetMatcher.literalPrefix("/org/apache/.*"), equalTo("/org/apache/"));
+    assertThat(TargetMatcher.literalPrefix("^/org/apache/.*"), equalTo("/org/apache/"));
+    assertThat(TargetMatcher.literalPrefix("/orgs?/.*"), equalTo("/org"));
+    assertThat(TargetMatcher.literalPrefix("/org\\.apache.*"), equalTo("/org"));
+    assertThat(TargetMatcher.literalPrefix("/org/(apache|codehaus)/.*"), equalTo(""));
+    assertThat(TargetMatcher.literalPrefix("(?i)/org/.*"), equalTo(""));
+  }
+
+  @Test
+  public void matchesSameTargetsAsPatterns() {
+    final Target all = new Target("all", "all", maven2, Arrays.asList(".*"));
+    final Target apache = new Target("apache", "apache", maven2, Arrays.asList("/org/apache/.*", "/commons-.*"));
+    final Target noSources =
+        new Target("no-sources", "no-sources", maven2, Arrays.asList("/org/apache/maven/((?!sources\\.).)*"));
+    final Target codehaus = new Target("codehaus", "codehaus", maven2, Arrays.asList("/org/codehaus/.*"));
+    final Target m1 = new Target("m1", "m1", maven1, Arrays.asList("/org\\.apache\\.maven.*"));
+    final TargetMatcher matcher = new TargetMatcher(Arrays.asList(all, apache, noSources, codehaus, m1));
+
+    assertThat(matcher.getTargets(maven2, "/org/apache/maven/maven-core/2.0.9/maven-core-2.0.9.pom"),
+        containsInAnyOrder(all, apache, noSources));
+    assertThat(matcher.getTargets(maven2, "/org/apache/maven/maven-core/2.0.9/maven-core-2.0.9-sources.jar"),
+        containsInAnyOrder(all, apache));
+    assertThat(matcher.getTargets(maven2, "/commons-io/commons-io/2.4/commons-io-2.4.jar"),
+        containsInAnyOrder(all, apache));
+    assertThat(matcher.getTargets(maven2, "/org"), containsInAnyOrder(all));
+    assertThat(matcher.getTargets(maven1, "/org.apache.maven/jars/maven-model-v3-2.0.jar"),
+        containsInAnyOrder(m1));
+    assertThat(matcher.getTargets(maven1, "/org/apache/maven/maven-core/2.0.9/maven-core-2.0.9.pom"), empty());
+  }
+}
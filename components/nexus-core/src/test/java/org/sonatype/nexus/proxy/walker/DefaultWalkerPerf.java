@@ -0,0 +1,179 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.proxy.walker;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.item.DefaultStorageCollectionItem;
+import org.sonatype.nexus.proxy.item.DefaultStorageFileItem;
+import org.sonatype.nexus.proxy.item.RepositoryItemUid;
+import org.sonatype.nexus.proxy.item.StorageCollectionItem;
+import org.sonatype.nexus.proxy.item.StorageItem;
+import org.sonatype.nexus.proxy.item.StringContentLocator;
+import org.sonatype.nexus.proxy.repository.LocalStatus;
+import org.sonatype.nexus.proxy.repository.Repository;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+import org.sonatype.sisu.litmus.testsupport.group.Perf;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import org.databene.contiperf.PerfTest;
+import org.databene.contiperf.junit.ContiPerfRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Performance tests comparing sequential and parallel {@link DefaultWalker} walks over a synthetic tree of 1M files
+ * (100 groups, having 100 artifacts each, having 100 files each), with a processor hashing the path of every file.
+ */
+@Category(Perf.class)
+public class DefaultWalkerPerf
+    extends TestSupport
+{
+  private static final int FANOUT = 100;
+
+  private static final long FILES = FANOUT * FANOUT * FANOUT;
+
+  @Rule
+  public ContiPerfRule perfRule = new ContiPerfRule();
+
+  private Repository repository;
+
+  @Before
+  public void setUp() {
+    repository = createRepository();
+  }
+
+  @Test
+  @PerfTest(invocations = 3, threads = 1)
+  public void sequential() throws Exception {
+    walk(new DefaultWalker(1));
+  }
+
+  @Test
+  @PerfTest(invocations = 3, threads = 1)
+  public void parallel2() throws Exception {
+    walk(new DefaultWalker(2));
+  }
+
+  @Test
+  @PerfTest(invocations = 3, threads = 1)
+  public void parallel4() throws Exception {
+    walk(new DefaultWalker(4));
+  }
+
+  @Test
+  @PerfTest(invocations = 3, threads = 1)
+  public void parallel8() throws Exception {
+    walk(new DefaultWalker(8));
+  }
+
+  private void walk(final Walker walker) throws Exception {
+    final WalkerContext context = new DefaultWalkerContext(repository,
+        new ResourceStoreRequest(RepositoryItemUid.PATH_ROOT, true), new WalkerFilter()
+    {
+      @Override
+      public boolean shouldProcess(final WalkerContext context, final StorageItem item) {
+        return true;
+      }
+
+      @Override
+      public boolean shouldProcessRecursively(final WalkerContext context, final StorageCollectionItem coll) {
+        return true;
+      }
+    });
+    final HashingWalkerProcessor processor = new HashingWalkerProcessor();
+    context.getProcessors().add(processor);
+
+    walker.walk(context);
+
+    assertThat(context.isStopped(), is(false));
+    assertThat(processor.files.get(), equalTo(FILES));
+  }
+
+  private static class HashingWalkerProcessor
+      extends AbstractWalkerProcessor
+      implements ConcurrentWalkerProcessor
+  {
+    private final AtomicLong files = new AtomicLong();
+
+    @Override
+    public void processItem(final WalkerContext context, final StorageItem item) {
+      Hashing.sha1().hashString(item.getPath(), Charsets.UTF_8);
+      files.incrementAndGet();
+    }
+  }
+
+  /**
+   * Repository generating the listed items on the fly. It is not a mock, as recording a million of invocations would
+   * dominate the measurements.
+   */
+  private static Repository createRepository() {
+    return (Repository) Proxy.newProxyInstance(Repository.class.getClassLoader(), new Class[]{Repository.class},
+        new InvocationHandler()
+        {
+          @Override
+          public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            final Repository repository = (Repository) proxy;
+            switch (method.getName()) {
+              case "getId":
+                return "synthetic";
+              case "getLocalStatus":
+                return LocalStatus.IN_SERVICE;
+              case "retrieveItem":
+                return new DefaultStorageCollectionItem(repository, (ResourceStoreRequest) args[args.length - 1],
+                    true, false);
+              case "list":
+                return list(repository, (StorageCollectionItem) args[args.length - 1]);
+              case "hashCode":
+                return System.identityHashCode(proxy);
+              case "equals":
+                return proxy == args[0];
+              case "toString":
+                return "synthetic";
+              default:
+                return null;
+            }
+          }
+        });
+  }
+
+  private static List<StorageItem> list(final Repository repository, final StorageCollectionItem coll) {
+    final String prefix = RepositoryItemUid.PATH_ROOT.equals(coll.getPath()) ? "" : coll.getPath();
+    final int depth = prefix.isEmpty() ? 0 : prefix.split("/").length - 1;
+    final List<StorageItem> result = new ArrayList<>(FANOUT);
+    for (int i = 0; i < FANOUT; i++) {
+      if (depth < 2) {
+        result.add(new DefaultStorageCollectionItem(repository,
+            new ResourceStoreRequest(prefix + "/c" + i), true, false));
+      }
+      else {
+        result.add(new DefaultStorageFileItem(repository,
+            new ResourceStoreRequest(prefix + "/f" + i + ".jar"), true, false, new StringContentLocator("")));
+      }
+    }
+    return result;
+  }
+}
@@ -12,8 +12,10 @@
  */
 package org.sonatype.nexus.proxy.walker;
 
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.sonatype.nexus.proxy.AbstractProxyTestEnvironment;
 import org.sonatype.nexus.proxy.EnvironmentBuilder;
@@ -103,6 +105,47 @@ public class WalkerTest
     Assert.assertEquals(0, wp.links);
   }
 
+  /**
+   * This test expects same numbers as {@link #testWalker()} since it walks same content but in parallel, and verifies
+   * that collections are exited only after all of their subtree is exited.
+   */
+  @Test
+  public void testParallelWalker()
+      throws Exception
+  {
+    // fetch some content to have on walk on something
+    getRootRouter().retrieveItem(
+        new ResourceStoreRequest("/groups/test/activemq/activemq-core/1.2/activemq-core-1.2.jar", false));
+    getRootRouter().retrieveItem(
+        new ResourceStoreRequest("/groups/test/xstream/xstream/1.2.2/xstream-1.2.2.pom", false));
+    getRootRouter().retrieveItem(new ResourceStoreRequest("/groups/test/rome/rome/0.9/rome-0.9.pom", false));
+    getRootRouter().retrieveItem(new ResourceStoreRequest("/groups/test/repo3.txt", false));
+
+    final ConcurrentTestWalkerProcessor wp = new ConcurrentTestWalkerProcessor();
+
+    // this is a group
+    final WalkerContext wc = new DefaultWalkerContext(getRepositoryRegistry().getRepository("test"),
+        new ResourceStoreRequest(RepositoryItemUid.PATH_ROOT, true));
+
+    wc.getProcessors().add(wp);
+
+    new DefaultWalker(4).walk(wc);
+
+    assertThat("Should not be stopped!", wc.isStopped(), is(false));
+    assertThat(wc.getStopCause(), nullValue());
+
+    assertThat(wp.collEnters.get(), is(10));
+    assertThat(wp.files.get(), is(4));
+    assertThat(wp.exits, hasSize(10));
+    for (int i = 0; i < wp.exits.size(); i++) {
+      final String exited = wp.exits.get(i);
+      final String prefix = exited.endsWith("/") ? exited : exited + "/";
+      for (String later : wp.exits.subList(i + 1, wp.exits.size())) {
+        assertThat("Collection " + later + " exited after its parent " + exited, later, not(startsWith(prefix)));
+      }
+    }
+  }
+
   /**
    * This test expects same numbers as {@link #testWalker()} since it walks same content but in "breadth-first" way.
    * All other walk parameters (filter and processCollections) are same default as on {@link #testWalker()} test.
@@ -401,6 +444,34 @@ public class WalkerTest
     }
   }
 
+  private static class ConcurrentTestWalkerProcessor
+      extends AbstractWalkerProcessor
+      implements ConcurrentWalkerProcessor
+  {
+    private final AtomicInteger collEnters = new AtomicInteger();
+
+    private final AtomicInteger files = new AtomicInteger();
+
+    private final List<String> exits = Collections.synchronizedList(Lists.<String>newArrayList());
+
+    @Override
+    public void onCollectionEnter(WalkerContext context, StorageCollectionItem coll) {
+      collEnters.incrementAndGet();
+    }
+
+    @Override
+    public void processItem(WalkerContext context, StorageItem item) {
+      if (item instanceof StorageFileItem) {
+        files.incrementAndGet();
+      }
+    }
+
+    @Override
+    public void onCollectionExit(WalkerContext context, StorageCollectionItem coll) {
+      exits.add(coll.getPath());
+    }
+  }
+
   // ==
 
   /**
@@ -0,0 +1,34 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.storage;
+
+import org.sonatype.nexus.blobstore.api.BlobSource;
+
+import com.tinkerpop.blueprints.Vertex;
+
+/**
+ * An asset to be ingested by {@link StorageFacet#ingest(Iterable, int)}: the content of its blob, and how to record
+ * the asset once the blob has been created.
+ *
+ * @since 3.0
+ */
+public interface AssetSource
+    extends BlobSource
+{
+  /**
+   * Creates or updates the asset referring to the newly created blob, within the transaction of its batch.
+   *
+   * @return the asset vertex
+   */
+  Vertex store(GraphTx graph, StorageFacet storage, BlobRef blobRef);
+}
@@ -0,0 +1,58 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.storage;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A batch of {@link StorageFacet#ingest(Iterable, int)} that failed, none of whose assets were stored.
+ *
+ * @since 3.0
+ */
+public class IngestBatchFailure
+{
+  private final List<AssetSource> sources;
+
+  private final Exception cause;
+
+  public IngestBatchFailure(final List<? extends AssetSource> sources, final Exception cause) {
+    this.sources = ImmutableList.copyOf(checkNotNull(sources));
+    this.cause = checkNotNull(cause);
+  }
+
+  /**
+   * The sources of the failed batch.
+   */
+  public List<AssetSource> getSources() {
+    return sources;
+  }
+
+  /**
+   * Why the batch failed.
+   */
+  public Exception getCause() {
+    return cause;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "sources=" + sources.size() +
+        ", cause=" + cause +
+        '}';
+  }
+}
@@ -13,6 +13,8 @@
 package org.sonatype.nexus.repository.storage;
 
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nullable;
@@ -30,6 +32,12 @@ import com.tinkerpop.blueprints.Vertex;
 public interface StorageFacet
   extends Facet
 {
+  /**
+   * Key of the vertex id in maps returned by {@link #streamAssets(int, Collection)} and
+   * {@link #streamComponents(int, Collection)}.
+   */
+  String P_ID = "@rid";
+
   /**
    * Gets a transaction for working with the graph.
    */
@@ -45,6 +53,22 @@ public interface StorageFacet
    */
   Iterable<Vertex> browseComponents(GraphTx graph);
 
+  /**
+   * Streams the assets owned by the repository in path order, as detached property maps. Assets are read in pages of
+   * {@code pageSize}, each in its own short transaction, so no transaction is held between pages and only one page
+   * is in memory at a time. If {@code properties} is given, only those properties are read. The vertex id is always
+   * included as {@link #P_ID}. Assets without a path are not included.
+   */
+  Iterable<Map<String, Object>> streamAssets(int pageSize, @Nullable Collection<String> properties);
+
+  /**
+   * Streams the components owned by the repository in record id order, like {@link #streamAssets(int, Collection)}.
+   * Unlike asset pages, every page of components looks up all components of the repository, see
+   * {@link StorageService#browseComponentsOwnedBy(GraphTx, Vertex, Object, int)}, hence large page sizes should be
+   * used with repositories holding many components.
+   */
+  Iterable<Map<String, Object>> streamComponents(int pageSize, @Nullable Collection<String> properties);
+
   /**
    * Gets an asset by id, or {@code null} if not found.
    */
@@ -57,6 +81,13 @@ public interface StorageFacet
   @Nullable
   Vertex findAssetWithProperty(GraphTx graph, String propName, Object propValue);
 
+  /**
+   * Gets an asset by path, or {@code null} if not found. This resolves the asset with a single index lookup, and
+   * should be preferred over {@link #findAssetWithProperty(GraphTx, String, Object)} for path based access.
+   */
+  @Nullable
+  Vertex findAssetWithPath(GraphTx graph, String path);
+
   /**
    * Gets a component by id, or {@code null} if not found.
    */
@@ -89,6 +120,15 @@ public interface StorageFacet
    */
   BlobRef createBlob(InputStream inputStream, Map<String, String> headers);
 
+  /**
+   * Ingests many assets in batches of {@code batchSize}. For each batch the blobs are created together, with their
+   * content written concurrently, and then all the batch's assets are stored in a single transaction. A batch either
+   * succeeds as a whole, or none of its assets and blobs are kept. Failed batches don't stop ingestion of the rest.
+   *
+   * @return the failed batches, empty if all assets were ingested
+   */
+  List<IngestBatchFailure> ingest(Iterable<? extends AssetSource> sources, int batchSize);
+
   /**
    * Gets a Blob.
    */
@@ -13,6 +13,10 @@
 package org.sonatype.nexus.repository.storage;
 
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nullable;
@@ -22,10 +26,19 @@ import javax.inject.Named;
 import org.sonatype.nexus.common.stateguard.Guarded;
 import org.sonatype.nexus.repository.FacetSupport;
 
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.orientechnologies.orient.core.id.ORID;
+import com.tinkerpop.blueprints.Element;
 import com.tinkerpop.blueprints.Vertex;
+import com.tinkerpop.blueprints.impls.orient.OrientVertex;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.sonatype.nexus.repository.FacetSupport.State.STARTED;
+import static org.sonatype.nexus.repository.storage.StorageService.P_PATH;
 import static org.sonatype.nexus.repository.storage.StorageService.P_REPOSITORY_NAME;
 import static org.sonatype.nexus.repository.storage.StorageService.V_BUCKET;
 
@@ -39,7 +52,7 @@ public class StorageFacetImpl
 {
   private final StorageService delegate;
 
-  private Object bucketId;
+  private ORID bucketId;
 
   @Inject
   public StorageFacetImpl(final StorageService delegate) {
@@ -57,12 +70,16 @@ public class StorageFacetImpl
         bucket.setProperty(P_REPOSITORY_NAME, repositoryName);
         graph.commit();
       }
-      bucketId = bucket.getId();
+      bucketId = (ORID) bucket.getId();
     }
   }
 
+  /**
+   * Returns a lightweight handle to the bucket, which only loads the bucket record from the graph if something
+   * actually reads it. Index lookups such as {@link #findAssetWithPath(GraphTx, String)} just need the id.
+   */
   private Vertex bucket(final GraphTx graph) {
-    return delegate.findVertex(graph, bucketId, null);
+    return new OrientVertex(graph, bucketId);
   }
 
   @Override
@@ -83,6 +100,128 @@ public class StorageFacetImpl
     return delegate.browseComponentsOwnedBy(bucket(graph));
   }
 
+  @Override
+  @Guarded(by=STARTED)
+  public Iterable<Map<String, Object>> streamAssets(final int pageSize,
+                                                    @Nullable final Collection<String> properties)
+  {
+    checkArgument(pageSize > 0);
+    return new Iterable<Map<String, Object>>()
+    {
+      @Override
+      public Iterator<Map<String, Object>> iterator() {
+        return new PagingIterator(pageSize, properties)
+        {
+          @Override
+          protected List<Vertex> page(final GraphTx graph, @Nullable final Object after) {
+            return delegate.browseAssetsOwnedBy(graph, bucket(graph), (String) after, pageSize);
+          }
+
+          @Override
+          protected Object keyOf(final Vertex vertex) {
+            return vertex.getProperty(P_PATH);
+          }
+        };
+      }
+    };
+  }
+
+  @Override
+  @Guarded(by=STARTED)
+  public Iterable<Map<String, Object>> streamComponents(final int pageSize,
+                                                        @Nullable final Collection<String> properties)
+  {
+    checkArgument(pageSize > 0);
+    return new Iterable<Map<String, Object>>()
+    {
+      @Override
+      public Iterator<Map<String, Object>> iterator() {
+        return new PagingIterator(pageSize, properties)
+        {
+          @Override
+          protected List<Vertex> page(final GraphTx graph, @Nullable final Object after) {
+            return delegate.browseComponentsOwnedBy(graph, bucket(graph), after, pageSize);
+          }
+
+          @Override
+          protected Object keyOf(final Vertex vertex) {
+            return vertex.getId();
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Iterates over keyset pages of vertices, reading each page in its own transaction and detaching its vertices
+   * into property maps before the transaction is closed.
+   */
+  private abstract class PagingIterator
+      extends AbstractIterator<Map<String, Object>>
+  {
+    private final int pageSize;
+
+    private final Collection<String> properties;
+
+    private Iterator<Map<String, Object>> page = Collections.emptyIterator();
+
+    private Object last;
+
+    private boolean exhausted;
+
+    PagingIterator(final int pageSize, @Nullable final Collection<String> properties) {
+      this.pageSize = pageSize;
+      this.properties = properties;
+    }
+
+    /**
+     * Reads the page of vertices following the given key.
+     */
+    protected abstract List<Vertex> page(GraphTx graph, @Nullable Object after);
+
+    /**
+     * Returns the key pages are ordered by.
+     */
+    protected abstract Object keyOf(Vertex vertex);
+
+    @Override
+    protected Map<String, Object> computeNext() {
+      if (!page.hasNext()) {
+        if (exhausted) {
+          return endOfData();
+        }
+        List<Map<String, Object>> maps = Lists.newArrayListWithCapacity(pageSize);
+        try (GraphTx graph = delegate.getGraphTx()) {
+          List<Vertex> vertices = page(graph, last);
+          for (Vertex vertex : vertices) {
+            maps.add(detach(vertex, properties));
+          }
+          exhausted = vertices.size() < pageSize;
+          if (!vertices.isEmpty()) {
+            last = keyOf(vertices.get(vertices.size() - 1));
+          }
+        }
+        page = maps.iterator();
+        if (!page.hasNext()) {
+          return endOfData();
+        }
+      }
+      return page.next();
+    }
+  }
+
+  private static Map<String, Object> detach(final Vertex vertex, @Nullable final Collection<String> properties) {
+    Collection<String> keys = properties != null ? properties : vertex.getPropertyKeys();
+    Map<String, Object> map = Maps.newLinkedHashMap();
+    map.put(P_ID, vertex.getId());
+    for (String key : keys) {
+      Object value = vertex.getProperty(key);
+      // links are replaced by ids, as the linked element can not be used once the transaction is closed
+      map.put(key, value instanceof Element ? ((Element) value).getId() : value);
+    }
+    return map;
+  }
+
   @Nullable
   @Override
   @Guarded(by=STARTED)
@@ -97,6 +236,13 @@ public class StorageFacetImpl
     return delegate.findAssetWithPropertyOwnedBy(graph, propName, propValue, bucket(graph));
   }
 
+  @Nullable
+  @Override
+  @Guarded(by=STARTED)
+  public Vertex findAssetWithPath(final GraphTx graph, final String path) {
+    return delegate.findAssetWithPathOwnedBy(graph, path, bucket(graph));
+  }
+
   @Nullable
   @Override
   @Guarded(by=STARTED)
@@ -135,6 +281,49 @@ public class StorageFacetImpl
     return delegate.createBlob(inputStream, headers);
   }
 
+  @Override
+  @Guarded(by=STARTED)
+  public List<IngestBatchFailure> ingest(final Iterable<? extends AssetSource> sources, final int batchSize) {
+    checkNotNull(sources);
+    checkArgument(batchSize > 0);
+
+    List<IngestBatchFailure> failures = Lists.newArrayList();
+    int count = 0;
+    for (List<? extends AssetSource> batch : Iterables.partition(sources, batchSize)) {
+      try {
+        ingestBatch(batch);
+        count += batch.size();
+      }
+      catch (Exception e) {
+        log.warn("Failed to ingest batch of {} assets into repository {}", batch.size(), getRepository().getName(), e);
+        failures.add(new IngestBatchFailure(batch, e));
+      }
+    }
+    log.debug("Ingested {} assets into repository {}, {} batches failed", count, getRepository().getName(),
+        failures.size());
+    return failures;
+  }
+
+  private void ingestBatch(final List<? extends AssetSource> batch) {
+    List<BlobRef> blobRefs = delegate.createBlobs(batch);
+    boolean committed = false;
+    try (GraphTx graph = delegate.getGraphTx()) {
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).store(graph, this, blobRefs.get(i));
+      }
+      graph.commit();
+      committed = true;
+    }
+    finally {
+      if (!committed) {
+        // the assets were rolled back, so nothing refers to the blobs of this batch
+        for (BlobRef blobRef : blobRefs) {
+          delegate.deleteBlob(blobRef);
+        }
+      }
+    }
+  }
+
   @Nullable
   @Override
   @Guarded(by=STARTED)
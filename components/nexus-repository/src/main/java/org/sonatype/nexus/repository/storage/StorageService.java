@@ -13,10 +13,12 @@
 package org.sonatype.nexus.repository.storage;
 
 import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nullable;
 
+import org.sonatype.nexus.blobstore.api.BlobSource;
 import org.sonatype.sisu.goodies.lifecycle.Lifecycle;
 
 import com.tinkerpop.blueprints.Vertex;
@@ -39,8 +41,14 @@ public interface StorageService
 
   static String E_PART_OF_COMPONENT = "part_of_component";
 
+  static String I_ASSET_BUCKET_PATH = "asset_bucket_path_idx";
+
+  static String I_COMPONENT_BUCKET = "component_bucket_idx";
+
   static String P_BLOB_REF = "blob_ref";
 
+  static String P_BUCKET = "bucket";
+
   static String P_CONTENT_TYPE = "content_type";
 
   static String P_PATH = "path";
@@ -61,6 +69,20 @@ public interface StorageService
 
   Iterable<Vertex> browseComponentsOwnedBy(Vertex bucket);
 
+  /**
+   * Gets up to {@code limit} assets owned by the bucket in path order, starting after the given path, by walking the
+   * (bucket, path) index. Assets without a path are not included.
+   */
+  List<Vertex> browseAssetsOwnedBy(GraphTx graph, Vertex bucket, @Nullable String afterPath, int limit);
+
+  /**
+   * Gets up to {@code limit} components owned by the bucket in record id order, starting after the given id. Only
+   * the components of the bucket are read, by looking them up in the bucket index. Note: unlike asset pages, a page
+   * of components is not a bounded index range read, as record ids can not be part of an index key: every page looks
+   * up and orders all components of the bucket, so reading all pages costs quadratic in the bucket size.
+   */
+  List<Vertex> browseComponentsOwnedBy(GraphTx graph, Vertex bucket, @Nullable Object afterId, int limit);
+
   Iterable<Vertex> browseVertices(GraphTx graph, @Nullable String className);
 
   @Nullable
@@ -75,6 +97,13 @@ public interface StorageService
   @Nullable
   Vertex findAssetWithPropertyOwnedBy(GraphTx graph, String propName, Object propValue, Vertex bucket);
 
+  /**
+   * Gets the asset with the given path owned by the bucket using a single probe of the (bucket, path) index,
+   * or {@code null} if not found.
+   */
+  @Nullable
+  Vertex findAssetWithPathOwnedBy(GraphTx graph, String path, Vertex bucket);
+
   @Nullable
   Vertex findComponentWithPropertyOwnedBy(GraphTx graph, String propName, Object propValue, Vertex bucket);
 
@@ -91,6 +120,11 @@ public interface StorageService
 
   BlobRef createBlob(InputStream inputStream, Map<String, String> headers);
 
+  /**
+   * Creates several blobs at once, see {@link org.sonatype.nexus.blobstore.api.BlobStore#createAll(List)}.
+   */
+  List<BlobRef> createBlobs(List<? extends BlobSource> sources);
+
   @Nullable
   org.sonatype.nexus.blobstore.api.Blob getBlob(BlobRef blobRef);
 
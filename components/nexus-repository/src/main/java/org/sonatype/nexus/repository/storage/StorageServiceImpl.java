@@ -14,7 +14,9 @@
 package org.sonatype.nexus.repository.storage;
 
 import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -22,6 +24,7 @@ import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.sonatype.nexus.blobstore.api.BlobSource;
 import org.sonatype.nexus.blobstore.api.BlobStore;
 import org.sonatype.nexus.common.stateguard.Guarded;
 import org.sonatype.nexus.common.stateguard.StateGuardLifecycleSupport;
@@ -31,7 +34,16 @@ import org.sonatype.sisu.goodies.eventbus.EventBus;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexCursor;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
 import com.tinkerpop.blueprints.Direction;
@@ -41,6 +53,7 @@ import com.tinkerpop.blueprints.impls.orient.OrientEdgeType;
 import com.tinkerpop.blueprints.impls.orient.OrientGraphNoTx;
 import com.tinkerpop.blueprints.impls.orient.OrientVertexType;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.sonatype.nexus.common.stateguard.StateGuardLifecycleSupport.State.STARTED;
 
@@ -61,6 +74,11 @@ public class StorageServiceImpl
 
   private final Provider<DatabaseInstance> databaseInstanceProvider;
 
+  /**
+   * Owned-by query texts keyed by class, property and edge label, so they are built only once.
+   */
+  private final ConcurrentMap<String, String> ownedByQueries = Maps.newConcurrentMap();
+
   @Inject
   public StorageServiceImpl(final EventBus eventBus,
                             final BlobStore blobStore,
@@ -96,6 +114,8 @@ public class StorageServiceImpl
       });
       initVertexType(graph, V_COMPONENT, null);
       initVertexType(graph, V_LABEL, null);
+      initAssetBucketPathIndex(graph);
+      initComponentBucketIndex(graph);
 
       initEdgeType(graph, E_CONTAINS_COMPONENTS_WITH_LABEL, null);
       initEdgeType(graph, E_HAS_LABEL, null);
@@ -133,6 +153,44 @@ public class StorageServiceImpl
     }
   }
 
+  /**
+   * Ensures assets carry a direct link to their owning bucket, and that the composite (bucket, path) index
+   * exists, so assets can be resolved by path with a single index probe. Assets created before the link existed
+   * are back-filled from their incoming ownership edge.
+   */
+  private void initAssetBucketPathIndex(CheckedGraphNoTx graph) {
+    OrientVertexType type = graph.getVertexType(V_ASSET);
+    if (type.getClassIndex(I_ASSET_BUCKET_PATH) != null) {
+      return;
+    }
+    if (type.getProperty(P_BUCKET) == null) {
+      type.createProperty(P_BUCKET, OType.LINK);
+    }
+    graph.command(new OCommandSQL(String.format("update %s set %s = first(in('%s')) where %s is null",
+        V_ASSET, P_BUCKET, E_OWNS_ASSET, P_BUCKET))).execute();
+    type.createIndex(I_ASSET_BUCKET_PATH, OClass.INDEX_TYPE.UNIQUE, P_BUCKET, P_PATH);
+    log.info("Created index {}", I_ASSET_BUCKET_PATH);
+  }
+
+  /**
+   * Ensures components carry a direct link to their owning bucket, and that the bucket index exists, so the
+   * components of a bucket can be paged without scanning all components. Components created before the link existed
+   * are back-filled from their incoming ownership edge.
+   */
+  private void initComponentBucketIndex(CheckedGraphNoTx graph) {
+    OrientVertexType type = graph.getVertexType(V_COMPONENT);
+    if (type.getClassIndex(I_COMPONENT_BUCKET) != null) {
+      return;
+    }
+    if (type.getProperty(P_BUCKET) == null) {
+      type.createProperty(P_BUCKET, OType.LINK);
+    }
+    graph.command(new OCommandSQL(String.format("update %s set %s = first(in('%s')) where %s is null",
+        V_COMPONENT, P_BUCKET, E_OWNS_COMPONENT, P_BUCKET))).execute();
+    type.createIndex(I_COMPONENT_BUCKET, OClass.INDEX_TYPE.NOTUNIQUE, P_BUCKET);
+    log.info("Created index {}", I_COMPONENT_BUCKET);
+  }
+
   @Override
   protected void doStop() throws Exception {
     // nop
@@ -161,6 +219,56 @@ public class StorageServiceImpl
     return bucket.getVertices(Direction.OUT, E_OWNS_COMPONENT);
   }
 
+  @Override
+  @Guarded(by=STARTED)
+  public List<Vertex> browseAssetsOwnedBy(final GraphTx graph, final Vertex bucket, @Nullable final String afterPath,
+                                          final int limit)
+  {
+    checkNotNull(graph);
+    checkNotNull(bucket);
+    checkArgument(limit > 0);
+
+    Object bucketId = bucket.getId();
+    OIndex<?> index = graph.getRawGraph().getMetadata().getIndexManager().getIndex(I_ASSET_BUCKET_PATH);
+    OIndexCursor cursor = afterPath == null
+        ? index.iterateEntriesMajor(new OCompositeKey(bucketId), true, true)
+        : index.iterateEntriesMajor(new OCompositeKey(bucketId, afterPath), false, true);
+
+    List<Vertex> page = Lists.newArrayListWithCapacity(limit);
+    Map.Entry<Object, OIdentifiable> entry;
+    while (page.size() < limit && (entry = cursor.nextEntry()) != null) {
+      // entries are ordered by bucket first, so stop once past this bucket
+      if (!bucketId.equals(((OCompositeKey) entry.getKey()).getKeys().get(0))) {
+        break;
+      }
+      page.add(graph.getVertex(entry.getValue()));
+    }
+    return page;
+  }
+
+  @Override
+  @Guarded(by=STARTED)
+  @SuppressWarnings("unchecked")
+  public List<Vertex> browseComponentsOwnedBy(final GraphTx graph, final Vertex bucket,
+                                              @Nullable final Object afterId, final int limit)
+  {
+    checkNotNull(graph);
+    checkNotNull(bucket);
+    checkArgument(limit > 0);
+
+    Map<String, Object> parameters = Maps.newHashMap();
+    // components link directly to their bucket, so the bucket index narrows the read down to the bucket, but not
+    // to the page: all the bucket's components are looked up and ordered, as @rid can not be part of an index key
+    parameters.put("bucket", bucket.getId());
+    String query = String.format("select from %s where %s = :bucket", V_COMPONENT, P_BUCKET);
+    if (afterId != null) {
+      parameters.put("afterId", afterId);
+      query += " and @rid > :afterId";
+    }
+    query += " order by @rid limit " + limit;
+    return Lists.newArrayList((Iterable<Vertex>) graph.command(new OCommandSQL(query)).execute(parameters));
+  }
+
   @Override
   @Guarded(by=STARTED)
   public Iterable<Vertex> browseVertices(final GraphTx graph, @Nullable final String className) {
@@ -214,16 +322,20 @@ public class StorageServiceImpl
     checkNotNull(vertexId);
 
     Vertex vertex = graph.getVertex(vertexId);
-    if (vertex != null && className != null)
-    {
-      if (!vertex.getProperty("@class").equals(className))
-      {
-        return null;
-      }
+    if (vertex != null && className != null && !isOfClass(graph, vertex, className)) {
+      return null;
     }
     return vertex;
   }
 
+  /**
+   * Checks the class of a vertex from the cluster of its record id, rather than reading its "@class" property.
+   */
+  private boolean isOfClass(GraphTx graph, Vertex vertex, String className) {
+    OClass type = graph.getRawGraph().getMetadata().getSchema().getClass(className);
+    return type != null && Ints.contains(type.getClusterIds(), ((ORID) vertex.getId()).getClusterId());
+  }
+
   @Nullable
   @Override
   @Guarded(by=STARTED)
@@ -234,9 +346,26 @@ public class StorageServiceImpl
     checkNotNull(propValue);
     checkNotNull(bucket);
 
+    if (P_PATH.equals(propName) && propValue instanceof String) {
+      return findAssetWithPathOwnedBy(graph, (String) propValue, bucket);
+    }
     return findWithPropertyOwnedBy(graph, V_ASSET, propName, propValue, E_OWNS_ASSET, bucket);
   }
 
+  @Nullable
+  @Override
+  @Guarded(by=STARTED)
+  public Vertex findAssetWithPathOwnedBy(final GraphTx graph, final String path, final Vertex bucket) {
+    checkNotNull(graph);
+    checkNotNull(path);
+    checkNotNull(bucket);
+
+    // index obtained through the database is transaction aware, so uncommitted assets are visible too
+    OIndex<?> index = graph.getRawGraph().getMetadata().getIndexManager().getIndex(I_ASSET_BUCKET_PATH);
+    OIdentifiable id = (OIdentifiable) index.get(new OCompositeKey(bucket.getId(), path));
+    return id == null ? null : graph.getVertex(id);
+  }
+
   @Nullable
   @Override
   @Guarded(by=STARTED)
@@ -253,13 +382,31 @@ public class StorageServiceImpl
   @SuppressWarnings("unchecked")
   private Vertex findWithPropertyOwnedBy(GraphTx graph, String className, String propName, Object propValue,
                                          String edgeLabel, Vertex bucket) {
-    Map<String, Object> parameters = ImmutableMap.of("propValue", propValue, "bucket", bucket);
-    String query = String.format("select from %s where %s = :propValue and in('%s') contains :bucket",
-        className, propName, edgeLabel);
+    Map<String, Object> parameters = ImmutableMap.of("propValue", propValue,
+        "bucket", V_ASSET.equals(className) ? bucket.getId() : bucket);
+    String query = ownedByQuery(className, propName, edgeLabel);
     Iterable<Vertex> vertices = (Iterable<Vertex>) graph.command(new OCommandSQL(query)).execute(parameters);
     return Iterables.getFirst(vertices, null);
   }
 
+  private String ownedByQuery(String className, String propName, String edgeLabel) {
+    String key = className + ':' + propName + ':' + edgeLabel;
+    String query = ownedByQueries.get(key);
+    if (query == null) {
+      if (V_ASSET.equals(className)) {
+        // assets link directly to their bucket, no need to traverse the ownership edge
+        query = String.format("select from %s where %s = :propValue and %s = :bucket",
+            className, propName, P_BUCKET);
+      }
+      else {
+        query = String.format("select from %s where %s = :propValue and in('%s') contains :bucket",
+            className, propName, edgeLabel);
+      }
+      ownedByQueries.putIfAbsent(key, query);
+    }
+    return query;
+  }
+
   @Nullable
   @Override
   @Guarded(by=STARTED)
@@ -271,12 +418,8 @@ public class StorageServiceImpl
     checkNotNull(propValue);
 
     Vertex vertex = Iterables.getFirst(graph.getVertices(propName, propValue), null);
-    if (vertex != null && className != null)
-    {
-      if (!vertex.getProperty("@class").equals(className))
-      {
-        return null;
-      }
+    if (vertex != null && className != null && !isOfClass(graph, vertex, className)) {
+      return null;
     }
     return vertex;
   }
@@ -288,6 +431,7 @@ public class StorageServiceImpl
     checkNotNull(bucket);
 
     Vertex asset = createVertex(graph, V_ASSET);
+    asset.setProperty(P_BUCKET, bucket.getId());
     graph.addEdge(null, bucket, asset, E_OWNS_ASSET);
     return asset;
   }
@@ -299,6 +443,7 @@ public class StorageServiceImpl
     checkNotNull(bucket);
 
     Vertex component = createVertex(graph, V_COMPONENT);
+    component.setProperty(P_BUCKET, bucket.getId());
     graph.addEdge(null, bucket, component, E_OWNS_COMPONENT);
     return component;
   }
@@ -331,6 +476,18 @@ public class StorageServiceImpl
     return new BlobRef("NODE", "STORE", blob.getId().asUniqueString());
   }
 
+  @Override
+  @Guarded(by=STARTED)
+  public List<BlobRef> createBlobs(final List<? extends BlobSource> sources) {
+    checkNotNull(sources);
+
+    List<BlobRef> blobRefs = Lists.newArrayListWithCapacity(sources.size());
+    for (org.sonatype.nexus.blobstore.api.Blob blob : blobStore.createAll(sources)) {
+      blobRefs.add(new BlobRef("NODE", "STORE", blob.getId().asUniqueString()));
+    }
+    return blobRefs;
+  }
+
   @Nullable
   @Override
   @Guarded(by=STARTED)
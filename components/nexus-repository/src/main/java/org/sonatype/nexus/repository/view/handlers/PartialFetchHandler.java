@@ -0,0 +1,133 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view.handlers;
+
+import java.util.List;
+import java.util.Map.Entry;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.common.io.ByteRanges;
+import org.sonatype.nexus.repository.view.Context;
+import org.sonatype.nexus.repository.view.Handler;
+import org.sonatype.nexus.repository.view.Headers;
+import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.repository.view.PayloadResponse;
+import org.sonatype.nexus.repository.view.Request;
+import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.repository.view.Status;
+import org.sonatype.nexus.repository.view.payloads.PartialPayload;
+import org.sonatype.sisu.goodies.common.ComponentSupport;
+
+import com.google.common.collect.Range;
+
+/**
+ * Partial fetch handler, turns successful {@link PayloadResponse}s to GET requests having {@code Range} header into
+ * partial content (RFC 7233) responses, honoring {@code If-Range} against the response {@code ETag} or
+ * {@code Last-Modified} headers.
+ *
+ * @since 3.0
+ */
+@Named
+@Singleton
+public class PartialFetchHandler
+  extends ComponentSupport
+  implements Handler
+{
+  private static final int OK = 200;
+
+  private static final int PARTIAL_CONTENT = 206;
+
+  private static final int REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+
+  @Nonnull
+  @Override
+  public Response handle(final @Nonnull Context context) throws Exception {
+    final Response response = context.proceed();
+    final Request request = context.getRequest();
+    if (!"GET".equals(request.getAction()) || !(response instanceof PayloadResponse)
+        || response.getStatus().getCode() != OK) {
+      return response;
+    }
+
+    final Payload payload = ((PayloadResponse) response).getPayload();
+    if (payload.getSize() == Payload.UNKNOWN_SIZE) {
+      return response;
+    }
+    if (header(response.getHeaders(), "Accept-Ranges") == null) {
+      response.getHeaders().set("Accept-Ranges", "bytes");
+    }
+
+    final String rangeHeader = header(request.getHeaders(), "Range");
+    if (rangeHeader == null || !isIfRangeMatching(request, response)) {
+      return response;
+    }
+    final List<Range<Long>> ranges = ByteRanges.parse(rangeHeader, payload.getSize());
+    if (ranges == null) {
+      log.debug("Unsupported or malformed Range: {}, sending complete content", rangeHeader);
+      return response;
+    }
+
+    final Response result;
+    if (ranges.isEmpty()) {
+      result = new Response(Status.failure(REQUESTED_RANGE_NOT_SATISFIABLE));
+      result.getHeaders().set("Content-Range", ByteRanges.unsatisfiedContentRange(payload.getSize()));
+    }
+    else {
+      final PartialPayload partialPayload = new PartialPayload(payload, ranges);
+      result = new PayloadResponse(Status.success(PARTIAL_CONTENT), partialPayload);
+      copyHeaders(response, result);
+      if (partialPayload.getContentRange() != null) {
+        result.getHeaders().set("Content-Range", partialPayload.getContentRange());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns {@code true} if request has no {@code If-Range} header, or it equals to response's strong {@code ETag} or
+   * {@code Last-Modified} header.
+   */
+  private boolean isIfRangeMatching(final Request request, final Response response) {
+    final String ifRange = header(request.getHeaders(), "If-Range");
+    if (ifRange == null) {
+      return true;
+    }
+    if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+      return ifRange.startsWith("\"") && ifRange.equals(header(response.getHeaders(), "ETag"));
+    }
+    return ifRange.equals(header(response.getHeaders(), "Last-Modified"));
+  }
+
+  private void copyHeaders(final Response from, final Response to) {
+    for (Entry<String, String> entry : from.getHeaders()) {
+      to.getHeaders().set(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Returns the first value of header, looked up case insensitively as HTTP header names are.
+   */
+  @Nullable
+  private String header(final Headers headers, final String name) {
+    for (Entry<String, String> entry : headers) {
+      if (name.equalsIgnoreCase(entry.getKey())) {
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+}
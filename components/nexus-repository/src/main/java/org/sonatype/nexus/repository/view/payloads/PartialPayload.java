@@ -0,0 +1,130 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view.payloads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.common.io.ByteRanges;
+import org.sonatype.nexus.common.io.ChannelSupport;
+import org.sonatype.nexus.repository.view.Payload;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Partial payload, byte ranges of another payload. A single range is served as is, multiple ranges as
+ * {@code multipart/byteranges} content.
+ *
+ * @since 3.0
+ */
+public class PartialPayload
+  implements Payload
+{
+  private final Payload payload;
+
+  private final List<Range<Long>> ranges;
+
+  private final String boundary;
+
+  /**
+   * @param payload the complete payload, must have known size.
+   * @param ranges  the satisfiable ranges, as returned by {@link ByteRanges#parse(String, long)}.
+   */
+  public PartialPayload(final Payload payload, final List<Range<Long>> ranges) {
+    this.payload = checkNotNull(payload);
+    this.ranges = ImmutableList.copyOf(ranges);
+    checkArgument(payload.getSize() != UNKNOWN_SIZE, "Payload size must be known");
+    checkArgument(!ranges.isEmpty(), "At least one range must be given");
+    this.boundary = ranges.size() > 1 ? ByteRanges.newBoundary() : null;
+  }
+
+  public Payload getPayload() {
+    return payload;
+  }
+
+  public List<Range<Long>> getRanges() {
+    return ranges;
+  }
+
+  public boolean isMultipart() {
+    return boundary != null;
+  }
+
+  @Override
+  public InputStream openInputStream() throws IOException {
+    if (isMultipart()) {
+      return ByteRanges.openMultipart(payload.openInputStream(), ranges, payload.getSize(), payload.getContentType(),
+          boundary);
+    }
+    return ByteRanges.openRange(payload.openInputStream(), ranges.get(0));
+  }
+
+  /**
+   * Copies the partial content to the output stream. Unlike reading {@link #openInputStream()}, file backed content is
+   * sent using {@link ChannelSupport}.
+   */
+  public long copyTo(final OutputStream output, final int bufferSize) throws IOException {
+    try (InputStream input = payload.openInputStream()) {
+      if (isMultipart()) {
+        return ByteRanges.copyMultipart(input, ranges, payload.getSize(), payload.getContentType(), boundary, output,
+            bufferSize);
+      }
+      return ChannelSupport.copyRange(input, ranges.get(0).lowerEndpoint(), ByteRanges.size(ranges.get(0)), output,
+          bufferSize);
+    }
+  }
+
+  @Override
+  public long getSize() {
+    if (isMultipart()) {
+      return ByteRanges.multipartLength(ranges, payload.getSize(), payload.getContentType(), boundary);
+    }
+    return ByteRanges.size(ranges.get(0));
+  }
+
+  @Nullable
+  @Override
+  public String getContentType() {
+    if (isMultipart()) {
+      return ByteRanges.multipartContentType(boundary);
+    }
+    return payload.getContentType();
+  }
+
+  /**
+   * Returns the {@code Content-Range} header value of single range payload, or {@code null} for multipart payload.
+   */
+  @Nullable
+  public String getContentRange() {
+    if (isMultipart()) {
+      return null;
+    }
+    return ByteRanges.contentRange(ranges.get(0), payload.getSize());
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "payload=" + payload +
+        ", ranges=" + ranges +
+        '}';
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.storage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.orient.DatabaseInstanceRule;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.inject.util.Providers;
+import com.tinkerpop.blueprints.Vertex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_ID;
+import static org.sonatype.nexus.repository.storage.StorageService.P_BUCKET;
+import static org.sonatype.nexus.repository.storage.StorageService.P_PATH;
+
+/**
+ * Integration tests for {@link StorageFacetImpl} streaming.
+ */
+public class StorageFacetImplIT
+    extends TestSupport
+{
+  @Rule
+  public DatabaseInstanceRule database = new DatabaseInstanceRule("test");
+
+  @Mock
+  private Repository repository;
+
+  private StorageServiceImpl storageService;
+
+  private StorageFacetImpl underTest;
+
+  private int transactions;
+
+  @Before
+  public void setUp() throws Exception {
+    storageService = new StorageServiceImpl(mock(EventBus.class), mock(BlobStore.class),
+        Providers.of(database.getInstance()))
+    {
+      @Override
+      public GraphTx getGraphTx() {
+        transactions++;
+        return super.getGraphTx();
+      }
+    };
+    storageService.start();
+
+    when(repository.getName()).thenReturn("test");
+    underTest = new StorageFacetImpl(storageService);
+    underTest.installDependencies(mock(EventBus.class));
+    underTest.init(repository);
+    underTest.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    underTest.stop();
+    storageService.stop();
+  }
+
+  @Test
+  public void streamAssetsAcrossPages() {
+    final List<Vertex> created = Lists.newArrayList();
+    final List<Object> ids = Lists.newArrayList();
+    try (GraphTx graph = underTest.getGraphTx()) {
+      for (String path : new String[]{"c", "a", "e", "b", "d"}) {
+        Vertex asset = underTest.createAsset(graph);
+        asset.setProperty(P_PATH, path);
+        created.add(asset);
+      }
+      graph.commit();
+      for (Vertex asset : created) {
+        ids.add(asset.getId());
+      }
+    }
+
+    transactions = 0;
+    final List<Map<String, Object>> assets = Lists.newArrayList(underTest.streamAssets(2, null));
+
+    assertThat(paths(assets), contains("a", "b", "c", "d", "e"));
+    // pages of 2, 2 and 1 assets, the short page ends the stream
+    assertThat(transactions, is(3));
+    for (Map<String, Object> asset : assets) {
+      assertThat(ids.contains(asset.get(P_ID)), is(true));
+      // link to the bucket is replaced by its id, usable once the transaction is closed
+      assertThat(asset.get(P_BUCKET), not(instanceOf(Vertex.class)));
+      assertThat(asset.get(P_BUCKET), is(assets.get(0).get(P_BUCKET)));
+    }
+  }
+
+  @Test
+  public void streamAssetsWithProjection() {
+    try (GraphTx graph = underTest.getGraphTx()) {
+      for (String path : new String[]{"b", "a", "c"}) {
+        Vertex asset = underTest.createAsset(graph);
+        asset.setProperty(P_PATH, path);
+        asset.setProperty("size", path.length());
+      }
+      graph.commit();
+    }
+
+    final List<Map<String, Object>> assets =
+        Lists.newArrayList(underTest.streamAssets(2, Arrays.asList(P_PATH)));
+
+    assertThat(paths(assets), contains("a", "b", "c"));
+    for (Map<String, Object> asset : assets) {
+      assertThat(asset.keySet(), contains(P_ID, P_PATH));
+    }
+  }
+
+  @Test
+  public void streamComponentsEndsAfterExactMultipleOfPageSize() {
+    try (GraphTx graph = underTest.getGraphTx()) {
+      for (int i = 0; i < 4; i++) {
+        underTest.createComponent(graph).setProperty("name", "component" + i);
+      }
+      graph.commit();
+    }
+
+    transactions = 0;
+    final List<Map<String, Object>> components = Lists.newArrayList(underTest.streamComponents(2, null));
+
+    assertThat(components.size(), is(4));
+    // two full pages, and an empty one ending the stream
+    assertThat(transactions, is(3));
+    final List<Object> names = Lists.newArrayList();
+    final List<Object> ids = Lists.newArrayList();
+    for (Map<String, Object> component : components) {
+      names.add(component.get("name"));
+      ids.add(component.get(P_ID));
+    }
+    assertThat(Sets.newHashSet(names).size(), is(4));
+    assertThat(Sets.newHashSet(ids).size(), is(4));
+
+    final List<Map<String, Object>> projected =
+        Lists.newArrayList(underTest.streamComponents(3, Arrays.asList("name")));
+    assertThat(projected.size(), is(4));
+    for (Map<String, Object> component : projected) {
+      assertThat(component.keySet(), contains(P_ID, "name"));
+    }
+  }
+
+  private static List<Object> paths(final List<Map<String, Object>> assets) {
+    final List<Object> paths = Lists.newArrayList();
+    for (Map<String, Object> asset : assets) {
+      paths.add(asset.get(P_PATH));
+    }
+    return paths;
+  }
+}
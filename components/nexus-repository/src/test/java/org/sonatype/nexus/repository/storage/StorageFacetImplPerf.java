@@ -0,0 +1,111 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.storage;
+
+import java.util.Random;
+
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.orient.DatabaseInstanceRule;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+import org.sonatype.sisu.litmus.testsupport.group.Perf;
+
+import com.google.common.base.Stopwatch;
+import com.google.inject.util.Providers;
+import com.tinkerpop.blueprints.Vertex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mock;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonatype.nexus.repository.storage.StorageService.P_BLOB_REF;
+import static org.sonatype.nexus.repository.storage.StorageService.P_PATH;
+
+/**
+ * Throughput of raw style GETs through {@link StorageFacetImpl}: each request opens a transaction, resolves the
+ * asset by path and reads its blob reference. Sizes may be changed with the "assets" and "requests" system
+ * properties.
+ */
+@Category(Perf.class)
+public class StorageFacetImplPerf
+    extends TestSupport
+{
+  private static final int ASSETS = Integer.getInteger("assets", 10000);
+
+  private static final int REQUESTS = Integer.getInteger("requests", 100000);
+
+  @Rule
+  public DatabaseInstanceRule database = new DatabaseInstanceRule("perf");
+
+  @Mock
+  private Repository repository;
+
+  private StorageServiceImpl storageService;
+
+  private StorageFacetImpl underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    storageService = new StorageServiceImpl(mock(EventBus.class), mock(BlobStore.class),
+        Providers.of(database.getInstance()));
+    storageService.start();
+
+    when(repository.getName()).thenReturn("perf");
+    underTest = new StorageFacetImpl(storageService);
+    underTest.installDependencies(mock(EventBus.class));
+    underTest.init(repository);
+    underTest.start();
+
+    try (GraphTx graph = underTest.getGraphTx()) {
+      for (int i = 0; i < ASSETS; i++) {
+        Vertex asset = underTest.createAsset(graph);
+        asset.setProperty(P_PATH, path(i));
+        asset.setProperty(P_BLOB_REF, "NODE:STORE@" + i);
+      }
+      graph.commit();
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    underTest.stop();
+    storageService.stop();
+  }
+
+  @Test
+  public void get() {
+    Random random = new Random();
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    for (int i = 0; i < REQUESTS; i++) {
+      try (GraphTx graph = underTest.getGraphTx()) {
+        Vertex asset = underTest.findAssetWithPath(graph, path(random.nextInt(ASSETS)));
+        assertThat(asset, notNullValue());
+        assertThat(asset.getProperty(P_BLOB_REF), notNullValue());
+      }
+    }
+    long elapsed = stopwatch.elapsed(MILLISECONDS);
+    log.info("{} GETs took {} ms ({} GETs/s)", REQUESTS, elapsed, REQUESTS * 1000L / Math.max(elapsed, 1));
+  }
+
+  private static String path(final int n) {
+    return "content/" + n + ".txt";
+  }
+}
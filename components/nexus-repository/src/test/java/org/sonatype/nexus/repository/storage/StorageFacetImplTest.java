@@ -0,0 +1,178 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.storage;
+
+import java.util.List;
+import java.util.Map;
+
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.api.BlobStoreException;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link StorageFacetImpl#ingest(Iterable, int)}.
+ */
+public class StorageFacetImplTest
+    extends TestSupport
+{
+  @Mock
+  private StorageService storageService;
+
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private GraphTx graph;
+
+  private final Map<AssetSource, BlobRef> blobRefs = Maps.newHashMap();
+
+  private StorageFacetImpl underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    when(repository.getName()).thenReturn("test");
+    when(storageService.getGraphTx()).thenReturn(graph);
+    when(storageService.createBlobs(anyListOf(AssetSource.class))).thenAnswer(new Answer<List<BlobRef>>()
+    {
+      @Override
+      public List<BlobRef> answer(final InvocationOnMock invocation) throws Throwable {
+        List<BlobRef> batch = Lists.newArrayList();
+        for (Object source : (List<?>) invocation.getArguments()[0]) {
+          BlobRef blobRef = new BlobRef("NODE", "STORE", source.toString());
+          blobRefs.put((AssetSource) source, blobRef);
+          batch.add(blobRef);
+        }
+        return batch;
+      }
+    });
+
+    underTest = new StorageFacetImpl(storageService);
+    underTest.installDependencies(mock(EventBus.class));
+    underTest.init(repository);
+  }
+
+  @Test
+  public void ingestStoresEachBatchInOneTransaction() {
+    List<AssetSource> sources = sources(5);
+
+    List<IngestBatchFailure> failures = underTest.ingest(sources, 2);
+
+    assertThat(failures, empty());
+    verify(storageService, times(3)).createBlobs(anyListOf(AssetSource.class));
+    verify(graph, times(3)).commit();
+    verify(graph, times(3)).close();
+    for (AssetSource source : sources) {
+      verify(source).store(graph, underTest, blobRef(source));
+    }
+    verify(storageService, never()).deleteBlob(any(BlobRef.class));
+  }
+
+  @Test
+  public void failedStoreRollsBackBatchAndDeletesItsBlobs() {
+    List<AssetSource> sources = sources(5);
+    RuntimeException cause = new RuntimeException("store failed");
+    when(sources.get(3).store(any(GraphTx.class), any(StorageFacet.class), any(BlobRef.class))).thenThrow(cause);
+
+    List<IngestBatchFailure> failures = underTest.ingest(sources, 2);
+
+    assertThat(failures, hasSize(1));
+    assertThat(failures.get(0).getSources(), contains(sources.get(2), sources.get(3)));
+    assertThat(failures.get(0).getCause(), sameInstance((Exception) cause));
+
+    // the failed batch is rolled back by closing its transaction uncommitted, the other batches still commit
+    verify(graph, times(2)).commit();
+    verify(graph, times(3)).close();
+    verify(storageService).deleteBlob(blobRef(sources.get(2)));
+    verify(storageService).deleteBlob(blobRef(sources.get(3)));
+    verify(storageService, times(2)).deleteBlob(any(BlobRef.class));
+    verify(sources.get(4)).store(graph, underTest, blobRef(sources.get(4)));
+  }
+
+  @Test
+  public void failedCommitDeletesBlobsOfBatch() {
+    List<AssetSource> sources = sources(2);
+    RuntimeException cause = new RuntimeException("commit failed");
+    doThrow(cause).when(graph).commit();
+
+    List<IngestBatchFailure> failures = underTest.ingest(sources, 2);
+
+    assertThat(failures, hasSize(1));
+    assertThat(failures.get(0).getSources(), contains(sources.get(0), sources.get(1)));
+    assertThat(failures.get(0).getCause(), sameInstance((Exception) cause));
+
+    // blobs are deleted only once the transaction is closed, ie. rolled back
+    InOrder order = inOrder(graph, storageService);
+    order.verify(graph).commit();
+    order.verify(graph).close();
+    order.verify(storageService).deleteBlob(blobRef(sources.get(0)));
+    order.verify(storageService).deleteBlob(blobRef(sources.get(1)));
+  }
+
+  @Test
+  public void failedBlobCreationSkipsBatch() {
+    List<AssetSource> sources = sources(4);
+    BlobStoreException cause = new BlobStoreException("write failed", (BlobId) null);
+    when(storageService.createBlobs(ImmutableList.of(sources.get(0), sources.get(1)))).thenThrow(cause);
+
+    List<IngestBatchFailure> failures = underTest.ingest(sources, 2);
+
+    assertThat(failures, hasSize(1));
+    assertThat(failures.get(0).getSources(), contains(sources.get(0), sources.get(1)));
+    assertThat(failures.get(0).getCause(), sameInstance((Exception) cause));
+
+    verify(sources.get(0), never()).store(any(GraphTx.class), any(StorageFacet.class), any(BlobRef.class));
+    verify(sources.get(1), never()).store(any(GraphTx.class), any(StorageFacet.class), any(BlobRef.class));
+    verify(storageService, never()).deleteBlob(any(BlobRef.class));
+    verify(graph, times(1)).commit();
+  }
+
+  private static List<AssetSource> sources(final int count) {
+    List<AssetSource> sources = Lists.newArrayList();
+    for (int i = 0; i < count; i++) {
+      AssetSource source = mock(AssetSource.class, "source" + i);
+      sources.add(source);
+    }
+    return sources;
+  }
+
+  private BlobRef blobRef(final AssetSource source) {
+    return blobRefs.get(source);
+  }
+}
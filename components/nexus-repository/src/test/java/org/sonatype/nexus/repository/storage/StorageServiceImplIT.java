@@ -13,12 +13,16 @@
 
 package org.sonatype.nexus.repository.storage;
 
+import java.util.List;
+
 import org.sonatype.nexus.blobstore.api.BlobStore;
 import org.sonatype.nexus.orient.DatabaseInstanceRule;
 import org.sonatype.sisu.goodies.eventbus.EventBus;
 import org.sonatype.sisu.litmus.testsupport.TestSupport;
 
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.inject.util.Providers;
 import com.tinkerpop.blueprints.Vertex;
 import org.junit.After;
@@ -26,6 +30,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -135,6 +140,80 @@ public class StorageServiceImplIT
     }
   }
 
+  @Test
+  public void findAssetWithPath() {
+    try (GraphTx graph = underTest.getGraphTx()) {
+      Vertex bucket1 = underTest.createVertex(graph, V_BUCKET);
+      Vertex bucket2 = underTest.createVertex(graph, V_BUCKET);
+      graph.commit();
+
+      Vertex asset1 = underTest.createAssetOwnedBy(graph, bucket1);
+      asset1.setProperty(P_PATH, "a/b/c");
+      Vertex asset2 = underTest.createAssetOwnedBy(graph, bucket2);
+      asset2.setProperty(P_PATH, "a/b/c");
+
+      // visible through the index before commit
+      assertThat(underTest.findAssetWithPathOwnedBy(graph, "a/b/c", bucket1), is(asset1));
+      graph.commit();
+
+      assertThat(underTest.findAssetWithPathOwnedBy(graph, "a/b/c", bucket1), is(asset1));
+      assertThat(underTest.findAssetWithPathOwnedBy(graph, "a/b/c", bucket2), is(asset2));
+      assertThat(underTest.findAssetWithPropertyOwnedBy(graph, P_PATH, "a/b/c", bucket2), is(asset2));
+      assertNull(underTest.findAssetWithPathOwnedBy(graph, "a/b", bucket1));
+
+      underTest.deleteVertex(graph, asset1);
+      graph.commit();
+
+      assertNull(underTest.findAssetWithPathOwnedBy(graph, "a/b/c", bucket1));
+      assertThat(underTest.findAssetWithPathOwnedBy(graph, "a/b/c", bucket2), is(asset2));
+    }
+  }
+
+  @Test
+  public void browsePages() {
+    try (GraphTx graph = underTest.getGraphTx()) {
+      Vertex bucket1 = underTest.createVertex(graph, V_BUCKET);
+      Vertex bucket2 = underTest.createVertex(graph, V_BUCKET);
+      graph.commit();
+
+      for (String path : new String[] { "c", "a", "e", "b", "d" }) {
+        underTest.createAssetOwnedBy(graph, bucket1).setProperty(P_PATH, path);
+        underTest.createComponentOwnedBy(graph, bucket1);
+      }
+      underTest.createAssetOwnedBy(graph, bucket2).setProperty(P_PATH, "a");
+      underTest.createComponentOwnedBy(graph, bucket2);
+      graph.commit();
+
+      List<Vertex> page = underTest.browseAssetsOwnedBy(graph, bucket1, null, 2);
+      assertThat(paths(page), contains("a", "b"));
+      page = underTest.browseAssetsOwnedBy(graph, bucket1, "b", 2);
+      assertThat(paths(page), contains("c", "d"));
+      page = underTest.browseAssetsOwnedBy(graph, bucket1, "d", 2);
+      assertThat(paths(page), contains("e"));
+      page = underTest.browseAssetsOwnedBy(graph, bucket2, null, 2);
+      assertThat(paths(page), contains("a"));
+
+      List<Vertex> components = Lists.newArrayList();
+      Object last = null;
+      do {
+        page = underTest.browseComponentsOwnedBy(graph, bucket1, last, 2);
+        components.addAll(page);
+        last = page.isEmpty() ? null : page.get(page.size() - 1).getId();
+      }
+      while (page.size() == 2);
+      assertThat(components.size(), is(5));
+      assertThat(Sets.newHashSet(components).size(), is(5));
+    }
+  }
+
+  private static List<String> paths(List<Vertex> assets) {
+    List<String> paths = Lists.newArrayList();
+    for (Vertex asset : assets) {
+      paths.add((String) asset.getProperty(P_PATH));
+    }
+    return paths;
+  }
+
   private void checkSize(Iterable iterable, int expectedSize) {
     assertThat(Iterators.size(iterable.iterator()), is(expectedSize));
   }
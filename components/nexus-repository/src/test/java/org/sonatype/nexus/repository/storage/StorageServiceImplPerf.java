@@ -0,0 +1,121 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.storage;
+
+import java.util.List;
+import java.util.Random;
+
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.orient.DatabaseInstanceRule;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+import org.sonatype.sisu.litmus.testsupport.group.Perf;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.inject.util.Providers;
+import com.tinkerpop.blueprints.Vertex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.sonatype.nexus.repository.storage.StorageService.P_PATH;
+import static org.sonatype.nexus.repository.storage.StorageService.V_BUCKET;
+
+/**
+ * Load test of asset lookups by path in {@link StorageServiceImpl}, with 1M assets spread across 100 buckets by
+ * default. The sizes may be changed with the "assets", "buckets" and "lookups" system properties.
+ */
+@Category(Perf.class)
+public class StorageServiceImplPerf
+    extends TestSupport
+{
+  private static final int ASSETS = Integer.getInteger("assets", 1000000);
+
+  private static final int BUCKETS = Integer.getInteger("buckets", 100);
+
+  private static final int LOOKUPS = Integer.getInteger("lookups", 100000);
+
+  private static final int COMMIT_SIZE = 1000;
+
+  @Rule
+  public DatabaseInstanceRule database = new DatabaseInstanceRule("perf");
+
+  private StorageService underTest;
+
+  private final List<Object> bucketIds = Lists.newArrayList();
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new StorageServiceImpl(mock(EventBus.class), mock(BlobStore.class),
+        Providers.of(database.getInstance()));
+    underTest.start();
+
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    try (GraphTx graph = underTest.getGraphTx()) {
+      List<Vertex> buckets = Lists.newArrayListWithCapacity(BUCKETS);
+      for (int i = 0; i < BUCKETS; i++) {
+        buckets.add(underTest.createVertex(graph, V_BUCKET));
+      }
+      graph.commit();
+      for (Vertex bucket : buckets) {
+        bucketIds.add(bucket.getId());
+      }
+
+      for (int i = 0; i < ASSETS; i++) {
+        Vertex asset = underTest.createAssetOwnedBy(graph, buckets.get(i % BUCKETS));
+        asset.setProperty(P_PATH, path(i));
+        if (i % COMMIT_SIZE == COMMIT_SIZE - 1) {
+          graph.commit();
+        }
+      }
+      graph.commit();
+    }
+    log.info("Created {} assets in {} buckets in {} ms", ASSETS, BUCKETS, stopwatch.elapsed(MILLISECONDS));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    underTest.stop();
+  }
+
+  @Test
+  public void findAssetWithPath() {
+    Random random = new Random();
+    try (GraphTx graph = underTest.getGraphTx()) {
+      List<Vertex> buckets = Lists.newArrayListWithCapacity(BUCKETS);
+      for (Object bucketId : bucketIds) {
+        buckets.add(underTest.findVertex(graph, bucketId, V_BUCKET));
+      }
+
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      for (int i = 0; i < LOOKUPS; i++) {
+        int n = random.nextInt(ASSETS);
+        Vertex asset = underTest.findAssetWithPathOwnedBy(graph, path(n), buckets.get(n % BUCKETS));
+        assertThat(asset, notNullValue());
+      }
+      long elapsed = stopwatch.elapsed(MILLISECONDS);
+      log.info("{} lookups took {} ms ({} lookups/s)", LOOKUPS, elapsed, LOOKUPS * 1000L / Math.max(elapsed, 1));
+    }
+  }
+
+  private static String path(final int n) {
+    return String.format("org/example/%d/artifact-%d.jar", n / 1000, n);
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view.handlers;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.sonatype.nexus.repository.view.Context;
+import org.sonatype.nexus.repository.view.Headers;
+import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.repository.view.PayloadResponse;
+import org.sonatype.nexus.repository.view.Request;
+import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.repository.view.Status;
+import org.sonatype.nexus.repository.view.payloads.BytesPayload;
+import org.sonatype.nexus.repository.view.payloads.PartialPayload;
+import org.sonatype.nexus.repository.view.payloads.StreamPayload;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link PartialFetchHandler}.
+ */
+public class PartialFetchHandlerTest
+    extends TestSupport
+{
+  private static final String ETAG = "\"{SHA1{87acec17cd9dcd20a716cc2cf67417b71c8a7016}}\"";
+
+  private static final String LAST_MODIFIED = "Tue, 15 Nov 1994 08:12:31 GMT";
+
+  @Mock
+  private Context context;
+
+  @Mock
+  private Request request;
+
+  private Headers requestHeaders;
+
+  private PartialFetchHandler underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    requestHeaders = new Headers();
+    when(context.getRequest()).thenReturn(request);
+    when(request.getAction()).thenReturn("GET");
+    when(request.getHeaders()).thenReturn(requestHeaders);
+    underTest = new PartialFetchHandler();
+  }
+
+  @Test
+  public void singleRange() throws Exception {
+    final Response response = proceedWith(ok(new BytesPayload(content(), "text/plain")));
+    requestHeaders.set("Range", "bytes=2-4");
+
+    final Response result = underTest.handle(context);
+
+    assertThat(result.getStatus().getCode(), is(206));
+    assertThat(result.getHeaders().get("Content-Range"), is("bytes 2-4/10"));
+    assertThat(result.getHeaders().get("ETag"), is(ETAG));
+    assertThat(result.getHeaders().get("Accept-Ranges"), is("bytes"));
+    assertThat(read(result), is("234"));
+    assertThat(response.getHeaders().get("Accept-Ranges"), is("bytes"));
+  }
+
+  @Test
+  public void multipleRanges() throws Exception {
+    proceedWith(ok(new BytesPayload(content(), "text/plain")));
+    requestHeaders.set("Range", "bytes=0-1,5-6");
+
+    final Response result = underTest.handle(context);
+
+    assertThat(result.getStatus().getCode(), is(206));
+    assertThat(result.getHeaders().contains("Content-Range"), is(false));
+    final Payload payload = ((PayloadResponse) result).getPayload();
+    assertThat(payload, instanceOf(PartialPayload.class));
+    assertThat(payload.getContentType(), startsWith("multipart/byteranges; boundary="));
+    final String body = read(result);
+    assertThat(body, containsString("Content-Range: bytes 0-1/10\r\n\r\n01\r\n"));
+    assertThat(body, containsString("Content-Range: bytes 5-6/10\r\n\r\n56\r\n"));
+    assertThat((long) body.length(), is(payload.getSize()));
+  }
+
+  @Test
+  public void ifRangeWithMatchingETag() throws Exception {
+    proceedWith(ok(new BytesPayload(content(), "text/plain")));
+    requestHeaders.set("Range", "bytes=2-4");
+    requestHeaders.set("If-Range", ETAG);
+
+    final Response result = underTest.handle(context);
+
+    assertThat(result.getStatus().getCode(), is(206));
+    assertThat(read(result), is("234"));
+  }
+
+  @Test
+  public void ifRangeWithStaleETag() throws Exception {
+    final Response response = proceedWith(ok(new BytesPayload(content(), "text/plain")));
+    requestHeaders.set("Range", "bytes=2-4");
+    requestHeaders.set("If-Range", "\"{SHA1{0000000000000000000000000000000000000000}}\"");
+
+    final Response result = underTest.handle(context);
+
+    assertThat(result, sameInstance(response));
+    assertThat(read(result), is("0123456789"));
+  }
+
+  @Test
+  public void ifRangeWithWeakETag() throws Exception {
+    final Response response = proceedWith(ok(new BytesPayload(content(), "text/plain")));
+    requestHeaders.set("Range", "bytes=2-4");
+    requestHeaders.set("If-Range", "W/" + ETAG);
+
+    assertThat(underTest.handle(context), sameInstance(response));
+  }
+
+  @Test
+  public void ifRangeWithLastModified() throws Exception {
+    final Response response = proceedWith(ok(new BytesPayload(content(), "text/plain")));
+    requestHeaders.set("Range", "bytes=2-4");
+
+    requestHeaders.set("If-Range", LAST_MODIFIED);
+    assertThat(underTest.handle(context).getStatus().getCode(), is(206));
+
+    requestHeaders.set("If-Range", "Wed, 16 Nov 1994 08:12:31 GMT");
+    assertThat(underTest.handle(context), sameInstance(response));
+  }
+
+  @Test
+  public void unsatisfiableRange() throws Exception {
+    proceedWith(ok(new BytesPayload(content(), "text/plain")));
+    requestHeaders.set("Range", "bytes=20-30");
+
+    final Response result = underTest.handle(context);
+
+    assertThat(result.getStatus().getCode(), is(416));
+    assertThat(result.getStatus().isSuccessful(), is(false));
+    assertThat(result.getHeaders().get("Content-Range"), is("bytes */10"));
+  }
+
+  @Test
+  public void malformedRangeSendsCompleteContent() throws Exception {
+    final Response response = proceedWith(ok(new BytesPayload(content(), "text/plain")));
+    requestHeaders.set("Range", "bytes=4-2");
+
+    assertThat(underTest.handle(context), sameInstance(response));
+  }
+
+  @Test
+  public void remoteFetchOfUnknownSizeSendsCompleteContent() throws Exception {
+    // content streamed from remote without known length cannot be served partially
+    final Response response = proceedWith(ok(new StreamPayload(new ByteArrayInputStream(content()),
+        Payload.UNKNOWN_SIZE, "text/plain")));
+    requestHeaders.set("Range", "bytes=2-4");
+
+    final Response result = underTest.handle(context);
+
+    assertThat(result, sameInstance(response));
+    assertThat(result.getHeaders().contains("Accept-Ranges"), is(false));
+    assertThat(read(result), is("0123456789"));
+  }
+
+  @Test
+  public void failedRemoteFetchPassedThrough() throws Exception {
+    final Response response = proceedWith(new Response(Status.failure(404)));
+    requestHeaders.set("Range", "bytes=2-4");
+
+    assertThat(underTest.handle(context), sameInstance(response));
+  }
+
+  @Test
+  public void nonGetPassedThrough() throws Exception {
+    final Response response = proceedWith(ok(new BytesPayload(content(), "text/plain")));
+    when(request.getAction()).thenReturn("HEAD");
+    requestHeaders.set("Range", "bytes=2-4");
+
+    assertThat(underTest.handle(context), sameInstance(response));
+  }
+
+  private Response proceedWith(final Response response) throws Exception {
+    when(context.proceed()).thenReturn(response);
+    return response;
+  }
+
+  private static Response ok(final Payload payload) {
+    final Response response = new PayloadResponse(Status.success(200), payload);
+    response.getHeaders().set("ETag", ETAG);
+    response.getHeaders().set("Last-Modified", LAST_MODIFIED);
+    return response;
+  }
+
+  private static byte[] content() {
+    return "0123456789".getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static String read(final Response response) throws Exception {
+    try (InputStream in = ((PayloadResponse) response).getPayload().openInputStream()) {
+      return new String(ByteStreams.toByteArray(in), StandardCharsets.US_ASCII);
+    }
+  }
+}
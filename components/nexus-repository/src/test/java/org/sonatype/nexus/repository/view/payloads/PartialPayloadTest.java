@@ -0,0 +1,110 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view.payloads;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link PartialPayload}.
+ */
+public class PartialPayloadTest
+    extends TestSupport
+{
+  private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+  private final Payload payload = new BytesPayload(CONTENT, "text/plain");
+
+  @Test
+  public void singleRange() throws Exception {
+    final PartialPayload underTest = new PartialPayload(payload, ranges(Range.closed(2L, 4L)));
+
+    assertThat(underTest.isMultipart(), is(false));
+    assertThat(underTest.getSize(), is(3L));
+    assertThat(underTest.getContentType(), is("text/plain"));
+    assertThat(underTest.getContentRange(), is("bytes 2-4/10"));
+    assertThat(read(underTest), is("234"));
+    assertThat(copy(underTest), is("234"));
+  }
+
+  @Test
+  public void multipleRanges() throws Exception {
+    final PartialPayload underTest = new PartialPayload(payload, ranges(Range.closed(0L, 1L), Range.closed(5L, 6L)));
+
+    assertThat(underTest.isMultipart(), is(true));
+    assertThat(underTest.getContentRange(), nullValue());
+    assertThat(underTest.getContentType(), startsWith("multipart/byteranges; boundary="));
+
+    final String boundary = underTest.getContentType().substring("multipart/byteranges; boundary=".length());
+    final String expected = "--" + boundary + "\r\n" +
+        "Content-Type: text/plain\r\n" +
+        "Content-Range: bytes 0-1/10\r\n" +
+        "\r\n" +
+        "01\r\n" +
+        "--" + boundary + "\r\n" +
+        "Content-Type: text/plain\r\n" +
+        "Content-Range: bytes 5-6/10\r\n" +
+        "\r\n" +
+        "56\r\n" +
+        "--" + boundary + "--\r\n";
+    assertThat(read(underTest), equalTo(expected));
+    assertThat(copy(underTest), equalTo(expected));
+    assertThat(underTest.getSize(), is((long) expected.length()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownSizeRejected() {
+    new PartialPayload(new StreamPayload(new ByteArrayInputStream(CONTENT), Payload.UNKNOWN_SIZE, null),
+        ranges(Range.closed(0L, 1L)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void noRangesRejected() {
+    new PartialPayload(payload, ImmutableList.<Range<Long>>of());
+  }
+
+  @SafeVarargs
+  private static List<Range<Long>> ranges(final Range<Long>... ranges) {
+    return ImmutableList.copyOf(ranges);
+  }
+
+  private static String read(final PartialPayload payload) throws Exception {
+    try (InputStream in = payload.openInputStream()) {
+      return new String(ByteStreams.toByteArray(in), StandardCharsets.US_ASCII);
+    }
+  }
+
+  private static String copy(final PartialPayload payload) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final long count = payload.copyTo(out, 4);
+    assertThat(count, is((long) out.size()));
+    return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+  }
+}
@@ -23,7 +23,7 @@ public class CancelableSupport
 {
   public static class CancelableFlagHolder
   {
-    private boolean canceled = false;
+    private volatile boolean canceled = false;
 
     public void cancel() {
       canceled = true;
@@ -0,0 +1,58 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.scheduling;
+
+/**
+ * Support for per-thread reporting of task progress. Components outside the tasks report progress of long running
+ * work by calling {@link #report(String)}, which updates the message of the task run by the current thread, if any.
+ * Components that hand work over to other threads should propagate the current listener, like they propagate the
+ * {@link CancelableSupport} flag.
+ *
+ * @since 3.0
+ */
+public class ProgressSupport
+{
+  public interface ProgressListener
+  {
+    void progress(String message);
+  }
+
+  private ProgressSupport() {
+    // no instances of this please
+  }
+
+  private static final ThreadLocal<ProgressListener> CURRENT_PROGRESS_LISTENER = new ThreadLocal<>();
+
+  public static void setCurrent(ProgressListener listener) {
+    if (listener == null) {
+      CURRENT_PROGRESS_LISTENER.remove();
+    }
+    else {
+      CURRENT_PROGRESS_LISTENER.set(listener);
+    }
+  }
+
+  public static ProgressListener getCurrent() {
+    return CURRENT_PROGRESS_LISTENER.get();
+  }
+
+  /**
+   * Reports progress to the listener of current thread. Does nothing if there is no listener.
+   */
+  public static void report(String message) {
+    final ProgressListener current = getCurrent();
+    if (current != null) {
+      current.progress(message);
+    }
+  }
+}
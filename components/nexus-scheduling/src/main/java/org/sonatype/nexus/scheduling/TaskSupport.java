@@ -15,6 +15,7 @@ package org.sonatype.nexus.scheduling;
 import java.util.List;
 
 import org.sonatype.nexus.scheduling.CancelableSupport.CancelableFlagHolder;
+import org.sonatype.nexus.scheduling.ProgressSupport.ProgressListener;
 import org.sonatype.nexus.scheduling.TaskInfo.State;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
@@ -41,9 +42,18 @@ public abstract class TaskSupport<T>
 
   private final CancelableFlagHolder cancelableFlagHolder;
 
+  private final ProgressListener progressListener;
+
   public TaskSupport() {
     this.configuration = createTaskConfiguration();
     this.cancelableFlagHolder = new CancelableFlagHolder();
+    this.progressListener = new ProgressListener()
+    {
+      @Override
+      public synchronized void progress(final String message) {
+        configuration.setMessage(message);
+      }
+    };
   }
 
   protected TaskConfiguration createTaskConfiguration() {
@@ -99,10 +109,15 @@ public abstract class TaskSupport<T>
   public final T call() throws Exception {
     MDC.put(TaskSupport.class.getSimpleName(), getClass().getSimpleName());
     CancelableSupport.setCurrent(cancelableFlagHolder);
+    // progress reported while running replaces the message, until the run is over
+    final String message = configuration.getMessage();
+    ProgressSupport.setCurrent(progressListener);
     try {
       return execute();
     }
     finally {
+      ProgressSupport.setCurrent(null);
+      configuration.setMessage(message);
       CancelableSupport.setCurrent(null);
       MDC.remove(TaskSupport.class.getSimpleName());
     }
@@ -13,14 +13,13 @@
 package org.sonatype.nexus.content.internal;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -29,6 +28,7 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.sonatype.nexus.common.io.ByteRanges;
 import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.configuration.application.NexusConfiguration;
 import org.sonatype.nexus.proxy.AccessDeniedException;
@@ -68,7 +68,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.io.ByteStreams.limit;
 import static javax.servlet.http.HttpServletResponse.*;
 
 /**
@@ -499,38 +498,42 @@ public class ContentServlet
       response.setStatus(SC_NOT_MODIFIED);
     }
     else {
-      final List<Range<Long>> ranges = getRequestedRanges(request, file.getLength());
+      // ranges are honored only if If-Range (if present) validates, otherwise complete content is sent
+      final List<Range<Long>> ranges =
+          isIfRangeMatching(request, file, etag) ? getRequestedRanges(request, file.getLength()) : null;
 
       // pour the content, but only if needed (this method will be called even for HEAD reqs, but with content tossed
       // away), so be conservative as getting input stream involves locking etc, is expensive
       final boolean contentNeeded = "GET".equalsIgnoreCase(request.getMethod());
-      if (ranges.isEmpty()) {
+      if (ranges == null) {
         if (contentNeeded) {
           webUtils.sendContent(file.getInputStream(), response);
         }
       }
-      else if (ranges.size() > 1) {
-        throw new ErrorStatusException(SC_NOT_IMPLEMENTED, "Not Implemented",
-            "Multiple ranges not yet supported.");
+      else if (ranges.isEmpty()) {
+        response.setStatus(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        response.setHeader("Content-Length", "0");
+        response.setHeader("Content-Range", ByteRanges.unsatisfiedContentRange(file.getLength()));
       }
-      else {
+      else if (ranges.size() == 1) {
         final Range<Long> range = ranges.get(0);
-        if (!isRequestedRangeSatisfiable(file, range)) {
-          response.setStatus(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
-          response.setHeader("Content-Length", "0");
-          response.setHeader("Content-Range", "bytes */" + file.getLength());
-          return;
-        }
-        final long bodySize = 1 + range.upperEndpoint() - range.lowerEndpoint();
+        final long bodySize = ByteRanges.size(range);
         response.setStatus(SC_PARTIAL_CONTENT);
         response.setHeader("Content-Length", String.valueOf(bodySize));
-        response.setHeader("Content-Range",
-            range.lowerEndpoint() + "-" + range.upperEndpoint() + "/" + file.getLength());
+        response.setHeader("Content-Range", ByteRanges.contentRange(range, file.getLength()));
         if (contentNeeded) {
-          try (final InputStream in = file.getInputStream()) {
-            in.skip(range.lowerEndpoint());
-            webUtils.sendContent(limit(in, bodySize), response);
-          }
+          webUtils.sendContent(file.getInputStream(), range.lowerEndpoint(), bodySize, response);
+        }
+      }
+      else {
+        final String boundary = ByteRanges.newBoundary();
+        response.setStatus(SC_PARTIAL_CONTENT);
+        response.setHeader("Content-Type", ByteRanges.multipartContentType(boundary));
+        response.setHeader("Content-Length", String.valueOf(
+            ByteRanges.multipartLength(ranges, file.getLength(), file.getMimeType(), boundary)));
+        if (contentNeeded) {
+          webUtils.sendMultipartContent(file.getInputStream(), ranges, file.getLength(), file.getMimeType(), boundary,
+              response);
         }
       }
     }
@@ -618,58 +621,40 @@ public class ContentServlet
   // ==
 
   /**
-   * Parses the "Range" header of the HTTP request and builds up a list of {@link Range}. If no range header found, or
-   * any problem occurred during parsing it (ie. is malformed), empty collection is returned.
-   *
-   * @return list of {@link Range}, never {@code null}.
+   * Parses the "Range" header as specified in RFC 7233, see {@link ByteRanges#parse(String, long)}. Returns
+   * {@code null} if header is to be ignored and complete content sent, an empty list if requested ranges are not
+   * satisfiable, or the ranges to be sent.
    */
+  @Nullable
   protected List<Range<Long>> getRequestedRanges(final HttpServletRequest request, final long contentLength) {
-    // TODO: Current limitation: only one Range of bytes supported in forms of "-X", "X-Y" (where X<Y) and "X-".
     final String rangeHeader = request.getHeader("Range");
-    if (!Strings.isNullOrEmpty(rangeHeader)) {
-      try {
-        if (rangeHeader.startsWith("bytes=") && rangeHeader.length() > 6 && !rangeHeader.contains(",")) {
-          // Range: bytes=500-999 (from 500th byte to 999th)
-          // Range: bytes=500- (from 500th byte to the end)
-          // Range: bytes=-999 (from 0th byte to the 999th byte, not by RFC but widely supported)
-          final String rangeValue = rangeHeader.substring(6, rangeHeader.length());
-          if (rangeValue.startsWith("-")) {
-            return Collections.singletonList(Range.closed(0L, Long.parseLong(rangeValue.substring(1))));
-          }
-          else if (rangeValue.endsWith("-")) {
-            return Collections.singletonList(Range.closed(
-                Long.parseLong(rangeValue.substring(0, rangeValue.length() - 1)), contentLength - 1));
-          }
-          else if (rangeValue.contains("-")) {
-            final String[] parts = rangeValue.split("-");
-            return Collections.singletonList(Range.closed(Long.parseLong(parts[0]), Long.parseLong(parts[1])));
-          }
-          else {
-            logger.info("Malformed HTTP Range value: {}, ignoring it", rangeHeader);
-          }
-        }
-        else {
-          logger.info(
-              "Nexus does not support non-byte or multiple HTTP Ranges, sending complete content: Range value {}",
-              rangeHeader);
-        }
-      }
-      catch (Exception e) {
-        if (logger.isDebugEnabled()) {
-          logger.info("Problem parsing Range value: {}, ignoring it", rangeHeader, e);
-        }
-        else {
-          logger.info("Problem parsing Range value: {}, ignoring it", rangeHeader);
-        }
-      }
+    final List<Range<Long>> result = ByteRanges.parse(rangeHeader, contentLength);
+    if (result == null && !Strings.isNullOrEmpty(rangeHeader)) {
+      logger.info("Unsupported or malformed HTTP Range value: {}, sending complete content", rangeHeader);
     }
-    return Collections.emptyList();
+    return result;
   }
 
   /**
-   * Returns {@code true} if the {@link Range} is applicable to file (file full closed range encloses passed in range).
+   * Returns {@code true} if request has no "If-Range" header, or its validator matches the file: the (strong) ETag
+   * or exact last modified date of non-generated content.
    */
-  protected boolean isRequestedRangeSatisfiable(final StorageFileItem file, final Range<Long> range) {
-    return Range.closed(0L, file.getLength() - 1).encloses(range);
+  protected boolean isIfRangeMatching(final HttpServletRequest request,
+                                      final StorageFileItem file,
+                                      @Nullable final String etag)
+  {
+    final String ifRange = request.getHeader("If-Range");
+    if (Strings.isNullOrEmpty(ifRange)) {
+      return true;
+    }
+    if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+      return etag != null && ifRange.equals("\"" + etag + "\"");
+    }
+    try {
+      return !file.isContentGenerated() && request.getDateHeader("If-Range") == file.getModified() / 1000 * 1000;
+    }
+    catch (IllegalArgumentException e) {
+      return false;
+    }
   }
 }
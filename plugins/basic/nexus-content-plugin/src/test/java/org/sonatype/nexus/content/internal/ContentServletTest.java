@@ -0,0 +1,293 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.content.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.sonatype.nexus.configuration.application.NexusConfiguration;
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.attributes.Attributes;
+import org.sonatype.nexus.proxy.item.ContentLocator;
+import org.sonatype.nexus.proxy.item.StorageFileItem;
+import org.sonatype.nexus.proxy.router.RepositoryRouter;
+import org.sonatype.nexus.web.WebUtils;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.Maps;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for range requests served by {@link ContentServlet}.
+ */
+public class ContentServletTest
+    extends TestSupport
+{
+  private static final String SHA1 = "87acec17cd9dcd20a716cc2cf67417b71c8a7016";
+
+  private static final String ETAG = "\"{SHA1{" + SHA1 + "}}\"";
+
+  private static final long MODIFIED = 784887151000L;
+
+  @Mock
+  private HttpServletRequest request;
+
+  @Mock
+  private HttpServletResponse response;
+
+  @Mock
+  private StorageFileItem file;
+
+  @Mock
+  private Attributes attributes;
+
+  private final Map<String, String> headers = Maps.newHashMap();
+
+  private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+  private Integer status;
+
+  private ContentServlet underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    when(request.getMethod()).thenReturn("GET");
+    when(request.getDateHeader(anyString())).thenReturn(-1L);
+
+    when(response.getBufferSize()).thenReturn(8192);
+    when(response.getOutputStream()).thenReturn(new CapturingServletOutputStream(body));
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(final InvocationOnMock invocation) {
+        headers.put((String) invocation.getArguments()[0], (String) invocation.getArguments()[1]);
+        return null;
+      }
+    }).when(response).setHeader(anyString(), anyString());
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(final InvocationOnMock invocation) {
+        headers.put((String) invocation.getArguments()[0], String.valueOf(invocation.getArguments()[1]));
+        return null;
+      }
+    }).when(response).setDateHeader(anyString(), anyLong());
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(final InvocationOnMock invocation) {
+        status = (Integer) invocation.getArguments()[0];
+        return null;
+      }
+    }).when(response).setStatus(anyInt());
+
+    when(attributes.containsKey(StorageFileItem.DIGEST_SHA1_KEY)).thenReturn(true);
+    when(attributes.get(StorageFileItem.DIGEST_SHA1_KEY)).thenReturn(SHA1);
+    when(file.getRepositoryItemAttributes()).thenReturn(attributes);
+    when(file.getResourceStoreRequest()).thenReturn(new ResourceStoreRequest("/file.txt"));
+    when(file.getMimeType()).thenReturn("text/plain");
+    when(file.getModified()).thenReturn(MODIFIED);
+    when(file.getLength()).thenReturn(10L);
+    when(file.getInputStream()).thenAnswer(new Answer<ByteArrayInputStream>()
+    {
+      @Override
+      public ByteArrayInputStream answer(final InvocationOnMock invocation) {
+        return new ByteArrayInputStream("0123456789".getBytes(StandardCharsets.US_ASCII));
+      }
+    });
+
+    underTest = new ContentServlet(mock(NexusConfiguration.class), mock(RepositoryRouter.class),
+        mock(ContentRenderer.class), new WebUtils());
+  }
+
+  @Test
+  public void singleRange() throws Exception {
+    when(request.getHeader("Range")).thenReturn("bytes=2-4");
+
+    underTest.doGetFile(request, response, file);
+
+    assertThat(status, is(206));
+    assertThat(headers.get("Content-Range"), is("bytes 2-4/10"));
+    assertThat(headers.get("Content-Length"), is("3"));
+    assertThat(body(), is("234"));
+  }
+
+  @Test
+  public void multipleRanges() throws Exception {
+    when(request.getHeader("Range")).thenReturn("bytes=0-1,5-6");
+
+    underTest.doGetFile(request, response, file);
+
+    assertThat(status, is(206));
+    assertThat(headers.get("Content-Range"), nullValue());
+    assertThat(headers.get("Content-Type"), startsWith("multipart/byteranges; boundary="));
+    final String boundary = headers.get("Content-Type").substring("multipart/byteranges; boundary=".length());
+    final String expected = "--" + boundary + "\r\n" +
+        "Content-Type: text/plain\r\n" +
+        "Content-Range: bytes 0-1/10\r\n" +
+        "\r\n" +
+        "01\r\n" +
+        "--" + boundary + "\r\n" +
+        "Content-Type: text/plain\r\n" +
+        "Content-Range: bytes 5-6/10\r\n" +
+        "\r\n" +
+        "56\r\n" +
+        "--" + boundary + "--\r\n";
+    assertThat(body(), is(expected));
+    assertThat(headers.get("Content-Length"), is(String.valueOf(expected.length())));
+  }
+
+  @Test
+  public void overlappingRangesAreCoalesced() throws Exception {
+    when(request.getHeader("Range")).thenReturn("bytes=5-6,0-2,2-3");
+
+    underTest.doGetFile(request, response, file);
+
+    assertThat(status, is(206));
+    assertThat(body(), containsString("Content-Range: bytes 0-3/10\r\n\r\n0123\r\n"));
+    assertThat(body(), containsString("Content-Range: bytes 5-6/10\r\n\r\n56\r\n"));
+  }
+
+  @Test
+  public void ifRangeWithMatchingETag() throws Exception {
+    when(request.getHeader("Range")).thenReturn("bytes=2-4");
+    when(request.getHeader("If-Range")).thenReturn(ETAG);
+
+    underTest.doGetFile(request, response, file);
+
+    assertThat(status, is(206));
+    assertThat(headers.get("ETag"), is(ETAG));
+    assertThat(body(), is("234"));
+  }
+
+  @Test
+  public void ifRangeWithStaleETag() throws Exception {
+    when(request.getHeader("Range")).thenReturn("bytes=2-4");
+    when(request.getHeader("If-Range")).thenReturn("\"{SHA1{0000000000000000000000000000000000000000}}\"");
+
+    underTest.doGetFile(request, response, file);
+
+    assertThat(status, nullValue());
+    assertThat(headers.get("Content-Range"), nullValue());
+    assertThat(headers.get("Content-Length"), is("10"));
+    assertThat(body(), is("0123456789"));
+  }
+
+  @Test
+  public void ifRangeWithLastModified() throws Exception {
+    when(request.getHeader("Range")).thenReturn("bytes=2-4");
+    when(request.getHeader("If-Range")).thenReturn("Tue, 15 Nov 1994 08:12:31 GMT");
+    when(request.getDateHeader("If-Range")).thenReturn(MODIFIED);
+
+    underTest.doGetFile(request, response, file);
+
+    assertThat(status, is(206));
+    assertThat(body(), is("234"));
+  }
+
+  @Test
+  public void ifRangeWithStaleLastModified() throws Exception {
+    when(request.getHeader("Range")).thenReturn("bytes=2-4");
+    when(request.getHeader("If-Range")).thenReturn("Mon, 14 Nov 1994 08:12:31 GMT");
+    when(request.getDateHeader("If-Range")).thenReturn(MODIFIED - 86400000L);
+
+    underTest.doGetFile(request, response, file);
+
+    assertThat(status, nullValue());
+    assertThat(body(), is("0123456789"));
+  }
+
+  @Test
+  public void unsatisfiableRange() throws Exception {
+    when(request.getHeader("Range")).thenReturn("bytes=20-30");
+
+    underTest.doGetFile(request, response, file);
+
+    assertThat(status, is(416));
+    assertThat(headers.get("Content-Range"), is("bytes */10"));
+    assertThat(headers.get("Content-Length"), is("0"));
+    assertThat(body(), is(""));
+  }
+
+  @Test
+  public void remoteFetchOfUnknownLengthSendsCompleteContent() throws Exception {
+    // content being fetched from remote, whose length is not known yet, cannot be served partially
+    when(file.getLength()).thenReturn(ContentLocator.UNKNOWN_LENGTH);
+    when(request.getHeader("Range")).thenReturn("bytes=2-4");
+
+    underTest.doGetFile(request, response, file);
+
+    assertThat(status, nullValue());
+    assertThat(headers.get("Content-Range"), nullValue());
+    assertThat(headers.get("Content-Length"), nullValue());
+    assertThat(body(), is("0123456789"));
+  }
+
+  private String body() {
+    return new String(body.toByteArray(), StandardCharsets.US_ASCII);
+  }
+
+  private static class CapturingServletOutputStream
+      extends ServletOutputStream
+  {
+    private final ByteArrayOutputStream out;
+
+    private CapturingServletOutputStream(final ByteArrayOutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      out.write(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setWriteListener(final WriteListener writeListener) {
+      // blocking
+    }
+  }
+}
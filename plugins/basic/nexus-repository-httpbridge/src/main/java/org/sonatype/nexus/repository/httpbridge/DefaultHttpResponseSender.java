@@ -22,14 +22,15 @@ import javax.inject.Singleton;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletResponse;
 
+import org.sonatype.nexus.common.io.ChannelSupport;
+import org.sonatype.nexus.common.io.StreamSupport;
 import org.sonatype.nexus.repository.view.Payload;
 import org.sonatype.nexus.repository.view.PayloadResponse;
 import org.sonatype.nexus.repository.view.Response;
 import org.sonatype.nexus.repository.view.Status;
+import org.sonatype.nexus.repository.view.payloads.PartialPayload;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
-import com.google.common.io.ByteStreams;
-
 /**
  * Default {@link HttpResponseSender}.
  *
@@ -50,26 +51,37 @@ public class DefaultHttpResponseSender
       httpResponse.addHeader(header.getKey(), header.getValue());
     }
 
+    // Set or send status before the payload commits the response
+    Status status = response.getStatus();
+    if (status.isSuccessful() || response instanceof PayloadResponse) {
+      httpResponse.setStatus(status.getCode(), status.getMessage());
+    }
+    else {
+      httpResponse.sendError(status.getCode(), status.getMessage());
+      return;
+    }
+
     // write payload details if we have one
     if (response instanceof PayloadResponse) {
       Payload payload = ((PayloadResponse)response).getPayload();
       if (payload.getContentType() != null) {
         httpResponse.setContentType(payload.getContentType());
       }
-      httpResponse.setContentLength((int) payload.getSize()); // HACK: Upgrade to servlet 3.1 to use proper long values
-
-      try (InputStream input = payload.openInputStream(); OutputStream output = httpResponse.getOutputStream()) {
-        ByteStreams.copy(input, output);
+      if (payload.getSize() != Payload.UNKNOWN_SIZE) {
+        httpResponse.setContentLengthLong(payload.getSize());
       }
-    }
 
-    // Set or send status
-    Status status = response.getStatus();
-    if (status.isSuccessful()) {
-      httpResponse.setStatus(status.getCode(), status.getMessage());
-    }
-    else {
-      httpResponse.sendError(status.getCode(), status.getMessage());
+      // file backed payloads are handed to the container without copying through heap buffers
+      if (payload instanceof PartialPayload) {
+        try (OutputStream output = httpResponse.getOutputStream()) {
+          ((PartialPayload) payload).copyTo(output, StreamSupport.BUFFER_SIZE);
+        }
+      }
+      else {
+        try (InputStream input = payload.openInputStream(); OutputStream output = httpResponse.getOutputStream()) {
+          ChannelSupport.copyRange(input, 0, -1, output, StreamSupport.BUFFER_SIZE);
+        }
+      }
     }
   }
 }
@@ -0,0 +1,150 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.httpbridge;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+import org.sonatype.nexus.repository.view.PayloadResponse;
+import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.repository.view.Status;
+import org.sonatype.nexus.repository.view.payloads.BytesPayload;
+import org.sonatype.nexus.repository.view.payloads.PartialPayload;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.Range;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link DefaultHttpResponseSender}.
+ */
+public class DefaultHttpResponseSenderTest
+    extends TestSupport
+{
+  @Mock
+  private HttpServletResponse httpResponse;
+
+  private ByteArrayOutputStream body;
+
+  private DefaultHttpResponseSender underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    body = new ByteArrayOutputStream();
+    when(httpResponse.getOutputStream()).thenReturn(new CapturingServletOutputStream(body));
+    underTest = new DefaultHttpResponseSender();
+  }
+
+  @Test
+  public void partialContentStatusIsSetBeforePayload() throws Exception {
+    final PartialPayload payload = new PartialPayload(new BytesPayload(content(), "text/plain"),
+        Arrays.asList(Range.closed(2L, 4L)));
+    final Response response = new PayloadResponse(Status.success(206), payload);
+    response.getHeaders().set("Content-Range", payload.getContentRange());
+    response.getHeaders().set("Accept-Ranges", "bytes");
+
+    underTest.send(response, httpResponse);
+
+    final InOrder order = inOrder(httpResponse);
+    order.verify(httpResponse).addHeader("Content-Range", "bytes 2-4/10");
+    order.verify(httpResponse).setStatus(206, null);
+    order.verify(httpResponse).setContentLengthLong(3L);
+    order.verify(httpResponse).getOutputStream();
+    verify(httpResponse).addHeader("Accept-Ranges", "bytes");
+    verify(httpResponse).setContentType("text/plain");
+    assertThat(body(), is("234"));
+  }
+
+  @Test
+  public void multipartStatusIsSetBeforePayload() throws Exception {
+    final PartialPayload payload = new PartialPayload(new BytesPayload(content(), "text/plain"),
+        Arrays.asList(Range.closed(0L, 1L), Range.closed(5L, 6L)));
+
+    underTest.send(new PayloadResponse(Status.success(206), payload), httpResponse);
+
+    final InOrder order = inOrder(httpResponse);
+    order.verify(httpResponse).setStatus(206, null);
+    order.verify(httpResponse).setContentType(payload.getContentType());
+    order.verify(httpResponse).setContentLengthLong(payload.getSize());
+    order.verify(httpResponse).getOutputStream();
+    assertThat(body(), containsString("Content-Range: bytes 5-6/10\r\n\r\n56\r\n"));
+  }
+
+  @Test
+  public void failureWithoutPayloadIsSentAsError() throws Exception {
+    final Response response = new Response(Status.failure(416));
+    response.getHeaders().set("Content-Range", "bytes */10");
+
+    underTest.send(response, httpResponse);
+
+    final InOrder order = inOrder(httpResponse);
+    order.verify(httpResponse).addHeader("Content-Range", "bytes */10");
+    order.verify(httpResponse).sendError(416, null);
+    verify(httpResponse, never()).getOutputStream();
+  }
+
+  private static byte[] content() {
+    return "0123456789".getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private String body() {
+    return new String(body.toByteArray(), StandardCharsets.US_ASCII);
+  }
+
+  private static class CapturingServletOutputStream
+      extends ServletOutputStream
+  {
+    private final ByteArrayOutputStream out;
+
+    private CapturingServletOutputStream(final ByteArrayOutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      out.write(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setWriteListener(final WriteListener writeListener) {
+      // blocking
+    }
+  }
+}
@@ -27,6 +27,7 @@ import org.sonatype.nexus.repository.view.ConfigurableViewFacet;
 import org.sonatype.nexus.repository.view.Route;
 import org.sonatype.nexus.repository.view.Router;
 import org.sonatype.nexus.repository.view.ViewFacet;
+import org.sonatype.nexus.repository.view.handlers.PartialFetchHandler;
 import org.sonatype.nexus.repository.view.handlers.TimingHandler;
 import org.sonatype.nexus.repository.view.matchers.token.TokenMatcher;
 
@@ -47,6 +48,8 @@ public class RawHostedRecipe
 
   private final TimingHandler timingHandler;
 
+  private final PartialFetchHandler partialFetchHandler;
+
   private final RawStorageHandler rawStorageHandler;
 
   @Inject
@@ -54,12 +57,14 @@ public class RawHostedRecipe
                          final Provider<ConfigurableViewFacet> viewFacet,
                          final Provider<InMemoryRawStorageFacet> rawStorageFacet,
                          final TimingHandler timingHandler,
+                         final PartialFetchHandler partialFetchHandler,
                          final RawStorageHandler rawStorageHandler)
   {
     super(type, format);
     this.viewFacet = checkNotNull(viewFacet);
     this.rawStorageFacet = checkNotNull(rawStorageFacet);
     this.timingHandler = checkNotNull(timingHandler);
+    this.partialFetchHandler = checkNotNull(partialFetchHandler);
     this.rawStorageHandler = checkNotNull(rawStorageHandler);
   }
 
@@ -78,6 +83,7 @@ public class RawHostedRecipe
     builder.route(new Route.Builder()
         .matcher(new TokenMatcher("/{name:.+}"))
         .handler(timingHandler)
+        .handler(partialFetchHandler)
         .handler(rawStorageHandler)
         .create());
 
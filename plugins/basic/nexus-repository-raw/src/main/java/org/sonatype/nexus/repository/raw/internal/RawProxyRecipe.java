@@ -27,6 +27,7 @@ import org.sonatype.nexus.repository.view.ConfigurableViewFacet;
 import org.sonatype.nexus.repository.view.Route.Builder;
 import org.sonatype.nexus.repository.view.Router;
 import org.sonatype.nexus.repository.view.ViewFacet;
+import org.sonatype.nexus.repository.view.handlers.PartialFetchHandler;
 import org.sonatype.nexus.repository.view.handlers.TimingHandler;
 import org.sonatype.nexus.repository.view.matchers.AlwaysMatcher;
 
@@ -47,6 +48,8 @@ public class RawProxyRecipe
 
   private final TimingHandler timingHandler;
 
+  private final PartialFetchHandler partialFetchHandler;
+
   private final Provider<ConfigurableViewFacet> viewFacet;
 
   private final Provider<HttpClientFacet> httpClient;
@@ -54,13 +57,14 @@ public class RawProxyRecipe
   @Inject
   public RawProxyRecipe(final @Named("proxy") Type type,
                         final @Named("raw") Format format, final RawRemoteFetchHandler rawRemoteFetchHandler,
-                        final TimingHandler timingHandler,
+                        final TimingHandler timingHandler, final PartialFetchHandler partialFetchHandler,
                         final Provider<ConfigurableViewFacet> viewFacet, final Provider<HttpClientFacet> httpClient)
   {
     super(type, format);
 
     this.rawRemoteFetchHandler = checkNotNull(rawRemoteFetchHandler);
     this.timingHandler = checkNotNull(timingHandler);
+    this.partialFetchHandler = checkNotNull(partialFetchHandler);
     this.viewFacet = checkNotNull(viewFacet);
     this.httpClient = checkNotNull(httpClient);
   }
@@ -82,6 +86,7 @@ public class RawProxyRecipe
     final Builder proxyRoute = new Builder();
     proxyRoute.matcher(new AlwaysMatcher());
     proxyRoute.handler(timingHandler);
+    proxyRoute.handler(partialFetchHandler);
     // TODO: Do we have the content cached already? Is the cache up to date?
     // Find the content remotely, or return 404
     proxyRoute.handler(rawRemoteFetchHandler).handler(notFound());
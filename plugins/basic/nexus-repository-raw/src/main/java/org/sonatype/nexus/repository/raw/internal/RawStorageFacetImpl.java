@@ -56,7 +56,7 @@ public class RawStorageFacetImpl
     {
       @Override
       public Object execute(final GraphTx graph, final StorageFacet storage) {
-        final Vertex asset = storage.findAssetWithProperty(graph, P_PATH, path);
+        final Vertex asset = storage.findAssetWithPath(graph, path);
         if (asset == null) {
           return null;
         }
@@ -74,12 +74,21 @@ public class RawStorageFacetImpl
   @Nullable
   @Override
   public void put(final String path, final RawContent content) throws IOException {
-    inTx(new GraphOperation()
+    final String oldBlobRef = (String) inTx(new GraphOperation()
     {
       @Override
       public Object execute(final GraphTx graph, final StorageFacet storage) throws IOException {
 
-        final Vertex asset = storage.createAsset(graph);
+        Vertex asset = storage.findAssetWithPath(graph, path);
+        final String oldBlobRef;
+        if (asset == null) {
+          asset = storage.createAsset(graph);
+          asset.setProperty(P_PATH, path);
+          oldBlobRef = null;
+        }
+        else {
+          oldBlobRef = asset.getProperty(BLOB_REF_PROPERTY);
+        }
 
         // TODO: Figure out created-by header
         final ImmutableMap<String, String> headers = ImmutableMap
@@ -89,9 +98,15 @@ public class RawStorageFacetImpl
 
         asset.setProperty(BLOB_REF_PROPERTY, blobRef.toString());
         asset.setProperty(CONTENT_TYPE_PROPERTY, content.getContentType());
-        return null;
+
+        return oldBlobRef;
       }
     });
+
+    // the replaced blob is only deleted once the asset no longer refers to it
+    if (oldBlobRef != null && !getStorage().deleteBlob(new BlobRef(oldBlobRef))) {
+      log.warn("Replaced asset {} referenced missing blob {}", path, oldBlobRef);
+    }
   }
 
   @Override
@@ -100,7 +115,7 @@ public class RawStorageFacetImpl
     {
       @Override
       public Object execute(final GraphTx graph, final StorageFacet storage) {
-        final Vertex asset = storage.findAssetWithProperty(graph, P_PATH, path);
+        final Vertex asset = storage.findAssetWithPath(graph, path);
         if (asset == null) {
           return false;
         }
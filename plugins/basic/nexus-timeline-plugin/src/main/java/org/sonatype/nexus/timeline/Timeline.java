@@ -15,6 +15,8 @@ package org.sonatype.nexus.timeline;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 import com.google.common.base.Predicate;
 
 /**
@@ -57,6 +59,29 @@ public interface Timeline
   void retrieve(int fromItem, int count, Set<String> types, Set<String> subtypes, Predicate<Entry> filter,
                 TimelineCallback cb);
 
+  /**
+   * Retrieves a page of timeline records timestamped within given range, in descending order (newest 1st, oldest
+   * last). Only the daily partitions overlapping the range are read. Paging is keyset based: the returned cursor
+   * should be passed in to retrieve the next page, hence the cost of retrieving a page does not depend on how deep
+   * the page is.
+   *
+   * @param fromTs       the lower bound of record timestamps, inclusive.
+   * @param toTs         the upper bound of record timestamps, exclusive.
+   * @param cursor       the cursor returned with previous page, or {@code null} to start with newest record.
+   * @param count        the max count of records you want to fetch.
+   * @param types        the types you want to fetch or null if "all" (do not filter by types).
+   * @param subtypes     the subtypes you want to fetch or null if "all" (do not filter by subtypes).
+   * @param repositoryId the {@code repoId} data value of records you want to fetch or null if "all".
+   * @param filter       filter, may be null. Records not matching the filter are not counted.
+   * @param cb           the callback.
+   * @return the cursor of the next page, or {@code null} if there are no more records.
+   * @throws IllegalArgumentException if the cursor is malformed.
+   */
+  @Nullable
+  String retrieve(long fromTs, long toTs, @Nullable String cursor, int count, @Nullable Set<String> types,
+                  @Nullable Set<String> subtypes, @Nullable String repositoryId, @Nullable Predicate<Entry> filter,
+                  TimelineCallback cb);
+
   /**
    * Purges all records from timeline index and persist data that are older than {@code days} days. Here, no type,
    * subType or any other filtering is possible, this will delete records "en bloc", as filtering persist records in
@@ -15,6 +15,8 @@ package org.sonatype.nexus.timeline.feeds;
 import java.util.List;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 import org.sonatype.nexus.timeline.Entry;
 import org.sonatype.nexus.timeline.Timeline;
 
@@ -100,4 +102,15 @@ public interface FeedRecorder
 
   List<FeedEvent> getEvents(Set<String> types, Set<String> subtypes, int from, int count,
                             Predicate<Entry> filter);
+
+  /**
+   * Adds a page of events timestamped within given range to the passed in list, newest first. See
+   * {@link Timeline#retrieve(long, long, String, int, Set, Set, String, Predicate,
+   * org.sonatype.nexus.timeline.TimelineCallback)} for paging.
+   *
+   * @return the cursor of the next page, or {@code null} if there are no more events.
+   */
+  @Nullable
+  String getEvents(Set<String> types, Set<String> subtypes, long fromTs, long toTs, @Nullable String cursor, int count,
+                   @Nullable String repositoryId, @Nullable Predicate<Entry> filter, List<FeedEvent> events);
 }
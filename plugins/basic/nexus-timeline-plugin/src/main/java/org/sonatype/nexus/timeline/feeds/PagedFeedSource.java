@@ -0,0 +1,45 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.timeline.feeds;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link FeedSource} that is able to serve pages of events timestamped within a time range, using cursors instead of
+ * record numbers, hence the cost of serving a page does not depend on how deep the page is.
+ *
+ * @since 3.0
+ */
+public interface PagedFeedSource
+    extends FeedSource
+{
+  /**
+   * Adds a page of the feed entries to the passed in list, newest first.
+   *
+   * @param fromTs The lower bound of entry timestamps, inclusive.
+   * @param toTs   The upper bound of entry timestamps, exclusive.
+   * @param cursor The cursor returned with previous page, or {@code null} to start with newest entry.
+   * @param count  Count of the entries to generate.
+   * @param params A map of all the client made parameters.
+   * @param events The list to add entries to.
+   * @return the cursor of the next page, or {@code null} if there are no more entries.
+   */
+  @Nullable
+  String getFeed(long fromTs, long toTs, @Nullable String cursor, int count, Map<String, String> params,
+                 List<FeedEvent> events)
+      throws IOException;
+}
@@ -18,6 +18,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -37,6 +38,7 @@ import org.sonatype.nexus.timeline.internal.EntryRecord;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
@@ -129,20 +131,7 @@ public class DefaultFeedRecorder
         // we filter for permission only after Timeline used passed in filter predicate
         // filtering for permission is more costly than checking field equalities
         if (filterRecord(rec)) {
-          final Map<String, String> data = Maps.newHashMap(rec.getData());
-          data.remove("_type");
-          data.remove("_subType");
-          data.remove("_link");
-          data.remove("_author");
-          final FeedEvent evt = new FeedEvent(
-              rec.getType(),
-              rec.getSubType(),
-              new Date(rec.getTimestamp()),
-              rec.getData().get("_author"), // nullable
-              rec.getData().get("_link"), // nullable
-              data
-          );
-          result.add(evt);
+          result.add(toFeedEvent(rec));
         }
         return true;
       }
@@ -150,4 +139,46 @@ public class DefaultFeedRecorder
     timeline.retrieve(from, count, types, subTypes, filter, callback);
     return result;
   }
+
+  @Override
+  @Nullable
+  public String getEvents(final Set<String> types, final Set<String> subTypes, final long fromTs, final long toTs,
+                          @Nullable final String cursor, final int count, @Nullable final String repositoryId,
+                          final Predicate<Entry> filter, final List<FeedEvent> events)
+  {
+    // permission is part of the filter here, so that records caller is not permitted to see do not count to the page
+    final Predicate<Entry> permitted = new Predicate<Entry>()
+    {
+      @Override
+      public boolean apply(final Entry input) {
+        return filterRecord(input);
+      }
+    };
+    final TimelineCallback callback = new TimelineCallback()
+    {
+      @Override
+      public boolean processNext(final Entry rec) throws IOException {
+        events.add(toFeedEvent(rec));
+        return true;
+      }
+    };
+    return timeline.retrieve(fromTs, toTs, cursor, count, types, subTypes, repositoryId,
+        filter != null ? Predicates.and(filter, permitted) : permitted, callback);
+  }
+
+  private FeedEvent toFeedEvent(final Entry rec) {
+    final Map<String, String> data = Maps.newHashMap(rec.getData());
+    data.remove("_type");
+    data.remove("_subType");
+    data.remove("_link");
+    data.remove("_author");
+    return new FeedEvent(
+        rec.getType(),
+        rec.getSubType(),
+        new Date(rec.getTimestamp()),
+        rec.getData().get("_author"), // nullable
+        rec.getData().get("_link"), // nullable
+        data
+    );
+  }
 }
@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.timeline.feeds.rest;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -20,6 +21,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.NotFoundException;
@@ -36,6 +38,7 @@ import org.sonatype.nexus.SystemStatus;
 import org.sonatype.nexus.timeline.TimelinePlugin;
 import org.sonatype.nexus.timeline.feeds.FeedEvent;
 import org.sonatype.nexus.timeline.feeds.FeedSource;
+import org.sonatype.nexus.timeline.feeds.PagedFeedSource;
 import org.sonatype.nexus.web.BaseUrlHolder;
 import org.sonatype.siesta.Resource;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
@@ -48,6 +51,8 @@ import com.sun.syndication.feed.synd.SyndEntry;
 import com.sun.syndication.feed.synd.SyndEntryImpl;
 import com.sun.syndication.feed.synd.SyndFeed;
 import com.sun.syndication.feed.synd.SyndFeedImpl;
+import com.sun.syndication.feed.synd.SyndLink;
+import com.sun.syndication.feed.synd.SyndLinkImpl;
 import org.apache.shiro.authz.annotation.RequiresPermissions;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -89,15 +94,25 @@ public class FeedResource
    * Returns the feed corresponding to the requested feed key. The existing feed keys (the list of feeds is not
    * fixed, plugins may contribute new feeds) should be queried by fetching the /feeds resource. Content negotiation is
    * used to figure out returned representation, but RSS (application/rss+xml MIME type) is the default one.
+   * <p>
+   * Feeds that support it may be paged by cursor instead of entry number, which is much cheaper for pages deep in the
+   * feed, by passing in any of the {@code since}, {@code until} or {@code cursor} parameters. The URL of the next page
+   * is then published as the feed link with relation {@code next}.
    *
    * @param feedKey The feed key of the feed to be returned.
    * @param from    The number of skipped entries (for paging).
    * @param count   The count of entries to be returned (for paging).
+   * @param since   The lower bound of entry timestamps in milliseconds, inclusive (for cursor paging).
+   * @param until   The upper bound of entry timestamps in milliseconds, exclusive (for cursor paging).
+   * @param cursor  The cursor of the page to be returned, as published by the previous page (for cursor paging).
+   * @throws BadRequestException if the cursor is malformed.
    */
   @GET
   @RequiresPermissions("nexus:feeds:read")
   public SyndFeed get(@PathParam(FEED_KEY) String feedKey, @DefaultValue("0") @QueryParam("from") int from,
-                      @DefaultValue("40") @QueryParam("count") int count, final @Context UriInfo uriInfo)
+                      @DefaultValue("40") @QueryParam("count") int count, @QueryParam("since") Long since,
+                      @QueryParam("until") Long until, @QueryParam("cursor") String cursor,
+                      final @Context UriInfo uriInfo)
   {
     final FeedSource feedSource = feeds.get(feedKey);
     if (feedSource == null) {
@@ -106,7 +121,21 @@ public class FeedResource
 
     try {
       final Map<String, String> params = getParameters(uriInfo);
-      final List<FeedEvent> feedEvents = feedSource.getFeed(from, count, params);
+      final List<FeedEvent> feedEvents;
+      String nextCursor = null;
+      if (feedSource instanceof PagedFeedSource && (since != null || until != null || cursor != null)) {
+        feedEvents = Lists.newArrayList();
+        try {
+          nextCursor = ((PagedFeedSource) feedSource).getFeed(since != null ? since : 0L,
+              until != null ? until : Long.MAX_VALUE, cursor, count, params, feedEvents);
+        }
+        catch (IllegalArgumentException e) {
+          throw new BadRequestException(e.getMessage(), e);
+        }
+      }
+      else {
+        feedEvents = feedSource.getFeed(from, count, params);
+      }
 
       final SyndFeed feed = new SyndFeedImpl();
       feed.setTitle(feedSource.getFeedName());
@@ -114,6 +143,12 @@ public class FeedResource
       feed.setAuthor("Nexus " + systemStatusProvider.get().getVersion());
       feed.setPublishedDate(new Date());
       feed.setLink(BaseUrlHolder.get() + "/service/siesta/feeds/" + feedSource.getFeedKey());
+      if (nextCursor != null) {
+        final SyndLink next = new SyndLinkImpl();
+        next.setRel("next");
+        next.setHref(uriInfo.getRequestUriBuilder().replaceQueryParam("cursor", nextCursor).build().toString());
+        feed.setLinks(Collections.singletonList(next));
+      }
 
 
       final List<SyndEntry> entries = Lists.newArrayListWithCapacity(feedEvents.size());
@@ -145,6 +180,9 @@ public class FeedResource
       feed.setEntries(entries);
       return feed;
     }
+    catch (BadRequestException e) {
+      throw e;
+    }
     catch (Exception e) {
       log.error("Problem during feed creation", e);
       throw new WebApplicationException(e);
@@ -161,6 +199,9 @@ public class FeedResource
     }
     result.remove("from");
     result.remove("count");
+    result.remove("since");
+    result.remove("until");
+    result.remove("cursor");
     return result;
   }
 }
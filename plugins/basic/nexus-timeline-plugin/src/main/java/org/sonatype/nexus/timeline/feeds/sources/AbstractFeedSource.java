@@ -19,6 +19,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 import org.sonatype.nexus.proxy.NoSuchRepositoryException;
 import org.sonatype.nexus.proxy.maven.MavenRepository;
 import org.sonatype.nexus.proxy.maven.RepositoryPolicy;
@@ -214,6 +216,21 @@ public abstract class AbstractFeedSource
     return Predicates.and(filters);
   }
 
+  /**
+   * Returns the repository ID the passed in parameters filter for, if they filter for a single repository, or
+   * {@code null} otherwise. Used to narrow down the retrieved events to those of the repository, before they are
+   * filtered by {@link #filters(Map)}.
+   */
+  @Nullable
+  protected String repositoryId(final Map<String, String> params) {
+    final String value = params.get("repoId");
+    if (value == null) {
+      return null;
+    }
+    final Set<String> values = valueSet(value);
+    return values.size() == 1 ? values.iterator().next() : null;
+  }
+
   /**
    * Creates a string set out of passed in string. Separator detected is comma.
    */
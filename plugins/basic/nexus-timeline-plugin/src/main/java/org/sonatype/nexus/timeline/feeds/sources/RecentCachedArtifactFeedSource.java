@@ -15,6 +15,7 @@ package org.sonatype.nexus.timeline.feeds.sources;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -22,6 +23,7 @@ import javax.inject.Singleton;
 import org.sonatype.nexus.proxy.registry.RepositoryRegistry;
 import org.sonatype.nexus.timeline.feeds.FeedEvent;
 import org.sonatype.nexus.timeline.feeds.FeedRecorder;
+import org.sonatype.nexus.timeline.feeds.PagedFeedSource;
 
 import com.google.common.collect.ImmutableSet;
 
@@ -32,6 +34,7 @@ import static com.google.common.base.Predicates.and;
 @Singleton
 public class RecentCachedArtifactFeedSource
     extends AbstractFeedSource
+    implements PagedFeedSource
 {
   public static final String CHANNEL_KEY = "recentlyCachedArtifacts";
 
@@ -55,4 +58,15 @@ public class RecentCachedArtifactFeedSource
             and(isMavenArtifact(repositoryRegistry), filters(params))
         ));
   }
+
+  @Override
+  @Nullable
+  public String getFeed(final long fromTs, final long toTs, @Nullable final String cursor, final int count,
+                        final Map<String, String> params, final List<FeedEvent> events)
+  {
+    return getFeedRecorder()
+        .getEvents(ImmutableSet.of(FeedRecorder.FAMILY_ITEM), ImmutableSet.of(FeedRecorder.ITEM_CACHED, FeedRecorder.ITEM_CACHED_UPDATE), fromTs, toTs,
+            cursor, count, repositoryId(params), and(isMavenArtifact(repositoryRegistry), filters(params)), events
+        );
+  }
 }
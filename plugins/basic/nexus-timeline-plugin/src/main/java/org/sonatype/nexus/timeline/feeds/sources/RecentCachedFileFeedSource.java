@@ -15,12 +15,14 @@ package org.sonatype.nexus.timeline.feeds.sources;
 import java.util.List;
 import java.util.Map;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.sonatype.nexus.timeline.feeds.FeedEvent;
 import org.sonatype.nexus.timeline.feeds.FeedRecorder;
+import org.sonatype.nexus.timeline.feeds.PagedFeedSource;
 
 import com.google.common.collect.ImmutableSet;
 
@@ -28,7 +30,7 @@ import com.google.common.collect.ImmutableSet;
 @Singleton
 public class RecentCachedFileFeedSource
     extends AbstractFeedSource
-
+    implements PagedFeedSource
 {
   public static final String CHANNEL_KEY = "recentlyCachedFiles";
 
@@ -49,4 +51,15 @@ public class RecentCachedFileFeedSource
             filters(params)
         ));
   }
+
+  @Override
+  @Nullable
+  public String getFeed(final long fromTs, final long toTs, @Nullable final String cursor, final int count,
+                        final Map<String, String> params, final List<FeedEvent> events)
+  {
+    return getFeedRecorder()
+        .getEvents(ImmutableSet.of(FeedRecorder.FAMILY_ITEM), ImmutableSet.of(FeedRecorder.ITEM_CACHED, FeedRecorder.ITEM_CACHED_UPDATE), fromTs, toTs,
+            cursor, count, repositoryId(params), filters(params), events
+        );
+  }
 }
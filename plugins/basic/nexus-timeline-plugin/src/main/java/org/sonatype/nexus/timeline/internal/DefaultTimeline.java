@@ -15,10 +15,12 @@ package org.sonatype.nexus.timeline.internal;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -39,8 +41,11 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.eventbus.Subscribe;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
 import com.orientechnologies.orient.core.metadata.schema.OSchema;
@@ -52,10 +57,15 @@ import org.joda.time.DateMidnight;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Days;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Implementation of {@link Timeline} backed by OrientDB.
+ * <p>
+ * When write-behind is enabled, appended records are handed over to a {@link TimelineWriter}, and are persisted
+ * asynchronously in batches. Records appended while the writer is overloaded are dropped instead of blocking the
+ * caller.
  * 
  * @since 3.0
  */
@@ -81,14 +91,64 @@ public class DefaultTimeline
 
   private static final String P_DATA = "data";
 
+  /**
+   * Copy of the {@code repoId} data value, so that records can be indexed by repository.
+   */
+  private static final String P_REPO_ID = "repoId";
+
   private static final String I_TYPE = DB_CLASS + "." + P_TYPE;
 
   private static final String I_SUBTYPE = DB_CLASS + "." + P_SUBTYPE;
 
+  private static final String I_REPO_ID = DB_CLASS + "." + P_REPO_ID;
+
+  /**
+   * Minimum number of records read by a single query of paged retrieval, as filtered out records are not counted.
+   */
+  private static final int RETRIEVE_BATCH_SIZE = 100;
+
   private final DatabaseManager databaseManager;
 
   private DatabasePool pool;
 
+  private volatile TimelineWriter writer;
+
+  /**
+   * Whether appended records are persisted asynchronously, in batches, by a dedicated writer thread.
+   */
+  @Inject
+  @Named("${nexus.timeline.writeBehind:-false}")
+  private boolean writeBehind;
+
+  /**
+   * Maximum number of records persisted in a single transaction by the writer.
+   */
+  @Inject
+  @Named("${nexus.timeline.writeBehind.batchSize:-500}")
+  private int writeBehindBatchSize;
+
+  /**
+   * Interval, in milliseconds, at which queued records are persisted by the writer.
+   */
+  @Inject
+  @Named("${nexus.timeline.writeBehind.flushMillis:-1000}")
+  private long writeBehindFlushMillis;
+
+  /**
+   * Maximum number of queued records. Records appended once it is reached are dropped.
+   */
+  @Inject
+  @Named("${nexus.timeline.writeBehind.capacity:-10000}")
+  private int writeBehindCapacity;
+
+  /**
+   * Whether records are indexed by repository, making paged retrieval of the records of a single repository cost
+   * proportional to the count of records of that repository, instead of the count of all records in the range.
+   */
+  @Inject
+  @Named("${nexus.timeline.repositoryIndex:-false}")
+  private boolean repositoryIndex;
+
   @Inject
   public DefaultTimeline(final EventBus eventBus, final DatabaseManager databaseManager) {
     this.databaseManager = checkNotNull(databaseManager);
@@ -136,13 +196,62 @@ public class DefaultTimeline
 
         log.info("Created schema: {}, properties: {}", type, type.properties());
       }
+
+      final OClass type = schema.getClass(DB_CLASS);
+      if (!type.existsProperty(P_REPO_ID)) {
+        type.createProperty(P_REPO_ID, OType.STRING);
+        backfillRepositoryIds(db);
+      }
+      if (repositoryIndex && type.getClassIndex(I_REPO_ID) == null) {
+        type.createIndex(I_REPO_ID, INDEX_TYPE.NOTUNIQUE_HASH_INDEX, P_REPO_ID);
+        log.info("Created index: {}", I_REPO_ID);
+      }
     }
 
     this.pool = databaseManager.newPool(DB_NAME);
+
+    if (writeBehind) {
+      writer = new TimelineWriter(new TimelineWriter.Sink()
+      {
+        @Override
+        public void write(final List<EntryRecord> records) {
+          addEntryRecord(records);
+        }
+
+        @Override
+        public void prepare(final long timestamp) {
+          prepareCluster(timestamp);
+        }
+      }, writeBehindBatchSize, writeBehindFlushMillis, writeBehindCapacity);
+      writer.start();
+    }
+  }
+
+  /**
+   * Copies the repository ID of records appended before it was stored as top level property from their data, so
+   * they are not missed by lookups of the records of a repository. Must be called before the index is created.
+   */
+  private void backfillRepositoryIds(final ODatabaseDocumentTx db) {
+    int count = 0;
+    for (ODocument doc : db.browseClass(DB_CLASS)) {
+      final Map<String, String> data = doc.field(P_DATA, OType.EMBEDDEDMAP);
+      if (data != null && data.get(P_REPO_ID) != null && doc.field(P_REPO_ID) == null) {
+        doc.field(P_REPO_ID, data.get(P_REPO_ID));
+        doc.save();
+        count++;
+      }
+    }
+    if (count > 0) {
+      log.info("Backfilled property {} of {} records", P_REPO_ID, count);
+    }
   }
 
   @Override
   public void doStop() throws Exception {
+    if (writer != null) {
+      writer.close();
+      writer = null;
+    }
     pool.close();
     pool = null;
   }
@@ -161,7 +270,7 @@ public class DefaultTimeline
     if (!isStarted()) {
       return;
     }
-    addEntryRecord(Collections.singletonList(new EntryRecord(timestamp, type, subType, data)));
+    append(Collections.singletonList(new EntryRecord(timestamp, type, subType, data)));
   }
 
   @Override
@@ -179,7 +288,27 @@ public class DefaultTimeline
         entries.add(new EntryRecord(record.getTimestamp(), record.getType(), record.getSubType(), record.getData()));
       }
     }
-    addEntryRecord(entries);
+    append(entries);
+  }
+
+  private void append(final List<EntryRecord> records) {
+    final TimelineWriter writer = this.writer;
+    if (writer != null) {
+      writer.enqueue(records);
+    }
+    else {
+      addEntryRecord(records);
+    }
+  }
+
+  @VisibleForTesting
+  TimelineWriter getWriter() {
+    return writer;
+  }
+
+  @VisibleForTesting
+  void setRepositoryIndex(final boolean repositoryIndex) {
+    this.repositoryIndex = repositoryIndex;
   }
 
   private void addEntryRecord(final List<EntryRecord> records) {
@@ -188,12 +317,18 @@ public class DefaultTimeline
     }
     // this must be synced to prevent purge drop cluster being created
     synchronized (this) {
-      try (ODatabaseDocumentTx db = openDb()) {
-        // 1st pass (no TX, DDL): add clusters needed by records
+      // not using openDb(), as the writer flushes while stopping
+      try (ODatabaseDocumentTx db = pool.acquire()) {
+        // 1st pass (no TX, DDL): add clusters needed by records, once per day
+        final Set<String> clusterNames = Sets.newHashSet();
         final Map<Long, String> timestampToClusterMap = Maps.newHashMap();
         for (EntryRecord record : records) {
           if (!timestampToClusterMap.containsKey(record.getTimestamp())) {
-            timestampToClusterMap.put(record.getTimestamp(), maybeAddNewCluster(db, record.getTimestamp()));
+            final String name = clusterName(record.getTimestamp());
+            if (clusterNames.add(name)) {
+              maybeAddNewCluster(db, name);
+            }
+            timestampToClusterMap.put(record.getTimestamp(), name);
           }
         }
         // 2nd pass (in TX, DML): insert records into their places.
@@ -205,6 +340,7 @@ public class DefaultTimeline
             doc.field(P_TYPE, record.getType());
             doc.field(P_SUBTYPE, record.getSubType());
             doc.field(P_DATA, record.getData());
+            doc.field(P_REPO_ID, record.getData().get(P_REPO_ID));
             doc.save(timestampToClusterMap.get(record.getTimestamp()));
           }
           db.commit();
@@ -218,16 +354,32 @@ public class DefaultTimeline
   }
 
   /**
-   * Calculates the expected cluster name where given timestamp should be located. It adds new cluster if cluster with
-   * calculated name not exists, hence, after the return from this method it is guaranteed that the cluster with name
-   * returned does exists. Clusters have common prefixes (see {@link #DB_CLUSTER_PREFIX}) and suffix is timestamp's date
-   * (rounded to midnight) as string with pattern {@code YYYYMMDD}. As OrientDB DDL is not atomic, this method must be
-   * mutually exclusive with method {@link #purgeOlderThan(int)}, hence both should be synchronized (or called from
-   * synchronized block like this method). This method must be called outside of a TX as it performs DDL.
+   * Adds the cluster where records with given timestamp are located, if not exists yet. Used by the writer to create
+   * the cluster of a day before records of that day arrive.
    */
-  private String maybeAddNewCluster(final ODatabaseDocumentTx db, final long timestamp) {
-    final String name = String.format("%s%s", DB_CLUSTER_PREFIX,
+  private synchronized void prepareCluster(final long timestamp) {
+    try (ODatabaseDocumentTx db = pool.acquire()) {
+      maybeAddNewCluster(db, clusterName(timestamp));
+    }
+  }
+
+  /**
+   * Calculates the expected cluster name where given timestamp should be located. Clusters have common prefixes (see
+   * {@link #DB_CLUSTER_PREFIX}) and suffix is timestamp's date (rounded to midnight) as string with pattern
+   * {@code YYYYMMDD}.
+   */
+  private String clusterName(final long timestamp) {
+    return String.format("%s%s", DB_CLUSTER_PREFIX,
         new DateMidnight(timestamp, DateTimeZone.UTC).toString("YYYYMMdd"));
+  }
+
+  /**
+   * Adds new cluster if cluster with given name not exists, hence, after the return from this method it is guaranteed
+   * that the cluster with given name does exists. As OrientDB DDL is not atomic, this method must be mutually
+   * exclusive with method {@link #purgeOlderThan(int)}, hence both should be synchronized (or called from synchronized
+   * block like this method). This method must be called outside of a TX as it performs DDL.
+   */
+  private void maybeAddNewCluster(final ODatabaseDocumentTx db, final String name) {
     int cid = db.getClusterIdByName(name); // undocumented: if cluster not exists, returns -1
     if (cid == -1) {
       cid = db.addCluster(name);
@@ -239,7 +391,6 @@ public class DefaultTimeline
     else {
       log.debug("Journal cluster exists; id: {}, name: {}", cid, name);
     }
-    return name;
   }
 
   @Override
@@ -277,11 +428,7 @@ public class DefaultTimeline
           return;
         }
         for (ODocument doc : results) {
-          final EntryRecord record = new EntryRecord((Long) doc.field(P_TIMESTAMP, OType.LONG), (String) doc.field(
-              P_TYPE, OType.STRING), (String) doc.field(P_SUBTYPE, OType.STRING), null);
-          final Map<String, String> attributes = doc.field(P_DATA, OType.EMBEDDEDMAP);
-          record.getData().putAll(attributes);
-          if (!callback.processNext(record)) {
+          if (!callback.processNext(toEntryRecord(doc))) {
             break;
           }
         }
@@ -295,10 +442,234 @@ public class DefaultTimeline
     }
   }
 
+  @Override
+  @Nullable
+  public String retrieve(final long fromTs, final long toTs, @Nullable final String cursor, final int count,
+      @Nullable final Set<String> types, @Nullable final Set<String> subTypes, @Nullable final String repositoryId,
+      @Nullable final Predicate<Entry> filter, final TimelineCallback callback)
+  {
+    if (!isStarted()) {
+      return null;
+    }
+    if (count == 0) {
+      return cursor;
+    }
+    final ORID after = cursor != null ? parseCursor(cursor) : null;
+
+    final StringBuilder where = new StringBuilder();
+    final List<Object> params = Lists.newArrayList();
+    where.append(P_TIMESTAMP).append(" >= ? AND ").append(P_TIMESTAMP).append(" < ?");
+    params.add(fromTs);
+    params.add(toTs);
+    if (types != null && !types.isEmpty()) {
+      where.append(" AND ").append(P_TYPE).append(" IN ").append("[\"").append(Joiner.on("\", \"").join(types))
+          .append("\"]");
+    }
+    if (subTypes != null && !subTypes.isEmpty()) {
+      where.append(" AND ").append(P_SUBTYPE).append(" IN ").append("[\"").append(Joiner.on("\", \"").join(subTypes))
+          .append("\"]");
+    }
+    if (repositoryId != null) {
+      where.append(" AND ").append(P_REPO_ID).append(" = ?");
+      params.add(repositoryId);
+    }
+
+    try (ODatabaseDocumentTx db = openDb()) {
+      final PageReader reader = new PageReader(db, where.toString(), params, count, filter, callback);
+      final boolean indexed = repositoryId != null && repositoryIndex;
+      final DateMidnight afterDay = after != null ? getCursorDay(db, after) : null;
+      for (int cid : getClusterIds(db, fromTs, toTs)) {
+        final DateMidnight clusterDay = getClusterDay(db.getClusterNameById(cid));
+        if (afterDay != null && clusterDay.isAfter(afterDay)) {
+          continue; // cluster read by previous pages
+        }
+        final ORID before = after != null && cid == after.getClusterId() ? after : null;
+        final boolean more;
+        if (indexed) {
+          // index lookup spans all the clusters, the @rid range restricts it to this one
+          more = reader.read(DB_CLASS, new ORecordId(cid, 0), before != null ? before : new ORecordId(cid + 1, 0));
+        }
+        else {
+          more = reader.read("cluster:" + db.getClusterNameById(cid), null, before);
+        }
+        if (!more) {
+          break;
+        }
+      }
+      return reader.getCursor();
+    }
+    catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Parses the cursor returned with previous page.
+   *
+   * @throws IllegalArgumentException if the cursor is malformed.
+   */
+  private static ORID parseCursor(final String cursor) {
+    final ORID rid;
+    try {
+      rid = new ORecordId(cursor);
+    }
+    catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+    }
+    checkArgument(rid.isPersistent(), "Invalid cursor: %s", cursor);
+    return rid;
+  }
+
+  /**
+   * Returns the day of the cluster holding the record cursor points at.
+   *
+   * @throws IllegalArgumentException if the cursor does not point into a journal cluster.
+   */
+  private DateMidnight getCursorDay(final ODatabaseDocumentTx db, final ORID cursor) {
+    final String name = db.getClusterNameById(cursor.getClusterId());
+    final DateMidnight day = name != null ? getClusterDay(name) : null;
+    checkArgument(day != null, "Invalid cursor: %s", cursor);
+    return day;
+  }
+
+  /**
+   * Returns the IDs of clusters holding records of days overlapping given range, newest day first, which is the
+   * order their records are retrieved in. Clusters are ordered by their day, as cluster IDs are not guaranteed to
+   * follow the order the clusters were created in (ie. IDs of dropped clusters may be reused).
+   */
+  private List<Integer> getClusterIds(final ODatabaseDocumentTx db, final long fromTs, final long toTs) {
+    final long fromDay = new DateMidnight(fromTs, DateTimeZone.UTC).getMillis();
+    final Map<Integer, DateMidnight> days = Maps.newHashMap();
+    for (int cid : db.getMetadata().getSchema().getClass(DB_CLASS).getClusterIds()) {
+      final DateMidnight clusterDm = getClusterDay(db.getClusterNameById(cid));
+      if (clusterDm != null && clusterDm.getMillis() >= fromDay && clusterDm.getMillis() < toTs) {
+        days.put(cid, clusterDm);
+      }
+    }
+    final List<Integer> result = Lists.newArrayList(days.keySet());
+    Collections.sort(result, new Comparator<Integer>()
+    {
+      @Override
+      public int compare(final Integer o1, final Integer o2) {
+        return days.get(o2).compareTo(days.get(o1));
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Returns the day of records held by cluster with given name, or {@code null} if it is not a journal cluster.
+   */
+  @Nullable
+  private DateMidnight getClusterDay(final String name) {
+    if (!name.startsWith(DB_CLUSTER_PREFIX)) {
+      return null;
+    }
+    final int prefixLen = DB_CLUSTER_PREFIX.length();
+    final int year = Integer.parseInt(name.substring(prefixLen, prefixLen + 4));
+    final int month = Integer.parseInt(name.substring(prefixLen + 4, prefixLen + 6));
+    final int day = Integer.parseInt(name.substring(prefixLen + 6, prefixLen + 8));
+    return new DateMidnight(year, month, day, DateTimeZone.UTC);
+  }
+
+  private static EntryRecord toEntryRecord(final ODocument doc) {
+    final EntryRecord record = new EntryRecord((Long) doc.field(P_TIMESTAMP, OType.LONG), (String) doc.field(
+        P_TYPE, OType.STRING), (String) doc.field(P_SUBTYPE, OType.STRING), null);
+    final Map<String, String> attributes = doc.field(P_DATA, OType.EMBEDDEDMAP);
+    record.getData().putAll(attributes);
+    return record;
+  }
+
+  /**
+   * Reads records of a page in descending {@code @rid} order, keeping track of the last record read. Records are
+   * queried in batches, as records not matching the filter do not count to the page.
+   */
+  private static class PageReader
+  {
+    private final ODatabaseDocumentTx db;
+
+    private final String where;
+
+    private final List<Object> params;
+
+    private final int batchSize;
+
+    private final Predicate<Entry> filter;
+
+    private final TimelineCallback callback;
+
+    private int remaining;
+
+    private ORID last;
+
+    private boolean complete;
+
+    private PageReader(final ODatabaseDocumentTx db, final String where, final List<Object> params, final int count,
+                       @Nullable final Predicate<Entry> filter, final TimelineCallback callback)
+    {
+      this.db = db;
+      this.where = where;
+      this.params = params;
+      this.batchSize = Math.max(count, RETRIEVE_BATCH_SIZE);
+      this.filter = filter;
+      this.callback = callback;
+      this.remaining = count;
+    }
+
+    /**
+     * Reads records of target preceding given record, or all of them if {@code null}, and not preceding the given
+     * lowest record, if any. Returns {@code false} if the page is complete, and no more targets should be read.
+     */
+    private boolean read(final String target, @Nullable final ORID lowest, @Nullable final ORID before)
+        throws IOException
+    {
+      ORID from = before;
+      while (true) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("SELECT FROM ").append(target).append(" WHERE ").append(where);
+        final List<Object> args = Lists.newArrayList(params);
+        if (lowest != null) {
+          sb.append(" AND @rid >= ?");
+          args.add(lowest);
+        }
+        if (from != null) {
+          sb.append(" AND @rid < ?");
+          args.add(from);
+        }
+        sb.append(" ORDER BY @rid DESC LIMIT ").append(batchSize);
+
+        final List<ODocument> results = db.query(new OSQLSynchQuery<ODocument>(sb.toString()), args.toArray());
+        for (ODocument doc : results) {
+          from = doc.getIdentity();
+          last = from;
+          final EntryRecord record = toEntryRecord(doc);
+          if (filter == null || filter.apply(record)) {
+            remaining--;
+            if (!callback.processNext(record) || remaining == 0) {
+              complete = true;
+              return false;
+            }
+          }
+        }
+        if (results.size() < batchSize) {
+          return true;
+        }
+      }
+    }
+
+    /**
+     * Returns the cursor of the next page, or {@code null} if all the records were read.
+     */
+    @Nullable
+    private String getCursor() {
+      return complete ? last.toString() : null;
+    }
+  }
+
   /**
    * Purges old clusters based on {@code days} ("older than days") parameters. If input is {@code 0}, all clusters will
    * be removed, meaning all the timeline is purged. As Orient DDL is not atomic, this method must be mutually exclusive
-   * with {@link #maybeAddNewCluster(ODatabaseDocumentTx, long)}, hence both are synchronized.
+   * with {@link #maybeAddNewCluster(ODatabaseDocumentTx, String)}, hence both are synchronized.
    */
   @Override
   public synchronized void purgeOlderThan(final int days) {
@@ -307,16 +678,12 @@ public class DefaultTimeline
     }
     try (ODatabaseDocumentTx db = openDb()) {
       final DateMidnight nowDm = new DateMidnight(DateTimeZone.UTC);
-      final int prefixLen = DB_CLUSTER_PREFIX.length();
       final int[] cids = db.getMetadata().getSchema().getClass(DB_CLASS).getClusterIds();
       for (int cid : cids) {
         final String name = db.getClusterNameById(cid);
         log.debug("Cluster: {} {}", cid, name);
-        if (name.startsWith(DB_CLUSTER_PREFIX)) {
-          final int year = Integer.parseInt(name.substring(prefixLen, prefixLen + 4));
-          final int month = Integer.parseInt(name.substring(prefixLen + 4, prefixLen + 6));
-          final int day = Integer.parseInt(name.substring(prefixLen + 6, prefixLen + 8));
-          final DateMidnight clusterDm = new DateMidnight(year, month, day, DateTimeZone.UTC);
+        final DateMidnight clusterDm = getClusterDay(name);
+        if (clusterDm != null) {
           if (Days.daysBetween(clusterDm, nowDm).getDays() >= days) {
             log.info("Cluster {}, is {} days old, purging it", name, Days.daysBetween(clusterDm, nowDm).getDays());
             OSchema schema = db.getMetadata().getSchema();
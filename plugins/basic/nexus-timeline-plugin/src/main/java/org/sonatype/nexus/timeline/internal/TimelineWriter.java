@@ -0,0 +1,266 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.timeline.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sonatype.nexus.threads.NexusThreadFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Asynchronous writer of timeline entries. Entries are queued into a bounded buffer and handed over to a {@link Sink}
+ * by a single writer thread, in batches of at most batch size entries, once the batch size is reached or the flush
+ * interval elapses. Producers never block: entries offered while the buffer is full are dropped and counted. The
+ * writer thread also prepares the storage of the current and next day periodically, so that writes do not have to.
+ *
+ * @since 3.0
+ */
+class TimelineWriter
+{
+  /**
+   * Persists timeline entries. Invoked from the writer thread only.
+   */
+  interface Sink
+  {
+    /**
+     * Persists the entries, in order as they are passed in.
+     */
+    void write(List<EntryRecord> records);
+
+    /**
+     * Prepares the storage of entries timestamped with the given day, if needed.
+     */
+    void prepare(long timestamp);
+  }
+
+  private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final Sink sink;
+
+  private final int batchSize;
+
+  private final long flushMillis;
+
+  private final BlockingQueue<EntryRecord> queue;
+
+  private final AtomicLong dropped = new AtomicLong();
+
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+  private volatile boolean overloaded;
+
+  private volatile boolean closed;
+
+  private volatile ScheduledExecutorService executor;
+
+  private Timer flushTimer;
+
+  private final Runnable flushTask = new Runnable()
+  {
+    @Override
+    public void run() {
+      flushRequested.set(false);
+      flush();
+    }
+  };
+
+  private final Runnable prepareTask = new Runnable()
+  {
+    @Override
+    public void run() {
+      final long now = System.currentTimeMillis();
+      try {
+        sink.prepare(now);
+        sink.prepare(now + DAY_MILLIS);
+      }
+      catch (RuntimeException e) {
+        // do not let the periodic preparation die, writes will prepare storage themselves
+        log.warn("Could not prepare timeline storage", e);
+      }
+    }
+  };
+
+  TimelineWriter(final Sink sink, final int batchSize, final long flushMillis, final int capacity) {
+    checkArgument(batchSize > 0, "batchSize must be positive");
+    checkArgument(flushMillis > 0, "flushMillis must be positive");
+    checkArgument(capacity >= batchSize, "capacity must not be less than batchSize");
+    this.sink = checkNotNull(sink);
+    this.batchSize = batchSize;
+    this.flushMillis = flushMillis;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+  }
+
+  /**
+   * Starts the writer thread, the periodic flush and the hourly storage preparation.
+   */
+  synchronized void start() {
+    if (executor != null) {
+      return;
+    }
+    final MetricRegistry registry = SharedMetricRegistries.getOrCreate("nexus");
+    final String depthName = MetricRegistry.name(TimelineWriter.class, "depth");
+    registry.remove(depthName);
+    registry.register(depthName, new Gauge<Integer>()
+    {
+      @Override
+      public Integer getValue() {
+        return getDepth();
+      }
+    });
+    final String droppedName = MetricRegistry.name(TimelineWriter.class, "dropped");
+    registry.remove(droppedName);
+    registry.register(droppedName, new Gauge<Long>()
+    {
+      @Override
+      public Long getValue() {
+        return getDropped();
+      }
+    });
+    flushTimer = registry.timer(MetricRegistry.name(TimelineWriter.class, "flush"));
+
+    executor = Executors.newSingleThreadScheduledExecutor(new NexusThreadFactory("tlw", "Timeline Writer"));
+    executor.scheduleAtFixedRate(prepareTask, 0, 1, TimeUnit.HOURS);
+    executor.scheduleWithFixedDelay(flushTask, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Queues the entries without blocking. Returns the number of entries that were not accepted, because the writer is
+   * closed or its buffer is full.
+   */
+  int enqueue(final List<EntryRecord> records) {
+    if (closed) {
+      return records.size();
+    }
+    int rejected = 0;
+    for (EntryRecord record : records) {
+      if (!queue.offer(record)) {
+        rejected++;
+      }
+    }
+    if (rejected > 0) {
+      dropped.addAndGet(rejected);
+      if (!overloaded) {
+        overloaded = true;
+        log.warn("Timeline writer is overloaded, dropping entries until it catches up");
+      }
+    }
+    if (queue.size() >= batchSize) {
+      requestFlush();
+    }
+    return rejected;
+  }
+
+  /**
+   * Hands over all queued entries to the sink in batches. Invoked by the writer thread only.
+   */
+  void flush() {
+    final List<EntryRecord> batch = new ArrayList<>(batchSize);
+    while (queue.drainTo(batch, batchSize) > 0) {
+      final Timer.Context timerContext = flushTimer.time();
+      try {
+        sink.write(batch);
+      }
+      catch (RuntimeException e) {
+        log.warn("Could not write {} timeline entries", batch.size(), e);
+      }
+      finally {
+        timerContext.stop();
+      }
+      batch.clear();
+    }
+    if (overloaded) {
+      overloaded = false;
+      log.info("Timeline writer caught up, {} entries dropped so far", dropped.get());
+    }
+  }
+
+  /**
+   * Stops accepting entries, has the writer thread write out the queued entries and waits for it to stop.
+   */
+  synchronized void close() {
+    if (executor == null || closed) {
+      return;
+    }
+    closed = true;
+
+    // the final flush runs on the writer thread after any flush in progress, periodic tasks are dropped on shutdown
+    executor.execute(flushTask);
+    executor.shutdown();
+
+    // not interrupting the writer, as interrupted I/O would close the database files
+    try {
+      if (!executor.awaitTermination(flushMillis, TimeUnit.MILLISECONDS)) {
+        log.warn("Timeline writer did not stop within {} ms, waiting for {} queued entries to be written", flushMillis,
+            getDepth());
+        while (!executor.awaitTermination(flushMillis, TimeUnit.MILLISECONDS)) {
+          // keep waiting
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      log.warn("Interrupted while waiting for timeline writer to stop, {} entries not written", getDepth());
+      Thread.currentThread().interrupt();
+    }
+
+    final MetricRegistry registry = SharedMetricRegistries.getOrCreate("nexus");
+    registry.remove(MetricRegistry.name(TimelineWriter.class, "depth"));
+    registry.remove(MetricRegistry.name(TimelineWriter.class, "dropped"));
+  }
+
+  /**
+   * Returns the number of queued entries.
+   */
+  int getDepth() {
+    return queue.size();
+  }
+
+  /**
+   * Returns the number of entries dropped since the writer was created.
+   */
+  long getDropped() {
+    return dropped.get();
+  }
+
+  // ==
+
+  private void requestFlush() {
+    if (executor != null && flushRequested.compareAndSet(false, true)) {
+      try {
+        executor.execute(flushTask);
+      }
+      catch (RuntimeException e) {
+        // executor shut down concurrently, close() flushes
+        flushRequested.set(false);
+      }
+    }
+  }
+}
@@ -41,4 +41,12 @@ public class DummyFeedRecorder
   {
     return null;
   }
+
+  @Override
+  public String getEvents(final Set<String> types, final Set<String> subtypes, final long fromTs, final long toTs,
+                          final String cursor, final int count, final String repositoryId,
+                          final Predicate<Entry> filter, final List<FeedEvent> events)
+  {
+    return null;
+  }
 }
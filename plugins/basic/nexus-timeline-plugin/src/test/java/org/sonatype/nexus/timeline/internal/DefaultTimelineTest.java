@@ -34,6 +34,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
 import org.joda.time.DateMidnight;
 import org.joda.time.DateTimeZone;
 import org.junit.After;
@@ -41,11 +42,14 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Mockito.mock;
 
 /**
@@ -278,6 +282,174 @@ public class DefaultTimelineTest
     assertThat(partitionsPostPurge3, hasSize(0)); // this is true in test, but KZ would add part on any incoming append!
   }
 
+  @Test
+  public void pagedByCursor() throws Exception {
+    final long now = System.currentTimeMillis();
+    for (int i = 0; i < 25; i++) {
+      underTest.add(new EntryRecord(now - 25 + i, "TEST", "1", ImmutableMap.of("i", String.valueOf(i))));
+    }
+
+    final List<String> seen = Lists.newArrayList();
+    String cursor = null;
+    int pages = 0;
+    do {
+      final EntryListCallback page = new EntryListCallback();
+      cursor = underTest.retrieve(0, Long.MAX_VALUE, cursor, 10, Collections.singleton("TEST"), null, null, null, page);
+      for (Entry entry : page.getEntries()) {
+        seen.add(entry.getData().get("i"));
+      }
+      pages++;
+    }
+    while (cursor != null);
+
+    assertThat(pages, equalTo(3));
+    assertThat(seen, hasSize(25));
+    // newest first
+    assertThat(seen.get(0), equalTo("24"));
+    assertThat(seen.get(24), equalTo("0"));
+  }
+
+  @Test
+  public void pagedByCursorAcrossDaysAppendedOutOfOrder() throws Exception {
+    final long now = new DateMidnight(DateTimeZone.UTC).getMillis();
+    // partition of newer day is created 1st, hence gets lower cluster ID
+    underTest.add(new EntryRecord(now, "TEST", "1", ImmutableMap.of("day", "3")));
+    underTest.add(new EntryRecord(now - TimeUnit.DAYS.toMillis(2), "TEST", "1", ImmutableMap.of("day", "1")));
+    underTest.add(new EntryRecord(now - TimeUnit.DAYS.toMillis(1), "TEST", "1", ImmutableMap.of("day", "2")));
+
+    final List<String> seen = Lists.newArrayList();
+    String cursor = null;
+    do {
+      final EntryListCallback page = new EntryListCallback();
+      cursor = underTest.retrieve(0, Long.MAX_VALUE, cursor, 1, null, null, null, null, page);
+      for (Entry entry : page.getEntries()) {
+        seen.add(entry.getData().get("day"));
+      }
+    }
+    while (cursor != null);
+
+    assertThat(seen, contains("3", "2", "1"));
+  }
+
+  @Test
+  public void pagedByRepositoryIndexAcrossDaysAppendedOutOfOrder() throws Exception {
+    underTest.stop();
+    underTest = new DefaultTimeline(mock(EventBus.class), databaseManager);
+    underTest.setRepositoryIndex(true);
+    underTest.start();
+
+    final long now = new DateMidnight(DateTimeZone.UTC).getMillis();
+    // partition of newer day is created 1st, hence gets lower cluster ID
+    underTest.add(new EntryRecord(now, "TEST", "1", ImmutableMap.of("repoId", "r", "day", "3")));
+    underTest.add(new EntryRecord(now - TimeUnit.DAYS.toMillis(2), "TEST", "1",
+        ImmutableMap.of("repoId", "r", "day", "1")));
+    underTest.add(new EntryRecord(now - TimeUnit.DAYS.toMillis(2), "TEST", "1",
+        ImmutableMap.of("repoId", "other", "day", "1")));
+    underTest.add(new EntryRecord(now - TimeUnit.DAYS.toMillis(1), "TEST", "1",
+        ImmutableMap.of("repoId", "r", "day", "2")));
+    underTest.add(new EntryRecord(now - TimeUnit.DAYS.toMillis(1), "TEST", "1",
+        ImmutableMap.of("repoId", "r", "day", "2")));
+
+    final List<String> seen = Lists.newArrayList();
+    String cursor = null;
+    do {
+      final EntryListCallback page = new EntryListCallback();
+      cursor = underTest.retrieve(0, Long.MAX_VALUE, cursor, 1, null, null, "r", null, page);
+      for (Entry entry : page.getEntries()) {
+        seen.add(entry.getData().get("day"));
+      }
+    }
+    while (cursor != null);
+
+    assertThat(seen, contains("3", "2", "2", "1"));
+  }
+
+  @Test
+  public void repositoryIdOfRecordsAppendedBeforeUpgradeIsBackfilled() throws Exception {
+    final long now = System.currentTimeMillis();
+    underTest.add(new EntryRecord(now, "TEST", "1", ImmutableMap.of("repoId", "r", "i", "1")));
+    underTest.add(new EntryRecord(now, "TEST", "1", ImmutableMap.of("repoId", "other", "i", "2")));
+    underTest.add(new EntryRecord(now, "TEST", "1", ImmutableMap.of("i", "3")));
+
+    // records as stored before repository ID became a top level property
+    try (ODatabaseDocumentTx db = underTest.openDb()) {
+      for (ODocument doc : db.browseClass(DefaultTimeline.DB_CLASS)) {
+        doc.removeField("repoId");
+        doc.save();
+      }
+      db.getMetadata().getSchema().getClass(DefaultTimeline.DB_CLASS).dropProperty("repoId");
+    }
+    underTest.stop();
+    underTest = new DefaultTimeline(mock(EventBus.class), databaseManager);
+    underTest.setRepositoryIndex(true);
+    underTest.start();
+
+    final EntryListCallback result = new EntryListCallback();
+    underTest.retrieve(0, Long.MAX_VALUE, null, 10, null, null, "r", null, result);
+    assertThat(result.getEntries(), hasSize(1));
+    assertThat(result.getEntries().get(0).getData(), hasEntry("i", "1"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void malformedCursor() throws Exception {
+    underTest.add(new EntryRecord(System.currentTimeMillis(), "TEST", "1", ImmutableMap.of("i", "1")));
+    underTest.retrieve(0, Long.MAX_VALUE, "not-a-cursor", 10, null, null, null, null, new EntryListCallback());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void cursorOutsideOfTimeline() throws Exception {
+    underTest.add(new EntryRecord(System.currentTimeMillis(), "TEST", "1", ImmutableMap.of("i", "1")));
+    underTest.retrieve(0, Long.MAX_VALUE, "#9999:0", 10, null, null, null, null, new EntryListCallback());
+  }
+
+  @Test
+  public void pagedByTimeRange() throws Exception {
+    final long now = new DateMidnight(DateTimeZone.UTC).getMillis();
+    underTest.add(new EntryRecord(now - TimeUnit.DAYS.toMillis(2), "TEST", "1", ImmutableMap.of("day", "1")));
+    underTest.add(new EntryRecord(now - TimeUnit.DAYS.toMillis(1), "TEST", "1", ImmutableMap.of("day", "2")));
+    underTest.add(new EntryRecord(now - TimeUnit.DAYS.toMillis(1) + 1, "TEST", "1", ImmutableMap.of("day", "2")));
+    underTest.add(new EntryRecord(now, "TEST", "1", ImmutableMap.of("day", "3")));
+
+    final EntryListCallback result = new EntryListCallback();
+    final String cursor = underTest.retrieve(now - TimeUnit.DAYS.toMillis(1), now, null, 10, null, null, null, null,
+        result);
+    assertThat(cursor, nullValue());
+    assertThat(result.getEntries(), hasSize(2));
+    for (Entry entry : result.getEntries()) {
+      assertThat(entry.getData(), hasEntry("day", "2"));
+    }
+  }
+
+  @Test
+  public void pagedByRepositoryAndFilter() throws Exception {
+    final long now = System.currentTimeMillis();
+    for (int i = 0; i < 10; i++) {
+      underTest.add(new EntryRecord(now, "TEST", "1",
+          ImmutableMap.of("repoId", i % 2 == 0 ? "even" : "odd", "i", String.valueOf(i))));
+    }
+
+    EntryListCallback result = new EntryListCallback();
+    underTest.retrieve(0, Long.MAX_VALUE, null, 10, null, null, "even", null, result);
+    assertThat(result.getEntries(), hasSize(5));
+    for (Entry entry : result.getEntries()) {
+      assertThat(entry.getData(), hasEntry("repoId", "even"));
+    }
+
+    // filtered out records do not count to the page
+    result = new EntryListCallback();
+    final String cursor = underTest.retrieve(0, Long.MAX_VALUE, null, 2, null, null, null, new Predicate<Entry>()
+    {
+      @Override
+      public boolean apply(final Entry input) {
+        return "odd".equals(input.getData().get("repoId"));
+      }
+    }, result);
+    assertThat(cursor, notNullValue());
+    assertThat(result.getEntries(), hasSize(2));
+    assertThat(result.getEntries().get(0).getData(), hasEntry("i", "9"));
+    assertThat(result.getEntries().get(1).getData(), hasEntry("i", "7"));
+  }
+
   // ==
 
   /**
@@ -0,0 +1,186 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.timeline.internal;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Tests for {@link TimelineWriter}.
+ */
+public class TimelineWriterTest
+    extends TestSupport
+{
+  private final List<List<EntryRecord>> batches = new CopyOnWriteArrayList<>();
+
+  private final List<Thread> writers = new CopyOnWriteArrayList<>();
+
+  private CountDownLatch writing = new CountDownLatch(0);
+
+  private CountDownLatch proceed = new CountDownLatch(0);
+
+  private final TimelineWriter.Sink sink = new TimelineWriter.Sink()
+  {
+    @Override
+    public void write(final List<EntryRecord> records) {
+      writers.add(Thread.currentThread());
+      writing.countDown();
+      try {
+        proceed.await();
+      }
+      catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      batches.add(ImmutableList.copyOf(records));
+    }
+
+    @Override
+    public void prepare(final long timestamp) {
+      // nothing to prepare
+    }
+  };
+
+  private TimelineWriter underTest;
+
+  @After
+  public void cleanup() {
+    if (underTest != null) {
+      proceed.countDown();
+      underTest.close();
+    }
+  }
+
+  @Test
+  public void writesInBatchesOnClose() {
+    underTest = new TimelineWriter(sink, 3, TimeUnit.HOURS.toMillis(1), 10);
+    underTest.start();
+
+    final List<EntryRecord> records = records(7);
+    underTest.enqueue(records);
+    underTest.close();
+
+    final List<EntryRecord> written = Lists.newArrayList();
+    for (List<EntryRecord> batch : batches) {
+      assertThat(batch.size(), lessThanOrEqualTo(3));
+      written.addAll(batch);
+    }
+    assertThat(written, equalTo(records));
+    assertThat(underTest.getDepth(), is(0));
+    assertThat(underTest.getDropped(), is(0L));
+  }
+
+  @Test
+  public void dropsWhenFull() throws Exception {
+    writing = new CountDownLatch(1);
+    proceed = new CountDownLatch(1);
+    underTest = new TimelineWriter(sink, 1, TimeUnit.HOURS.toMillis(1), 2);
+    underTest.start();
+
+    // reaching batch size triggers a flush, which blocks the writer
+    underTest.enqueue(records(1));
+    assertThat(writing.await(5, TimeUnit.SECONDS), is(true));
+
+    final List<EntryRecord> records = records(3);
+    assertThat(underTest.enqueue(records), is(1));
+    assertThat(underTest.getDepth(), is(2));
+    assertThat(underTest.getDropped(), is(1L));
+
+    proceed.countDown();
+    underTest.close();
+
+    final List<EntryRecord> written = Lists.newArrayList();
+    for (List<EntryRecord> batch : batches) {
+      written.addAll(batch);
+    }
+    assertThat(written, hasSize(3));
+    assertThat(written.subList(1, 3), contains(records.get(0), records.get(1)));
+  }
+
+  @Test
+  public void closeWaitsForWriterThread() throws Exception {
+    writing = new CountDownLatch(1);
+    proceed = new CountDownLatch(1);
+    underTest = new TimelineWriter(sink, 2, 50, 10);
+    underTest.start();
+
+    // reaching batch size triggers a flush, which blocks the writer for longer than the flush interval
+    final List<EntryRecord> records = records(2);
+    underTest.enqueue(records);
+    assertThat(writing.await(5, TimeUnit.SECONDS), is(true));
+    final List<EntryRecord> more = records(3);
+    underTest.enqueue(more);
+    records.addAll(more);
+
+    final Thread closer = new Thread()
+    {
+      @Override
+      public void run() {
+        underTest.close();
+      }
+    };
+    closer.start();
+    closer.join(500);
+    assertThat(closer.isAlive(), is(true));
+    assertThat(batches, hasSize(0));
+
+    proceed.countDown();
+    closer.join(5000);
+    assertThat(closer.isAlive(), is(false));
+
+    final List<EntryRecord> written = Lists.newArrayList();
+    for (List<EntryRecord> batch : batches) {
+      written.addAll(batch);
+    }
+    assertThat(written, equalTo(records));
+    assertThat(writers, everyItem(not(closer)));
+    assertThat(writers, everyItem(not(Thread.currentThread())));
+  }
+
+  @Test
+  public void rejectsWhenClosed() {
+    underTest = new TimelineWriter(sink, 1, TimeUnit.HOURS.toMillis(1), 2);
+    underTest.start();
+    underTest.close();
+
+    assertThat(underTest.enqueue(records(1)), is(1));
+    assertThat(batches, hasSize(0));
+  }
+
+  private List<EntryRecord> records(final int count) {
+    final List<EntryRecord> records = Lists.newArrayList();
+    for (int i = 0; i < count; i++) {
+      records.add(new EntryRecord(System.currentTimeMillis(), "TEST", "1",
+          Collections.singletonMap("i", String.valueOf(i))));
+    }
+    return records;
+  }
+}
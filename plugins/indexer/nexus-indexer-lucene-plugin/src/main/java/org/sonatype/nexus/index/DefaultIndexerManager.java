@@ -28,9 +28,16 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -42,6 +49,8 @@ import javax.inject.Singleton;
 
 import org.sonatype.nexus.common.io.DirSupport;
 import org.sonatype.nexus.configuration.application.NexusConfiguration;
+import org.sonatype.nexus.events.EventSubscriber;
+import org.sonatype.nexus.index.IndexUpdateQueue.Operation;
 import org.sonatype.nexus.maven.tasks.SnapshotRemover;
 import org.sonatype.nexus.mime.MimeSupport;
 import org.sonatype.nexus.proxy.ItemNotFoundException;
@@ -50,6 +59,7 @@ import org.sonatype.nexus.proxy.NoSuchRepositoryException;
 import org.sonatype.nexus.proxy.ResourceStoreRequest;
 import org.sonatype.nexus.proxy.access.Action;
 import org.sonatype.nexus.proxy.attributes.inspectors.DigestCalculatingInspector;
+import org.sonatype.nexus.proxy.events.NexusStartedEvent;
 import org.sonatype.nexus.proxy.item.DefaultStorageFileItem;
 import org.sonatype.nexus.proxy.item.FileContentLocator;
 import org.sonatype.nexus.proxy.item.RepositoryItemUid;
@@ -71,12 +81,18 @@ import org.sonatype.nexus.proxy.repository.ShadowRepository;
 import org.sonatype.nexus.proxy.storage.local.fs.DefaultFSLocalRepositoryStorage;
 import org.sonatype.nexus.proxy.utils.RepositoryStringUtils;
 import org.sonatype.nexus.scheduling.CancelableSupport;
+import org.sonatype.nexus.scheduling.CancelableSupport.CancelableFlagHolder;
+import org.sonatype.nexus.scheduling.ProgressSupport;
+import org.sonatype.nexus.scheduling.ProgressSupport.ProgressListener;
 import org.sonatype.nexus.scheduling.TaskInterruptedException;
+import org.sonatype.nexus.threads.NexusThreadFactory;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 import org.sonatype.sisu.goodies.common.Throwables2;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.eventbus.Subscribe;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.search.BooleanClause;
@@ -168,7 +184,9 @@ import org.apache.maven.index.util.IndexCreatorSorter;
  * shared lock on all member repositories. Most index operations use shared(), sharedSingle(), exclusive() or
  * temporary() helper methods that acquire and release appropriate lock(s). <br/>
  * Methods that return search result iterator acquire shared lock(s) on involved repositories but the caller MUST close
- * the iterator in order to release the lock(s).<br/>
+ * the iterator in order to release the lock(s). When <code>nexus.indexer.snapshotSearch</code> is enabled, searches
+ * hold the shared lock(s) only while acquiring point-in-time searchers, and closing the iterator releases the
+ * searchers instead.<br/>
  * Methods that return TreeNode uses special read-only IndexingContext implementation that acquires/release shared
  * locks
  * on involved repositories as part of acquireIndexSearcher()/releaseIndexSearcher() logic. Additionally, the indexing
@@ -180,6 +198,25 @@ import org.apache.maven.index.util.IndexCreatorSorter;
  * Access to gz index download and publishing areas and to repository local storage is protected by
  * <code>reindexLocks</code> reentrant locks.
  * </p>
+ * <p>
+ * When <code>nexus.indexer.writeBehind</code> is enabled, item add/remove operations are journaled and queued instead
+ * of being applied on the calling thread, see {@link IndexUpdateQueue}. Queued updates are applied in batches per
+ * repository, holding the same shared lock item add/remove operations do.
+ * </p>
+ * <p>
+ * When <code>nexus.indexer.concurrency</code> is greater than one, operations on all repositories and on members of a
+ * group repository process that many repositories in parallel, group repositories after all other repositories. Each
+ * repository is still processed under its own locks, and progress is reported per repository through
+ * {@link ProgressSupport}.
+ * </p>
+ * <p>
+ * When <code>nexus.indexer.searchCache</code> is enabled, results of iterator searches without caller provided filters
+ * and of identify lookups are cached, see {@link SearchResultCache}. Cached results are collected without the
+ * security filter, which is applied to them on every search instead. Entries are invalidated per repository by
+ * operations that modify the repository index: item updates drop entries of the repository and identify lookups of
+ * the changed checksums, while reindexing, index downloads and context changes (exclusiveSingle()) drop all entries
+ * that may include the repository.
+ * </p>
  *
  * @author Tamas Cservenak
  */
@@ -187,7 +224,7 @@ import org.apache.maven.index.util.IndexCreatorSorter;
 @Singleton
 public class DefaultIndexerManager
     extends ComponentSupport
-    implements IndexerManager
+    implements IndexerManager, EventSubscriber
 {
   private static final String ARTIFICIAL_EXCEPTION =
       "This is an artificial exception that provides caller backtrace.";
@@ -207,6 +244,11 @@ public class DefaultIndexerManager
    */
   public static final String PUBLISHING_PATH_PREFIX = "/.index";
 
+  /**
+   * Directory within working directory where the journal of queued item updates is kept.
+   */
+  public static final String UPDATE_QUEUE_DIRECTORY = "update-queue";
+
   /**
    * Indexing is supported for this repository.
    */
@@ -323,6 +365,80 @@ public class DefaultIndexerManager
   @Named("${nexus.indexer.locktimeout:-60}")
   private int lockTimeoutSeconds;
 
+  /**
+   * Whether searches run against point-in-time searchers instead of holding shared locks on the searched repositories
+   * until search results are closed. Index maintenance, such as reindex or publishing, then does not wait for search
+   * results to be consumed, and searches do not see changes made after they started.
+   */
+  @Inject
+  @Named("${nexus.indexer.snapshotSearch:-false}")
+  private boolean snapshotSearch;
+
+  /**
+   * Whether item add/remove operations are queued and applied in batches by a background thread, instead of being
+   * applied on the calling thread. Deploys then no longer wait for the index writer, at the cost of index updates
+   * becoming visible to searches with a delay.
+   */
+  @Inject
+  @Named("${nexus.indexer.writeBehind:-false}")
+  private boolean writeBehind;
+
+  /**
+   * Number of queued item updates that triggers a flush, regardless of flush interval.
+   */
+  @Inject
+  @Named("${nexus.indexer.writeBehind.batchSize:-500}")
+  private int writeBehindBatchSize;
+
+  /**
+   * Interval, in milliseconds, at which queued item updates are flushed.
+   */
+  @Inject
+  @Named("${nexus.indexer.writeBehind.flushMillis:-1000}")
+  private long writeBehindFlushMillis;
+
+  /**
+   * Maximum number of queued and in-flight item updates. Item add/remove operations block once it is reached.
+   */
+  @Inject
+  @Named("${nexus.indexer.writeBehind.capacity:-10000}")
+  private int writeBehindCapacity;
+
+  /**
+   * Whether results of iterator searches and identify lookups are cached until the index of a searched repository
+   * changes.
+   */
+  @Inject
+  @Named("${nexus.indexer.searchCache:-false}")
+  private boolean searchCacheEnabled;
+
+  /**
+   * Maximum number of artifacts held by all cached search results.
+   */
+  @Inject
+  @Named("${nexus.indexer.searchCache.maxArtifacts:-100000}")
+  private long searchCacheMaxArtifacts;
+
+  /**
+   * Maximum number of artifacts of a single search result to be cached, bigger results are not cached.
+   */
+  @Inject
+  @Named("${nexus.indexer.searchCache.maxEntryArtifacts:-1000}")
+  private int searchCacheMaxEntryArtifacts;
+
+  /**
+   * Number of repositories processed in parallel by reindex, remote index download, publish and optimize operations
+   * on all repositories or on members of a group repository.
+   */
+  @Inject
+  @Named("${nexus.indexer.concurrency:-1}")
+  private int concurrency;
+
+  /**
+   * Marks threads processing repositories in parallel, nested operations run on these threads sequentially.
+   */
+  private static final ThreadLocal<Boolean> PARALLEL_WORKER = new ThreadLocal<Boolean>();
+
   /**
    * Locks that protect access to repository index. Item-level add/remove and search operations must acquire read
    * lock. Index-level add/remove/reindex must acquire exclusive lock.
@@ -351,6 +467,41 @@ public class DefaultIndexerManager
 
   private File tempDirectory;
 
+  private IndexUpdateQueue updateQueue;
+
+  private volatile SearchResultCache searchCache;
+
+  /**
+   * Filters search results by the permissions of the current user.
+   */
+  private final ArtifactInfoFilter securityFilter = new ArtifactInfoFilter()
+  {
+    public boolean accepts(IndexingContext ctx, ArtifactInfo ai) {
+      return indexArtifactFilter.filterArtifactInfo(ai);
+    }
+  };
+
+  /**
+   * Replaces the context of search results with the name of their repository.
+   */
+  private final ArtifactInfoPostprocessor repositoryNamePostprocessor = new ArtifactInfoPostprocessor()
+  {
+    public void postprocess(IndexingContext ctx, ArtifactInfo ai) {
+      String result = ai.context;
+
+      try {
+        Repository sourceRepository = repositoryRegistry.getRepository(ai.repository);
+
+        result = sourceRepository.getName();
+      }
+      catch (NoSuchRepositoryException e) {
+        // nothing
+      }
+
+      ai.context = result;
+    }
+  };
+
   private final FSDirectoryFactory luceneDirectoryFactory = new FSDirectoryFactory()
   {
     @Override
@@ -361,43 +512,175 @@ public class DefaultIndexerManager
     }
   };
 
+  /**
+   * Operation performed on individual repositories, see {@link #perform(String, List, RepositoryOperation)}.
+   */
+  private interface RepositoryOperation<T extends Repository>
+  {
+    void perform(T repository)
+        throws IOException;
+  }
+
   /**
    * Performs the same operation on all immediate members of a group repository. Exceptions thrown during processing
    * of individual members are collected and return to the caller. Does nothing if provided repository is not a group
    * repository.
    */
   private abstract class GroupOperation
+      implements RepositoryOperation<Repository>
   {
     private final Repository repository;
 
-    public GroupOperation(Repository repository) {
+    private final String action;
+
+    public GroupOperation(Repository repository, String action) {
       this.repository = repository;
+      this.action = action;
     }
 
     public List<IOException> perform() {
-      final List<IOException> exceptions = new ArrayList<IOException>();
       if (ISGROUP(repository)) {
         List<Repository> members = repository.adaptToFacet(GroupRepository.class).getMemberRepositories();
-        for (Repository member : members) {
-          CancelableSupport.checkCancellation();
-          try {
-            perform(member);
-          }
-          catch (IOException e) {
-            exceptions.add(e);
-          }
-        }
+        return DefaultIndexerManager.this.perform(action, members, this);
       }
-      return exceptions;
+      return new ArrayList<IOException>();
     }
 
     /**
      * Operation to perform on individual member repositories.
      */
-    protected abstract void perform(Repository member)
+    @Override
+    public abstract void perform(Repository member)
         throws IOException;
   }
 
+  /**
+   * Performs the operation on all provided repositories, processing up to <code>nexus.indexer.concurrency</code>
+   * repositories in parallel. Repositories are processed sequentially when called from a thread that already
+   * processes a repository in parallel. Returns once all repositories were processed. Exceptions thrown during
+   * processing of individual repositories are collected and returned to the caller, progress and timing of each is
+   * reported through {@link ProgressSupport}.
+   */
+  private <T extends Repository> List<IOException> perform(final String action, final List<T> repositories,
+                                                           final RepositoryOperation<T> operation)
+  {
+    final List<IOException> exceptions = Collections.synchronizedList(new ArrayList<IOException>());
+    final AtomicInteger processed = new AtomicInteger();
+
+    if (concurrency <= 1 || repositories.size() <= 1 || PARALLEL_WORKER.get() != null) {
+      for (T repository : repositories) {
+        CancelableSupport.checkCancellation();
+        perform(action, repository, operation, processed, repositories.size(), exceptions);
+      }
+      return exceptions;
+    }
+
+    final CancelableFlagHolder cancelable = CancelableSupport.getCurrent();
+    final ProgressListener progress = ProgressSupport.getCurrent();
+    final ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, repositories.size()),
+        new NexusThreadFactory("idxw", "Indexer Worker"));
+    try {
+      final List<Future<Void>> futures = new ArrayList<Future<Void>>(repositories.size());
+      for (final T repository : repositories) {
+        futures.add(executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() {
+            PARALLEL_WORKER.set(Boolean.TRUE);
+            CancelableSupport.setCurrent(cancelable);
+            ProgressSupport.setCurrent(progress);
+            try {
+              CancelableSupport.checkCancellation();
+              perform(action, repository, operation, processed, repositories.size(), exceptions);
+              return null;
+            }
+            finally {
+              ProgressSupport.setCurrent(null);
+              CancelableSupport.setCurrent(null);
+              PARALLEL_WORKER.remove();
+            }
+          }
+        }));
+      }
+
+      // wait for all, so that no repository is processed once this method returned
+      Throwable failure = null;
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        }
+        catch (CancellationException e) {
+          // skipped due to an earlier failure
+        }
+        catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+            for (Future<Void> pending : futures) {
+              pending.cancel(false);
+            }
+          }
+        }
+        catch (InterruptedException e) {
+          for (Future<Void> pending : futures) {
+            pending.cancel(true);
+          }
+          throw new TaskInterruptedException("Thread \"" + Thread.currentThread().getName() + "\" is interrupted!",
+              false);
+        }
+      }
+      if (failure != null) {
+        throw Throwables.propagate(failure);
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+    return exceptions;
+  }
+
+  private <T extends Repository> void perform(String action, T repository, RepositoryOperation<T> operation,
+                                              AtomicInteger processed, int total, List<IOException> exceptions)
+  {
+    final long started = System.currentTimeMillis();
+    boolean failed = true;
+    try {
+      operation.perform(repository);
+      failed = false;
+    }
+    catch (IOException e) {
+      exceptions.add(e);
+    }
+    finally {
+      final String message = String.format("%s repository %s%s (%s of %s) in %s ms", action, repository.getId(),
+          failed ? " with failure" : "", processed.incrementAndGet(), total, System.currentTimeMillis() - started);
+      log.debug(message);
+      ProgressSupport.report(message);
+    }
+  }
+
+  /**
+   * Marks the repository processed, returns false if it was processed already. Group members may be processed by
+   * multiple threads, that share the set.
+   */
+  private static boolean markProcessed(Set<String> processedRepositoryIds, Repository repository) {
+    synchronized (processedRepositoryIds) {
+      return processedRepositoryIds.add(repository.getId());
+    }
+  }
+
+  /**
+   * Returns the repositories that are group repositories, or the ones that are not.
+   */
+  private List<Repository> filterGroups(List<Repository> repositories, boolean groups) {
+    final List<Repository> result = new ArrayList<Repository>();
+    for (Repository repository : repositories) {
+      if (ISGROUP(repository) == groups) {
+        result.add(repository);
+      }
+    }
+    return result;
+  }
+
   @VisibleForTesting
   protected void setIndexUpdater(final IndexUpdater indexUpdater) {
     this.indexUpdater = indexUpdater;
@@ -431,6 +714,23 @@ public class DefaultIndexerManager
   {
     log.info("Shutting down Nexus IndexerManager");
 
+    // apply queued item updates while contexts are still open, later updates are applied directly
+    final IndexUpdateQueue queue;
+    synchronized (this) {
+      queue = updateQueue;
+    }
+    if (queue != null) {
+      queue.close();
+    }
+
+    synchronized (this) {
+      if (searchCache != null) {
+        searchCache.invalidateAll();
+        searchCache.unregisterMetrics();
+        searchCache = null;
+      }
+    }
+
     for (IndexingContext ctx : mavenIndexer.getIndexingContexts().values()) {
       mavenIndexer.removeIndexingContext(ctx, false);
     }
@@ -444,6 +744,22 @@ public class DefaultIndexerManager
     }
   }
 
+  /**
+   * Replays item updates journaled but not applied before an unclean shutdown, once all repositories and their
+   * indexing contexts are in place.
+   */
+  @Subscribe
+  public void on(final NexusStartedEvent evt) {
+    if (writeBehind) {
+      try {
+        getUpdateQueue();
+      }
+      catch (IOException e) {
+        log.warn("Could not start indexer update queue", e);
+      }
+    }
+  }
+
   public void resetConfiguration() {
     workingDirectory = null;
 
@@ -726,6 +1042,11 @@ public class DefaultIndexerManager
       return;
     }
 
+    if (writeBehind
+        && getUpdateQueue().enqueue(repository.getId(), item.getRepositoryItemUid().getPath(), Operation.ADD)) {
+      return;
+    }
+
     // do the work
     // Maybe detect Merged context and NOT do the work? Everything works transparently, but still... a lot of calls
     // for nothing
@@ -749,46 +1070,60 @@ public class DefaultIndexerManager
     uidLock.lock(Action.read);
 
     try {
+      final ArtifactContext ac = getAddedArtifactContext(repository, item, context);
 
-      ArtifactContext ac = null;
+      // and finally: index it
+      if (ac != null) {
+        getNexusIndexer().addArtifactToIndex(ac, context);
+        invalidateSearchCache(context, Collections.singletonList(ac));
+      }
+    }
+    finally {
+      uidLock.unlock();
+    }
+  }
 
-      // if we have a valid indexing context and have access to a File
-      if (DefaultFSLocalRepositoryStorage.class.isAssignableFrom(repository.getLocalStorage().getClass())) {
-        File file =
-            ((DefaultFSLocalRepositoryStorage) repository.getLocalStorage()).getFileFromBase(repository,
-                new ResourceStoreRequest(item));
+  /**
+   * Creates the artifact context of an added item, or returns null if the item cannot be indexed. Caller must hold
+   * the item lock.
+   */
+  private ArtifactContext getAddedArtifactContext(Repository repository, StorageItem item, IndexingContext context)
+      throws LocalStorageException
+  {
+    ArtifactContext ac = null;
 
-        if (file.exists()) {
-          try {
-            ac = artifactContextProducer.getArtifactContext(context, file);
-          }
-          catch (IllegalArgumentException e) {
-            // cannot create artifact context, forget it
-            return;
-          }
+    // if we have a valid indexing context and have access to a File
+    if (DefaultFSLocalRepositoryStorage.class.isAssignableFrom(repository.getLocalStorage().getClass())) {
+      File file =
+          ((DefaultFSLocalRepositoryStorage) repository.getLocalStorage()).getFileFromBase(repository,
+              new ResourceStoreRequest(item));
 
-          if (ac != null) {
-            if (log.isDebugEnabled()) {
-              log.debug("The ArtifactContext created from file is fine, continuing.");
-            }
+      if (file.exists()) {
+        try {
+          ac = artifactContextProducer.getArtifactContext(context, file);
+        }
+        catch (IllegalArgumentException e) {
+          // cannot create artifact context, forget it
+          return null;
+        }
+
+        if (ac != null) {
+          if (log.isDebugEnabled()) {
+            log.debug("The ArtifactContext created from file is fine, continuing.");
+          }
 
-            ArtifactInfo ai = ac.getArtifactInfo();
+          ArtifactInfo ai = ac.getArtifactInfo();
 
-            if (ai.sha1 == null) {
-              // if repo has no sha1 checksum, odd nexus one
-              ai.sha1 =
-                  item.getRepositoryItemAttributes().get(DigestCalculatingInspector.DIGEST_SHA1_KEY);
-            }
+          if (ai.sha1 == null) {
+            // if repo has no sha1 checksum, odd nexus one
+            ai.sha1 =
+                item.getRepositoryItemAttributes().get(DigestCalculatingInspector.DIGEST_SHA1_KEY);
           }
         }
       }
-
-      // and finally: index it
-      getNexusIndexer().addArtifactToIndex(ac, context);
-    }
-    finally {
-      uidLock.unlock();
     }
+
+    return ac;
   }
 
   public void removeItemFromIndex(final Repository repository, final StorageItem item)
@@ -803,6 +1138,14 @@ public class DefaultIndexerManager
       return;
     }
 
+    if (writeBehind) {
+      // NEXUS-814: the marker lives in item context only, so it is evaluated before the removal is queued
+      if (item.getItemContext().containsKey(SnapshotRemover.MORE_TS_SNAPSHOTS_EXISTS_FOR_GAV)
+          || getUpdateQueue().enqueue(repository.getId(), item.getRepositoryItemUid().getPath(), Operation.REMOVE)) {
+        return;
+      }
+    }
+
     // do the work
     sharedSingle(repository, new Runnable()
     {
@@ -818,16 +1161,55 @@ public class DefaultIndexerManager
   private void removeItemFromIndex(Repository repository, StorageItem item, IndexingContext context)
       throws IOException
   {
+    final ArtifactContext ac = getRemovedArtifactContext(repository, item.getRepositoryItemUid().getPath(), context);
+    if (ac == null) {
+      return;
+    }
+
+    // remove file from index
+    if (log.isDebugEnabled()) {
+      log.debug("Deleting artifact " + ac.getArtifactInfo().groupId + ":" + ac.getArtifactInfo().artifactId + ":"
+          + ac.getArtifactInfo().version + " from index (DELETE).");
+    }
+
+    // NEXUS-814: we should not delete always
+    if (!item.getItemContext().containsKey(SnapshotRemover.MORE_TS_SNAPSHOTS_EXISTS_FOR_GAV)) {
+      final RepositoryItemUidLock uidLock = item.getRepositoryItemUid().getLock();
+
+      uidLock.lock(Action.read);
+
+      try {
+        getNexusIndexer().deleteArtifactFromIndex(ac, context);
+        invalidateSearchCache(context, Collections.singletonList(ac));
+      }
+      finally {
+        uidLock.unlock();
+      }
+    }
+    else {
+      // do NOT remove file from index
+      if (log.isDebugEnabled()) {
+        log.debug("NOT deleting artifact " + ac.getArtifactInfo().groupId + ":"
+            + ac.getArtifactInfo().artifactId + ":" + ac.getArtifactInfo().version
+            + " from index (DELETE), since it is a timestamped snapshot and more builds exists.");
+      }
+    }
+  }
+
+  /**
+   * Creates the artifact context of a removed item, or returns null if the path is not an artifact that is indexed.
+   */
+  private ArtifactContext getRemovedArtifactContext(Repository repository, String path, IndexingContext context) {
     // by calculating GAV we check wether the request is against a repo artifact at all
     Gav gav = null;
 
-    gav = ((MavenRepository) repository).getGavCalculator().pathToGav(item.getRepositoryItemUid().getPath());
+    gav = ((MavenRepository) repository).getGavCalculator().pathToGav(path);
 
     // signatures and hashes are not considered for processing
     // reason (NEXUS-814 related): the actual artifact and it's POM will (or already did)
     // emitted events about modifying them
     if (gav == null || gav.isSignature() || gav.isHash()) {
-      return;
+      return null;
     }
 
     ArtifactInfo ai =
@@ -849,35 +1231,138 @@ public class DefaultIndexerManager
     }
     catch (IllegalArgumentException e) {
       // ac cannot be created, just forget it being indexed
+      return null;
+    }
+
+    return ac;
+  }
+
+  // ----------------------------------------------------------------------------
+  // Write-behind item updates
+  // ----------------------------------------------------------------------------
+
+  private synchronized IndexUpdateQueue getUpdateQueue()
+      throws IOException
+  {
+    if (updateQueue == null) {
+      final IndexUpdateQueue queue = new IndexUpdateQueue(new File(getWorkingDirectory(), UPDATE_QUEUE_DIRECTORY),
+          new IndexUpdateQueue.Flusher()
+          {
+            @Override
+            public void flush(final String repositoryId, final Map<String, Operation> updates)
+                throws IOException
+            {
+              flushItemUpdates(repositoryId, updates);
+            }
+          }, writeBehindBatchSize, writeBehindFlushMillis, writeBehindCapacity);
+      queue.start();
+      updateQueue = queue;
+    }
+    return updateQueue;
+  }
+
+  private void flushItemUpdates(final String repositoryId, final Map<String, Operation> updates)
+      throws IOException
+  {
+    final Repository repository;
+    try {
+      repository = repositoryRegistry.getRepository(repositoryId);
+    }
+    catch (NoSuchRepositoryException e) {
+      log.debug("Dropping {} index updates of removed repository {}", updates.size(), repositoryId);
       return;
     }
 
-    // remove file from index
-    if (log.isDebugEnabled()) {
-      log.debug("Deleting artifact " + ai.groupId + ":" + ai.artifactId + ":" + ai.version
-          + " from index (DELETE).");
+    if (!INDEXABLE(repository) || !INSERVICE(repository)) {
+      return;
     }
 
-    // NEXUS-814: we should not delete always
-    if (!item.getItemContext().containsKey(SnapshotRemover.MORE_TS_SNAPSHOTS_EXISTS_FOR_GAV)) {
-      final RepositoryItemUidLock uidLock = item.getRepositoryItemUid().getLock();
+    // unlike sharedSingle, failing to get hold of the context is reported, so that the queue retries the updates
+    final Lock lock = getRepositoryLock(repository, false /* shared */);
+    if (lock == null) {
+      throw new IOException("Could not acquire shared lock on repository " + repositoryId);
+    }
+    try {
+      final IndexingContext context = getRepositoryIndexContext(repository);
+      if (context == null) {
+        throw new IOException("No indexing context of repository " + repositoryId);
+      }
+      flushItemUpdates(repository, updates, context);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
 
-      uidLock.lock(Action.read);
+  /**
+   * Applies queued item updates in order. Consecutive updates of the same kind are applied as one batch, so the index
+   * is committed once per batch instead of once per item. Item locks are only held while artifact contexts are
+   * created, not while the batch is written to the index.
+   */
+  private void flushItemUpdates(Repository repository, Map<String, Operation> updates, IndexingContext context)
+      throws IOException
+  {
+    final List<ArtifactContext> batch = new ArrayList<ArtifactContext>();
+    Operation batchOperation = null;
+    for (Map.Entry<String, Operation> update : updates.entrySet()) {
+      if (update.getValue() != batchOperation) {
+        applyItemUpdates(batchOperation, batch, context);
+        batchOperation = update.getValue();
+      }
 
+      final RepositoryItemUid uid = repository.createUid(update.getKey());
+      final RepositoryItemUidLock uidLock = uid.getLock();
+      final ArtifactContext ac;
+      uidLock.lock(Action.read);
       try {
-        getNexusIndexer().deleteArtifactFromIndex(ac, context);
+        if (Operation.ADD == batchOperation) {
+          ac = getAddedArtifactContext(repository, uid, context);
+        }
+        else {
+          ac = getRemovedArtifactContext(repository, uid.getPath(), context);
+        }
       }
       finally {
         uidLock.unlock();
       }
+      if (ac != null) {
+        batch.add(ac);
+      }
     }
-    else {
-      // do NOT remove file from index
-      if (log.isDebugEnabled()) {
-        log.debug("NOT deleting artifact " + ac.getArtifactInfo().groupId + ":"
-            + ac.getArtifactInfo().artifactId + ":" + ac.getArtifactInfo().version
-            + " from index (DELETE), since it is a timestamped snapshot and more builds exists.");
+    applyItemUpdates(batchOperation, batch, context);
+  }
+
+  private ArtifactContext getAddedArtifactContext(Repository repository, RepositoryItemUid uid,
+                                                  IndexingContext context)
+      throws LocalStorageException
+  {
+    try {
+      final StorageItem item =
+          repository.getLocalStorage().retrieveItem(repository, new ResourceStoreRequest(uid.getPath(), true));
+      return getAddedArtifactContext(repository, item, context);
+    }
+    catch (ItemNotFoundException e) {
+      // removed since it was queued, the removal is queued as well
+      return null;
+    }
+  }
+
+  private void applyItemUpdates(Operation operation, List<ArtifactContext> batch, IndexingContext context)
+      throws IOException
+  {
+    if (!batch.isEmpty()) {
+      try {
+        if (Operation.ADD == operation) {
+          getNexusIndexer().addArtifactsToIndex(batch, context);
+        }
+        else {
+          getNexusIndexer().deleteArtifactsFromIndex(batch, context);
+        }
+      }
+      finally {
+        invalidateSearchCache(context, batch);
       }
+      batch.clear();
     }
   }
 
@@ -900,30 +1385,23 @@ public class DefaultIndexerManager
     log.debug("Reindexing all repositories fromPath={} fullReindex={}", fromPath, fullReindex);
 
     final List<Repository> reposes = repositoryRegistry.getRepositories();
-    final ArrayList<IOException> exceptions = new ArrayList<IOException>();
-    for (Repository repository : reposes) {
-      CancelableSupport.checkCancellation();
-      try {
-        // going directly to single-shot, we are iterating over all reposes anyway
-        reindexRepository(repository, fromPath, fullReindex);
-      }
-      catch (IOException e) {
-        exceptions.add(e);
-      }
-    }
+    // groups are not reindexed
+    final List<IOException> exceptions = perform("Reindexed", filterGroups(reposes, false),
+        new RepositoryOperation<Repository>()
+        {
+          @Override
+          public void perform(Repository repository)
+              throws IOException
+          {
+            // going directly to single-shot, we are iterating over all reposes anyway
+            reindexRepository(repository, fromPath, fullReindex);
+          }
+        });
     // this has to happen after _every_ reindex happened,
     // as otherwise publish of a group might publish index
     // containing a member that is not yet updated
     if (REINDEX_PUBLISHES) {
-      for (Repository repository : reposes) {
-        CancelableSupport.checkCancellation();
-        try {
-          publishRepositoryIndex(repository);
-        }
-        catch (IOException e) {
-          exceptions.add(e);
-        }
-      }
+      exceptions.addAll(publishRepositoryIndexes(reposes));
     }
 
     if (!exceptions.isEmpty()) {
@@ -942,15 +1420,15 @@ public class DefaultIndexerManager
                                    final Set<String> processedRepositoryIds)
       throws IOException
   {
-    if (!processedRepositoryIds.add(repository.getId())) {
+    if (!markProcessed(processedRepositoryIds, repository)) {
       // already processed, bail out
       return;
     }
 
-    final List<IOException> exceptions = new GroupOperation(repository)
+    final List<IOException> exceptions = new GroupOperation(repository, "Reindexed")
     {
       @Override
-      protected void perform(Repository member)
+      public void perform(Repository member)
           throws IOException
       {
         reindexRepository(path, member, fullReindex, processedRepositoryIds);
@@ -995,7 +1473,12 @@ public class DefaultIndexerManager
           //Try incremental update first
           try {
             Runnable runnable = new IndexUpdateRunnable(repository, fromPath, false);
-            sharedSingle(repository, runnable);
+            try {
+              sharedSingle(repository, runnable);
+            }
+            finally {
+              invalidateSearchCache(repository);
+            }
             log.debug("Reindexed repository {}", repository.getId());
             return;
           }
@@ -1083,15 +1566,16 @@ public class DefaultIndexerManager
     log.debug("Downloading remote indexes for all repositories");
 
     final List<ProxyRepository> reposes = repositoryRegistry.getRepositoriesWithFacet(ProxyRepository.class);
-    final ArrayList<IOException> exceptions = new ArrayList<IOException>();
-    for (ProxyRepository repository : reposes) {
-      try {
-        downloadRepositoryIndex(repository, false);
-      }
-      catch (IOException e) {
-        exceptions.add(e);
-      }
-    }
+    final List<IOException> exceptions = perform("Downloaded remote index of", reposes,
+        new RepositoryOperation<ProxyRepository>()
+        {
+          @Override
+          public void perform(ProxyRepository repository)
+              throws IOException
+          {
+            downloadRepositoryIndex(repository, false);
+          }
+        });
     if (!exceptions.isEmpty()) {
       throw Throwables2.composite(new IOException("Exception(s) happened during downloadAllIndex()"), exceptions);
     }
@@ -1107,15 +1591,15 @@ public class DefaultIndexerManager
   public void downloadRepositoryIndex(final Repository repository, final Set<String> processedRepositoryIds)
       throws IOException
   {
-    if (!processedRepositoryIds.add(repository.getId())) {
+    if (!markProcessed(processedRepositoryIds, repository)) {
       // already processed, bail out
       return;
     }
 
-    final List<IOException> exceptions = new GroupOperation(repository)
+    final List<IOException> exceptions = new GroupOperation(repository, "Downloaded remote index of")
     {
       @Override
-      protected void perform(Repository member)
+      public void perform(Repository member)
           throws IOException
       {
         downloadRepositoryIndex(member, processedRepositoryIds);
@@ -1156,7 +1640,12 @@ public class DefaultIndexerManager
               }
             };
 
-            sharedSingle(repository, runnable);
+            try {
+              sharedSingle(repository, runnable);
+            }
+            finally {
+              invalidateSearchCache(repository);
+            }
             return;
           }
           catch (IncrementalIndexUpdateException e) {
@@ -1377,22 +1866,33 @@ public class DefaultIndexerManager
     log.debug("Publishing indexes for all repositories");
 
     final List<Repository> reposes = repositoryRegistry.getRepositories();
-    final ArrayList<IOException> exceptions = new ArrayList<IOException>();
     // just publish all, since we use merged context, no need for double pass
-    for (Repository repository : reposes) {
-      CancelableSupport.checkCancellation();
-      try {
-        publishRepositoryIndex(repository);
-      }
-      catch (IOException e) {
-        exceptions.add(e);
-      }
-    }
+    final List<IOException> exceptions = publishRepositoryIndexes(reposes);
     if (!exceptions.isEmpty()) {
       throw Throwables2.composite(new IOException("Exception(s) happened during publishAllIndex()"), exceptions);
     }
   }
 
+  /**
+   * Publishes indexes of all provided repositories, group repositories after all the others, as their merged
+   * contexts read member indexes.
+   */
+  private List<IOException> publishRepositoryIndexes(List<Repository> repositories) {
+    final RepositoryOperation<Repository> publish = new RepositoryOperation<Repository>()
+    {
+      @Override
+      public void perform(Repository repository)
+          throws IOException
+      {
+        publishRepositoryIndex(repository);
+      }
+    };
+    final List<IOException> exceptions = new ArrayList<IOException>();
+    exceptions.addAll(perform("Published index of", filterGroups(repositories, false), publish));
+    exceptions.addAll(perform("Published index of", filterGroups(repositories, true), publish));
+    return exceptions;
+  }
+
   public void publishRepositoryIndex(final String repositoryId)
       throws IOException, NoSuchRepositoryException
   {
@@ -1403,15 +1903,15 @@ public class DefaultIndexerManager
   protected void publishRepositoryIndex(final Repository repository, final Set<String> processedRepositoryIds)
       throws IOException
   {
-    if (!processedRepositoryIds.add(repository.getId())) {
+    if (!markProcessed(processedRepositoryIds, repository)) {
       // already processed, bail out
       return;
     }
 
-    final List<IOException> exceptions = new GroupOperation(repository)
+    final List<IOException> exceptions = new GroupOperation(repository, "Published index of")
     {
       @Override
-      protected void perform(Repository member)
+      public void perform(Repository member)
           throws IOException
       {
         publishRepositoryIndex(member, processedRepositoryIds);
@@ -1576,16 +2076,15 @@ public class DefaultIndexerManager
     log.debug("Optimizing indexes for all repositories");
 
     final List<Repository> repos = repositoryRegistry.getRepositories();
-    final ArrayList<IOException> exceptions = new ArrayList<IOException>();
-    for (Repository repository : repos) {
-      CancelableSupport.checkCancellation();
-      try {
+    final List<IOException> exceptions = perform("Optimized index of", repos, new RepositoryOperation<Repository>()
+    {
+      @Override
+      public void perform(Repository repository)
+          throws IOException
+      {
         optimizeRepositoryIndex(repository);
       }
-      catch (IOException e) {
-        exceptions.add(e);
-      }
-    }
+    });
     if (!exceptions.isEmpty()) {
       throw Throwables2.composite(new IOException("Exception(s) happened during optimizeAllRepositoriesIndex()"),
           exceptions);
@@ -1602,15 +2101,15 @@ public class DefaultIndexerManager
   protected void optimizeIndex(final Repository repository, final Set<String> processedRepositoryIds)
       throws CorruptIndexException, IOException
   {
-    if (!processedRepositoryIds.add(repository.getId())) {
+    if (!markProcessed(processedRepositoryIds, repository)) {
       // already processed, bail out
       return;
     }
 
-    final List<IOException> exceptions = new GroupOperation(repository)
+    final List<IOException> exceptions = new GroupOperation(repository, "Optimized index of")
     {
       @Override
-      protected void perform(Repository member)
+      public void perform(Repository member)
           throws IOException
       {
         optimizeIndex(member, processedRepositoryIds);
@@ -1657,7 +2156,26 @@ public class DefaultIndexerManager
   public Collection<ArtifactInfo> identifyArtifact(Field field, String data)
       throws IOException
   {
-    return mavenIndexer.identify(field, data);
+    final SearchResultCache cache = getSearchCache();
+    if (cache == null) {
+      return mavenIndexer.identify(field, data);
+    }
+
+    // identify searches all indexing contexts, lookups by checksum are invalidated only by changes of that checksum
+    final SearchResultCache.Key key = new SearchResultCache.Key(
+        "identify " + constructQuery(field, data, SearchType.EXACT), MAVEN.SHA1.equals(field) ? data : null);
+
+    final SearchResultCache.Results cached = cache.get(key);
+    if (cached != null) {
+      return new ArrayList<ArtifactInfo>(cached.getArtifacts());
+    }
+
+    final long generation = cache.getGeneration(key);
+    final Collection<ArtifactInfo> result = mavenIndexer.identify(field, data);
+    if (result != null) {
+      cache.put(key, new SearchResultCache.Results(result, result.size()), generation);
+    }
+    return result;
   }
 
   // ----------------------------------------------------------------------------
@@ -1834,21 +2352,20 @@ public class DefaultIndexerManager
   {
     IteratorSearchRequest req = new IteratorSearchRequest(bq);
 
-    List<ArtifactInfoFilter> filters = new ArrayList<ArtifactInfoFilter>();
+    if (extraFilters != null && extraFilters.size() > 0) {
+      List<ArtifactInfoFilter> filters = new ArrayList<ArtifactInfoFilter>();
 
-    // security filter
-    filters.add(new ArtifactInfoFilter()
-    {
-      public boolean accepts(IndexingContext ctx, ArtifactInfo ai) {
-        return indexArtifactFilter.filterArtifactInfo(ai);
-      }
-    });
+      // security filter
+      filters.add(securityFilter);
 
-    if (extraFilters != null && extraFilters.size() > 0) {
       filters.addAll(extraFilters);
-    }
 
-    req.setArtifactInfoFilter(new AndMultiArtifactInfoFilter(filters));
+      req.setArtifactInfoFilter(new AndMultiArtifactInfoFilter(filters));
+    }
+    else {
+      // security filter only, requests filtered just by it may be served from search cache
+      req.setArtifactInfoFilter(securityFilter);
+    }
 
     if (uniqueRGA) {
       req.setArtifactInfoPostprocessor(new ArtifactInfoPostprocessor()
@@ -1862,23 +2379,7 @@ public class DefaultIndexerManager
     else {
       // we may do this only when !uniqueRGA, otherwise UniqueGAArtifactFilterPostprocessor nullifies
       // ai.repository and ai.context
-      req.setArtifactInfoPostprocessor(new ArtifactInfoPostprocessor()
-      {
-        public void postprocess(IndexingContext ctx, ArtifactInfo ai) {
-          String result = ai.context;
-
-          try {
-            Repository sourceRepository = repositoryRegistry.getRepository(ai.repository);
-
-            result = sourceRepository.getName();
-          }
-          catch (NoSuchRepositoryException e) {
-            // nothing
-          }
-
-          ai.context = result;
-        }
-      });
+      req.setArtifactInfoPostprocessor(repositoryNamePostprocessor);
     }
 
     if (from != null) {
@@ -2050,6 +2551,10 @@ public class DefaultIndexerManager
   private FlatSearchResponse searchFlat(String repositoryId, FlatSearchRequest req)
       throws NoSuchRepositoryException
   {
+    if (snapshotSearch) {
+      return searchSnapshotFlat(repositoryId, req);
+    }
+
     LockedIndexingContexts lockedContexts = lockSearchTargetIndexingContexts(repositoryId);
 
     if (lockedContexts == null) {
@@ -2086,6 +2591,96 @@ public class DefaultIndexerManager
   private IteratorSearchResponse searchIterator(String repositoryId, IteratorSearchRequest req)
       throws NoSuchRepositoryException
   {
+    final SearchResultCache cache = getSearchCache();
+    if (cache != null && req.getArtifactInfoFilter() == securityFilter
+        && req.getArtifactInfoPostprocessor() == repositoryNamePostprocessor) {
+      return searchCachedIterator(cache, repositoryId, req);
+    }
+
+    return searchIndexIterator(repositoryId, req);
+  }
+
+  /**
+   * Serves the search from the search cache. On cache miss, the search is performed without the security filter and
+   * its results are cached, unless there are too many of them. Either way, the security filter is applied to the
+   * results as they are iterated.
+   */
+  private IteratorSearchResponse searchCachedIterator(SearchResultCache cache, String repositoryId,
+                                                      IteratorSearchRequest req)
+      throws NoSuchRepositoryException
+  {
+    List<String> targets = new ArrayList<String>();
+    for (Repository repository : getSearchTargetRepositories(repositoryId)) {
+      targets.add(repository.getId());
+    }
+
+    StringBuilder query = new StringBuilder(req.getQuery().toString());
+    for (MatchHighlightRequest highlight : req.getMatchHighlightRequests()) {
+      query.append(" highlight:").append(highlight.getField().getFieldName());
+    }
+
+    final SearchResultCache.Key key =
+        new SearchResultCache.Key(query.toString(), targets, req.getStart(), req.getCount());
+
+    final SearchResultCache.Results cached = cache.get(key);
+    if (cached != null) {
+      return new IteratorSearchResponse(req.getQuery(), cached.getTotalHits(),
+          new FilteringIteratorResultSet(cached.getArtifacts().iterator(), securityFilter, null));
+    }
+
+    final long generation = cache.getGeneration(key);
+
+    req.setArtifactInfoFilter(null);
+
+    final IteratorSearchResponse response = searchIndexIterator(repositoryId, req);
+
+    final IteratorResultSet results = response.getResults();
+
+    // only results of an actual search are cached, not the empty ones returned when search could not be performed
+    if (!(results instanceof LockingIteratorResultSet || results instanceof SnapshotIteratorResultSet)) {
+      return response;
+    }
+
+    int window = response.getTotalHitsCount() - Math.max(0, req.getStart());
+    if (req.getCount() >= 0) {
+      window = Math.min(window, req.getCount());
+    }
+
+    if (!cache.isCacheable(window)) {
+      return new IteratorSearchResponse(response.getQuery(), response.getTotalHitsCount(),
+          new FilteringIteratorResultSet(results, securityFilter, results));
+    }
+
+    final List<ArtifactInfo> artifacts = new ArrayList<ArtifactInfo>();
+    try {
+      while (results.hasNext()) {
+        artifacts.add(results.next());
+      }
+    }
+    finally {
+      try {
+        results.close();
+      }
+      catch (IOException e) {
+        log.warn("Could not close search results of query \"" + req.getQuery() + "\"", e);
+      }
+    }
+
+    final SearchResultCache.Results collected =
+        new SearchResultCache.Results(artifacts, response.getTotalHitsCount());
+    cache.put(key, collected, generation);
+
+    return new IteratorSearchResponse(response.getQuery(), collected.getTotalHits(),
+        new FilteringIteratorResultSet(collected.getArtifacts().iterator(), securityFilter, null));
+  }
+
+  private IteratorSearchResponse searchIndexIterator(String repositoryId, IteratorSearchRequest req)
+      throws NoSuchRepositoryException
+  {
+    if (snapshotSearch) {
+      return searchSnapshotIterator(repositoryId, req);
+    }
+
     LockedIndexingContexts lockedContexts = lockSearchTargetIndexingContexts(repositoryId);
 
     if (lockedContexts == null) {
@@ -2129,6 +2724,143 @@ public class DefaultIndexerManager
     }
   }
 
+  private FlatSearchResponse searchSnapshotFlat(String repositoryId, FlatSearchRequest req)
+      throws NoSuchRepositoryException
+  {
+    List<SnapshotIndexingContext> snapshots = snapshotSearchTargetIndexingContexts(repositoryId);
+
+    if (snapshots == null) {
+      return new FlatSearchResponse(req.getQuery(), 0, Collections.<ArtifactInfo>emptySet());
+    }
+
+    try {
+      req.getContexts().addAll(snapshots);
+
+      FlatSearchResponse result = mavenIndexer.searchFlat(req);
+
+      postprocessResults(result.getResults());
+
+      return result;
+    }
+    catch (BooleanQuery.TooManyClauses e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Too many clauses exception caught:", e);
+      }
+
+      // XXX: a hack, I am sending too many results by setting the totalHits value to -1!
+      return new FlatSearchResponse(req.getQuery(), -1, new HashSet<ArtifactInfo>());
+    }
+    catch (IOException e) {
+      log.error("Got I/O exception while searching for query \"" + req.getQuery() + "\"", e);
+
+      return new FlatSearchResponse(req.getQuery(), 0, new HashSet<ArtifactInfo>());
+    }
+    finally {
+      releaseSnapshots(snapshots);
+    }
+  }
+
+  private IteratorSearchResponse searchSnapshotIterator(String repositoryId, IteratorSearchRequest req)
+      throws NoSuchRepositoryException
+  {
+    List<SnapshotIndexingContext> snapshots = snapshotSearchTargetIndexingContexts(repositoryId);
+
+    if (snapshots == null) {
+      return IteratorSearchResponse.empty(req.getQuery());
+    }
+
+    try {
+      req.getContexts().addAll(snapshots);
+
+      IteratorSearchResponse result = mavenIndexer.searchIterator(req);
+
+      Query query = result.getQuery();
+      int totalHints = result.getTotalHitsCount();
+      IteratorResultSet results = new SnapshotIteratorResultSet(result.getResults(), snapshots);
+
+      return new IteratorSearchResponse(query, totalHints, results);
+    }
+    catch (BooleanQuery.TooManyClauses e) {
+      releaseSnapshots(snapshots);
+
+      if (log.isDebugEnabled()) {
+        log.debug("Too many clauses exception caught:", e);
+      }
+
+      // XXX: a hack, I am sending too many results by setting the totalHits value to -1!
+      return IteratorSearchResponse.TOO_MANY_HITS_ITERATOR_SEARCH_RESPONSE;
+    }
+    catch (IOException e) {
+      releaseSnapshots(snapshots);
+
+      log.error("Got I/O exception while searching for query \"" + req.getQuery().toString() + "\"", e);
+
+      return IteratorSearchResponse.empty(req.getQuery());
+    }
+    catch (RuntimeException e) {
+      releaseSnapshots(snapshots);
+
+      throw e;
+    }
+  }
+
+  private void releaseSnapshots(Collection<SnapshotIndexingContext> snapshots) {
+    try {
+      SnapshotIndexingContext.release(snapshots);
+    }
+    catch (IOException e) {
+      log.warn("Could not release index searchers", e);
+    }
+  }
+
+  /**
+   * Returns the search cache, or null if search results are not cached.
+   */
+  private SearchResultCache getSearchCache() {
+    if (!searchCacheEnabled) {
+      return null;
+    }
+    SearchResultCache cache = searchCache;
+    if (cache == null) {
+      synchronized (this) {
+        if (searchCache == null) {
+          searchCache = new SearchResultCache(searchCacheMaxArtifacts, searchCacheMaxEntryArtifacts);
+          searchCache.registerMetrics();
+        }
+        cache = searchCache;
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Drops cached search results that may include the repository. Called after the repository index was modified as a
+   * whole.
+   */
+  private void invalidateSearchCache(Repository repository) {
+    final SearchResultCache cache = searchCache;
+    if (cache != null) {
+      cache.invalidate(repository.getId());
+    }
+  }
+
+  /**
+   * Drops cached search results that may include the repository of the context or the changed artifacts. Called after
+   * the artifacts were added to or removed from the index.
+   */
+  private void invalidateSearchCache(IndexingContext context, Collection<ArtifactContext> changed) {
+    final SearchResultCache cache = searchCache;
+    if (cache != null) {
+      final List<String> checksums = new ArrayList<String>(changed.size());
+      for (ArtifactContext ac : changed) {
+        if (ac.getArtifactInfo().sha1 != null) {
+          checksums.add(ac.getArtifactInfo().sha1);
+        }
+      }
+      cache.invalidate(context.getRepositoryId(), checksums);
+    }
+  }
+
   // ----------------------------------------------------------------------------
   // Query construction
   // ----------------------------------------------------------------------------
@@ -2296,7 +3028,8 @@ public class DefaultIndexerManager
   /**
    * Executes the runnable while holding shared lock on the specified repository index. Indexing context passed to
    * the
-   * runnable must not be used after return from this method.
+   * runnable must not be used after return from this method. Runnables that modify the index invalidate the search
+   * cache themselves.
    */
   private void sharedSingle(Repository repository, Runnable runnable)
       throws IOException
@@ -2401,7 +3134,8 @@ public class DefaultIndexerManager
 
   /**
    * Executes the runnable while holding exclusive lock on the specified repository index. Indexing context passed to
-   * the runnable must not be used after return from this methos.
+   * the runnable must not be used after return from this methos. Cached search results that may include the
+   * repository are dropped, as all exclusive operations replace or reconfigure the repository index.
    */
   private void exclusiveSingle(Repository repository, Runnable runnable)
       throws IOException
@@ -2413,6 +3147,7 @@ public class DefaultIndexerManager
         runnable.run(ctx);
       }
       finally {
+        invalidateSearchCache(repository);
         lock.unlock();
       }
     }
@@ -2489,6 +3224,16 @@ public class DefaultIndexerManager
    */
   private LockedIndexingContexts lockSearchTargetIndexingContexts(String repositoryId)
       throws NoSuchRepositoryException
+  {
+    return lockIndexingContexts(getSearchTargetRepositories(repositoryId), null);
+  }
+
+  /**
+   * Resolves the repositories searched for the specified repositoryId, see
+   * {@link #lockSearchTargetIndexingContexts(String)}.
+   */
+  private List<Repository> getSearchTargetRepositories(String repositoryId)
+      throws NoSuchRepositoryException
   {
     List<Repository> repositories = new ArrayList<Repository>();
     if (repositoryId != null) {
@@ -2512,7 +3257,38 @@ public class DefaultIndexerManager
       }
     }
 
-    return lockIndexingContexts(repositories, null);
+    return repositories;
+  }
+
+  /**
+   * Resolves the same indexing contexts as {@link #lockSearchTargetIndexingContexts(String)} and acquires a
+   * point-in-time searcher of each, holding the shared locks only while doing so. Returns null if there are no
+   * contexts to search. Caller must release returned snapshots.
+   */
+  private List<SnapshotIndexingContext> snapshotSearchTargetIndexingContexts(String repositoryId)
+      throws NoSuchRepositoryException
+  {
+    LockedIndexingContexts lockedContexts = lockSearchTargetIndexingContexts(repositoryId);
+
+    if (lockedContexts == null) {
+      return null;
+    }
+
+    List<SnapshotIndexingContext> snapshots = new ArrayList<SnapshotIndexingContext>(lockedContexts.contexts.size());
+    try {
+      for (IndexingContext context : lockedContexts.contexts.values()) {
+        snapshots.add(new SnapshotIndexingContext(((LockingIndexingContext) context).getContext()));
+      }
+      return snapshots;
+    }
+    catch (IOException e) {
+      log.warn("Could not acquire index searchers for repository {}", repositoryId, e);
+      releaseSnapshots(snapshots);
+      return null;
+    }
+    finally {
+      lockedContexts.lock.unlock();
+    }
   }
 
   /**
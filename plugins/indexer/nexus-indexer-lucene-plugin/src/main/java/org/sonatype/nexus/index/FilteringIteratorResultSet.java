@@ -0,0 +1,99 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.ArtifactInfoFilter;
+import org.apache.maven.index.IteratorResultSet;
+
+/**
+ * IteratorResultSet that returns the artifacts of provided iterator accepted by provided filter, and closes provided
+ * resource, if any, when closed. Used to apply per-caller filtering to search results that were collected without it.
+ *
+ * @since 3.0
+ */
+class FilteringIteratorResultSet
+    implements IteratorResultSet
+{
+  private final Iterator<ArtifactInfo> artifacts;
+
+  private final ArtifactInfoFilter filter;
+
+  private final Closeable resource;
+
+  private ArtifactInfo next;
+
+  private int processed;
+
+  private boolean closed;
+
+  public FilteringIteratorResultSet(Iterator<ArtifactInfo> artifacts, ArtifactInfoFilter filter, Closeable resource) {
+    this.artifacts = artifacts;
+    this.filter = filter;
+    this.resource = resource;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (next == null && artifacts.hasNext()) {
+      ArtifactInfo ai = artifacts.next();
+      processed++;
+      if (filter == null || filter.accepts(null, ai)) {
+        next = ai;
+      }
+    }
+    return next != null;
+  }
+
+  @Override
+  public ArtifactInfo next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    ArtifactInfo result = next;
+    next = null;
+    return result;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("Method not supported on " + getClass().getName());
+  }
+
+  @Override
+  public Iterator<ArtifactInfo> iterator() {
+    return this;
+  }
+
+  @Override
+  public void close()
+      throws IOException
+  {
+    if (!closed) {
+      closed = true;
+      if (resource != null) {
+        resource.close();
+      }
+    }
+  }
+
+  @Override
+  public int getTotalProcessedArtifactInfoCount() {
+    return processed;
+  }
+}
@@ -0,0 +1,591 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.nexus.common.io.DirSupport;
+import org.sonatype.nexus.threads.NexusThreadFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Write-behind queue of item level index updates. Updates are coalesced per repository and path (the last operation
+ * wins) and handed over to a {@link Flusher} in batches, once the number of pending updates reaches the batch size or
+ * the flush interval elapses. Producers are blocked while the queue holds its capacity of pending and in-flight
+ * updates.
+ * <p>
+ * Every accepted update is appended to a journal segment before it is queued, and producers return once the segment
+ * is synced. Concurrent producers share a sync, which is issued outside of the queue lock. A segment is deleted only
+ * once all the updates it records were either flushed or journaled again: updates of a repository the flusher failed
+ * on are queued again, unless the path was queued again meanwhile. Segments left behind by an unclean shutdown are
+ * replayed when the queue is started. Replaying an update more than once is harmless, as both operations are
+ * idempotent.
+ *
+ * @since 3.0
+ */
+class IndexUpdateQueue
+{
+  enum Operation
+  {
+    ADD('A'), REMOVE('R');
+
+    private final char code;
+
+    Operation(final char code) {
+      this.code = code;
+    }
+
+    static Operation fromCode(final char code) {
+      for (Operation operation : values()) {
+        if (operation.code == code) {
+          return operation;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Applies the coalesced updates of a single repository, in the order they were last queued. Throws if the updates
+   * could not be applied and should be retried.
+   */
+  interface Flusher
+  {
+    void flush(String repositoryId, Map<String, Operation> updates)
+        throws IOException;
+  }
+
+  private static final String SEGMENT_PREFIX = "updates-";
+
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final File journalDirectory;
+
+  private final Flusher flusher;
+
+  private final int batchSize;
+
+  private final long flushMillis;
+
+  private final int capacity;
+
+  /**
+   * Guards the pending updates, the counters and the journal.
+   */
+  private final Object lock = new Object();
+
+  /**
+   * Serializes flushes, so that batches are applied in the order they were taken.
+   */
+  private final Object flushLock = new Object();
+
+  /**
+   * Serializes journal syncs and segment switches. Taken before {@link #lock} when both are needed.
+   */
+  private final Object syncLock = new Object();
+
+  private Map<String, Map<String, Operation>> pending = new LinkedHashMap<>();
+
+  private List<File> pendingSegments = new ArrayList<>();
+
+  private int pendingCount;
+
+  private int inflightCount;
+
+  private long oldestPending;
+
+  private long oldestInflight;
+
+  private long segmentSequence;
+
+  private File segment;
+
+  private FileOutputStream journal;
+
+  /**
+   * Number of journal entries written, and synced.
+   */
+  private long journalWrites;
+
+  private long journalSynced;
+
+  private boolean flushRequested;
+
+  private boolean started;
+
+  private boolean closed;
+
+  private ScheduledExecutorService executor;
+
+  private Timer flushTimer;
+
+  private final Runnable flushTask = new Runnable()
+  {
+    @Override
+    public void run() {
+      try {
+        flush();
+      }
+      catch (RuntimeException e) {
+        // do not let the periodic flush die
+        log.warn("Could not flush index updates", e);
+      }
+    }
+  };
+
+  IndexUpdateQueue(final File journalDirectory, final Flusher flusher, final int batchSize, final long flushMillis,
+                   final int capacity)
+  {
+    checkArgument(batchSize > 0, "batchSize must be positive");
+    checkArgument(flushMillis > 0, "flushMillis must be positive");
+    checkArgument(capacity >= batchSize, "capacity must not be less than batchSize");
+    this.journalDirectory = checkNotNull(journalDirectory);
+    this.flusher = checkNotNull(flusher);
+    this.batchSize = batchSize;
+    this.flushMillis = flushMillis;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Replays the updates recorded by journal segments of a previous run, if any, and starts the periodic flush.
+   */
+  void start()
+      throws IOException
+  {
+    synchronized (lock) {
+      if (started) {
+        return;
+      }
+      DirSupport.mkdir(journalDirectory.toPath());
+      recover();
+      openSegment();
+
+      final MetricRegistry registry = SharedMetricRegistries.getOrCreate("nexus");
+      final String depthName = MetricRegistry.name(IndexUpdateQueue.class, "depth");
+      registry.remove(depthName);
+      registry.register(depthName, new Gauge<Integer>()
+      {
+        @Override
+        public Integer getValue() {
+          return getDepth();
+        }
+      });
+      final String lagName = MetricRegistry.name(IndexUpdateQueue.class, "lag");
+      registry.remove(lagName);
+      registry.register(lagName, new Gauge<Long>()
+      {
+        @Override
+        public Long getValue() {
+          return getLagMillis();
+        }
+      });
+      flushTimer = registry.timer(MetricRegistry.name(IndexUpdateQueue.class, "flush"));
+
+      executor = Executors.newSingleThreadScheduledExecutor(new NexusThreadFactory("idxq", "Indexer Update Queue"));
+      executor.scheduleWithFixedDelay(flushTask, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+      started = true;
+      if (pendingCount > 0) {
+        requestFlush();
+      }
+    }
+  }
+
+  /**
+   * Journals and queues an update, blocking while the queue is full and until the journal entry is synced. Returns
+   * {@code false} if the update was not accepted, because the queue is closed or the calling thread was interrupted
+   * while waiting, in which case the caller should apply the update itself.
+   */
+  boolean enqueue(final String repositoryId, final String path, final Operation operation)
+      throws IOException
+  {
+    final long ticket;
+    synchronized (lock) {
+      while (!closed && pendingCount + inflightCount >= capacity) {
+        requestFlush();
+        try {
+          lock.wait();
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+      if (!started || closed) {
+        return false;
+      }
+
+      ticket = appendJournal(repositoryId, path, operation);
+      addPending(repositoryId, path, operation);
+      if (pendingCount >= batchSize) {
+        requestFlush();
+      }
+    }
+    syncJournal(ticket);
+    return true;
+  }
+
+  /**
+   * Applies all pending updates on the calling thread.
+   */
+  void flush() {
+    synchronized (flushLock) {
+      final Map<String, Map<String, Operation>> batch;
+      final List<File> segments;
+      synchronized (syncLock) {
+        synchronized (lock) {
+          flushRequested = false;
+          if (pendingCount == 0) {
+            return;
+          }
+          batch = pending;
+          segments = pendingSegments;
+          inflightCount = pendingCount;
+          oldestInflight = oldestPending;
+          pending = new LinkedHashMap<>();
+          pendingSegments = new ArrayList<>();
+          pendingCount = 0;
+          oldestPending = 0;
+
+          // new updates go to a new segment, so the current one can be deleted once this batch is applied
+          if (journal != null) {
+            closeJournal();
+            segments.add(segment);
+          }
+          try {
+            openSegment();
+          }
+          catch (IOException e) {
+            log.warn("Could not open index update journal segment in {}", journalDirectory, e);
+          }
+        }
+      }
+
+      final Map<String, Map<String, Operation>> failed = new LinkedHashMap<>();
+      boolean journaled = true;
+      long ticket = 0;
+      final Timer.Context timerContext = flushTimer.time();
+      try {
+        for (Map.Entry<String, Map<String, Operation>> updates : batch.entrySet()) {
+          try {
+            flusher.flush(updates.getKey(), updates.getValue());
+          }
+          catch (Exception e) {
+            log.warn("Could not apply {} index updates of repository {}, will retry", updates.getValue().size(),
+                updates.getKey(), e);
+            failed.put(updates.getKey(), updates.getValue());
+          }
+        }
+      }
+      finally {
+        timerContext.stop();
+        synchronized (lock) {
+          if (!failed.isEmpty()) {
+            journaled = requeue(failed);
+            ticket = journalWrites;
+          }
+          inflightCount = 0;
+          oldestInflight = 0;
+          lock.notifyAll();
+        }
+      }
+
+      if (journaled && !failed.isEmpty()) {
+        try {
+          syncJournal(ticket);
+        }
+        catch (IOException e) {
+          log.warn("Could not sync index update journal segment in {}", journalDirectory, e);
+          journaled = false;
+        }
+      }
+      if (!journaled) {
+        // keep the segments until the updates queued again are applied
+        synchronized (lock) {
+          pendingSegments.addAll(segments);
+        }
+        return;
+      }
+      for (File file : segments) {
+        if (!file.delete()) {
+          log.warn("Could not delete index update journal segment {}", file);
+        }
+      }
+    }
+  }
+
+  /**
+   * Stops accepting updates and applies the pending ones. Producers blocked on a full queue are released.
+   */
+  void close() {
+    synchronized (lock) {
+      if (!started || closed) {
+        return;
+      }
+      closed = true;
+      lock.notifyAll();
+    }
+
+    executor.shutdown();
+    try {
+      executor.awaitTermination(flushMillis, TimeUnit.MILLISECONDS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+
+    synchronized (syncLock) {
+      synchronized (lock) {
+        if (journal != null) {
+          closeJournal();
+          if (pendingCount == 0 && !segment.delete()) {
+            log.debug("Could not delete empty index update journal segment {}", segment);
+          }
+        }
+      }
+    }
+
+    final MetricRegistry registry = SharedMetricRegistries.getOrCreate("nexus");
+    registry.remove(MetricRegistry.name(IndexUpdateQueue.class, "depth"));
+    registry.remove(MetricRegistry.name(IndexUpdateQueue.class, "lag"));
+  }
+
+  /**
+   * Returns the number of pending and in-flight updates.
+   */
+  int getDepth() {
+    synchronized (lock) {
+      return pendingCount + inflightCount;
+    }
+  }
+
+  /**
+   * Returns the age of the oldest update not yet applied, in milliseconds, or 0 if there are none.
+   */
+  long getLagMillis() {
+    synchronized (lock) {
+      final long oldest = oldestInflight != 0 ? oldestInflight : oldestPending;
+      return oldest == 0 ? 0 : System.currentTimeMillis() - oldest;
+    }
+  }
+
+  // ==
+
+  private void addPending(final String repositoryId, final String path, final Operation operation) {
+    Map<String, Operation> updates = pending.get(repositoryId);
+    if (updates == null) {
+      updates = new LinkedHashMap<>();
+      pending.put(repositoryId, updates);
+    }
+    // re-insert, so that updates keep the order they were last queued in
+    if (updates.remove(path) == null) {
+      pendingCount++;
+    }
+    updates.put(path, operation);
+    if (oldestPending == 0) {
+      oldestPending = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Queues again the updates of a failed flush, except for paths queued again since, and journals them. Returns
+   * {@code false} if they could not be journaled. Caller must hold the lock.
+   */
+  private boolean requeue(final Map<String, Map<String, Operation>> failed) {
+    boolean journaled = true;
+    for (Map.Entry<String, Map<String, Operation>> updates : failed.entrySet()) {
+      final Map<String, Operation> queued = pending.get(updates.getKey());
+      for (Map.Entry<String, Operation> update : updates.getValue().entrySet()) {
+        if (queued != null && queued.containsKey(update.getKey())) {
+          // the later update wins, and is journaled already
+          continue;
+        }
+        if (journaled) {
+          try {
+            appendJournal(updates.getKey(), update.getKey(), update.getValue());
+          }
+          catch (IOException e) {
+            log.warn("Could not journal index updates queued again in {}", journalDirectory, e);
+            journaled = false;
+          }
+        }
+        addPending(updates.getKey(), update.getKey(), update.getValue());
+      }
+    }
+    return journaled;
+  }
+
+  /**
+   * Appends an entry to the current journal segment and returns its number, to be passed to {@link #syncJournal}.
+   * Caller must hold the lock.
+   */
+  private long appendJournal(final String repositoryId, final String path, final Operation operation)
+      throws IOException
+  {
+    if (journal == null) {
+      openSegment();
+    }
+    journal.write((operation.code + "\t" + repositoryId + "\t" + path + "\n").getBytes(StandardCharsets.UTF_8));
+    return ++journalWrites;
+  }
+
+  /**
+   * Syncs the journal up to the given entry, unless a concurrent sync already covered it. The sync itself happens
+   * outside of the lock, and covers all entries written by then.
+   */
+  private void syncJournal(final long ticket)
+      throws IOException
+  {
+    synchronized (syncLock) {
+      final FileChannel channel;
+      final long written;
+      synchronized (lock) {
+        if (journalSynced >= ticket) {
+          return;
+        }
+        if (journal == null) {
+          throw new IOException("Index update journal segment closed before it was synced");
+        }
+        channel = journal.getChannel();
+        written = journalWrites;
+      }
+      channel.force(false);
+      synchronized (lock) {
+        journalSynced = written;
+      }
+    }
+  }
+
+  private void requestFlush() {
+    if (!flushRequested && executor != null && !executor.isShutdown()) {
+      flushRequested = true;
+      executor.execute(flushTask);
+    }
+  }
+
+  private void recover()
+      throws IOException
+  {
+    final File[] files = journalDirectory.listFiles();
+    if (files == null) {
+      return;
+    }
+    final List<File> segments = new ArrayList<>();
+    for (File file : files) {
+      if (getSequence(file) > 0) {
+        segments.add(file);
+      }
+    }
+    Collections.sort(segments, new Comparator<File>()
+    {
+      @Override
+      public int compare(final File f1, final File f2) {
+        return Long.compare(getSequence(f1), getSequence(f2));
+      }
+    });
+
+    int recovered = 0;
+    for (File file : segments) {
+      try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          final String[] fields = line.split("\t", 3);
+          final Operation operation = fields.length == 3 && fields[0].length() == 1
+              ? Operation.fromCode(fields[0].charAt(0)) : null;
+          if (operation != null) {
+            addPending(fields[1], fields[2], operation);
+            recovered++;
+          }
+          else {
+            // torn write of an update that was never acknowledged
+            log.debug("Skipping malformed index update journal entry in {}: {}", file, line);
+          }
+        }
+      }
+      pendingSegments.add(file);
+      segmentSequence = Math.max(segmentSequence, getSequence(file));
+    }
+    if (recovered > 0) {
+      log.info("Recovered {} index updates from {} journal segments", recovered, segments.size());
+    }
+  }
+
+  private void openSegment()
+      throws IOException
+  {
+    segment = new File(journalDirectory, SEGMENT_PREFIX + (++segmentSequence) + SEGMENT_SUFFIX);
+    journal = new FileOutputStream(segment, true);
+  }
+
+  /**
+   * Syncs and closes the current journal segment. Caller must hold the sync lock and the lock.
+   */
+  private void closeJournal() {
+    try {
+      journal.getChannel().force(false);
+      journalSynced = journalWrites;
+    }
+    catch (IOException e) {
+      log.warn("Could not sync index update journal segment {}", segment, e);
+    }
+    try {
+      journal.close();
+    }
+    catch (IOException e) {
+      log.warn("Could not close index update journal segment {}", segment, e);
+    }
+    journal = null;
+  }
+
+  /**
+   * Returns the sequence number of a journal segment file, or -1 if the file is not a segment.
+   */
+  private static long getSequence(final File file) {
+    final String name = file.getName();
+    if (file.isFile() && name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+      try {
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+      }
+      catch (NumberFormatException e) {
+        // not ours
+      }
+    }
+    return -1;
+  }
+}
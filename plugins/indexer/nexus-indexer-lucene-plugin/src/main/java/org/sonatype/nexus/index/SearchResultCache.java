@@ -0,0 +1,447 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import org.apache.maven.index.ArtifactInfo;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Bounded cache of index search results, keyed by normalized query and the repositories whose indexes were searched.
+ * The cache is bounded by the total number of cached artifacts, results holding more artifacts than the entry limit
+ * are not cached at all.
+ * <p>
+ * Entries are indexed by the repositories their results depend on, so that a change of a repository index drops only
+ * the entries of that repository, without going over the whole cache. Changes of single items drop lookups in all
+ * repositories only if the identified checksum is among the changed ones, or if their results include the repository.
+ * Results computed while an invalidation of their repositories happens are not cached, see
+ * {@link #getGeneration(Key)}. Cached results are shared between callers, and must be treated as read-only.
+ *
+ * @since 3.0
+ */
+class SearchResultCache
+{
+  /**
+   * Cache key. Null targets stand for all repositories. Lookups in all repositories may carry the identified checksum
+   * as term, otherwise they are invalidated by any change of any repository.
+   */
+  static class Key
+  {
+    private final String query;
+
+    private final SortedSet<String> targets;
+
+    private final String term;
+
+    private final int start;
+
+    private final int count;
+
+    public Key(String query, Collection<String> targets, int start, int count) {
+      this.query = checkNotNull(query);
+      this.targets = targets == null ? null : ImmutableSortedSet.copyOf(targets);
+      this.term = null;
+      this.start = start;
+      this.count = count;
+    }
+
+    /**
+     * Key of a lookup in all repositories, with the identified checksum as term if any.
+     */
+    public Key(String query, String term) {
+      this.query = checkNotNull(query);
+      this.targets = null;
+      this.term = term;
+      this.start = 0;
+      this.count = 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key that = (Key) o;
+      return start == that.start && count == that.count && query.equals(that.query)
+          && Objects.equal(targets, that.targets) && Objects.equal(term, that.term);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(query, targets, term, start, count);
+    }
+
+    @Override
+    public String toString() {
+      return query + " in " + (targets == null ? "all" : targets) + " [" + start + ", " + count + "]";
+    }
+  }
+
+  /**
+   * Cached search results, in the order they were returned by the search.
+   */
+  static class Results
+  {
+    private final List<ArtifactInfo> artifacts;
+
+    private final int totalHits;
+
+    public Results(Collection<ArtifactInfo> artifacts, int totalHits) {
+      this.artifacts = ImmutableList.copyOf(artifacts);
+      this.totalHits = totalHits;
+    }
+
+    public List<ArtifactInfo> getArtifacts() {
+      return artifacts;
+    }
+
+    public int getTotalHits() {
+      return totalHits;
+    }
+  }
+
+  private final int maxEntryArtifacts;
+
+  private final Cache<Key, Results> cache;
+
+  /**
+   * Guards the generations and the entry indexes below.
+   */
+  private final Object lock = new Object();
+
+  /**
+   * Per repository generations, advanced by invalidations of the repository.
+   */
+  private final Map<String, Long> repositoryGenerations = new HashMap<String, Long>();
+
+  /**
+   * Advanced by every invalidation, lookups in all repositories are checked against it.
+   */
+  private long generation;
+
+  /**
+   * Advanced by {@link #invalidateAll()}.
+   */
+  private long clearings;
+
+  /**
+   * Entries by repository: searches by their targets, lookups in all repositories by repositories of their results.
+   */
+  private final Map<String, Map<Key, Results>> repositoryEntries = new HashMap<String, Map<Key, Results>>();
+
+  /**
+   * Lookups in all repositories by their term.
+   */
+  private final Map<String, Map<Key, Results>> termEntries = new HashMap<String, Map<Key, Results>>();
+
+  /**
+   * All lookups in all repositories.
+   */
+  private final Map<Key, Results> allRepositoryEntries = new HashMap<Key, Results>();
+
+  /**
+   * Lookups in all repositories without a term.
+   */
+  private final Map<Key, Results> untermedEntries = new HashMap<Key, Results>();
+
+  SearchResultCache(final long maxArtifacts, final int maxEntryArtifacts) {
+    checkArgument(maxArtifacts > 0, "maxArtifacts must be positive");
+    checkArgument(maxEntryArtifacts > 0, "maxEntryArtifacts must be positive");
+    this.maxEntryArtifacts = maxEntryArtifacts;
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxArtifacts)
+        .weigher(new Weigher<Key, Results>()
+        {
+          @Override
+          public int weigh(final Key key, final Results value) {
+            // empty results still take a slot
+            return Math.max(1, value.getArtifacts().size());
+          }
+        })
+        .removalListener(new RemovalListener<Key, Results>()
+        {
+          @Override
+          public void onRemoval(final RemovalNotification<Key, Results> notification) {
+            synchronized (lock) {
+              unindex(notification.getKey(), notification.getValue());
+            }
+          }
+        })
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Returns whether results of the given size are cached at all, callers should not collect bigger results.
+   */
+  boolean isCacheable(int artifactCount) {
+    return artifactCount <= maxEntryArtifacts;
+  }
+
+  Results get(Key key) {
+    return cache.getIfPresent(key);
+  }
+
+  /**
+   * Returns the current generation of the key, which is advanced by invalidations of its repositories. Callers read
+   * it before searching, and pass it to {@link #put(Key, Results, long)}.
+   */
+  long getGeneration(Key key) {
+    synchronized (lock) {
+      return generation(key);
+    }
+  }
+
+  /**
+   * Caches the results unless they are too big or the repositories of the key were invalidated since the given
+   * generation, in which case the results may be stale.
+   */
+  void put(Key key, Results results, long searchGeneration) {
+    if (!isCacheable(results.getArtifacts().size())) {
+      return;
+    }
+    synchronized (lock) {
+      if (generation(key) == searchGeneration) {
+        cache.put(key, results);
+        index(key, results);
+      }
+    }
+  }
+
+  /**
+   * Drops all entries whose results may include the given repository. To be used when the repository index changed as
+   * a whole, hence lookups in all repositories are dropped as well.
+   */
+  void invalidate(String repositoryId) {
+    synchronized (lock) {
+      advance(repositoryId);
+      drop(repositoryEntries.remove(repositoryId));
+      drop(allRepositoryEntries);
+    }
+  }
+
+  /**
+   * Drops entries whose results may include the given repository, after single items with the given checksums were
+   * added to or removed from its index. Lookups of other checksums in all repositories are kept, unless their results
+   * include the repository.
+   */
+  void invalidate(String repositoryId, Collection<String> terms) {
+    synchronized (lock) {
+      advance(repositoryId);
+      drop(repositoryEntries.remove(repositoryId));
+      for (String term : terms) {
+        drop(termEntries.remove(term));
+      }
+      drop(untermedEntries);
+    }
+  }
+
+  void invalidateAll() {
+    synchronized (lock) {
+      clearings++;
+      generation++;
+      cache.invalidateAll();
+    }
+  }
+
+  CacheStats getStats() {
+    return cache.stats();
+  }
+
+  long getSize() {
+    return cache.size();
+  }
+
+  /**
+   * Registers the cache statistics with the shared metric registry.
+   */
+  void registerMetrics() {
+    final MetricRegistry registry = SharedMetricRegistries.getOrCreate("nexus");
+    register(registry, "hitRatio", new Gauge<Double>()
+    {
+      @Override
+      public Double getValue() {
+        return getStats().hitRate();
+      }
+    });
+    register(registry, "hits", new Gauge<Long>()
+    {
+      @Override
+      public Long getValue() {
+        return getStats().hitCount();
+      }
+    });
+    register(registry, "misses", new Gauge<Long>()
+    {
+      @Override
+      public Long getValue() {
+        return getStats().missCount();
+      }
+    });
+    register(registry, "evictions", new Gauge<Long>()
+    {
+      @Override
+      public Long getValue() {
+        return getStats().evictionCount();
+      }
+    });
+    register(registry, "size", new Gauge<Long>()
+    {
+      @Override
+      public Long getValue() {
+        return getSize();
+      }
+    });
+  }
+
+  void unregisterMetrics() {
+    final MetricRegistry registry = SharedMetricRegistries.getOrCreate("nexus");
+    for (String name : new String[]{"hitRatio", "hits", "misses", "evictions", "size"}) {
+      registry.remove(MetricRegistry.name(SearchResultCache.class, name));
+    }
+  }
+
+  private long generation(Key key) {
+    if (key.targets == null) {
+      return generation;
+    }
+    long result = clearings;
+    for (String target : key.targets) {
+      final Long repositoryGeneration = repositoryGenerations.get(target);
+      if (repositoryGeneration != null) {
+        result += repositoryGeneration;
+      }
+    }
+    return result;
+  }
+
+  private void advance(String repositoryId) {
+    final Long repositoryGeneration = repositoryGenerations.get(repositoryId);
+    repositoryGenerations.put(repositoryId, repositoryGeneration == null ? 1L : repositoryGeneration + 1);
+    generation++;
+  }
+
+  /**
+   * Removes the entries from the cache, unless they were replaced meanwhile. Their index entries are removed by the
+   * removal listener.
+   */
+  private void drop(Map<Key, Results> entries) {
+    if (entries == null || entries.isEmpty()) {
+      return;
+    }
+    // copied, as the removal listener modifies the indexes
+    for (Map.Entry<Key, Results> entry : ImmutableMap.copyOf(entries).entrySet()) {
+      cache.asMap().remove(entry.getKey(), entry.getValue());
+    }
+  }
+
+  private void index(Key key, Results results) {
+    if (key.targets != null) {
+      for (String target : key.targets) {
+        entries(repositoryEntries, target).put(key, results);
+      }
+      return;
+    }
+    allRepositoryEntries.put(key, results);
+    if (key.term != null) {
+      entries(termEntries, key.term).put(key, results);
+    }
+    else {
+      untermedEntries.put(key, results);
+    }
+    for (ArtifactInfo artifact : results.getArtifacts()) {
+      if (artifact.repository != null) {
+        entries(repositoryEntries, artifact.repository).put(key, results);
+      }
+    }
+  }
+
+  private void unindex(Key key, Results results) {
+    if (key.targets != null) {
+      for (String target : key.targets) {
+        remove(repositoryEntries, target, key, results);
+      }
+      return;
+    }
+    remove(allRepositoryEntries, key, results);
+    if (key.term != null) {
+      remove(termEntries, key.term, key, results);
+    }
+    else {
+      remove(untermedEntries, key, results);
+    }
+    for (ArtifactInfo artifact : results.getArtifacts()) {
+      if (artifact.repository != null) {
+        remove(repositoryEntries, artifact.repository, key, results);
+      }
+    }
+  }
+
+  private static Map<Key, Results> entries(Map<String, Map<Key, Results>> index, String name) {
+    Map<Key, Results> entries = index.get(name);
+    if (entries == null) {
+      entries = new HashMap<Key, Results>();
+      index.put(name, entries);
+    }
+    return entries;
+  }
+
+  private static void remove(Map<String, Map<Key, Results>> index, String name, Key key, Results results) {
+    final Map<Key, Results> entries = index.get(name);
+    if (entries != null) {
+      remove(entries, key, results);
+      if (entries.isEmpty()) {
+        index.remove(name);
+      }
+    }
+  }
+
+  /**
+   * Removes the entry only if it still maps to the given results, a replacing put may have indexed newer ones.
+   */
+  private static void remove(Map<Key, Results> entries, Key key, Results results) {
+    if (entries.get(key) == results) {
+      entries.remove(key);
+    }
+  }
+
+  private void register(MetricRegistry registry, String name, Gauge<?> gauge) {
+    final String metricName = MetricRegistry.name(SearchResultCache.class, name);
+    registry.remove(metricName);
+    registry.register(metricName, gauge);
+  }
+}
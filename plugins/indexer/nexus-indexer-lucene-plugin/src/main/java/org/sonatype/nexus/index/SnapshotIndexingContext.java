@@ -0,0 +1,312 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.maven.index.artifact.GavCalculator;
+import org.apache.maven.index.context.DocumentFilter;
+import org.apache.maven.index.context.IndexCreator;
+import org.apache.maven.index.context.IndexingContext;
+
+/**
+ * Read-only indexing context wrapper that serves a point-in-time IndexSearcher, acquired from the wrapped context
+ * when the wrapper is created. Searches against the wrapper need no repository lock, as the searcher keeps a
+ * reference to the index reader it was created with. Changes to the wrapped context made afterwards, including
+ * {@link IndexingContext#replace(Directory)} and {@link IndexingContext#close(boolean)}, are not visible to the
+ * wrapper.
+ * <p>
+ * The searcher must be given back by calling {@link #release()} once the wrapper is not used anymore.
+ *
+ * @since 3.0
+ */
+class SnapshotIndexingContext
+    implements IndexingContext
+{
+  private final IndexingContext context;
+
+  private final IndexSearcher searcher;
+
+  private final AtomicBoolean released = new AtomicBoolean();
+
+  /**
+   * Acquires a searcher from the context. Caller must hold shared lock on the context repository.
+   */
+  public SnapshotIndexingContext(IndexingContext context)
+      throws IOException
+  {
+    this.context = context;
+    this.searcher = context.acquireIndexSearcher();
+  }
+
+  /**
+   * Releases the searcher acquired on creation. Lucene SearcherManager releases a searcher by decrementing the
+   * reference count of its reader, which is done directly here, as the wrapped context may have been closed or
+   * replaced since.
+   */
+  public void release()
+      throws IOException
+  {
+    if (released.compareAndSet(false, true)) {
+      searcher.getIndexReader().decRef();
+    }
+  }
+
+  /**
+   * Releases all the snapshots, rethrowing the first failure once all of them were attempted.
+   */
+  public static void release(Collection<SnapshotIndexingContext> snapshots)
+      throws IOException
+  {
+    IOException failure = null;
+    for (SnapshotIndexingContext snapshot : snapshots) {
+      try {
+        snapshot.release();
+      }
+      catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  @Override
+  public String getId() {
+    return context.getId();
+  }
+
+  @Override
+  public String getRepositoryId() {
+    return context.getRepositoryId();
+  }
+
+  @Override
+  public File getRepository() {
+    return context.getRepository();
+  }
+
+  @Override
+  public String getRepositoryUrl() {
+    return context.getRepositoryUrl();
+  }
+
+  @Override
+  public String getIndexUpdateUrl() {
+    return context.getIndexUpdateUrl();
+  }
+
+  @Override
+  public boolean isSearchable() {
+    return context.isSearchable();
+  }
+
+  @Override
+  public void setSearchable(boolean searchable) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Date getTimestamp() {
+    return context.getTimestamp();
+  }
+
+  @Override
+  public void updateTimestamp()
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void updateTimestamp(boolean save)
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void updateTimestamp(boolean save, Date date)
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public int getSize()
+      throws IOException
+  {
+    return searcher.getIndexReader().numDocs();
+  }
+
+  @Override
+  public IndexSearcher acquireIndexSearcher()
+      throws IOException
+  {
+    if (released.get()) {
+      throw new IllegalStateException("Searcher of indexing context " + getId() + " was already released");
+    }
+    searcher.getIndexReader().incRef();
+    return searcher;
+  }
+
+  @Override
+  public void releaseIndexSearcher(IndexSearcher s)
+      throws IOException
+  {
+    if (s != null) {
+      s.getIndexReader().decRef();
+    }
+  }
+
+  @Override
+  public IndexWriter getIndexWriter()
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public List<IndexCreator> getIndexCreators() {
+    return context.getIndexCreators();
+  }
+
+  @Override
+  public Analyzer getAnalyzer() {
+    return context.getAnalyzer();
+  }
+
+  @Override
+  public void commit()
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void rollback()
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void optimize()
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void close(boolean deleteFiles)
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void purge()
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void merge(Directory directory)
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void merge(Directory directory, DocumentFilter filter)
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void replace(Directory directory)
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Directory getIndexDirectory() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public File getIndexDirectoryFile() {
+    return context.getIndexDirectoryFile();
+  }
+
+  @Override
+  public GavCalculator getGavCalculator() {
+    return context.getGavCalculator();
+  }
+
+  @Override
+  public void setAllGroups(Collection<String> groups)
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Set<String> getAllGroups()
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void setRootGroups(Collection<String> groups)
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Set<String> getRootGroups()
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void rebuildGroups()
+      throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean isReceivingUpdates() {
+    return context.isReceivingUpdates();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.IteratorResultSet;
+
+/**
+ * IteratorResultSet wrapper that releases provided snapshot indexing contexts when closed.
+ *
+ * @since 3.0
+ */
+class SnapshotIteratorResultSet
+    implements IteratorResultSet
+{
+  private final IteratorResultSet result;
+
+  private final Collection<SnapshotIndexingContext> snapshots;
+
+  private boolean closed;
+
+  public SnapshotIteratorResultSet(IteratorResultSet result, Collection<SnapshotIndexingContext> snapshots) {
+    this.result = result;
+    this.snapshots = snapshots;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return result.hasNext();
+  }
+
+  @Override
+  public ArtifactInfo next() {
+    return result.next();
+  }
+
+  @Override
+  public void remove() {
+    result.remove();
+  }
+
+  @Override
+  public Iterator<ArtifactInfo> iterator() {
+    return result.iterator();
+  }
+
+  @Override
+  public void close()
+      throws IOException
+  {
+    if (!closed) {
+      try {
+        result.close();
+      }
+      finally {
+        closed = true;
+        SnapshotIndexingContext.release(snapshots);
+      }
+    }
+  }
+
+  @Override
+  public int getTotalProcessedArtifactInfoCount() {
+    return result.getTotalProcessedArtifactInfoCount();
+  }
+}
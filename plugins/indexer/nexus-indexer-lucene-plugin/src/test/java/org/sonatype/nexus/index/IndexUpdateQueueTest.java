@@ -0,0 +1,274 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.sonatype.nexus.index.IndexUpdateQueue.Operation;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests for {@link IndexUpdateQueue}.
+ */
+public class IndexUpdateQueueTest
+    extends TestSupport
+{
+  private File journalDirectory;
+
+  private RecordingFlusher flusher;
+
+  private IndexUpdateQueue underTest;
+
+  private static class RecordingFlusher
+      implements IndexUpdateQueue.Flusher
+  {
+    final List<String> flushed = new ArrayList<>();
+
+    volatile CountDownLatch flushing = new CountDownLatch(1);
+
+    volatile CountDownLatch release = new CountDownLatch(0);
+
+    volatile String failing;
+
+    @Override
+    public void flush(final String repositoryId, final Map<String, Operation> updates)
+        throws IOException
+    {
+      flushing.countDown();
+      try {
+        release.await();
+      }
+      catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      if (repositoryId.equals(failing)) {
+        throw new IOException("Failing " + repositoryId);
+      }
+      synchronized (flushed) {
+        for (Map.Entry<String, Operation> update : updates.entrySet()) {
+          flushed.add(repositoryId + ":" + update.getKey() + ":" + update.getValue());
+        }
+      }
+    }
+
+    List<String> getFlushed() {
+      synchronized (flushed) {
+        return new ArrayList<>(flushed);
+      }
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    journalDirectory = util.createTempDir("update-queue");
+    flusher = new RecordingFlusher();
+  }
+
+  @After
+  public void tearDown() {
+    if (underTest != null) {
+      underTest.close();
+    }
+  }
+
+  private void start(final int batchSize, final int capacity) throws IOException {
+    underTest = new IndexUpdateQueue(journalDirectory, flusher, batchSize, TimeUnit.HOURS.toMillis(1), capacity);
+    underTest.start();
+  }
+
+  private List<String> journaled() throws IOException {
+    final List<String> journaled = new ArrayList<>();
+    for (File file : journalDirectory.listFiles()) {
+      journaled.addAll(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+    return journaled;
+  }
+
+  @Test
+  public void coalescesUpdatesKeepingLastOrder() throws Exception {
+    start(100, 100);
+
+    underTest.enqueue("releases", "/a/a/1/a-1.jar", Operation.ADD);
+    underTest.enqueue("releases", "/b/b/1/b-1.jar", Operation.ADD);
+    underTest.enqueue("snapshots", "/c/c/1-SNAPSHOT/c-1-SNAPSHOT.jar", Operation.ADD);
+    underTest.enqueue("releases", "/a/a/1/a-1.jar", Operation.REMOVE);
+    assertThat(underTest.getDepth(), is(3));
+
+    underTest.flush();
+
+    assertThat(flusher.getFlushed(), contains(
+        "releases:/b/b/1/b-1.jar:ADD",
+        "releases:/a/a/1/a-1.jar:REMOVE",
+        "snapshots:/c/c/1-SNAPSHOT/c-1-SNAPSHOT.jar:ADD"));
+    assertThat(underTest.getDepth(), is(0));
+    assertThat(underTest.getLagMillis(), is(0L));
+  }
+
+  @Test
+  public void flushesWhenBatchSizeReached() throws Exception {
+    start(2, 10);
+
+    underTest.enqueue("releases", "/a/a/1/a-1.jar", Operation.ADD);
+    assertThat(flusher.flushing.await(200, TimeUnit.MILLISECONDS), is(false));
+
+    underTest.enqueue("releases", "/b/b/1/b-1.jar", Operation.ADD);
+    assertThat(flusher.flushing.await(5, TimeUnit.SECONDS), is(true));
+  }
+
+  @Test
+  public void replaysJournalLeftByUncleanShutdown() throws Exception {
+    final File segment = new File(journalDirectory, "updates-7.log");
+    Files.write(segment.toPath(), ("A\treleases\t/a/a/1/a-1.jar\n"
+        + "R\treleases\t/b/b/1/b-1.jar\n"
+        + "A\trelea").getBytes(StandardCharsets.UTF_8));
+
+    start(100, 100);
+    underTest.flush();
+
+    assertThat(flusher.getFlushed(), contains("releases:/a/a/1/a-1.jar:ADD", "releases:/b/b/1/b-1.jar:REMOVE"));
+    assertThat(segment.exists(), is(false));
+  }
+
+  @Test
+  public void journalsUpdatesUntilFlushed() throws Exception {
+    start(100, 100);
+
+    underTest.enqueue("releases", "/a/a/1/a-1.jar", Operation.ADD);
+
+    assertThat(journaled(), contains("A\treleases\t/a/a/1/a-1.jar"));
+
+    underTest.close();
+    underTest = null;
+
+    assertThat(flusher.getFlushed(), hasSize(1));
+    assertThat(journalDirectory.listFiles().length, is(0));
+  }
+
+  @Test
+  public void requeuesUpdatesOfFailedRepository() throws Exception {
+    start(100, 100);
+    flusher.failing = "releases";
+
+    underTest.enqueue("releases", "/a/a/1/a-1.jar", Operation.ADD);
+    underTest.enqueue("snapshots", "/c/c/1-SNAPSHOT/c-1-SNAPSHOT.jar", Operation.ADD);
+    underTest.flush();
+
+    assertThat(flusher.getFlushed(), contains("snapshots:/c/c/1-SNAPSHOT/c-1-SNAPSHOT.jar:ADD"));
+    assertThat(underTest.getDepth(), is(1));
+    // only the update that was not applied is still journaled
+    assertThat(journaled(), contains("A\treleases\t/a/a/1/a-1.jar"));
+
+    flusher.failing = null;
+    underTest.flush();
+
+    assertThat(flusher.getFlushed(), contains("snapshots:/c/c/1-SNAPSHOT/c-1-SNAPSHOT.jar:ADD",
+        "releases:/a/a/1/a-1.jar:ADD"));
+    assertThat(underTest.getDepth(), is(0));
+    assertThat(journaled(), empty());
+  }
+
+  @Test
+  public void laterUpdateWinsOverRequeuedOne() throws Exception {
+    flusher.release = new CountDownLatch(1);
+    flusher.failing = "releases";
+    start(100, 100);
+
+    underTest.enqueue("releases", "/a/a/1/a-1.jar", Operation.ADD);
+    final Thread flush = new Thread()
+    {
+      @Override
+      public void run() {
+        underTest.flush();
+      }
+    };
+    flush.start();
+    assertThat(flusher.flushing.await(5, TimeUnit.SECONDS), is(true));
+
+    // queued while the failing flush is in progress
+    underTest.enqueue("releases", "/a/a/1/a-1.jar", Operation.REMOVE);
+    flusher.release.countDown();
+    flush.join(5000);
+    assertThat(flush.isAlive(), is(false));
+
+    assertThat(underTest.getDepth(), is(1));
+    assertThat(journaled(), contains("R\treleases\t/a/a/1/a-1.jar"));
+
+    flusher.failing = null;
+    underTest.flush();
+
+    assertThat(flusher.getFlushed(), contains("releases:/a/a/1/a-1.jar:REMOVE"));
+  }
+
+  @Test
+  public void blocksProducersWhenFull() throws Exception {
+    flusher.release = new CountDownLatch(1);
+    start(1, 2);
+
+    // first update is taken by the flush, which blocks, second one stays pending
+    underTest.enqueue("releases", "/a/a/1/a-1.jar", Operation.ADD);
+    assertThat(flusher.flushing.await(5, TimeUnit.SECONDS), is(true));
+    underTest.enqueue("releases", "/b/b/1/b-1.jar", Operation.ADD);
+    assertThat(underTest.getDepth(), is(2));
+
+    final AtomicBoolean accepted = new AtomicBoolean();
+    final Thread producer = new Thread()
+    {
+      @Override
+      public void run() {
+        try {
+          accepted.set(underTest.enqueue("releases", "/c/c/1/c-1.jar", Operation.ADD));
+        }
+        catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    producer.start();
+    producer.join(200);
+    assertThat(producer.isAlive(), is(true));
+
+    flusher.release.countDown();
+    producer.join(5000);
+    assertThat(producer.isAlive(), is(false));
+    assertThat(accepted.get(), is(true));
+  }
+
+  @Test
+  public void rejectsUpdatesOnceClosed() throws Exception {
+    start(100, 100);
+    underTest.close();
+
+    assertThat(underTest.enqueue("releases", "/a/a/1/a-1.jar", Operation.ADD), is(false));
+    assertThat(flusher.getFlushed(), empty());
+    underTest = null;
+  }
+}
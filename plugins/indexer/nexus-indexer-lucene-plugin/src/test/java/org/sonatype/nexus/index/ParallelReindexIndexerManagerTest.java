@@ -0,0 +1,127 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sonatype.nexus.proxy.repository.GroupRepository;
+import org.sonatype.nexus.scheduling.ProgressSupport;
+import org.sonatype.nexus.scheduling.ProgressSupport.ProgressListener;
+
+import org.apache.lucene.search.Query;
+import org.apache.maven.index.IteratorSearchResponse;
+import org.apache.maven.index.MAVEN;
+import org.apache.maven.index.SearchType;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Operations on all repositories processing repositories in parallel.
+ */
+public class ParallelReindexIndexerManagerTest
+    extends AbstractIndexerManagerTest
+{
+  private final List<String> progress = new ArrayList<String>();
+
+  @Override
+  protected void setUp()
+      throws Exception
+  {
+    super.setUp();
+
+    ProgressSupport.setCurrent(new ProgressListener()
+    {
+      @Override
+      public void progress(final String message) {
+        synchronized (progress) {
+          progress.add(message);
+        }
+      }
+    });
+
+    fillInRepo();
+  }
+
+  @Override
+  protected void tearDown()
+      throws Exception
+  {
+    ProgressSupport.setCurrent(null);
+
+    super.tearDown();
+  }
+
+  private int countHits()
+      throws Exception
+  {
+    Query query = indexerManager.constructQuery(MAVEN.GROUP_ID, "org.sonatype", SearchType.SCORED);
+    IteratorSearchResponse response = indexerManager.searchQueryIterator(query, null, null, null, null, false, null);
+    try {
+      return response.getTotalHitsCount();
+    }
+    finally {
+      response.close();
+    }
+  }
+
+  private boolean hasProgress(String prefix) {
+    synchronized (progress) {
+      for (String message : progress) {
+        if (message.startsWith(prefix)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  @Test
+  public void testParallelReindexMatchesSequentialReindex()
+      throws Exception
+  {
+    indexerManager.reindexAllRepositories("/", true);
+    final int expected = countHits();
+    assertTrue(expected > 0);
+
+    Whitebox.setInternalState(indexerManager, "concurrency", 4);
+    progress.clear();
+
+    indexerManager.reindexAllRepositories("/", true);
+
+    assertEquals(expected, countHits());
+    assertTrue(progress.toString(), hasProgress("Reindexed repository releases (")
+        && hasProgress("Reindexed repository snapshots (")
+        && hasProgress("Published index of repository public ("));
+  }
+
+  @Test
+  public void testParallelGroupReindexPublishesGroupIndex()
+      throws Exception
+  {
+    Whitebox.setInternalState(indexerManager, "concurrency", 4);
+
+    GroupRepository group = (GroupRepository) repositoryRegistry.getRepository("public");
+    File indexFile = new File(new File(new URL(group.getLocalUrl()).toURI()),
+        ".index/nexus-maven-repository-index.gz");
+
+    indexerManager.reindexRepository(null, group.getId(), true);
+
+    assertTrue("Index .gz file should exist.", indexFile.exists());
+    assertTrue(progress.toString(), hasProgress("Reindexed repository releases ("));
+  }
+}
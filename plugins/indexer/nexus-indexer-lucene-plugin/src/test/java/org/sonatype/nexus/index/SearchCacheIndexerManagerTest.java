@@ -0,0 +1,149 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.sonatype.nexus.proxy.ResourceStoreRequest;
+import org.sonatype.nexus.proxy.item.StorageItem;
+
+import org.apache.lucene.search.Query;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.IteratorSearchResponse;
+import org.apache.maven.index.MAVEN;
+import org.apache.maven.index.SearchType;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Searches served from search result cache, which is invalidated by index changes.
+ */
+public class SearchCacheIndexerManagerTest
+    extends AbstractIndexerManagerTest
+{
+  private static final String GROUP_ID = "org.sonatype.nexus";
+
+  @Override
+  protected void setUp()
+      throws Exception
+  {
+    super.setUp();
+
+    Whitebox.setInternalState(indexerManager, "searchCacheEnabled", true);
+
+    fillInRepo();
+    indexerManager.reindexAllRepositories("/", true);
+  }
+
+  private SearchResultCache getSearchCache() {
+    return Whitebox.getInternalState(indexerManager, "searchCache");
+  }
+
+  private int search()
+      throws Exception
+  {
+    Query q = indexerManager.constructQuery(MAVEN.GROUP_ID, GROUP_ID, SearchType.EXACT);
+    IteratorSearchResponse response = indexerManager.searchQueryIterator(q, null, null, null, null, false, null);
+    try {
+      int count = 0;
+      for (ArtifactInfo ai : response) {
+        assertEquals(GROUP_ID, ai.groupId);
+        count++;
+      }
+      return count;
+    }
+    finally {
+      response.close();
+    }
+  }
+
+  @Test
+  public void testRepeatedSearchIsServedFromCache()
+      throws Exception
+  {
+    final int expected = search();
+    assertTrue(expected > 0);
+
+    assertEquals(expected, search());
+    assertEquals(expected, search());
+
+    assertEquals(2L, getSearchCache().getStats().hitCount());
+    assertEquals(1L, getSearchCache().getStats().missCount());
+  }
+
+  @Test
+  public void testReindexInvalidatesCachedResults()
+      throws Exception
+  {
+    final int expected = search();
+
+    // new artifact added "from behind", only a reindex brings it into the index
+    Path artifactRoot = new File(new URL(releases.getLocalUrl()).toURI()).toPath()
+        .resolve("org/sonatype/nexus/nexus-indexer");
+    Files.createDirectories(artifactRoot.resolve("1.0-beta-5"));
+    Files.copy(artifactRoot.resolve("1.0-beta-4/nexus-indexer-1.0-beta-4.pom"),
+        artifactRoot.resolve("1.0-beta-5/nexus-indexer-1.0-beta-5.pom"));
+
+    indexerManager.reindexRepository("/", releases.getId(), true);
+
+    assertEquals(expected + 1, search());
+    assertEquals(0L, getSearchCache().getStats().hitCount());
+  }
+
+  @Test
+  public void testIdentifyIsInvalidatedByReindex()
+      throws Exception
+  {
+    final String sha1 = "0123456789012345678901234567890123456789";
+
+    assertEquals(0, indexerManager.identifyArtifact(MAVEN.SHA1, sha1).size());
+    assertEquals(0, indexerManager.identifyArtifact(MAVEN.SHA1, sha1).size());
+    assertEquals(1L, getSearchCache().getStats().hitCount());
+
+    // identify searches all repositories, a change of any of them invalidates the result
+    indexerManager.reindexRepository("/", snapshots.getId(), true);
+
+    assertEquals(0, indexerManager.identifyArtifact(MAVEN.SHA1, sha1).size());
+    assertEquals(1L, getSearchCache().getStats().hitCount());
+  }
+
+  @Test
+  public void testItemUpdateKeepsUnrelatedIdentifyResults()
+      throws Exception
+  {
+    final String sha1 = "0123456789012345678901234567890123456789";
+    final int expected = search();
+
+    assertEquals(0, indexerManager.identifyArtifact(MAVEN.SHA1, sha1).size());
+
+    Path artifactRoot = new File(new URL(releases.getLocalUrl()).toURI()).toPath()
+        .resolve("org/sonatype/nexus/nexus-indexer");
+    Files.createDirectories(artifactRoot.resolve("1.0-beta-5"));
+    Files.copy(artifactRoot.resolve("1.0-beta-4/nexus-indexer-1.0-beta-4.pom"),
+        artifactRoot.resolve("1.0-beta-5/nexus-indexer-1.0-beta-5.pom"));
+    StorageItem item = releases.retrieveItem(
+        new ResourceStoreRequest("/org/sonatype/nexus/nexus-indexer/1.0-beta-5/nexus-indexer-1.0-beta-5.pom"));
+
+    indexerManager.addItemToIndex(releases, item);
+
+    // the added item changes the search, but not the lookup of another checksum
+    assertEquals(expected + 1, search());
+    assertEquals(0, indexerManager.identifyArtifact(MAVEN.SHA1, sha1).size());
+    assertEquals(1L, getSearchCache().getStats().hitCount());
+  }
+}
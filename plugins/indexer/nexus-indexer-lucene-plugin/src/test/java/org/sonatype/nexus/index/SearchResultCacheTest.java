@@ -0,0 +1,175 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.apache.maven.index.ArtifactInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for {@link SearchResultCache}.
+ */
+public class SearchResultCacheTest
+    extends TestSupport
+{
+  private SearchResultCache underTest;
+
+  @Before
+  public void prepare() {
+    underTest = new SearchResultCache(10, 3);
+  }
+
+  private static SearchResultCache.Key key(String query, String... targets) {
+    return new SearchResultCache.Key(query, targets.length == 0 ? null : Arrays.asList(targets), 0, 100);
+  }
+
+  private static SearchResultCache.Results results(int count) {
+    List<ArtifactInfo> artifacts = new ArrayList<ArtifactInfo>();
+    for (int i = 0; i < count; i++) {
+      artifacts.add(new ArtifactInfo("releases", "org.sonatype", "artifact" + i, "1.0", null));
+    }
+    return new SearchResultCache.Results(artifacts, count);
+  }
+
+  private void put(SearchResultCache.Key key, SearchResultCache.Results results) {
+    underTest.put(key, results, underTest.getGeneration(key));
+  }
+
+  private static SearchResultCache.Results results(String repositoryId) {
+    return new SearchResultCache.Results(
+        Collections.singletonList(new ArtifactInfo(repositoryId, "org.sonatype", "artifact", "1.0", null)), 1);
+  }
+
+  @Test
+  public void keysAreIndependentOfTargetOrder() {
+    put(key("g:org.sonatype", "releases", "snapshots"), results(1));
+
+    assertThat(underTest.get(key("g:org.sonatype", "snapshots", "releases")), notNullValue());
+    assertThat(underTest.get(key("g:org.sonatype", "releases")), nullValue());
+    assertThat(underTest.get(new SearchResultCache.Key("g:org.sonatype", Arrays.asList("releases", "snapshots"), 10,
+        100)), nullValue());
+  }
+
+  @Test
+  public void statisticsRecordHitsAndMisses() {
+    underTest.get(key("g:org.sonatype", "releases"));
+    put(key("g:org.sonatype", "releases"), results(1));
+    underTest.get(key("g:org.sonatype", "releases"));
+    underTest.get(key("g:org.sonatype", "releases"));
+    underTest.get(key("g:org.sonatype", "releases"));
+
+    assertThat(underTest.getStats().hitCount(), is(3L));
+    assertThat(underTest.getStats().missCount(), is(1L));
+    assertThat(underTest.getStats().hitRate(), is(0.75));
+  }
+
+  @Test
+  public void invalidationDropsEntriesOfRepository() {
+    put(key("q1", "releases"), results(1));
+    put(key("q2", "releases", "snapshots"), results(1));
+    put(key("q3", "snapshots"), results(1));
+    put(key("q4"), results(1));
+
+    underTest.invalidate("releases");
+
+    assertThat(underTest.get(key("q1", "releases")), nullValue());
+    assertThat(underTest.get(key("q2", "releases", "snapshots")), nullValue());
+    assertThat(underTest.get(key("q3", "snapshots")), notNullValue());
+    // entries without targets include all repositories
+    assertThat(underTest.get(key("q4")), nullValue());
+  }
+
+  @Test
+  public void resultsOfSearchRacingWithInvalidationAreNotCached() {
+    long generation = underTest.getGeneration(key("q1", "releases", "snapshots"));
+
+    underTest.invalidate("snapshots");
+    underTest.put(key("q1", "releases", "snapshots"), results(1), generation);
+
+    assertThat(underTest.get(key("q1", "releases", "snapshots")), nullValue());
+  }
+
+  @Test
+  public void resultsOfSearchRacingWithInvalidationOfOtherRepositoryAreCached() {
+    long generation = underTest.getGeneration(key("q1", "releases"));
+
+    underTest.invalidate("snapshots");
+    underTest.put(key("q1", "releases"), results(1), generation);
+
+    assertThat(underTest.get(key("q1", "releases")), notNullValue());
+  }
+
+  @Test
+  public void itemInvalidationKeepsUnrelatedIdentifyLookups() {
+    SearchResultCache.Key changed = new SearchResultCache.Key("identify 1", "1");
+    SearchResultCache.Key includingRepository = new SearchResultCache.Key("identify 2", "2");
+    SearchResultCache.Key unrelated = new SearchResultCache.Key("identify 3", "3");
+    SearchResultCache.Key untermed = new SearchResultCache.Key("identify a:artifact", null);
+    put(changed, results(0));
+    put(includingRepository, results("releases"));
+    put(unrelated, results("snapshots"));
+    put(untermed, results("snapshots"));
+
+    underTest.invalidate("releases", Collections.singletonList("1"));
+
+    assertThat(underTest.get(changed), nullValue());
+    assertThat(underTest.get(includingRepository), nullValue());
+    assertThat(underTest.get(unrelated), notNullValue());
+    // lookups not by checksum may be affected by any item
+    assertThat(underTest.get(untermed), nullValue());
+
+    // changes of the whole repository index may affect any lookup
+    underTest.invalidate("releases");
+
+    assertThat(underTest.get(unrelated), nullValue());
+  }
+
+  @Test
+  public void bigResultsAreNotCached() {
+    assertThat(underTest.isCacheable(3), is(true));
+    assertThat(underTest.isCacheable(4), is(false));
+
+    put(key("q1", "releases"), results(4));
+
+    assertThat(underTest.get(key("q1", "releases")), nullValue());
+  }
+
+  @Test
+  public void cacheIsBoundedByArtifactCount() {
+    for (int i = 0; i < 10; i++) {
+      put(key("q" + i, "releases"), results(3));
+    }
+
+    assertThat(underTest.getSize() <= 3, is(true));
+    assertThat(underTest.getStats().evictionCount() > 0, is(true));
+  }
+
+  @Test
+  public void emptyResultsAreCached() {
+    put(key("q1", "releases"), new SearchResultCache.Results(Collections.<ArtifactInfo>emptyList(), 0));
+
+    assertThat(underTest.get(key("q1", "releases")).getTotalHits(), is(0));
+  }
+}
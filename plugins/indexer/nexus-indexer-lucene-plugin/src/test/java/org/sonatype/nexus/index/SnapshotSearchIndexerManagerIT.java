@@ -0,0 +1,152 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.index;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.lucene.search.Query;
+import org.apache.maven.index.ArtifactInfo;
+import org.apache.maven.index.IteratorSearchResponse;
+import org.apache.maven.index.MAVEN;
+import org.apache.maven.index.SearchType;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Searches and reindexing running concurrently, with searches using point-in-time searchers.
+ */
+// This is an IT just because it runs longer then 15 seconds
+public class SnapshotSearchIndexerManagerIT
+    extends AbstractIndexerManagerTest
+{
+  private static final String GROUP_ID = "org.sonatype.nexus";
+
+  @Override
+  protected void setUp()
+      throws Exception
+  {
+    super.setUp();
+
+    Whitebox.setInternalState(indexerManager, "snapshotSearch", true);
+    // reindex gives up replacing the index if it cannot get exclusive lock in time
+    Whitebox.setInternalState(indexerManager, "lockTimeoutSeconds", 5);
+
+    fillInRepo();
+    indexerManager.reindexAllRepositories("/", true);
+  }
+
+  private IteratorSearchResponse search()
+      throws Exception
+  {
+    Query q = indexerManager.constructQuery(MAVEN.GROUP_ID, GROUP_ID, SearchType.EXACT);
+    return indexerManager.searchQueryIterator(q, null, null, null, null, false, null);
+  }
+
+  private int drain(IteratorSearchResponse response)
+      throws Exception
+  {
+    try {
+      int count = 0;
+      for (ArtifactInfo ai : response) {
+        assertEquals(GROUP_ID, ai.groupId);
+        count++;
+      }
+      return count;
+    }
+    finally {
+      response.close();
+    }
+  }
+
+  @Test
+  public void testOpenSearchResultsDoNotBlockReindex()
+      throws Exception
+  {
+    final int expected = drain(search());
+
+    IteratorSearchResponse open = search();
+    try {
+      // new artifact added "from behind", only a reindex brings it into the index
+      Path artifactRoot = new File(new URL(releases.getLocalUrl()).toURI()).toPath()
+          .resolve("org/sonatype/nexus/nexus-indexer");
+      Files.createDirectories(artifactRoot.resolve("1.0-beta-5"));
+      Files.copy(artifactRoot.resolve("1.0-beta-4/nexus-indexer-1.0-beta-4.pom"),
+          artifactRoot.resolve("1.0-beta-5/nexus-indexer-1.0-beta-5.pom"));
+
+      indexerManager.reindexRepository("/", releases.getId(), true);
+
+      assertEquals("Reindex must replace the index while search results are open", expected + 1, drain(search()));
+    }
+    finally {
+      // the open results still see the index as it was when the search started
+      assertEquals(expected, drain(open));
+    }
+  }
+
+  @Test
+  public void testConcurrentSearchesAndReindex()
+      throws Exception
+  {
+    final int expected = drain(search());
+    assertTrue(expected > 0);
+
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    final List<Future<Integer>> searchers = new ArrayList<Future<Integer>>();
+    try {
+      for (int i = 0; i < 8; i++) {
+        searchers.add(executor.submit(new Callable<Integer>()
+        {
+          @Override
+          public Integer call()
+              throws Exception
+          {
+            int searches = 0;
+            while (running.get()) {
+              assertEquals(expected, drain(search()));
+              searches++;
+            }
+            return searches;
+          }
+        }));
+      }
+
+      for (int i = 0; i < 5; i++) {
+        indexerManager.reindexRepository("/", releases.getId(), true);
+        indexerManager.publishRepositoryIndex(releases.getId());
+      }
+    }
+    finally {
+      running.set(false);
+      executor.shutdown();
+    }
+
+    for (Future<Integer> searcher : searchers) {
+      // rethrows assertion failures of searcher threads
+      assertTrue(searcher.get() > 0);
+    }
+    assertEquals(expected, drain(search()));
+  }
+}